@@ -0,0 +1,202 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode.loadtest;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.function.*;
+
+import com.globalmentor.unicode.*;
+
+/**
+ * A report comparing the character properties of the bundled Unicode database with those of {@link java.lang.Character}, listing the code points on which
+ * they diverge and timing property lookups through {@link UnicodeCharacter} getters, the database tables, and {@link JdkCharacterProperties}.
+ * <p>
+ * Options, each in the form <code>--name=value</code>:
+ * </p>
+ * <ul>
+ * <li><code>--samples</code>: the number of divergent code points to list for each property; default 20.</li>
+ * <li><code>--iterations</code>: the number of passes over the BMP to time for each lookup; default 50.</li>
+ * </ul>
+ * <p>
+ * Run with <code>mvn -f load-test/pom.xml compile exec:exec -Dloadtest.mainClass=com.globalmentor.unicode.loadtest.CharacterDivergenceReport</code>.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class CharacterDivergenceReport {
+
+	/** The number of divergent code points to list for each property. */
+	private final int sampleCount;
+
+	/** The number of passes over the BMP to time for each lookup. */
+	private final int iterationCount;
+
+	/**
+	 * Options constructor.
+	 * @param options The options, keyed to their names.
+	 * @throws IllegalArgumentException if an option is not recognized or has an invalid value.
+	 */
+	public CharacterDivergenceReport(final Map<String, String> options) {
+		final Map<String, String> remainingOptions = new HashMap<String, String>(options);
+		sampleCount = Integer.parseInt(Optional.ofNullable(remainingOptions.remove("samples")).orElse("20"));
+		iterationCount = Integer.parseInt(Optional.ofNullable(remainingOptions.remove("iterations")).orElse("50"));
+		if(!remainingOptions.isEmpty()) {
+			throw new IllegalArgumentException("Unrecognized options: " + remainingOptions.keySet());
+		}
+	}
+
+	/**
+	 * Runs the report.
+	 * @param out The stream to which to print the report.
+	 */
+	public void run(final PrintStream out) {
+		final UnicodeDatabase database = UnicodeDatabase.getBundled();
+		final long startNanos = System.nanoTime();
+		final JdkCharacterProperties properties = JdkCharacterProperties.forDatabase(database);
+		final long verifyNanos = System.nanoTime() - startNanos;
+		final JdkCharacterProperties.Divergence divergence = properties.getDivergence();
+		out.printf("Unicode %s vs. Java %s (Unicode data of the JDK may be newer); verified %d BMP code points in %.1f ms%n", database.getVersion(),
+				System.getProperty("java.version"), JdkCharacterProperties.BMP_CODE_POINT_COUNT, verifyNanos / 1_000_000.0);
+		out.println();
+		printDivergence(out, "General category", divergence.getGeneralCategoryCodePoints(), codePoint -> {
+			final UnicodeCharacter unicodeCharacter = database.getUnicodeCharacter(codePoint);
+			final String generalCategory = unicodeCharacter != null ? unicodeCharacter.getGeneralCategory() : properties.getGeneralCategory(codePoint);
+			return String.format("%s (JDK type %d)", generalCategory, Character.getType(codePoint));
+		});
+		printDivergence(out, "Bidirectional category", divergence.getBidirectionalCategoryCodePoints(),
+				codePoint -> String.format("%s (JDK directionality %d)", properties.getBidirectionalCategory(codePoint),
+						Character.getDirectionality(codePoint)));
+		printDivergence(out, "Mirrored", divergence.getMirroredCodePoints(),
+				codePoint -> String.format("%b (JDK %b)", properties.isMirrored(codePoint), Character.isMirrored(codePoint)));
+		out.println();
+		out.printf("JDK-assisted lookups inconsistent with UnicodeCharacter getters: %d%n", countMismatches(database, properties));
+		out.println();
+		out.printf("%-28s %12s %12s %12s%n", "Lookup (ns per code point)", "Getters", "Tables", "JDK assisted");
+		out.printf("%-28s %12.2f%n", "(Loop overhead)", time(codePoint -> codePoint)); //the cost of the loop and call, included in each timing
+		printTiming(out, "General category", codePoint -> {
+			final UnicodeCharacter unicodeCharacter = database.getUnicodeCharacter(codePoint);
+			return unicodeCharacter != null ? unicodeCharacter.getGeneralCategory().hashCode() : 0;
+		}, codePoint -> GeneralCategories.getIndex(database, codePoint), properties::getGeneralCategoryIndex);
+		printTiming(out, "Bidirectional category", codePoint -> {
+			final UnicodeCharacter unicodeCharacter = database.getUnicodeCharacter(codePoint);
+			return unicodeCharacter != null ? unicodeCharacter.getBidirectionalCategory().hashCode() : 0;
+		}, null, codePoint -> Objects.hashCode(properties.getBidirectionalCategory(codePoint)));
+		printTiming(out, "Mirrored", codePoint -> {
+			final UnicodeCharacter unicodeCharacter = database.getUnicodeCharacter(codePoint);
+			return unicodeCharacter != null && unicodeCharacter.isMirrored() ? 1 : 0;
+		}, null, codePoint -> properties.isMirrored(codePoint) ? 1 : 0);
+	}
+
+	/**
+	 * Prints the divergent code points of a property.
+	 * @param out The stream to which to print.
+	 * @param property The name of the property.
+	 * @param codePoints The divergent code points.
+	 * @param describer The function for describing the value of a divergent code point.
+	 */
+	private void printDivergence(final PrintStream out, final String property, final UnicodeSet codePoints, final IntFunction<String> describer) {
+		out.printf("%s: %d divergent code points in %d ranges%n", property, codePoints.size(), codePoints.getRangeCount());
+		int printedCount = 0;
+		for(int rangeIndex = 0; rangeIndex < codePoints.getRangeCount() && printedCount < sampleCount; ++rangeIndex) {
+			final int codePoint = codePoints.getRangeStart(rangeIndex);
+			final int rangeEnd = codePoints.getRangeEnd(rangeIndex);
+			out.printf("  U+%04X%s: %s%n", codePoint, rangeEnd != codePoint ? String.format("..U+%04X", rangeEnd) : "", describer.apply(codePoint));
+			++printedCount;
+		}
+		if(printedCount < codePoints.getRangeCount()) {
+			out.printf("  ... %d more ranges%n", codePoints.getRangeCount() - printedCount);
+		}
+	}
+
+	/**
+	 * Counts the BMP code points listed in a database for which the JDK-assisted properties differ from the getters of the character.
+	 * @param database The Unicode database.
+	 * @param properties The JDK-assisted properties of the database.
+	 * @return The number of code points with at least one differing property, which should be zero.
+	 */
+	private static int countMismatches(final UnicodeDatabase database, final JdkCharacterProperties properties) {
+		int mismatchCount = 0;
+		for(int codePoint = 0; codePoint < JdkCharacterProperties.BMP_CODE_POINT_COUNT; ++codePoint) {
+			final UnicodeCharacter unicodeCharacter = database.getUnicodeCharacter(codePoint);
+			if(unicodeCharacter != null && (!unicodeCharacter.getGeneralCategory().equals(properties.getGeneralCategory(codePoint))
+					|| !unicodeCharacter.getBidirectionalCategory().equals(properties.getBidirectionalCategory(codePoint))
+					|| unicodeCharacter.isMirrored() != properties.isMirrored(codePoint))) {
+				++mismatchCount;
+			}
+		}
+		return mismatchCount;
+	}
+
+	/**
+	 * Prints the timing of the lookups of a property.
+	 * @param out The stream to which to print.
+	 * @param property The name of the property.
+	 * @param getterLookup The lookup using {@link UnicodeCharacter} getters.
+	 * @param tableLookup The lookup using the database tables, or <code>null</code> if there is no public table lookup for the property.
+	 * @param jdkLookup The lookup using {@link JdkCharacterProperties}.
+	 */
+	private void printTiming(final PrintStream out, final String property, final IntUnaryOperator getterLookup, final IntUnaryOperator tableLookup,
+			final IntUnaryOperator jdkLookup) {
+		final double getterNanos = time(getterLookup);
+		final String tableNanos = tableLookup != null ? String.format("%12.2f", time(tableLookup)) : String.format("%12s", "-");
+		final double jdkNanos = time(jdkLookup);
+		out.printf("%-28s %12.2f %s %12.2f%n", property, getterNanos, tableNanos, jdkNanos);
+	}
+
+	/** A value accumulated from lookups so that they are not optimized away. */
+	private static volatile int blackhole;
+
+	/**
+	 * Times a lookup over every BMP code point, after a warmup of the same length.
+	 * @param lookup The lookup to time.
+	 * @return The mean nanoseconds per lookup.
+	 */
+	private double time(final IntUnaryOperator lookup) {
+		int accumulator = 0;
+		for(int iteration = 0; iteration < iterationCount; ++iteration) { //warm up
+			for(int codePoint = 0; codePoint < JdkCharacterProperties.BMP_CODE_POINT_COUNT; ++codePoint) {
+				accumulator += lookup.applyAsInt(codePoint);
+			}
+		}
+		final long startNanos = System.nanoTime();
+		for(int iteration = 0; iteration < iterationCount; ++iteration) {
+			for(int codePoint = 0; codePoint < JdkCharacterProperties.BMP_CODE_POINT_COUNT; ++codePoint) {
+				accumulator += lookup.applyAsInt(codePoint);
+			}
+		}
+		final long elapsedNanos = System.nanoTime() - startNanos;
+		blackhole += accumulator;
+		return (double)elapsedNanos / ((long)iterationCount * JdkCharacterProperties.BMP_CODE_POINT_COUNT);
+	}
+
+	/**
+	 * Runs the report.
+	 * @param args The options, each in the form <code>--name=value</code>.
+	 */
+	public static void main(final String[] args) {
+		final CharacterDivergenceReport report;
+		try {
+			report = new CharacterDivergenceReport(LoadTest.parseOptions(args));
+		} catch(final IllegalArgumentException illegalArgumentException) {
+			System.err.println(illegalArgumentException.getMessage());
+			System.exit(1);
+			return;
+		}
+		report.run(System.out);
+	}
+
+}
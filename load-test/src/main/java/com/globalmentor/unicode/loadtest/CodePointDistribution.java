@@ -0,0 +1,136 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode.loadtest;
+
+import java.util.*;
+
+import com.globalmentor.unicode.*;
+
+/**
+ * A distribution of code points from which lookups are drawn. Distributions are immutable; all randomness comes from the random number generator passed by
+ * each worker, so that a run is reproducible for a given seed.
+ * @author Garret Wilson
+ */
+public interface CodePointDistribution {
+
+	/**
+	 * Draws the next code point.
+	 * @param random The source of randomness of the calling worker.
+	 * @return A code point.
+	 */
+	public int next(SplittableRandom random);
+
+	/** The default script mix, as block names and weights, loosely modeled on the text of a multilingual web service. */
+	public static final String DEFAULT_SCRIPTS = "Basic Latin=60,Latin-1 Supplement=8,CJK Unified Ideographs=12,Cyrillic=6,Arabic=5,Hangul Syllables=4,"
+			+ "Devanagari=3,Greek=2";
+
+	/** @return The code points listed in the Unicode data, in increasing order; ranges are represented only by their first and last code points. */
+	static int[] getListedCodePoints() {
+		return UnicodeData.codePoints().toArray();
+	}
+
+	/** @return A distribution choosing uniformly among the code points listed in the Unicode data. */
+	public static CodePointDistribution uniform() {
+		final int[] codePoints = getListedCodePoints();
+		return random -> codePoints[random.nextInt(codePoints.length)];
+	}
+
+	/**
+	 * Returns a Zipfian distribution over the code points listed in the Unicode data, ranked in code point order so that ASCII is the most popular. The
+	 * probability of the code point of rank <var>k</var>, starting at one, is proportional to 1/<var>k</var><sup><var>s</var></sup>.
+	 * @param exponent The exponent <var>s</var>; larger values concentrate lookups on fewer code points.
+	 * @return A Zipfian distribution of code points.
+	 * @throws IllegalArgumentException if the exponent is not positive.
+	 */
+	public static CodePointDistribution zipf(final double exponent) {
+		if(!(exponent > 0)) {
+			throw new IllegalArgumentException("Zipf exponent must be positive: " + exponent);
+		}
+		final int[] codePoints = getListedCodePoints();
+		final double[] cumulativeProbabilities = new double[codePoints.length];
+		double total = 0;
+		for(int rank = 0; rank < codePoints.length; ++rank) {
+			total += 1.0 / Math.pow(rank + 1, exponent);
+			cumulativeProbabilities[rank] = total;
+		}
+		for(int rank = 0; rank < codePoints.length; ++rank) {
+			cumulativeProbabilities[rank] /= total;
+		}
+		return random -> {
+			final int rank = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+			return codePoints[Math.min(rank >= 0 ? rank : -rank - 1, codePoints.length - 1)];
+		};
+	}
+
+	/**
+	 * Returns a distribution skewed toward the scripts of particular blocks. A block is chosen by weight, and then a code point is chosen uniformly from the
+	 * entire range of the block, so that large blocks such as CJK Unified Ideographs exercise code points not individually listed in the Unicode data.
+	 * @param scripts The block names and weights in the form <code>name=weight,name=weight</code>, such as {@value #DEFAULT_SCRIPTS}; block names are matched
+	 *          loosely.
+	 * @return A distribution of code points skewed toward the given blocks.
+	 * @throws IllegalArgumentException if a block is not recognized or a weight is not a positive number.
+	 * @see UnicodeBlockRegistry#getBlockByName(CharSequence)
+	 */
+	public static CodePointDistribution scriptSkewed(final String scripts) {
+		final UnicodeBlockRegistry blockRegistry = UnicodeBlockRegistry.forDatabase(UnicodeDatabase.getBundled());
+		final List<UnicodeBlock> blocks = new ArrayList<UnicodeBlock>();
+		final List<Double> weights = new ArrayList<Double>();
+		for(final String script : scripts.split(",")) {
+			final int equalsIndex = script.lastIndexOf('=');
+			if(equalsIndex < 0) {
+				throw new IllegalArgumentException("Script must be in the form name=weight: " + script);
+			}
+			final String blockName = script.substring(0, equalsIndex).trim();
+			final UnicodeBlock block = blockRegistry.getBlockByName(blockName);
+			if(block == null) {
+				throw new IllegalArgumentException("Unknown block: " + blockName);
+			}
+			final double weight;
+			try {
+				weight = Double.parseDouble(script.substring(equalsIndex + 1).trim());
+			} catch(final NumberFormatException numberFormatException) {
+				throw new IllegalArgumentException("Invalid weight for block " + blockName + ": " + script.substring(equalsIndex + 1), numberFormatException);
+			}
+			if(!(weight > 0)) {
+				throw new IllegalArgumentException("Weight for block " + blockName + " must be positive: " + weight);
+			}
+			blocks.add(block);
+			weights.add(Double.valueOf(weight));
+		}
+		final int blockCount = blocks.size();
+		final int[] startCodes = new int[blockCount];
+		final int[] sizes = new int[blockCount];
+		final double[] cumulativeWeights = new double[blockCount];
+		double total = 0;
+		for(int i = 0; i < blockCount; ++i) {
+			startCodes[i] = blocks.get(i).getStartCode();
+			sizes[i] = blocks.get(i).getEndCode() - startCodes[i] + 1;
+			total += weights.get(i).doubleValue();
+			cumulativeWeights[i] = total;
+		}
+		final double totalWeight = total;
+		return random -> {
+			final double target = random.nextDouble() * totalWeight;
+			int block = 0;
+			while(block < blockCount - 1 && cumulativeWeights[block] <= target) { //there are few blocks, so a linear search is fastest
+				++block;
+			}
+			return startCodes[block] + random.nextInt(sizes[block]);
+		};
+	}
+
+}
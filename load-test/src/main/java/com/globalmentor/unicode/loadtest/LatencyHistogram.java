@@ -0,0 +1,176 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode.loadtest;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A histogram of latencies in the style of HdrHistogram, recording values over the entire range of <code>long</code> with a bounded relative error and a
+ * fixed footprint.
+ * <p>
+ * Values below {@value #EXACT_COUNT} are recorded exactly. Larger values are recorded in logarithmic buckets each divided linearly into {@value #HALF_COUNT}
+ * sub-buckets, so that the value reported for any recorded value is within 1/{@value #HALF_COUNT} of it. Values may be recorded concurrently without locking;
+ * contention is best avoided by recording into several histograms and adding them together afterwards.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class LatencyHistogram {
+
+	/** The number of bits of precision of each recorded value. */
+	private static final int PRECISION_BITS = 7;
+
+	/** The number of sub-buckets in each logarithmic bucket. */
+	static final int HALF_COUNT = 1 << PRECISION_BITS;
+
+	/** The number of values recorded exactly. */
+	static final int EXACT_COUNT = HALF_COUNT << 1;
+
+	/** The total number of counts needed to cover all positive <code>long</code> values. */
+	private static final int COUNTS_LENGTH = EXACT_COUNT + (Long.SIZE - 1 - (PRECISION_BITS + 1)) * HALF_COUNT;
+
+	/** The counts of values, indexed by bucket. */
+	private final AtomicLongArray counts = new AtomicLongArray(COUNTS_LENGTH);
+
+	/** The total number of values recorded. */
+	private final AtomicLong totalCount = new AtomicLong();
+
+	/** The sum of all values recorded, for computing the mean. */
+	private final AtomicLong totalValue = new AtomicLong();
+
+	/** The largest value recorded. */
+	private final AtomicLong maxValue = new AtomicLong();
+
+	/**
+	 * Determines the index of the count for a value.
+	 * @param value The non-negative value.
+	 * @return The index of the count in which the value is recorded.
+	 */
+	static int indexOf(final long value) {
+		if(value < EXACT_COUNT) {
+			return (int)value;
+		}
+		final int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - PRECISION_BITS; //at least one, as the value is at least EXACT_COUNT
+		final int subBucket = (int)(value >>> shift); //from HALF_COUNT to EXACT_COUNT - 1
+		return EXACT_COUNT + (shift - 1) * HALF_COUNT + (subBucket - HALF_COUNT);
+	}
+
+	/**
+	 * Determines the largest value recorded at an index.
+	 * @param index The index of a count.
+	 * @return The highest value equivalent to all values recorded at the index.
+	 */
+	static long highestValueAt(final int index) {
+		if(index < EXACT_COUNT) {
+			return index;
+		}
+		final int bucketOffset = index - EXACT_COUNT;
+		final int shift = bucketOffset / HALF_COUNT + 1;
+		final long subBucket = bucketOffset % HALF_COUNT + HALF_COUNT;
+		final long highestValue = ((subBucket + 1) << shift) - 1;
+		return highestValue >= 0 ? highestValue : Long.MAX_VALUE; //the last bucket ends at the largest value
+	}
+
+	/**
+	 * Records a value.
+	 * @param value The value to record; negative values are recorded as zero.
+	 */
+	public void record(final long value) {
+		final long recordedValue = Math.max(value, 0);
+		counts.incrementAndGet(indexOf(recordedValue));
+		totalCount.incrementAndGet();
+		totalValue.addAndGet(recordedValue);
+		if(recordedValue > maxValue.get()) { //check first, so that we rarely contend
+			maxValue.accumulateAndGet(recordedValue, Math::max);
+		}
+	}
+
+	/**
+	 * Adds the values recorded in another histogram to this histogram.
+	 * @param histogram The histogram to add.
+	 */
+	public void add(final LatencyHistogram histogram) {
+		for(int index = 0; index < COUNTS_LENGTH; ++index) {
+			final long count = histogram.counts.get(index);
+			if(count != 0) {
+				counts.addAndGet(index, count);
+			}
+		}
+		totalCount.addAndGet(histogram.totalCount.get());
+		totalValue.addAndGet(histogram.totalValue.get());
+		maxValue.accumulateAndGet(histogram.maxValue.get(), Math::max);
+	}
+
+	/** @return The number of values recorded. */
+	public long getTotalCount() {
+		return totalCount.get();
+	}
+
+	/** @return The largest value recorded, or <code>0</code> if no values have been recorded. */
+	public long getMaxValue() {
+		return maxValue.get();
+	}
+
+	/** @return The mean of the values recorded, or <code>0</code> if no values have been recorded. */
+	public double getMean() {
+		final long count = totalCount.get();
+		return count > 0 ? (double)totalValue.get() / count : 0;
+	}
+
+	/**
+	 * Returns the value at a percentile; that is, the smallest recorded value not exceeded by the given percentage of values.
+	 * @param percentile The percentile, from <code>0.0</code> to <code>100.0</code>.
+	 * @return The value at the percentile, within the precision of the histogram, or <code>0</code> if no values have been recorded.
+	 */
+	public long getValueAtPercentile(final double percentile) {
+		final long count = totalCount.get();
+		if(count == 0) {
+			return 0;
+		}
+		final long targetCount = Math.max((long)Math.ceil(Math.min(percentile, 100.0) / 100.0 * count), 1);
+		long cumulativeCount = 0;
+		for(int index = 0; index < COUNTS_LENGTH; ++index) {
+			cumulativeCount += counts.get(index);
+			if(cumulativeCount >= targetCount) {
+				return Math.min(highestValueAt(index), getMaxValue());
+			}
+		}
+		return getMaxValue();
+	}
+
+	/**
+	 * Prints the distribution of values by percentile, with the percentiles becoming finer toward the tail, as in the output of HdrHistogram.
+	 * @param out The stream to which to print the distribution.
+	 * @param unitNanos The number of nanoseconds per output unit, such as <code>1000</code> for microseconds.
+	 */
+	public void printPercentileDistribution(final PrintStream out, final double unitNanos) {
+		out.printf("%12s %14s %12s%n", "Value", "Percentile", "TotalCount");
+		final long count = getTotalCount();
+		for(long ticks = 1;; ticks <<= 1) { //halve the remaining distance to 100% at each step
+			for(int step = 0; step < 5; ++step) {
+				final double percentile = 100.0 - 100.0 / ticks * (1.0 - step / 10.0); //cover the first half of the remaining distance
+				final long value = getValueAtPercentile(percentile);
+				out.printf("%12.3f %14.6f %12d%n", value / unitNanos, percentile / 100.0, (long)Math.ceil(percentile / 100.0 * count));
+			}
+			if(100.0 / ticks * count < 1) { //stop once the remaining percentage is less than a single value
+				break;
+			}
+		}
+		out.printf("%12.3f %14.6f %12d%n", getMaxValue() / unitNanos, 1.0, count);
+	}
+
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode.loadtest;
+
+import static com.globalmentor.unicode.UnicodeMetrics.*;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.globalmentor.unicode.*;
+
+/**
+ * A load test driving the lookups of {@link UnicodeData#getUnicodeCharacter(int)} and {@link UnicodeBlocks#getUnicodeBlockByCodePoint(int)} from many
+ * concurrent workers, recording the latency of every lookup.
+ * <p>
+ * Workers run on platform threads or, on Java 21 or later, on virtual threads. Code points are drawn from a uniform, Zipfian, or script-skewed distribution
+ * using a seeded generator per worker, so that runs are reproducible. Optional memory pressure causes the softly referenced caches to be cleared during the
+ * run, revealing the tail latency of reloading and re-parsing a block on a cache miss. A warmup phase precedes measurement.
+ * </p>
+ * <p>
+ * By default workers run in a closed loop, issuing each lookup as soon as the previous one completes. With a rate, each worker instead issues lookups on a
+ * fixed schedule and latency is measured from the scheduled time, so that stalls are not hidden by coordinated omission.
+ * </p>
+ * <p>
+ * Options, each in the form <code>--name=value</code>:
+ * </p>
+ * <ul>
+ * <li><code>--threads</code>: <code>platform</code> (default) or <code>virtual</code>.</li>
+ * <li><code>--concurrency</code>: the number of workers; default 16.</li>
+ * <li><code>--duration</code>, <code>--warmup</code>: the seconds to measure and to warm up; default 10 and 2.</li>
+ * <li><code>--distribution</code>: <code>uniform</code>, <code>zipf</code> (default), or <code>script</code>.</li>
+ * <li><code>--zipf-exponent</code>: the exponent of the Zipfian distribution; default 1.1.</li>
+ * <li><code>--scripts</code>: the block weights of the script distribution; default {@value CodePointDistribution#DEFAULT_SCRIPTS}.</li>
+ * <li><code>--target</code>: <code>character</code>, <code>block</code>, or <code>both</code> (default).</li>
+ * <li><code>--rate</code>: lookups per second per worker, or 0 (default) for a closed loop.</li>
+ * <li><code>--ballast</code>, <code>--churn</code>: megabytes of memory to hold, and megabytes of garbage to allocate per second; default 0.</li>
+ * <li><code>--seed</code>: the random seed; default 1.</li>
+ * <li><code>--percentiles</code>: <code>true</code> to print the full percentile distribution of each lookup.</li>
+ * </ul>
+ * @author Garret Wilson
+ */
+public final class LoadTest {
+
+	/**
+	 * The kind of threads on which workers run.
+	 * @author Garret Wilson
+	 */
+	public enum ThreadMode {
+		/** Platform threads, one per worker. */
+		PLATFORM,
+		/** Virtual threads, one per worker; requires Java 21 or later. */
+		VIRTUAL;
+	}
+
+	/**
+	 * The lookups performed.
+	 * @author Garret Wilson
+	 */
+	public enum Target {
+		/** Character lookups using {@link UnicodeData#getUnicodeCharacter(int)}. */
+		CHARACTER,
+		/** Block lookups using {@link UnicodeBlocks#getUnicodeBlockByCodePoint(int)}. */
+		BLOCK,
+		/** Alternating character and block lookups. */
+		BOTH;
+	}
+
+	/** The number of nanoseconds in a microsecond, the unit of reported latencies. */
+	private static final double MICROSECOND_NANOS = 1000.0;
+
+	/** The options of the run. */
+	private final Map<String, String> options;
+
+	/** The kind of threads on which workers run. */
+	private final ThreadMode threadMode;
+
+	/** The number of workers. */
+	private final int concurrency;
+
+	/** The lookups performed. */
+	private final Target target;
+
+	/** The lookups per second of each worker, or <code>0</code> for a closed loop. */
+	private final double rate;
+
+	/** The base random seed. */
+	private final long seed;
+
+	/** The distribution of code points. */
+	private final CodePointDistribution distribution;
+
+	/** The description of the distribution. */
+	private final String distributionDescription;
+
+	/** A sink for lookup results, so that lookups are not optimized away. */
+	private volatile int sink;
+
+	/**
+	 * Options constructor.
+	 * @param options The options, keyed to their names without the leading hyphens.
+	 * @throws IllegalArgumentException if an option is invalid.
+	 */
+	public LoadTest(final Map<String, String> options) {
+		this.options = options;
+		threadMode = ThreadMode.valueOf(getOption("threads", "platform").toUpperCase(Locale.ROOT));
+		concurrency = Integer.parseInt(getOption("concurrency", "16"));
+		if(concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be at least one: " + concurrency);
+		}
+		target = Target.valueOf(getOption("target", "both").toUpperCase(Locale.ROOT));
+		rate = Double.parseDouble(getOption("rate", "0"));
+		seed = Long.parseLong(getOption("seed", "1"));
+		final String distributionName = getOption("distribution", "zipf");
+		switch(distributionName) {
+			case "uniform":
+				distribution = CodePointDistribution.uniform();
+				distributionDescription = "uniform";
+				break;
+			case "zipf": {
+				final double exponent = Double.parseDouble(getOption("zipf-exponent", "1.1"));
+				distribution = CodePointDistribution.zipf(exponent);
+				distributionDescription = "zipf(" + exponent + ")";
+			}
+				break;
+			case "script": {
+				final String scripts = getOption("scripts", CodePointDistribution.DEFAULT_SCRIPTS);
+				distribution = CodePointDistribution.scriptSkewed(scripts);
+				distributionDescription = "script(" + scripts + ")";
+			}
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown distribution: " + distributionName);
+		}
+	}
+
+	/**
+	 * Returns the value of an option.
+	 * @param name The name of the option.
+	 * @param defaultValue The value to return if the option was not given.
+	 * @return The value of the option.
+	 */
+	private String getOption(final String name, final String defaultValue) {
+		return options.getOrDefault(name, defaultValue);
+	}
+
+	/**
+	 * Runs the load test and prints a report.
+	 * @param out The stream to which to print the report.
+	 * @throws InterruptedException if the test was interrupted.
+	 */
+	public void run(final PrintStream out) throws InterruptedException {
+		final long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(getOption("warmup", "2")));
+		final long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(getOption("duration", "10")));
+		final int ballastMegabytes = Integer.parseInt(getOption("ballast", "0"));
+		final int churnMegabytesPerSecond = Integer.parseInt(getOption("churn", "0"));
+		final SimpleUnicodeMetrics metrics = new SimpleUnicodeMetrics();
+		UnicodeMonitoring.setMetrics(metrics);
+		out.printf("Unicode load test: %d %s workers, %s distribution, %s, %d s (%d s warmup)%n", concurrency, threadMode.name().toLowerCase(Locale.ROOT),
+				distributionDescription, rate > 0 ? rate + " lookups/s per worker" : "closed loop", TimeUnit.NANOSECONDS.toSeconds(durationNanos),
+				TimeUnit.NANOSECONDS.toSeconds(warmupNanos));
+		out.printf("Java %s, max heap %d MB, memory pressure: %d MB ballast, %d MB/s churn%n", System.getProperty("java.version"),
+				Runtime.getRuntime().maxMemory() >> 20, ballastMegabytes, churnMegabytesPerSecond);
+		final MemoryPressure memoryPressure = ballastMegabytes > 0 || churnMegabytesPerSecond > 0
+				? new MemoryPressure(ballastMegabytes, churnMegabytesPerSecond) : null;
+		try {
+			runPhase(warmupNanos, createHistograms(), createHistograms()); //warm up, discarding the results
+			metrics.clear();
+			final Map<UnicodeMemory.Structure, UnicodeMemory.Usage> usagesBefore = UnicodeMemory.getUsages();
+			final LatencyHistogram[] characterHistograms = createHistograms();
+			final LatencyHistogram[] blockHistograms = createHistograms();
+			final long elapsedNanos = runPhase(durationNanos, characterHistograms, blockHistograms);
+			final Map<UnicodeMemory.Structure, UnicodeMemory.Usage> usagesAfter = UnicodeMemory.getUsages();
+			out.println();
+			out.printf("%-10s %12s %12s %10s %10s %10s %10s %10s %12s%n", "Lookup", "Count", "Lookups/s", "Mean us", "p50 us", "p90 us", "p99 us", "p99.9 us",
+					"Max us");
+			final LatencyHistogram characterHistogram = merge(characterHistograms);
+			final LatencyHistogram blockHistogram = merge(blockHistograms);
+			printSummary(out, "character", characterHistogram, elapsedNanos);
+			printSummary(out, "block", blockHistogram, elapsedNanos);
+			out.println();
+			out.printf("Cache: %d hits, %d misses, %d misses of reclaimed characters%n", metrics.getCount(CACHE_HIT_COUNTER),
+					metrics.getCount(CACHE_MISS_COUNTER), metrics.getCount(CACHE_CLEARED_COUNTER));
+			final long blockLoadCount = metrics.getTimerCount(BLOCK_LOAD_TIMER);
+			out.printf("Block loads: %d, mean %.3f ms, max %.3f ms, %d lines scanned; unassigned set rebuilds: %d; blocks reloads: %d%n", blockLoadCount,
+					blockLoadCount > 0 ? metrics.getTimerTotalNanos(BLOCK_LOAD_TIMER) / 1e6 / blockLoadCount : 0.0,
+					metrics.getTimerMaxNanos(BLOCK_LOAD_TIMER) / 1e6, metrics.getCount(LINES_SCANNED_COUNTER), metrics.getCount(UNASSIGNED_SET_REBUILD_COUNTER),
+					metrics.getTimerCount(BLOCKS_LOAD_TIMER));
+			for(final UnicodeMemory.Structure structure : UnicodeMemory.Structure.values()) {
+				final UnicodeMemory.Usage usage = usagesAfter.get(structure);
+				out.printf("%-16s %8d entries, ~%8d KB, %d rebuilds during the run%n", structure, usage.getEntryCount(), usage.getEstimatedBytes() >> 10,
+						usage.getRebuildCount() - usagesBefore.get(structure).getRebuildCount());
+			}
+			if(Boolean.parseBoolean(getOption("percentiles", "false"))) {
+				if(characterHistogram.getTotalCount() > 0) {
+					out.println();
+					out.println("Character lookup latency (us):");
+					characterHistogram.printPercentileDistribution(out, MICROSECOND_NANOS);
+				}
+				if(blockHistogram.getTotalCount() > 0) {
+					out.println();
+					out.println("Block lookup latency (us):");
+					blockHistogram.printPercentileDistribution(out, MICROSECOND_NANOS);
+				}
+			}
+		} finally {
+			if(memoryPressure != null) {
+				memoryPressure.close();
+			}
+			UnicodeMonitoring.setMetrics(UnicodeMetrics.NONE);
+		}
+	}
+
+	/** @return A new set of histograms, one per stripe of workers, so that workers rarely contend. */
+	private LatencyHistogram[] createHistograms() {
+		final LatencyHistogram[] histograms = new LatencyHistogram[Math.min(concurrency, Runtime.getRuntime().availableProcessors() * 4)];
+		for(int i = 0; i < histograms.length; ++i) {
+			histograms[i] = new LatencyHistogram();
+		}
+		return histograms;
+	}
+
+	/**
+	 * Merges histograms.
+	 * @param histograms The histograms to merge.
+	 * @return A new histogram containing the values of all the histograms.
+	 */
+	private static LatencyHistogram merge(final LatencyHistogram[] histograms) {
+		final LatencyHistogram mergedHistogram = new LatencyHistogram();
+		for(final LatencyHistogram histogram : histograms) {
+			mergedHistogram.add(histogram);
+		}
+		return mergedHistogram;
+	}
+
+	/**
+	 * Prints a summary line of a histogram, if it has values.
+	 * @param out The stream to which to print.
+	 * @param name The name of the lookup.
+	 * @param histogram The histogram of lookup latencies.
+	 * @param elapsedNanos The duration of the phase, in nanoseconds.
+	 */
+	private static void printSummary(final PrintStream out, final String name, final LatencyHistogram histogram, final long elapsedNanos) {
+		if(histogram.getTotalCount() == 0) {
+			return;
+		}
+		out.printf("%-10s %12d %12.0f %10.3f %10.3f %10.3f %10.3f %10.3f %12.3f%n", name, histogram.getTotalCount(),
+				histogram.getTotalCount() * 1e9 / elapsedNanos, histogram.getMean() / MICROSECOND_NANOS, histogram.getValueAtPercentile(50) / MICROSECOND_NANOS,
+				histogram.getValueAtPercentile(90) / MICROSECOND_NANOS, histogram.getValueAtPercentile(99) / MICROSECOND_NANOS,
+				histogram.getValueAtPercentile(99.9) / MICROSECOND_NANOS, histogram.getMaxValue() / MICROSECOND_NANOS);
+	}
+
+	/**
+	 * Runs all the workers for a phase of the test.
+	 * @param durationNanos The duration of the phase, in nanoseconds.
+	 * @param characterHistograms The histograms in which to record character lookup latencies.
+	 * @param blockHistograms The histograms in which to record block lookup latencies.
+	 * @return The actual duration of the phase, in nanoseconds.
+	 * @throws InterruptedException if the phase was interrupted.
+	 */
+	private long runPhase(final long durationNanos, final LatencyHistogram[] characterHistograms, final LatencyHistogram[] blockHistograms)
+			throws InterruptedException {
+		final ExecutorService executor = createExecutor();
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final List<Future<?>> futures = new ArrayList<Future<?>>(concurrency);
+		final long[] deadline = new long[1]; //set just before the start signal
+		for(int worker = 0; worker < concurrency; ++worker) {
+			final int workerIndex = worker;
+			futures.add(executor.submit(() -> {
+				startLatch.await();
+				runWorker(workerIndex, deadline[0], characterHistograms[workerIndex % characterHistograms.length],
+						blockHistograms[workerIndex % blockHistograms.length]);
+				return null;
+			}));
+		}
+		final long startNanos = System.nanoTime();
+		deadline[0] = startNanos + durationNanos;
+		startLatch.countDown(); //the latch makes the deadline visible to the workers
+		try {
+			for(final Future<?> future : futures) {
+				future.get();
+			}
+		} catch(final ExecutionException executionException) {
+			throw new IllegalStateException("Worker failed.", executionException.getCause());
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		return System.nanoTime() - startNanos;
+	}
+
+	/**
+	 * Performs lookups until the deadline.
+	 * @param workerIndex The index of the worker, used to derive its random seed.
+	 * @param deadline The value of {@link System#nanoTime()} at which to stop.
+	 * @param characterHistogram The histogram in which to record character lookup latencies.
+	 * @param blockHistogram The histogram in which to record block lookup latencies.
+	 */
+	private void runWorker(final int workerIndex, final long deadline, final LatencyHistogram characterHistogram, final LatencyHistogram blockHistogram) {
+		final SplittableRandom random = new SplittableRandom(seed * 31 + workerIndex);
+		final long intervalNanos = rate > 0 ? (long)(1e9 / rate) : 0;
+		long scheduledNanos = System.nanoTime();
+		int result = 0;
+		for(long lookup = 0;; ++lookup) {
+			if(intervalNanos > 0) { //wait for the scheduled time, measuring from it rather than from when we actually started
+				scheduledNanos += intervalNanos;
+				final long delayNanos = scheduledNanos - System.nanoTime();
+				if(delayNanos > 0) {
+					LockSupport.parkNanos(delayNanos);
+				}
+			}
+			final long startNanos = intervalNanos > 0 ? scheduledNanos : System.nanoTime();
+			if(startNanos - deadline >= 0) {
+				break;
+			}
+			final int codePoint = distribution.next(random);
+			final boolean characterLookup = target == Target.CHARACTER || (target == Target.BOTH && (lookup & 1) == 0);
+			if(characterLookup) {
+				final UnicodeCharacter unicodeCharacter = UnicodeData.getUnicodeCharacter(codePoint);
+				characterHistogram.record(System.nanoTime() - startNanos);
+				result += unicodeCharacter != null ? unicodeCharacter.getCodeValue() : 0;
+			} else {
+				final UnicodeBlock unicodeBlock = UnicodeBlocks.getUnicodeBlockByCodePoint(codePoint);
+				blockHistogram.record(System.nanoTime() - startNanos);
+				result += unicodeBlock != null ? unicodeBlock.getStartCode() : 0;
+			}
+		}
+		sink += result;
+	}
+
+	/**
+	 * Creates an executor for running workers.
+	 * @return A new executor using the configured kind of threads.
+	 * @throws IllegalStateException if virtual threads were requested but are not supported by this JVM.
+	 */
+	private ExecutorService createExecutor() {
+		switch(threadMode) {
+			case PLATFORM: {
+				final AtomicInteger threadCount = new AtomicInteger();
+				return Executors.newFixedThreadPool(concurrency, runnable -> {
+					final Thread thread = new Thread(runnable, "load-test-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			case VIRTUAL:
+				try { //look up the factory reflectively, so that the harness can be compiled for earlier Java versions
+					return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+				} catch(final ReflectiveOperationException reflectiveOperationException) {
+					throw new IllegalStateException("Virtual threads require Java 21 or later; running Java " + System.getProperty("java.version") + ".",
+							reflectiveOperationException);
+				}
+			default:
+				throw new AssertionError("Unrecognized thread mode: " + threadMode);
+		}
+	}
+
+	/**
+	 * Parses command-line arguments in the form <code>--name=value</code>. Arguments may also be combined into a single argument separated by whitespace, as
+	 * when passed through a Maven property.
+	 * @param args The command-line arguments.
+	 * @return The options, keyed to their names without the leading hyphens.
+	 * @throws IllegalArgumentException if an argument is not in the correct form.
+	 */
+	static Map<String, String> parseOptions(final String... args) {
+		final Map<String, String> options = new HashMap<String, String>();
+		for(final String arg : args) {
+			for(final String option : arg.trim().split("\\s+--")) {
+				if(option.isEmpty()) {
+					continue;
+				}
+				final String nameValue = option.startsWith("--") ? option.substring(2) : option;
+				final int equalsIndex = nameValue.indexOf('=');
+				if(equalsIndex < 1) {
+					throw new IllegalArgumentException("Option must be in the form --name=value: " + option);
+				}
+				options.put(nameValue.substring(0, equalsIndex), nameValue.substring(equalsIndex + 1));
+			}
+		}
+		return options;
+	}
+
+	/**
+	 * Runs the load test.
+	 * @param args The options, each in the form <code>--name=value</code>.
+	 * @throws Exception if there was an error running the test.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final LoadTest loadTest;
+		try {
+			loadTest = new LoadTest(parseOptions(args));
+		} catch(final IllegalArgumentException illegalArgumentException) {
+			System.err.println(illegalArgumentException.getMessage());
+			System.exit(1);
+			return;
+		}
+		loadTest.run(System.out);
+	}
+
+}
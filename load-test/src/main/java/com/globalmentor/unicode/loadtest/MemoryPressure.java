@@ -0,0 +1,90 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode.loadtest;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Induces memory pressure so that the garbage collector clears soft references, as happens to the caches of the Unicode library on a busy server.
+ * <p>
+ * A ballast of live memory is held for the duration, reducing the free heap, while garbage is allocated at a steady rate to force frequent collections. Soft
+ * references are cleared according to the JVM's policy, which is based on the free heap and the time since each reference was last used; running with a low
+ * <code>-XX:SoftRefLRUPolicyMSPerMB</code> makes clearing more aggressive.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class MemoryPressure implements AutoCloseable {
+
+	/** The size of each chunk of memory allocated. */
+	private static final int CHUNK_SIZE = 1 << 20;
+
+	/** The number of times per second garbage is allocated. */
+	private static final int TICKS_PER_SECOND = 100;
+
+	/** The ballast held for the duration. */
+	private final List<byte[]> ballast = new ArrayList<byte[]>();
+
+	/** The thread allocating garbage. */
+	private final Thread thread;
+
+	/** Whether the pressure should continue. */
+	private volatile boolean running = true;
+
+	/** A sink for garbage, so that allocations are not optimized away. */
+	private volatile byte[] sink;
+
+	/**
+	 * Starts inducing memory pressure.
+	 * @param ballastMegabytes The number of megabytes of memory to hold for the duration.
+	 * @param churnMegabytesPerSecond The number of megabytes of garbage to allocate each second.
+	 */
+	public MemoryPressure(final int ballastMegabytes, final int churnMegabytesPerSecond) {
+		for(int i = 0; i < ballastMegabytes; ++i) {
+			ballast.add(new byte[CHUNK_SIZE]);
+		}
+		final long bytesPerTick = (long)churnMegabytesPerSecond * CHUNK_SIZE / TICKS_PER_SECOND;
+		thread = new Thread(() -> {
+			final long tickNanos = TimeUnit.SECONDS.toNanos(1) / TICKS_PER_SECOND;
+			long nextTick = System.nanoTime();
+			while(running) {
+				for(long allocated = 0; allocated < bytesPerTick; allocated += CHUNK_SIZE) {
+					sink = new byte[(int)Math.min(CHUNK_SIZE, bytesPerTick - allocated)];
+				}
+				nextTick += tickNanos;
+				LockSupport.parkNanos(nextTick - System.nanoTime());
+			}
+		}, "memory-pressure");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/** Stops inducing memory pressure and releases the ballast. */
+	@Override
+	public void close() {
+		running = false;
+		try {
+			thread.join();
+		} catch(final InterruptedException interruptedException) {
+			Thread.currentThread().interrupt(); //the thread will stop on its own; preserve the interruption for the caller
+		}
+		ballast.clear();
+		sink = null;
+	}
+
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.*;
+
+import static java.util.Objects.*;
+
+/**
+ * Asynchronous access to the Unicode data of {@link UnicodeData}, which never blocks the caller on I/O.
+ * <p>
+ * A lookup of a cached character completes immediately. Otherwise the block containing the character is loaded on a dedicated, bounded executor, and
+ * concurrent requests for characters in the same block share a single load. A request for many characters submits a single task to the executor, which
+ * determines the distinct blocks to load and then loads each of them once. Code points found to lie outside every block are remembered, so that later
+ * requests for them complete immediately. No monitors are used, so virtual threads waiting on these futures are never pinned to their carrier threads.
+ * </p>
+ * <p>
+ * If the executor's queue is full, the returned future completes exceptionally with a {@link RejectedExecutionException}.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class AsyncUnicodeData {
+
+	/** The number of threads in the default loader executor. */
+	public static final int DEFAULT_THREAD_COUNT = 2;
+
+	/** The number of pending loads the default loader executor will queue before rejecting more. */
+	public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+	/** The greatest number of prefetch loads that may be scheduled or running at once, so that prefetching cannot crowd out requested loads. */
+	public static final int MAX_PENDING_PREFETCH_COUNT = 4;
+
+	/** The percentage of the capacity of the executor's queue above which no prefetch loads are scheduled, if the executor is a {@link ThreadPoolExecutor}. */
+	public static final int MAX_PREFETCH_QUEUE_PERCENT = 25;
+
+	/** The number of default loader threads created so far, for naming. */
+	private static final AtomicInteger loaderThreadCount = new AtomicInteger();
+
+	/** The executor on which Unicode data is loaded. */
+	private static volatile Executor executor = createDefaultExecutor();
+
+	/** @return A new bounded executor with daemon threads, suitable for loading Unicode data. */
+	private static ExecutorService createDefaultExecutor() {
+		final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(DEFAULT_THREAD_COUNT, DEFAULT_THREAD_COUNT, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(DEFAULT_QUEUE_CAPACITY), runnable -> {
+					final Thread thread = new Thread(runnable, "unicode-data-loader-" + loaderThreadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		threadPoolExecutor.allowCoreThreadTimeOut(true); //don't keep threads around once the data is cached
+		return threadPoolExecutor;
+	}
+
+	/** @return The executor on which Unicode data is loaded. */
+	public static Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Sets the executor on which Unicode data is loaded. The executor should be bounded, as loading blocks on I/O.
+	 * @param newExecutor The new executor.
+	 * @throws NullPointerException if the given executor is <code>null</code>.
+	 */
+	public static void setExecutor(final Executor newExecutor) {
+		executor = requireNonNull(newExecutor);
+	}
+
+	/** The lock guarding the pending block loads. */
+	private static final Lock pendingLoadsLock = new ReentrantLock();
+
+	/** The block loads in progress, keyed to the start code of the block being loaded, as block instances may differ if the blocks are reloaded. */
+	private static final Map<Integer, CompletableFuture<Void>> pendingLoads = new HashMap<Integer, CompletableFuture<Void>>();
+
+	/** The ranges of code points known to lie outside every Unicode block, each end code keyed to its start code. Guarded by {@link #pendingLoadsLock}. */
+	private static final NavigableMap<Integer, Integer> blocklessRanges = new TreeMap<Integer, Integer>();
+
+	/** The number of prefetch loads scheduled or running. */
+	private static final AtomicInteger pendingPrefetchCount = new AtomicInteger();
+
+	/** This class cannot be publicly instantiated. */
+	private AsyncUnicodeData() {
+	}
+
+	/**
+	 * Looks up a character in the cache without loading anything.
+	 * @param codePoint The code point to look up.
+	 * @return A completed future with the character, or with <code>null</code> if the code point is known to be unassigned; or <code>null</code> if the
+	 *         character must be loaded.
+	 */
+	private static CompletableFuture<UnicodeCharacter> lookupCached(final int codePoint) {
+		if(codePoint < 0 || codePoint > Character.MAX_CODE_POINT || isBlockless(codePoint)) { //there is nothing to load for code points outside every block
+			UnicodeMonitoring.cacheHit();
+			return CompletableFuture.completedFuture(null);
+		}
+		final Integer codePointInteger = Integer.valueOf(codePoint);
+		final UnicodeCharacter unicodeCharacter = UnicodeData.getUnicodeCharacter(codePointInteger);
+		if(unicodeCharacter != null || UnicodeData.isUnassigned(codePointInteger)) {
+			UnicodeMonitoring.cacheHit();
+			return CompletableFuture.completedFuture(unicodeCharacter);
+		}
+		UnicodeMonitoring.cacheMiss(codePoint, UnicodeData.wasCached(codePointInteger));
+		return null;
+	}
+
+	/**
+	 * Asynchronously returns character data for a code point.
+	 * @param codePoint The code point for which to return a character.
+	 * @return A future completed with the character representing the given code point, or with <code>null</code> if the code point is not specified in the
+	 *         Unicode data file.
+	 * @see UnicodeData#getUnicodeCharacter(int)
+	 */
+	public static CompletableFuture<UnicodeCharacter> getUnicodeCharacter(final int codePoint) {
+		final CompletableFuture<UnicodeCharacter> cachedFuture = lookupCached(codePoint);
+		if(cachedFuture != null) {
+			return cachedFuture;
+		}
+		return loadBlockContaining(codePoint).thenApply(loaded -> UnicodeData.getUnicodeCharacter(Integer.valueOf(codePoint)));
+	}
+
+	/**
+	 * Asynchronously returns character data for a number of code points. Cached characters are gathered immediately. If any characters are not cached, a single
+	 * task is submitted to the executor to determine the distinct blocks containing them, and each of those blocks is then loaded only once, however many of
+	 * the requested code points it contains.
+	 * @param codePoints The code points for which to return characters.
+	 * @return A future completed with an unmodifiable map of the characters found, keyed to and sorted by their code points; code points not specified in the
+	 *         Unicode data file are not included.
+	 */
+	public static CompletableFuture<SortedMap<Integer, UnicodeCharacter>> getUnicodeCharacters(final int... codePoints) {
+		final SortedMap<Integer, UnicodeCharacter> unicodeCharacters = new TreeMap<Integer, UnicodeCharacter>();
+		final int[] uncachedCodePoints = new int[codePoints.length];
+		int uncachedCount = 0;
+		for(final int codePoint : codePoints) {
+			final CompletableFuture<UnicodeCharacter> cachedFuture = lookupCached(codePoint);
+			if(cachedFuture != null) { //gather cached characters immediately
+				final UnicodeCharacter unicodeCharacter = cachedFuture.join(); //already complete
+				if(unicodeCharacter != null) {
+					unicodeCharacters.put(Integer.valueOf(codePoint), unicodeCharacter);
+				}
+			} else {
+				uncachedCodePoints[uncachedCount++] = codePoint;
+			}
+		}
+		if(uncachedCount == 0) {
+			return CompletableFuture.completedFuture(Collections.unmodifiableSortedMap(unicodeCharacters));
+		}
+		final int[] loadCodePoints = Arrays.copyOf(uncachedCodePoints, uncachedCount);
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+		try {
+			executor.execute(() -> {
+				try {
+					final Map<UnicodeBlock, Integer> blockCodePoints = new TreeMap<UnicodeBlock, Integer>(); //the first requested code point in each block
+					for(final int codePoint : loadCodePoints) {
+						final UnicodeBlock unicodeBlock = findBlock(codePoint);
+						if(unicodeBlock != null) {
+							blockCodePoints.putIfAbsent(unicodeBlock, Integer.valueOf(codePoint));
+						}
+					}
+					final List<CompletableFuture<Void>> blockFutures = new ArrayList<CompletableFuture<Void>>(blockCodePoints.size());
+					for(final Map.Entry<UnicodeBlock, Integer> blockCodePoint : blockCodePoints.entrySet()) {
+						blockFutures.add(submitBlockLoad(blockCodePoint.getKey(), blockCodePoint.getValue().intValue()));
+					}
+					complete(CompletableFuture.allOf(blockFutures.toArray(new CompletableFuture<?>[blockFutures.size()])), future);
+				} catch(final Throwable throwable) {
+					future.completeExceptionally(throwable);
+				}
+			});
+		} catch(final RejectedExecutionException rejectedExecutionException) {
+			future.completeExceptionally(rejectedExecutionException);
+		}
+		return future.thenApply(loaded -> {
+			for(final int codePoint : loadCodePoints) {
+				final Integer codePointInteger = Integer.valueOf(codePoint);
+				final UnicodeCharacter unicodeCharacter = UnicodeData.getUnicodeCharacter(codePointInteger);
+				if(unicodeCharacter != null) {
+					unicodeCharacters.put(codePointInteger, unicodeCharacter);
+				}
+			}
+			return Collections.unmodifiableSortedMap(unicodeCharacters);
+		});
+	}
+
+	/**
+	 * Asynchronously returns character data for a number of code points.
+	 * @param codePoints The code points for which to return characters.
+	 * @return A future completed with an unmodifiable map of the characters found, keyed to and sorted by their code points; code points not specified in the
+	 *         Unicode data file are not included.
+	 */
+	public static CompletableFuture<SortedMap<Integer, UnicodeCharacter>> getUnicodeCharacters(final Collection<Integer> codePoints) {
+		return getUnicodeCharacters(codePoints.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	/**
+	 * Loads the block containing a code point on the executor. The Unicode blocks themselves are determined on the executor as well, as they may need to be
+	 * loaded.
+	 * @param codePoint The code point the block of which should be loaded.
+	 * @return A future completed when the block has been loaded and cached.
+	 */
+	private static CompletableFuture<Void> loadBlockContaining(final int codePoint) {
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+		try {
+			executor.execute(() -> {
+				try {
+					final UnicodeBlock unicodeBlock = findBlock(codePoint);
+					if(unicodeBlock == null) { //if we don't know the block, assume we don't know the character either
+						future.complete(null);
+						return;
+					}
+					complete(loadBlock(unicodeBlock, codePoint, true), future);
+				} catch(final Throwable throwable) {
+					future.completeExceptionally(throwable);
+				}
+			});
+		} catch(final RejectedExecutionException rejectedExecutionException) {
+			future.completeExceptionally(rejectedExecutionException);
+		}
+		return future;
+	}
+
+	/**
+	 * Loads a block in a separate task on the executor. This method is called on the executor; if the executor rejects the task, the block is loaded on the
+	 * calling thread instead.
+	 * @param unicodeBlock The block to load.
+	 * @param codePoint The code point requested; if it has been cached since the request was made, the block is not loaded again.
+	 * @return A future completed when the block has been loaded and cached.
+	 */
+	private static CompletableFuture<Void> submitBlockLoad(final UnicodeBlock unicodeBlock, final int codePoint) {
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+		final Runnable load = () -> complete(loadBlock(unicodeBlock, codePoint, true), future);
+		try {
+			executor.execute(load);
+		} catch(final RejectedExecutionException rejectedExecutionException) { //we are already on a loader thread, so load the block here
+			load.run();
+		}
+		return future;
+	}
+
+	/**
+	 * Completes a future when another future completes, in the same way.
+	 * @param source The future the completion of which should be propagated.
+	 * @param target The future to complete.
+	 */
+	private static void complete(final CompletableFuture<?> source, final CompletableFuture<Void> target) {
+		source.whenComplete((result, throwable) -> {
+			if(throwable != null) {
+				target.completeExceptionally(throwable);
+			} else {
+				target.complete(null);
+			}
+		});
+	}
+
+	/**
+	 * Determines the block containing a code point. If the code point lies outside every block, the range of code points between the neighboring blocks is
+	 * remembered, so that later requests for code points in the range need not be submitted to the executor. This method is called on the executor, as the
+	 * Unicode blocks may need to be loaded.
+	 * @param codePoint The code point.
+	 * @return The block containing the code point, or <code>null</code> if the code point does not fall in any known block.
+	 */
+	private static UnicodeBlock findBlock(final int codePoint) {
+		int gapStart = 0; //the start of the range of code points between blocks in which the code point may lie
+		int gapEnd = Character.MAX_CODE_POINT;
+		for(final UnicodeBlock unicodeBlock : UnicodeBlocks.getUnicodeBlocks()) { //the blocks are sorted by start code
+			if(codePoint < unicodeBlock.getStartCode()) {
+				gapEnd = unicodeBlock.getStartCode() - 1;
+				break;
+			}
+			if(codePoint <= unicodeBlock.getEndCode()) {
+				return unicodeBlock;
+			}
+			gapStart = unicodeBlock.getEndCode() + 1;
+		}
+		pendingLoadsLock.lock();
+		try {
+			blocklessRanges.put(Integer.valueOf(gapStart), Integer.valueOf(gapEnd));
+		} finally {
+			pendingLoadsLock.unlock();
+		}
+		return null;
+	}
+
+	/**
+	 * Determines whether a code point is known to lie outside every Unicode block.
+	 * @param codePoint The code point.
+	 * @return <code>true</code> if the code point has been found to lie outside every block.
+	 */
+	private static boolean isBlockless(final int codePoint) {
+		pendingLoadsLock.lock();
+		try {
+			final Map.Entry<Integer, Integer> blocklessRange = blocklessRanges.floorEntry(Integer.valueOf(codePoint));
+			return blocklessRange != null && codePoint <= blocklessRange.getValue().intValue();
+		} finally {
+			pendingLoadsLock.unlock();
+		}
+	}
+
+	/**
+	 * Loads a block on the executor in the background, without waiting for the result. Used for prefetching by {@link UnicodePrefetcher}. As prefetching is
+	 * only an optimization, the load is not scheduled if {@value #MAX_PENDING_PREFETCH_COUNT} prefetch loads are already pending, or if the executor is a
+	 * {@link ThreadPoolExecutor} the queue of which is more than {@value #MAX_PREFETCH_QUEUE_PERCENT}% full, so that requested loads are not rejected because
+	 * of prefetching.
+	 * @param unicodeBlock The block to load.
+	 * @return <code>true</code> if the load was scheduled, or <code>false</code> if it was skipped or the executor rejected it.
+	 */
+	static boolean prefetchBlock(final UnicodeBlock unicodeBlock) {
+		final Executor executor = AsyncUnicodeData.executor;
+		if(executor instanceof ThreadPoolExecutor) {
+			final BlockingQueue<Runnable> queue = ((ThreadPoolExecutor)executor).getQueue();
+			final long queueSize = queue.size();
+			final long queueCapacity = queueSize + queue.remainingCapacity();
+			if(queueSize * 100 > queueCapacity * MAX_PREFETCH_QUEUE_PERCENT) {
+				return false;
+			}
+		}
+		if(pendingPrefetchCount.incrementAndGet() > MAX_PENDING_PREFETCH_COUNT) {
+			pendingPrefetchCount.decrementAndGet();
+			return false;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					loadBlock(unicodeBlock, unicodeBlock.getStartCode(), false);
+				} finally {
+					pendingPrefetchCount.decrementAndGet();
+				}
+			});
+			return true;
+		} catch(final RejectedExecutionException rejectedExecutionException) {
+			pendingPrefetchCount.decrementAndGet();
+			return false;
+		}
+	}
+
+	/**
+	 * Loads a block, joining a load of the same block already in progress if there is one. This method is called on the executor, and loads the block on the
+	 * calling thread if no load is in progress.
+	 * @param unicodeBlock The block to load.
+	 * @param codePoint The code point requested; if it has been cached since the request was made, the block is not loaded again.
+	 * @param demanded <code>true</code> if the block is being loaded for a request rather than prefetched, in which case the demand is recorded by
+	 *          {@link UnicodePrefetcher} if the block is actually loaded.
+	 * @return A future completed when the block has been loaded and cached.
+	 */
+	private static CompletableFuture<Void> loadBlock(final UnicodeBlock unicodeBlock, final int codePoint, final boolean demanded) {
+		final Integer blockKey = Integer.valueOf(unicodeBlock.getStartCode());
+		final CompletableFuture<Void> future;
+		pendingLoadsLock.lock();
+		try {
+			final CompletableFuture<Void> pendingLoad = pendingLoads.get(blockKey);
+			if(pendingLoad != null) { //coalesce with the load in progress
+				return pendingLoad;
+			}
+			future = new CompletableFuture<Void>();
+			pendingLoads.put(blockKey, future);
+		} finally {
+			pendingLoadsLock.unlock();
+		}
+		try {
+			final Integer codePointInteger = Integer.valueOf(codePoint);
+			if(UnicodeData.getUnicodeCharacter(codePointInteger) == null && !UnicodeData.isUnassigned(codePointInteger)) { //if another load didn't finish in the meantime
+				if(demanded) { //record a single demand for the load, however many requests it satisfies
+					UnicodePrefetcher.blockDemanded(unicodeBlock);
+				}
+				UnicodeData.load(unicodeBlock);
+			}
+			future.complete(null);
+		} catch(final IOException ioException) {
+			future.completeExceptionally(new UncheckedIOException(ioException));
+		} catch(final RuntimeException | Error throwable) {
+			future.completeExceptionally(throwable);
+		} finally {
+			pendingLoadsLock.lock();
+			try {
+				pendingLoads.remove(blockKey);
+			} finally {
+				pendingLoadsLock.unlock();
+			}
+		}
+		return future;
+	}
+
+}
@@ -0,0 +1,531 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.*;
+
+import static java.util.Objects.*;
+
+/**
+ * Compares and hashes text by canonical equivalence, so that for example "é" (<code>U+00E9</code>) and "e&#x301;" (<code>U+0065 U+0301</code>) are equal.
+ * <p>
+ * Texts are ordered as their canonical decompositions (Normalization Form D) would be ordered by {@link String#compareTo(String)}, and
+ * {@link #hash(CharSequence)} returns the {@link String#hashCode()} of the canonical decomposition, yet the decompositions are never created. Instead each
+ * text is decomposed incrementally as it is read: each code point is replaced by its full canonical decomposition, Hangul syllables are decomposed
+ * algorithmically, and each run of combining characters is reordered by canonical combining class within a small reusable buffer. The buffer is
+ * {@value #BUFFER_CAPACITY} code points, enough for any text in the Stream-Safe Text Format; it grows only for longer runs of combining characters.
+ * </p>
+ * <p>
+ * Comparison skips the common prefix of two texts and stops at the first difference in their decompositions. If the differing characters are starters that
+ * do not decompose, as is always the case for ASCII, the comparison is decided without decomposing anything. Otherwise decomposition resumes at the last
+ * segment boundary preceding the difference, using buffers kept for each thread, so that comparison and hashing allocate no objects in any case.
+ * </p>
+ * <p>
+ * The decomposition of every code point is computed once per database and kept in a table indexed directly by code point, along with canonical combining
+ * classes from {@link CombiningSequences}, so no {@link UnicodeCharacter} instances are consulted.
+ * </p>
+ * <p>
+ * This comparator is immutable and may be shared among threads.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class CanonicalEquivalence implements Comparator<CharSequence> {
+
+	/** The number of code points the decomposition buffer initially holds. */
+	static final int BUFFER_CAPACITY = 32;
+
+	/** The greatest depth of decompositions followed when computing full decompositions, to guard against cycles in malformed data. */
+	private static final int MAX_DECOMPOSITION_DEPTH = 8;
+
+	/** The derived table key for the canonical equivalence of a database. */
+	private static final Object CANONICAL_EQUIVALENCE_KEY = new Object();
+
+	/** The first Hangul syllable. */
+	private static final int HANGUL_SYLLABLE_BASE = 0xAC00;
+
+	/** The first Hangul leading consonant (choseong). */
+	private static final int HANGUL_LEADING_BASE = 0x1100;
+
+	/** The first Hangul vowel (jungseong). */
+	private static final int HANGUL_VOWEL_BASE = 0x1161;
+
+	/** The code point before the first Hangul trailing consonant (jongseong). */
+	private static final int HANGUL_TRAILING_BASE = 0x11A7;
+
+	/** The number of Hangul vowels. */
+	private static final int HANGUL_VOWEL_COUNT = 21;
+
+	/** The number of Hangul trailing consonants, including none. */
+	private static final int HANGUL_TRAILING_COUNT = 28;
+
+	/** The number of Hangul syllables for each leading consonant. */
+	private static final int HANGUL_LEADING_SYLLABLE_COUNT = HANGUL_VOWEL_COUNT * HANGUL_TRAILING_COUNT;
+
+	/** The number of Hangul syllables. */
+	private static final int HANGUL_SYLLABLE_COUNT = 19 * HANGUL_LEADING_SYLLABLE_COUNT;
+
+	/** The table of full canonical decompositions. */
+	private final CodePointMappingTable decompositionTable;
+
+	/** The combining table, holding one more than the canonical combining class of each combining code point. */
+	private final CodePointByteTable combiningTable;
+
+	/** The pair of cursors used for comparison and hashing by each thread. */
+	private final ThreadLocal<DecompositionCursor[]> threadCursors = ThreadLocal
+			.withInitial(() -> new DecompositionCursor[] {new DecompositionCursor(), new DecompositionCursor()});
+
+	/**
+	 * Database constructor.
+	 * @param database The Unicode database from which to determine decompositions and canonical combining classes.
+	 * @throws IllegalStateException if the database has too many decompositions to be represented.
+	 */
+	private CanonicalEquivalence(final UnicodeDatabase database) {
+		decompositionTable = new CodePointMappingTable(database, (codePoint, stringBuilder) -> appendDecomposition(database, codePoint, stringBuilder, 0));
+		combiningTable = CombiningSequences.getCombiningTable(database);
+	}
+
+	/**
+	 * Appends the full canonical decomposition of a code point, following decompositions recursively.
+	 * @param database The Unicode database.
+	 * @param codePoint The code point to decompose.
+	 * @param stringBuilder The string builder to which to append the decomposition.
+	 * @param depth The current depth of recursion.
+	 * @return <code>true</code> if the code point has a canonical decomposition, or <code>false</code> if not, in which case the code point itself has been
+	 *         appended.
+	 */
+	private static boolean appendDecomposition(final UnicodeDatabase database, final int codePoint, final StringBuilder stringBuilder, final int depth) {
+		final UnicodeCharacter unicodeCharacter = depth < MAX_DECOMPOSITION_DEPTH ? database.getUnicodeCharacter(codePoint) : null;
+		if(unicodeCharacter != null) {
+			final String decompositionMappings = unicodeCharacter.getCharacterDecompositionMappings();
+			if(decompositionMappings.length() > 0 && unicodeCharacter.getCharacterDecompositionTag().length() == 0) { //canonical decomposition
+				decompositionMappings.codePoints().forEach(mappedCodePoint -> appendDecomposition(database, mappedCodePoint, stringBuilder, depth + 1));
+				return true;
+			}
+		}
+		stringBuilder.appendCodePoint(codePoint);
+		return false;
+	}
+
+	/**
+	 * Returns the canonical equivalence of the current Unicode database.
+	 * @return The canonical equivalence comparator of the current database.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static CanonicalEquivalence getInstance() {
+		return forDatabase(UnicodeDatabase.getCurrent());
+	}
+
+	/**
+	 * Returns the canonical equivalence of a Unicode database. The decomposition table of each database is computed once and cached.
+	 * @param database The Unicode database.
+	 * @return The canonical equivalence comparator of the database.
+	 */
+	public static CanonicalEquivalence forDatabase(final UnicodeDatabase database) {
+		return database.getDerivedTable(CANONICAL_EQUIVALENCE_KEY, CanonicalEquivalence::new);
+	}
+
+	/**
+	 * Returns the canonical combining class of a code point.
+	 * @param codePoint The code point.
+	 * @return The canonical combining class of the code point.
+	 */
+	private int getCanonicalCombiningClass(final int codePoint) {
+		final int value = combiningTable.get(codePoint);
+		return value != 0 ? value - 1 : 0;
+	}
+
+	/**
+	 * Determines whether a code point is a Hangul syllable.
+	 * @param codePoint The code point.
+	 * @return <code>true</code> if the code point is a precomposed Hangul syllable.
+	 */
+	private static boolean isHangulSyllable(final int codePoint) {
+		return codePoint >= HANGUL_SYLLABLE_BASE && codePoint < HANGUL_SYLLABLE_BASE + HANGUL_SYLLABLE_COUNT;
+	}
+
+	/**
+	 * Determines whether a code unit is its own decomposition and can never be reordered, that is, whether it is a starter with no decomposition. A starter
+	 * separates the text before it from the text after it, as no reordering crosses it.
+	 * @param c The code unit.
+	 * @return <code>true</code> if the code unit is not a surrogate, has no canonical decomposition, and has a canonical combining class of <code>0</code>.
+	 */
+	private boolean isStableStarter(final char c) {
+		if(c < 0x80) { //ASCII fast path
+			return true;
+		}
+		return !Character.isSurrogate(c) && !isHangulSyllable(c) && decompositionTable.getValue(c) == 0 && combiningTable.get(c) == 0;
+	}
+
+	/**
+	 * Determines whether the decomposition of a code point begins with a starter, so that no reordering crosses the position before it.
+	 * @param codePoint The code point.
+	 * @return <code>true</code> if the first code point of the decomposition has a canonical combining class of <code>0</code>.
+	 */
+	private boolean isDecompositionStarter(final int codePoint) {
+		if(isHangulSyllable(codePoint)) {
+			return true;
+		}
+		final int value = decompositionTable.getValue(codePoint);
+		final char[] targets = decompositionTable.targets;
+		return getCanonicalCombiningClass(value != 0 ? Character.codePointAt(targets, value, value + targets[value - 1]) : codePoint) == 0;
+	}
+
+	/**
+	 * Returns the code point at an index of text.
+	 * @param text The text.
+	 * @param index The index of the code point.
+	 * @param end The end of the text.
+	 * @return The code point at the index, or the code unit itself if it is an unpaired surrogate.
+	 */
+	private static int codePointAt(final CharSequence text, final int index, final int end) {
+		final char c = text.charAt(index);
+		if(Character.isHighSurrogate(c) && index + 1 < end) {
+			final char low = text.charAt(index + 1);
+			if(Character.isLowSurrogate(low)) {
+				return Character.toCodePoint(c, low);
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Determines whether the decomposition of text may be divided at an index, such that the decomposition of the text is the decomposition of the text before
+	 * the index followed by the decomposition of the text after the index.
+	 * @param text The text.
+	 * @param index The index to check.
+	 * @param end The end of the text.
+	 * @return <code>true</code> if the index is at the start or end of the text, or the decomposition of the code point at the index begins with a starter.
+	 */
+	private boolean isSegmentBoundary(final CharSequence text, final int index, final int end) {
+		if(index == 0 || index >= end) {
+			return true;
+		}
+		final char c = text.charAt(index);
+		if(Character.isLowSurrogate(c) && Character.isHighSurrogate(text.charAt(index - 1))) { //never split a surrogate pair
+			return false;
+		}
+		return isDecompositionStarter(codePointAt(text, index, end));
+	}
+
+	/**
+	 * Compares two texts by their canonical decompositions, without creating the decompositions.
+	 * @param text1 The first text to compare.
+	 * @param text2 The second text to compare.
+	 * @return A negative number, zero, or a positive number if the canonical decomposition of the first text is respectively less than, equal to, or greater
+	 *         than that of the second text, comparing UTF-16 code units as {@link String#compareTo(String)} does.
+	 */
+	@Override
+	public int compare(final CharSequence text1, final CharSequence text2) {
+		if(text1 == text2) {
+			return 0;
+		}
+		final int length1 = text1.length();
+		final int length2 = text2.length();
+		final int minLength = Math.min(length1, length2);
+		int index = 0;
+		while(index < minLength && text1.charAt(index) == text2.charAt(index)) { //skip the identical prefix
+			++index;
+		}
+		if(index == length1 && index == length2) {
+			return 0;
+		}
+		final boolean isStableStarter1 = index == length1 || isStableStarter(text1.charAt(index));
+		final boolean isStableStarter2 = index == length2 || isStableStarter(text2.charAt(index));
+		if(isStableStarter1 && isStableStarter2) { //the identical prefix decomposes identically and is followed in each text by itself or nothing
+			return index == length1 ? -1 : index == length2 ? 1 : Character.compare(text1.charAt(index), text2.charAt(index));
+		}
+		while(!isSegmentBoundary(text1, index, length1) || !isSegmentBoundary(text2, index, length2)) { //back up to where the decompositions may be resumed
+			--index;
+		}
+		final DecompositionCursor[] cursors = threadCursors.get();
+		final DecompositionCursor cursor1 = cursors[0].reset(text1, index, length1);
+		final DecompositionCursor cursor2 = cursors[1].reset(text2, index, length2);
+		try {
+			int unit1;
+			int unit2;
+			do {
+				unit1 = cursor1.nextUnit();
+				unit2 = cursor2.nextUnit();
+			} while(unit1 == unit2 && unit1 >= 0);
+			return Integer.compare(unit1, unit2); //the end of a decomposition (-1) compares less than any code unit
+		} finally {
+			cursor1.clear();
+			cursor2.clear();
+		}
+	}
+
+	/**
+	 * Determines whether two texts are canonically equivalent.
+	 * @param text1 The first text.
+	 * @param text2 The second text.
+	 * @return <code>true</code> if the texts have identical canonical decompositions.
+	 */
+	public boolean isEquivalent(final CharSequence text1, final CharSequence text2) {
+		return compare(text1, text2) == 0;
+	}
+
+	/**
+	 * Computes a hash of text consistent with canonical equivalence, without creating the canonical decomposition. The initial run of stable starters, such as
+	 * ASCII characters, is hashed directly.
+	 * @param text The text.
+	 * @return The {@link String#hashCode()} of the canonical decomposition of the text.
+	 */
+	public int hash(final CharSequence text) {
+		final int length = text.length();
+		int hash = 0;
+		int index = 0;
+		char c;
+		while(index < length && isStableStarter(c = text.charAt(index))) {
+			hash = 31 * hash + c;
+			++index;
+		}
+		if(index < length) { //decompose the rest, which follows a starter or the start of the text
+			final DecompositionCursor cursor = threadCursors.get()[0].reset(text, index, length);
+			try {
+				int unit;
+				while((unit = cursor.nextUnit()) >= 0) {
+					hash = 31 * hash + unit;
+				}
+			} finally {
+				cursor.clear();
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the canonical decomposition (Normalization Form D) of text.
+	 * @param text The text to decompose.
+	 * @return The canonical decomposition of the text.
+	 */
+	public String decompose(final CharSequence text) {
+		final int length = text.length();
+		final StringBuilder stringBuilder = new StringBuilder(length);
+		final DecompositionCursor cursor = new DecompositionCursor().reset(text, 0, length);
+		int unit;
+		while((unit = cursor.nextUnit()) >= 0) {
+			stringBuilder.append((char)unit);
+		}
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * Returns a key for text that is equal to the keys of all canonically equivalent texts, for use in hash-based collections. The hash of the text is computed
+	 * once, when the key is created.
+	 * @param text The text.
+	 * @return A key for the text.
+	 */
+	public Key key(final CharSequence text) {
+		return new Key(this, requireNonNull(text));
+	}
+
+	/**
+	 * A key representing text that is equal to the keys of canonically equivalent texts of the same canonical equivalence.
+	 * @author Garret Wilson
+	 */
+	public static final class Key implements Comparable<Key> {
+
+		/** The canonical equivalence. */
+		private final CanonicalEquivalence canonicalEquivalence;
+
+		/** The text. */
+		private final CharSequence text;
+
+		/** @return The text this key represents. */
+		public CharSequence getText() {
+			return text;
+		}
+
+		/** The canonical hash of the text. */
+		private final int hash;
+
+		/**
+		 * Canonical equivalence and text constructor.
+		 * @param canonicalEquivalence The canonical equivalence.
+		 * @param text The text.
+		 */
+		private Key(final CanonicalEquivalence canonicalEquivalence, final CharSequence text) {
+			this.canonicalEquivalence = canonicalEquivalence;
+			this.text = text;
+			this.hash = canonicalEquivalence.hash(text);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if(this == object) {
+				return true;
+			}
+			if(!(object instanceof Key)) {
+				return false;
+			}
+			final Key key = (Key)object;
+			return hash == key.hash && canonicalEquivalence == key.canonicalEquivalence && canonicalEquivalence.compare(text, key.text) == 0;
+		}
+
+		@Override
+		public int compareTo(final Key key) {
+			return canonicalEquivalence.compare(text, key.text);
+		}
+
+		@Override
+		public String toString() {
+			return text.toString();
+		}
+	}
+
+	/**
+	 * Reads the canonical decomposition of text incrementally, one UTF-16 code unit at a time.
+	 * @author Garret Wilson
+	 */
+	private final class DecompositionCursor {
+
+		/** The text being decomposed, or <code>null</code> if the cursor is not in use. */
+		private CharSequence text = null;
+
+		/** The index of the next code point of the text to decompose. */
+		private int index = 0;
+
+		/** The end of the text. */
+		private int end = 0;
+
+		/** The decomposed and reordered code points of the current segment. */
+		private int[] buffer = new int[BUFFER_CAPACITY];
+
+		/** The index of the next code point in the buffer. */
+		private int bufferIndex = 0;
+
+		/** The number of code points in the buffer. */
+		private int bufferLength = 0;
+
+		/** The low surrogate remaining of the last supplementary code point read, or <code>0</code> if there is none. */
+		private char pendingLowSurrogate = 0;
+
+		/**
+		 * Prepares the cursor to decompose a span of text, which must begin at a segment boundary.
+		 * @param text The text to decompose.
+		 * @param start The index at which to start decomposing.
+		 * @param end The index at which to stop decomposing.
+		 * @return This cursor.
+		 */
+		public DecompositionCursor reset(final CharSequence text, final int start, final int end) {
+			this.text = text;
+			this.index = start;
+			this.end = end;
+			bufferIndex = 0;
+			bufferLength = 0;
+			pendingLowSurrogate = 0;
+			return this;
+		}
+
+		/** Releases the text so that it is not retained by the cursor. */
+		public void clear() {
+			text = null;
+		}
+
+		/** @return The next UTF-16 code unit of the decomposition, or <code>-1</code> if there are no more. */
+		public int nextUnit() {
+			if(pendingLowSurrogate != 0) {
+				final char lowSurrogate = pendingLowSurrogate;
+				pendingLowSurrogate = 0;
+				return lowSurrogate;
+			}
+			final int codePoint = nextCodePoint();
+			if(codePoint > Character.MAX_VALUE) {
+				pendingLowSurrogate = Character.lowSurrogate(codePoint);
+				return Character.highSurrogate(codePoint);
+			}
+			return codePoint;
+		}
+
+		/** @return The next code point of the decomposition, or <code>-1</code> if there are no more. */
+		public int nextCodePoint() {
+			if(bufferIndex == bufferLength) {
+				if(index >= end) {
+					return -1;
+				}
+				final char c = text.charAt(index);
+				if(isStableStarter(c)) { //a stable starter is never moved, regardless of what follows
+					++index;
+					return c;
+				}
+				readSegment();
+			}
+			return buffer[bufferIndex++];
+		}
+
+		/** Decomposes the code points of the text up to the next segment boundary into the buffer, and reorders them canonically. */
+		private void readSegment() {
+			bufferIndex = 0;
+			bufferLength = 0;
+			do {
+				final int codePoint = codePointAt(text, index, end);
+				index += Character.charCount(codePoint);
+				if(isHangulSyllable(codePoint)) {
+					final int syllableIndex = codePoint - HANGUL_SYLLABLE_BASE;
+					add(HANGUL_LEADING_BASE + syllableIndex / HANGUL_LEADING_SYLLABLE_COUNT);
+					add(HANGUL_VOWEL_BASE + (syllableIndex % HANGUL_LEADING_SYLLABLE_COUNT) / HANGUL_TRAILING_COUNT);
+					final int trailingIndex = syllableIndex % HANGUL_TRAILING_COUNT;
+					if(trailingIndex != 0) {
+						add(HANGUL_TRAILING_BASE + trailingIndex);
+					}
+				} else {
+					final int value = decompositionTable.getValue(codePoint);
+					if(value != 0) {
+						final char[] targets = decompositionTable.targets;
+						final int targetEnd = value + targets[value - 1];
+						for(int targetIndex = value; targetIndex < targetEnd;) {
+							final int decomposedCodePoint = Character.codePointAt(targets, targetIndex, targetEnd);
+							add(decomposedCodePoint);
+							targetIndex += Character.charCount(decomposedCodePoint);
+						}
+					} else {
+						add(codePoint);
+					}
+				}
+			} while(index < end && !isDecompositionStarter(codePointAt(text, index, end)));
+			for(int i = 1; i < bufferLength; ++i) { //stable insertion sort of each run of combining characters by canonical combining class
+				final int codePoint = buffer[i];
+				final int canonicalCombiningClass = getCanonicalCombiningClass(codePoint);
+				if(canonicalCombiningClass != 0) {
+					int j = i;
+					while(j > 0 && getCanonicalCombiningClass(buffer[j - 1]) > canonicalCombiningClass) { //starters have a class of zero and are never passed
+						buffer[j] = buffer[j - 1];
+						--j;
+					}
+					buffer[j] = codePoint;
+				}
+			}
+		}
+
+		/**
+		 * Adds a code point to the buffer, growing the buffer if needed.
+		 * @param codePoint The code point to add.
+		 */
+		private void add(final int codePoint) {
+			if(bufferLength == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			buffer[bufferLength++] = codePoint;
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.Arrays;
+
+import static java.util.Objects.*;
+
+/**
+ * A compiled pattern for finding text without regard to case, using the case folding of {@link UnicodeCaseFolder}.
+ * <p>
+ * The pattern is folded once when compiled, and text is searched using the Boyer-Moore-Horspool algorithm over folded UTF-16 code units, folding each code
+ * unit of the text as it is examined. Because folding never changes the length of text, a match has the same length as the pattern. Text is searched in
+ * place, whether a {@link CharSequence} or a character array, without being copied or folded in advance. Matches never begin or end within a surrogate pair.
+ * </p>
+ * <p>
+ * A matcher is immutable and may be shared among threads.
+ * </p>
+ * @author Garret Wilson
+ * @see CaseInsensitiveMultiMatcher
+ */
+public final class CaseInsensitiveMatcher {
+
+	/** The number of bits of a code unit used to index into the shift table. */
+	private static final int SHIFT_TABLE_BITS = 8;
+
+	/** The mask for finding the shift table index of a code unit; code units sharing an index use the smallest of their shifts. */
+	private static final int SHIFT_TABLE_MASK = (1 << SHIFT_TABLE_BITS) - 1;
+
+	/** The case folder. */
+	private final UnicodeCaseFolder caseFolder;
+
+	/** The original pattern. */
+	private final String pattern;
+
+	/** @return The original pattern. */
+	public String getPattern() {
+		return pattern;
+	}
+
+	/** The folded code units of the pattern. */
+	private final char[] foldedPattern;
+
+	/** The distance to shift the pattern when the text code unit aligned with the last code unit of the pattern does not match, indexed by code unit. */
+	private final int[] shifts;
+
+	/**
+	 * Case folder and pattern constructor.
+	 * @param caseFolder The case folder.
+	 * @param pattern The pattern to find.
+	 */
+	private CaseInsensitiveMatcher(final UnicodeCaseFolder caseFolder, final String pattern) {
+		this.caseFolder = caseFolder;
+		this.pattern = pattern;
+		final int length = pattern.length();
+		foldedPattern = new char[length];
+		for(int i = 0; i < length; ++i) {
+			foldedPattern[i] = caseFolder.foldAt(pattern, i, 0, length);
+		}
+		shifts = new int[SHIFT_TABLE_MASK + 1];
+		Arrays.fill(shifts, Math.max(length, 1));
+		for(int i = 0; i < length - 1; ++i) { //later occurrences override earlier ones with smaller shifts
+			shifts[foldedPattern[i] & SHIFT_TABLE_MASK] = length - 1 - i;
+		}
+	}
+
+	/**
+	 * Compiles a pattern using the case folder of the current Unicode database.
+	 * @param pattern The pattern to find.
+	 * @return A matcher for the pattern.
+	 * @see UnicodeCaseFolder#getInstance()
+	 */
+	public static CaseInsensitiveMatcher compile(final String pattern) {
+		return compile(UnicodeCaseFolder.getInstance(), pattern);
+	}
+
+	/**
+	 * Compiles a pattern.
+	 * @param caseFolder The case folder for folding the pattern and searched text.
+	 * @param pattern The pattern to find.
+	 * @return A matcher for the pattern.
+	 */
+	public static CaseInsensitiveMatcher compile(final UnicodeCaseFolder caseFolder, final String pattern) {
+		return new CaseInsensitiveMatcher(requireNonNull(caseFolder), requireNonNull(pattern));
+	}
+
+	/** @return The length of the pattern, which is the length of every match. */
+	public int getLength() {
+		return foldedPattern.length;
+	}
+
+	/**
+	 * Finds the first occurrence of the pattern in text.
+	 * @param text The text to search.
+	 * @return The index of the first match, or <code>-1</code> if the pattern does not occur in the text.
+	 */
+	public int indexIn(final CharSequence text) {
+		return indexIn(text, 0, text.length());
+	}
+
+	/**
+	 * Finds the first occurrence of the pattern in a span of text. Surrogates at the edges of the span are not paired with characters outside the span.
+	 * @param text The text to search.
+	 * @param start The index at which to start searching.
+	 * @param end The index at which to stop searching; no match extends past this index.
+	 * @return The index of the first match, or <code>-1</code> if the pattern does not occur in the span.
+	 * @throws IndexOutOfBoundsException if the start or end is out of the bounds of the text, or the start is greater than the end.
+	 */
+	public int indexIn(final CharSequence text, final int start, final int end) {
+		if(start < 0 || end > text.length() || start > end) {
+			throw new IndexOutOfBoundsException("Invalid span [" + start + ", " + end + ") for text of length " + text.length() + ".");
+		}
+		final char[] foldedPattern = this.foldedPattern;
+		final int last = foldedPattern.length - 1;
+		if(last < 0) {
+			return start;
+		}
+		final char lastPatternUnit = foldedPattern[last];
+		int index = start; //the index in the text aligned with the start of the pattern
+		while(index + last < end) {
+			final char unit = caseFolder.foldAt(text, index + last, start, end);
+			if(unit == lastPatternUnit) {
+				int i = last - 1;
+				while(i >= 0 && caseFolder.foldAt(text, index + i, start, end) == foldedPattern[i]) {
+					--i;
+				}
+				if(i < 0 && isBoundary(text, index, start, end) && isBoundary(text, index + last + 1, start, end)) {
+					return index;
+				}
+			}
+			index += shifts[unit & SHIFT_TABLE_MASK];
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the first occurrence of the pattern in a character array.
+	 * @param text The characters to search.
+	 * @return The index of the first match, or <code>-1</code> if the pattern does not occur in the characters.
+	 */
+	public int indexIn(final char[] text) {
+		return indexIn(text, 0, text.length);
+	}
+
+	/**
+	 * Finds the first occurrence of the pattern in a span of a character array. Surrogates at the edges of the span are not paired with characters outside the
+	 * span.
+	 * @param text The characters to search.
+	 * @param start The index at which to start searching.
+	 * @param end The index at which to stop searching; no match extends past this index.
+	 * @return The index of the first match, or <code>-1</code> if the pattern does not occur in the span.
+	 * @throws IndexOutOfBoundsException if the start or end is out of the bounds of the array, or the start is greater than the end.
+	 */
+	public int indexIn(final char[] text, final int start, final int end) {
+		if(start < 0 || end > text.length || start > end) {
+			throw new IndexOutOfBoundsException("Invalid span [" + start + ", " + end + ") for array of length " + text.length + ".");
+		}
+		final char[] foldedPattern = this.foldedPattern;
+		final int last = foldedPattern.length - 1;
+		if(last < 0) {
+			return start;
+		}
+		final char lastPatternUnit = foldedPattern[last];
+		int index = start; //the index in the text aligned with the start of the pattern
+		while(index + last < end) {
+			final char unit = caseFolder.foldAt(text, index + last, start, end);
+			if(unit == lastPatternUnit) {
+				int i = last - 1;
+				while(i >= 0 && caseFolder.foldAt(text, index + i, start, end) == foldedPattern[i]) {
+					--i;
+				}
+				if(i < 0 && isBoundary(text, index, start, end) && isBoundary(text, index + last + 1, start, end)) {
+					return index;
+				}
+			}
+			index += shifts[unit & SHIFT_TABLE_MASK];
+		}
+		return -1;
+	}
+
+	/**
+	 * Counts the non-overlapping occurrences of the pattern in text.
+	 * @param text The text to search.
+	 * @return The number of times the pattern occurs in the text, without overlapping; or <code>0</code> if the pattern is empty.
+	 */
+	public int countIn(final CharSequence text) {
+		final int length = text.length();
+		final int patternLength = foldedPattern.length;
+		if(patternLength == 0) {
+			return 0;
+		}
+		int count = 0;
+		int index = 0;
+		while((index = indexIn(text, index, length)) >= 0) {
+			++count;
+			index += patternLength;
+		}
+		return count;
+	}
+
+	/**
+	 * Determines whether an index of text is not within a surrogate pair.
+	 * @param text The text.
+	 * @param index The index to check.
+	 * @param start The start of the text.
+	 * @param end The end of the text.
+	 * @return <code>true</code> if the index does not fall between the high and low surrogates of a pair.
+	 */
+	static boolean isBoundary(final CharSequence text, final int index, final int start, final int end) {
+		return index <= start || index >= end || !(Character.isHighSurrogate(text.charAt(index - 1)) && Character.isLowSurrogate(text.charAt(index)));
+	}
+
+	/**
+	 * Determines whether an index of a character array is not within a surrogate pair.
+	 * @param text The characters.
+	 * @param index The index to check.
+	 * @param start The start of the text.
+	 * @param end The end of the text.
+	 * @return <code>true</code> if the index does not fall between the high and low surrogates of a pair.
+	 */
+	static boolean isBoundary(final char[] text, final int index, final int start, final int end) {
+		return index <= start || index >= end || !(Character.isHighSurrogate(text[index - 1]) && Character.isLowSurrogate(text[index]));
+	}
+
+	@Override
+	public String toString() {
+		return "(?i)" + pattern;
+	}
+
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.*;
+
+import static java.util.Objects.*;
+
+/**
+ * A compiled set of patterns for finding all occurrences of any of the patterns in text without regard to case, using the case folding of
+ * {@link UnicodeCaseFolder}.
+ * <p>
+ * The folded patterns are compiled into an Aho-Corasick automaton over UTF-16 code units, so that text is scanned once regardless of the number of patterns,
+ * folding each code unit of the text as it is examined. Every occurrence of every pattern is reported, including overlapping occurrences. Text is searched in
+ * place, whether a {@link CharSequence} or a character array, without being copied or folded in advance. Matches never begin or end within a surrogate pair.
+ * </p>
+ * <p>
+ * A matcher is immutable and may be shared among threads.
+ * </p>
+ * @author Garret Wilson
+ * @see CaseInsensitiveMatcher
+ */
+public final class CaseInsensitiveMultiMatcher {
+
+	/**
+	 * A receiver of matches found in text.
+	 * @author Garret Wilson
+	 */
+	@FunctionalInterface
+	public interface MatchHandler {
+
+		/**
+		 * Called when a pattern is found. Matches are reported in order of their end indexes, and matches with the same end index in order of decreasing
+		 * length.
+		 * @param patternIndex The index of the pattern that was found.
+		 * @param start The index of the start of the match in the text.
+		 * @param end The index of the end of the match in the text.
+		 * @return <code>true</code> if searching should continue, or <code>false</code> if searching should stop.
+		 */
+		public boolean match(int patternIndex, int start, int end);
+	}
+
+	/** The initial state of the automaton. */
+	private static final int ROOT_STATE = 0;
+
+	/** The case folder. */
+	private final UnicodeCaseFolder caseFolder;
+
+	/** The original patterns. */
+	private final String[] patterns;
+
+	/** @return The number of patterns. */
+	public int getPatternCount() {
+		return patterns.length;
+	}
+
+	/**
+	 * Returns a pattern.
+	 * @param patternIndex The index of the pattern.
+	 * @return The original pattern at the given index.
+	 * @throws IndexOutOfBoundsException if the index is not the index of a pattern.
+	 */
+	public String getPattern(final int patternIndex) {
+		return patterns[patternIndex];
+	}
+
+	/** The transitions from the root state for ASCII code units. */
+	private final int[] rootAsciiTransitions = new int[0x80];
+
+	/** The index of the first transition of each state in the transition arrays; the final entry is the total number of transitions. */
+	private final int[] transitionOffsets;
+
+	/** The code units of the transitions of all states, sorted for each state. */
+	private final char[] transitionUnits;
+
+	/** The target states of the transitions of all states. */
+	private final int[] transitionTargets;
+
+	/** The state representing the longest proper suffix of each state that is also a prefix of some pattern. */
+	private final int[] failureStates;
+
+	/** The index of the first pattern ending at each state, or <code>-1</code> if no pattern ends at the state. */
+	private final int[] statePatterns;
+
+	/** The index of the next pattern identical to each pattern when folded, or <code>-1</code> if there are no more. */
+	private final int[] nextPatterns;
+
+	/** The nearest state reachable by failure transitions from each state at which a pattern ends, or <code>-1</code> if there is none. */
+	private final int[] outputStates;
+
+	/**
+	 * Case folder and patterns constructor.
+	 * @param caseFolder The case folder.
+	 * @param patterns The patterns to find.
+	 * @throws IllegalArgumentException if one of the patterns is empty.
+	 */
+	private CaseInsensitiveMultiMatcher(final UnicodeCaseFolder caseFolder, final String[] patterns) {
+		this.caseFolder = caseFolder;
+		this.patterns = patterns;
+		//build the trie
+		final List<Map<Character, Integer>> trie = new ArrayList<Map<Character, Integer>>();
+		trie.add(new TreeMap<Character, Integer>());
+		final List<Integer> trieStatePatterns = new ArrayList<Integer>();
+		trieStatePatterns.add(Integer.valueOf(-1));
+		nextPatterns = new int[patterns.length];
+		for(int patternIndex = 0; patternIndex < patterns.length; ++patternIndex) {
+			final String pattern = requireNonNull(patterns[patternIndex]);
+			final int length = pattern.length();
+			if(length == 0) {
+				throw new IllegalArgumentException("Pattern " + patternIndex + " is empty.");
+			}
+			int state = ROOT_STATE;
+			for(int i = 0; i < length; ++i) {
+				final Character unit = Character.valueOf(caseFolder.foldAt(pattern, i, 0, length));
+				Integer target = trie.get(state).get(unit);
+				if(target == null) {
+					target = Integer.valueOf(trie.size());
+					trie.get(state).put(unit, target);
+					trie.add(new TreeMap<Character, Integer>());
+					trieStatePatterns.add(Integer.valueOf(-1));
+				}
+				state = target.intValue();
+			}
+			nextPatterns[patternIndex] = trieStatePatterns.get(state).intValue(); //chain patterns that fold identically
+			trieStatePatterns.set(state, Integer.valueOf(patternIndex));
+		}
+		//flatten the transitions
+		final int stateCount = trie.size();
+		transitionOffsets = new int[stateCount + 1];
+		for(int state = 0; state < stateCount; ++state) {
+			transitionOffsets[state + 1] = transitionOffsets[state] + trie.get(state).size();
+		}
+		transitionUnits = new char[transitionOffsets[stateCount]];
+		transitionTargets = new int[transitionOffsets[stateCount]];
+		statePatterns = new int[stateCount];
+		for(int state = 0; state < stateCount; ++state) {
+			int transition = transitionOffsets[state];
+			for(final Map.Entry<Character, Integer> entry : trie.get(state).entrySet()) { //tree maps iterate in sorted order
+				transitionUnits[transition] = entry.getKey().charValue();
+				transitionTargets[transition] = entry.getValue().intValue();
+				++transition;
+			}
+			statePatterns[state] = trieStatePatterns.get(state).intValue();
+		}
+		for(final Map.Entry<Character, Integer> entry : trie.get(ROOT_STATE).entrySet()) {
+			final char unit = entry.getKey().charValue();
+			if(unit < rootAsciiTransitions.length) {
+				rootAsciiTransitions[unit] = entry.getValue().intValue();
+			}
+		}
+		//determine failure and output states breadth-first, so that the failure state of each state has already been determined
+		failureStates = new int[stateCount];
+		outputStates = new int[stateCount];
+		outputStates[ROOT_STATE] = -1;
+		final Deque<Integer> queue = new ArrayDeque<Integer>();
+		queue.add(Integer.valueOf(ROOT_STATE));
+		while(!queue.isEmpty()) {
+			final int state = queue.remove().intValue();
+			for(int transition = transitionOffsets[state]; transition < transitionOffsets[state + 1]; ++transition) {
+				final int target = transitionTargets[transition];
+				final int failureState = state == ROOT_STATE ? ROOT_STATE : getNextState(failureStates[state], transitionUnits[transition]);
+				failureStates[target] = failureState;
+				outputStates[target] = statePatterns[failureState] >= 0 ? failureState : outputStates[failureState];
+				queue.add(Integer.valueOf(target));
+			}
+		}
+	}
+
+	/**
+	 * Compiles patterns using the case folder of the current Unicode database.
+	 * @param patterns The patterns to find.
+	 * @return A matcher for the patterns.
+	 * @throws IllegalArgumentException if one of the patterns is empty.
+	 * @see UnicodeCaseFolder#getInstance()
+	 */
+	public static CaseInsensitiveMultiMatcher compile(final String... patterns) {
+		return compile(UnicodeCaseFolder.getInstance(), patterns);
+	}
+
+	/**
+	 * Compiles patterns.
+	 * @param caseFolder The case folder for folding the patterns and searched text.
+	 * @param patterns The patterns to find.
+	 * @return A matcher for the patterns.
+	 * @throws IllegalArgumentException if one of the patterns is empty.
+	 */
+	public static CaseInsensitiveMultiMatcher compile(final UnicodeCaseFolder caseFolder, final String... patterns) {
+		return new CaseInsensitiveMultiMatcher(requireNonNull(caseFolder), patterns.clone());
+	}
+
+	/**
+	 * Compiles patterns.
+	 * @param caseFolder The case folder for folding the patterns and searched text.
+	 * @param patterns The patterns to find.
+	 * @return A matcher for the patterns, indexed in the iteration order of the collection.
+	 * @throws IllegalArgumentException if one of the patterns is empty.
+	 */
+	public static CaseInsensitiveMultiMatcher compile(final UnicodeCaseFolder caseFolder, final Collection<String> patterns) {
+		return new CaseInsensitiveMultiMatcher(requireNonNull(caseFolder), patterns.toArray(new String[patterns.size()]));
+	}
+
+	/**
+	 * Determines the state following a state for a code unit, following failure transitions as needed.
+	 * @param state The current state.
+	 * @param unit The folded code unit.
+	 * @return The next state.
+	 */
+	private int getNextState(int state, final char unit) {
+		while(true) {
+			if(state == ROOT_STATE && unit < rootAsciiTransitions.length) { //ASCII fast path
+				return rootAsciiTransitions[unit];
+			}
+			final int transition = Arrays.binarySearch(transitionUnits, transitionOffsets[state], transitionOffsets[state + 1], unit);
+			if(transition >= 0) {
+				return transitionTargets[transition];
+			}
+			if(state == ROOT_STATE) {
+				return ROOT_STATE;
+			}
+			state = failureStates[state];
+		}
+	}
+
+	/**
+	 * Reports the matches ending at a state.
+	 * @param state The state reached.
+	 * @param end The index in the text after the last code unit read.
+	 * @param text The text being searched, either a {@link CharSequence} or a character array.
+	 * @param start The start of the text.
+	 * @param textEnd The end of the text.
+	 * @param handler The handler to receive matches.
+	 * @param count The number of matches reported so far.
+	 * @return The new number of matches reported, negated and less one if the handler requested searching to stop.
+	 */
+	private int reportMatches(int state, final int end, final Object text, final int start, final int textEnd, final MatchHandler handler, int count) {
+		if(statePatterns[state] < 0) {
+			state = outputStates[state];
+		}
+		while(state >= 0) {
+			for(int patternIndex = statePatterns[state]; patternIndex >= 0; patternIndex = nextPatterns[patternIndex]) {
+				final int matchStart = end - patterns[patternIndex].length();
+				if(matchStart >= start && (text instanceof char[] ? CaseInsensitiveMatcher.isBoundary((char[])text, matchStart, start, textEnd)
+						: CaseInsensitiveMatcher.isBoundary((CharSequence)text, matchStart, start, textEnd))) {
+					++count;
+					if(!handler.match(patternIndex, matchStart, end)) {
+						return -count - 1;
+					}
+				}
+			}
+			state = outputStates[state];
+		}
+		return count;
+	}
+
+	/**
+	 * Finds all occurrences of the patterns in text.
+	 * @param text The text to search.
+	 * @param handler The handler to receive the matches.
+	 * @return The number of matches reported.
+	 */
+	public int findAll(final CharSequence text, final MatchHandler handler) {
+		return findAll(text, 0, text.length(), handler);
+	}
+
+	/**
+	 * Finds all occurrences of the patterns in a span of text. Surrogates at the edges of the span are not paired with characters outside the span.
+	 * @param text The text to search.
+	 * @param start The index at which to start searching.
+	 * @param end The index at which to stop searching; no match extends past this index.
+	 * @param handler The handler to receive the matches.
+	 * @return The number of matches reported.
+	 * @throws IndexOutOfBoundsException if the start or end is out of the bounds of the text, or the start is greater than the end.
+	 */
+	public int findAll(final CharSequence text, final int start, final int end, final MatchHandler handler) {
+		if(start < 0 || end > text.length() || start > end) {
+			throw new IndexOutOfBoundsException("Invalid span [" + start + ", " + end + ") for text of length " + text.length() + ".");
+		}
+		int count = 0;
+		int state = ROOT_STATE;
+		for(int index = start; index < end; ++index) {
+			state = getNextState(state, caseFolder.foldAt(text, index, start, end));
+			if(statePatterns[state] >= 0 || outputStates[state] >= 0) {
+				final int matchEnd = index + 1;
+				if(CaseInsensitiveMatcher.isBoundary(text, matchEnd, start, end)) {
+					count = reportMatches(state, matchEnd, text, start, end, handler, count);
+					if(count < 0) { //if the handler requested us to stop
+						return -count - 1;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Finds all occurrences of the patterns in a character array.
+	 * @param text The characters to search.
+	 * @param handler The handler to receive the matches.
+	 * @return The number of matches reported.
+	 */
+	public int findAll(final char[] text, final MatchHandler handler) {
+		return findAll(text, 0, text.length, handler);
+	}
+
+	/**
+	 * Finds all occurrences of the patterns in a span of a character array. Surrogates at the edges of the span are not paired with characters outside the
+	 * span.
+	 * @param text The characters to search.
+	 * @param start The index at which to start searching.
+	 * @param end The index at which to stop searching; no match extends past this index.
+	 * @param handler The handler to receive the matches.
+	 * @return The number of matches reported.
+	 * @throws IndexOutOfBoundsException if the start or end is out of the bounds of the array, or the start is greater than the end.
+	 */
+	public int findAll(final char[] text, final int start, final int end, final MatchHandler handler) {
+		if(start < 0 || end > text.length || start > end) {
+			throw new IndexOutOfBoundsException("Invalid span [" + start + ", " + end + ") for array of length " + text.length + ".");
+		}
+		int count = 0;
+		int state = ROOT_STATE;
+		for(int index = start; index < end; ++index) {
+			state = getNextState(state, caseFolder.foldAt(text, index, start, end));
+			if(statePatterns[state] >= 0 || outputStates[state] >= 0) {
+				final int matchEnd = index + 1;
+				if(CaseInsensitiveMatcher.isBoundary(text, matchEnd, start, end)) {
+					count = reportMatches(state, matchEnd, text, start, end, handler, count);
+					if(count < 0) { //if the handler requested us to stop
+						return -count - 1;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Determines whether any of the patterns occurs in text.
+	 * @param text The text to search.
+	 * @return <code>true</code> if at least one pattern occurs in the text.
+	 */
+	public boolean isFoundIn(final CharSequence text) {
+		return findAll(text, (patternIndex, start, end) -> false) > 0;
+	}
+
+	@Override
+	public String toString() {
+		return "(?i)" + String.join("|", patterns);
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.nio.LongBuffer;
+import java.util.*;
+
+/**
+ * An immutable, dense two-level bitmap of Unicode code points.
+ * <p>
+ * The code point space is divided into blocks of {@value #BLOCK_SIZE} code points. Identical blocks, such as blocks entirely in or entirely out of the set,
+ * are stored only once. Lookup is two array accesses and a bit test regardless of the code point or of how the set was defined.
+ * </p>
+ * @author Garret Wilson
+ * @see UnicodeSet
+ */
+final class CodePointBitTable {
+
+	/** The number of bits of a code point used to index into a block. */
+	static final int BLOCK_SHIFT = 8;
+
+	/** The number of code points in each block. */
+	static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+	/** The number of words of bits in each block. */
+	private static final int BLOCK_WORD_COUNT = BLOCK_SIZE / Long.SIZE;
+
+	/** The number of the data block for each block of code points. */
+	private final char[] blockIndexes;
+
+	/** The deduplicated blocks of bits, concatenated. */
+	private final long[] data;
+
+	/**
+	 * Unicode set constructor.
+	 * @param unicodeSet The set of code points to include in the table.
+	 */
+	CodePointBitTable(final UnicodeSet unicodeSet) {
+		final long[] bits = new long[UnicodeSet.END_CODE_POINT / Long.SIZE];
+		for(int rangeIndex = 0; rangeIndex < unicodeSet.getRangeCount(); ++rangeIndex) {
+			final int end = unicodeSet.getRangeEnd(rangeIndex) + 1;
+			for(int codePoint = unicodeSet.getRangeStart(rangeIndex); codePoint < end;) { //set the bits a word at a time where possible
+				final int bit = codePoint & (Long.SIZE - 1);
+				final int bitCount = Math.min(Long.SIZE - bit, end - codePoint);
+				final long mask = bitCount == Long.SIZE ? -1L : ((1L << bitCount) - 1) << bit;
+				bits[codePoint / Long.SIZE] |= mask;
+				codePoint += bitCount;
+			}
+		}
+		final int blockCount = UnicodeSet.END_CODE_POINT >> BLOCK_SHIFT;
+		blockIndexes = new char[blockCount];
+		final Map<LongBuffer, Integer> blockNumbers = new HashMap<LongBuffer, Integer>(); //the data block number of each unique block of bits
+		final LongBuffer dataBuffer = LongBuffer.allocate(bits.length);
+		for(int block = 0; block < blockCount; ++block) {
+			final LongBuffer blockBits = LongBuffer.wrap(bits, block * BLOCK_WORD_COUNT, BLOCK_WORD_COUNT); //compares by content, without copying
+			Integer blockNumber = blockNumbers.get(blockBits);
+			if(blockNumber == null) { //if we haven't seen these block bits before, add them to the data
+				blockNumber = Integer.valueOf(blockNumbers.size());
+				blockNumbers.put(blockBits, blockNumber);
+				dataBuffer.put(bits, block * BLOCK_WORD_COUNT, BLOCK_WORD_COUNT);
+			}
+			blockIndexes[block] = (char)blockNumber.intValue();
+		}
+		data = Arrays.copyOf(dataBuffer.array(), dataBuffer.position());
+	}
+
+	/**
+	 * Determines whether a code point is in the table.
+	 * @param codePoint The code point to look up.
+	 * @return <code>true</code> if the code point is in the table, or <code>false</code> if it is not or is not a valid Unicode code point.
+	 */
+	boolean contains(final int codePoint) {
+		if(codePoint < 0 || codePoint >= UnicodeSet.END_CODE_POINT) {
+			return false;
+		}
+		return (data[(blockIndexes[codePoint >> BLOCK_SHIFT] * BLOCK_WORD_COUNT) + ((codePoint & (BLOCK_SIZE - 1)) >> 6)] & (1L << codePoint)) != 0;
+	}
+
+	/** @return The approximate number of bytes occupied by the table data. */
+	long getSize() {
+		return (long)blockIndexes.length * Character.BYTES + (long)data.length * Long.BYTES;
+	}
+
+}
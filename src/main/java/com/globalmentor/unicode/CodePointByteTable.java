@@ -0,0 +1,124 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * An immutable, dense two-level table mapping every Unicode code point to an unsigned byte value.
+ * <p>
+ * The code point space is divided into blocks of {@value #BLOCK_SIZE} code points. Identical blocks, such as the many blocks of unassigned code points, are
+ * stored only once, so a complete table typically occupies only a few tens of kilobytes. Lookup is two array accesses regardless of the code point.
+ * </p>
+ * @author Garret Wilson
+ */
+final class CodePointByteTable {
+
+	/** The number of bits of a code point used to index into a block. */
+	static final int BLOCK_SHIFT = 7;
+
+	/** The number of code points in each block. */
+	static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+	/** The mask for retrieving the index of a code point within its block. */
+	static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	/** The number of code points covered by a table. */
+	static final int CODE_POINT_COUNT = Character.MAX_CODE_POINT + 1;
+
+	/** The suffix of the name of a character that begins a range of characters with identical properties. */
+	static final String RANGE_FIRST_NAME_SUFFIX = ", First>";
+
+	/** The number of the data block for each block of code points. */
+	private final char[] blockIndexes;
+
+	/** The deduplicated data blocks, concatenated. */
+	private final byte[] data;
+
+	/**
+	 * Values constructor.
+	 * @param values The values of all code points; must have a length of {@link #CODE_POINT_COUNT}. The array is not retained.
+	 * @throws IllegalArgumentException if the array of values is not the correct length.
+	 */
+	CodePointByteTable(final byte[] values) {
+		if(values.length != CODE_POINT_COUNT) {
+			throw new IllegalArgumentException("Expected " + CODE_POINT_COUNT + " values; found " + values.length + ".");
+		}
+		final int blockCount = CODE_POINT_COUNT >> BLOCK_SHIFT;
+		blockIndexes = new char[blockCount];
+		final Map<ByteBuffer, Integer> blockNumbers = new HashMap<ByteBuffer, Integer>(); //the data block number of each unique block of values
+		final ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+		for(int block = 0; block < blockCount; ++block) {
+			final ByteBuffer blockValues = ByteBuffer.wrap(values, block << BLOCK_SHIFT, BLOCK_SIZE); //compares by content, without copying
+			Integer blockNumber = blockNumbers.get(blockValues);
+			if(blockNumber == null) { //if we haven't seen these block values before, add them to the data
+				blockNumber = Integer.valueOf(blockNumbers.size());
+				blockNumbers.put(blockValues, blockNumber);
+				dataOutputStream.write(values, block << BLOCK_SHIFT, BLOCK_SIZE);
+			}
+			blockIndexes[block] = (char)blockNumber.intValue();
+		}
+		data = dataOutputStream.toByteArray();
+	}
+
+	/**
+	 * Returns the value of a code point.
+	 * @param codePoint The code point to look up.
+	 * @return The unsigned value of the code point, or <code>0</code> if the code point is not a valid Unicode code point.
+	 */
+	int get(final int codePoint) {
+		if(codePoint < 0 || codePoint >= CODE_POINT_COUNT) {
+			return 0;
+		}
+		return data[(blockIndexes[codePoint >> BLOCK_SHIFT] << BLOCK_SHIFT) | (codePoint & BLOCK_MASK)] & 0xFF;
+	}
+
+	/** @return The approximate number of bytes occupied by the table data. */
+	long getSize() {
+		return (long)blockIndexes.length * Character.BYTES + data.length;
+	}
+
+	/**
+	 * Creates a table from the characters of a Unicode database. Code points not present in the database receive the value <code>0</code>. A range of code
+	 * points designated by <code>&lt;..., First&gt;</code> and <code>&lt;..., Last&gt;</code> entries receives the value of the first entry throughout.
+	 * @param database The database from which to retrieve characters.
+	 * @param valueFunction The function for determining the value of each character; only the low eight bits are used.
+	 * @return A new table of character values.
+	 */
+	static CodePointByteTable create(final UnicodeDatabase database, final ToIntFunction<UnicodeCharacter> valueFunction) {
+		final byte[] values = new byte[CODE_POINT_COUNT];
+		UnicodeCharacter rangeFirstCharacter = null; //the first character of a range, if we are in a range
+		for(final UnicodeCharacter unicodeCharacter : database.getUnicodeCharacters()) {
+			final int codePoint = unicodeCharacter.getCodeValue();
+			if(rangeFirstCharacter != null) { //if this character ends a range, fill in the range
+				Arrays.fill(values, rangeFirstCharacter.getCodeValue(), codePoint + 1, (byte)valueFunction.applyAsInt(rangeFirstCharacter));
+				rangeFirstCharacter = null;
+			} else {
+				values[codePoint] = (byte)valueFunction.applyAsInt(unicodeCharacter);
+				final String name = unicodeCharacter.getCharacterName();
+				if(name != null && name.endsWith(RANGE_FIRST_NAME_SUFFIX)) { //if this character starts a range
+					rangeFirstCharacter = unicodeCharacter;
+				}
+			}
+		}
+		return new CodePointByteTable(values);
+	}
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.nio.CharBuffer;
+import java.util.*;
+
+/**
+ * An immutable, dense two-level table mapping Unicode code points to replacement strings, for transforms such as folding in which most code points are
+ * unchanged.
+ * <p>
+ * The value of each code point is <code>0</code> if the code point is not mapped, or otherwise one more than the offset of its target in {@link #targets},
+ * where the target is stored as its length followed by its characters, so that the characters of a target with value <var>v</var> are at offset <var>v</var>
+ * with a length of <code>targets[</code><var>v</var><code> - 1]</code>. Identical targets are stored once. As in {@link CodePointByteTable}, the code point
+ * space is divided into blocks of {@value #BLOCK_SIZE} code points, and identical blocks of values are stored only once.
+ * </p>
+ * @author Garret Wilson
+ */
+final class CodePointMappingTable {
+
+	/** The number of bits of a code point used to index into a block. */
+	static final int BLOCK_SHIFT = 7;
+
+	/** The number of code points in each block. */
+	static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+	/**
+	 * A strategy for determining the target of each code point.
+	 * @author Garret Wilson
+	 */
+	@FunctionalInterface
+	interface Mapper {
+
+		/**
+		 * Appends the target of a code point.
+		 * @param codePoint The code point to map.
+		 * @param stringBuilder The string builder to which to append the target.
+		 * @return <code>true</code> if the code point is mapped, or <code>false</code> if it is unchanged, in which case nothing need be appended.
+		 */
+		public boolean appendTarget(int codePoint, StringBuilder stringBuilder);
+	}
+
+	/** The number of the data block for each block of code points. */
+	private final char[] blockIndexes;
+
+	/** The deduplicated data blocks of values, concatenated. */
+	private final char[] data;
+
+	/** The targets, each stored as its length followed by its characters. */
+	final char[] targets;
+
+	/** The bits of the mapped ASCII code points <code>0x00</code> through <code>0x3F</code>. */
+	private final long asciiMappedBits0;
+
+	/** The bits of the mapped ASCII code points <code>0x40</code> through <code>0x7F</code>. */
+	private final long asciiMappedBits1;
+
+	/**
+	 * Database constructor. Only the characters listed in the database are mapped; ranges of characters designated by <code>&lt;..., First&gt;</code> and
+	 * <code>&lt;..., Last&gt;</code> entries have neither decompositions nor case mappings.
+	 * @param database The Unicode database the characters of which to map.
+	 * @param mapper The strategy for determining the target of each character.
+	 * @throws IllegalStateException if there are too many targets to be represented.
+	 */
+	CodePointMappingTable(final UnicodeDatabase database, final Mapper mapper) {
+		final char[] values = new char[CodePointByteTable.CODE_POINT_COUNT];
+		final StringBuilder targetBuilder = new StringBuilder();
+		final Map<String, Character> targetValues = new HashMap<String, Character>(); //share identical targets
+		final StringBuilder mappingBuilder = new StringBuilder();
+		for(final UnicodeCharacter unicodeCharacter : database.getUnicodeCharacters()) {
+			final int codePoint = unicodeCharacter.getCodeValue();
+			mappingBuilder.setLength(0);
+			if(mapper.appendTarget(codePoint, mappingBuilder)) {
+				final String target = mappingBuilder.toString();
+				Character value = targetValues.get(target);
+				if(value == null) {
+					final int offset = targetBuilder.length();
+					if(offset + 1 + target.length() >= Character.MAX_VALUE) {
+						throw new IllegalStateException("Too many mapping targets in Unicode database " + database + ".");
+					}
+					targetBuilder.append((char)target.length()).append(target);
+					value = Character.valueOf((char)(offset + 1));
+					targetValues.put(target, value);
+				}
+				values[codePoint] = value.charValue();
+			}
+		}
+		targets = targetBuilder.toString().toCharArray();
+		final int blockCount = CodePointByteTable.CODE_POINT_COUNT >> BLOCK_SHIFT;
+		blockIndexes = new char[blockCount];
+		final Map<CharBuffer, Integer> blockNumbers = new HashMap<CharBuffer, Integer>(); //the data block number of each unique block of values
+		final CharBuffer dataBuffer = CharBuffer.allocate(values.length);
+		for(int block = 0; block < blockCount; ++block) {
+			final CharBuffer blockValues = CharBuffer.wrap(values, block << BLOCK_SHIFT, BLOCK_SIZE); //compares by content, without copying
+			Integer blockNumber = blockNumbers.get(blockValues);
+			if(blockNumber == null) { //if we haven't seen these block values before, add them to the data
+				blockNumber = Integer.valueOf(blockNumbers.size());
+				blockNumbers.put(blockValues, blockNumber);
+				dataBuffer.put(values, block << BLOCK_SHIFT, BLOCK_SIZE);
+			}
+			blockIndexes[block] = (char)blockNumber.intValue();
+		}
+		data = Arrays.copyOf(dataBuffer.array(), dataBuffer.position());
+		long bits0 = 0;
+		long bits1 = 0;
+		for(int c = 0; c < 0x80; ++c) {
+			if(values[c] != 0) {
+				if(c < 0x40) {
+					bits0 |= 1L << c;
+				} else {
+					bits1 |= 1L << c;
+				}
+			}
+		}
+		asciiMappedBits0 = bits0;
+		asciiMappedBits1 = bits1;
+	}
+
+	/**
+	 * Returns the value of a code point.
+	 * @param codePoint The code point.
+	 * @return <code>0</code> if the code point is not mapped, or one more than the offset of its target.
+	 */
+	int getValue(final int codePoint) {
+		if(codePoint < 0 || codePoint > Character.MAX_CODE_POINT) {
+			return 0;
+		}
+		return data[(blockIndexes[codePoint >> BLOCK_SHIFT] << BLOCK_SHIFT) + (codePoint & (BLOCK_SIZE - 1))];
+	}
+
+	/**
+	 * Determines whether a code point is mapped.
+	 * @param codePoint The code point.
+	 * @return <code>true</code> if the code point has a target.
+	 */
+	boolean isMapped(final int codePoint) {
+		return getValue(codePoint) != 0;
+	}
+
+	/**
+	 * Returns the target of a code point.
+	 * @param codePoint The code point.
+	 * @return The target of the code point, which may be empty; or <code>null</code> if the code point is not mapped.
+	 */
+	String getTarget(final int codePoint) {
+		final int value = getValue(codePoint);
+		return value != 0 ? new String(targets, value, targets[value - 1]) : null;
+	}
+
+	/**
+	 * Finds the next mapped code point in text. ASCII characters are checked against a bitmap without consulting the table.
+	 * @param text The text to scan.
+	 * @param start The index at which to start scanning.
+	 * @param end The index at which to stop scanning.
+	 * @return The index of the first mapped code point, or of a high surrogate at the end that might begin a pair; or the end if nothing in the span is mapped.
+	 */
+	int scan(final CharSequence text, final int start, final int end) {
+		final long ascii0 = asciiMappedBits0;
+		final long ascii1 = asciiMappedBits1;
+		int index = start;
+		while(index < end) {
+			final char c = text.charAt(index);
+			if(c < 0x80) { //ASCII fast path
+				if(((c < 0x40 ? ascii0 : ascii1) & (1L << c)) != 0) {
+					return index;
+				}
+				++index;
+			} else if(Character.isHighSurrogate(c)) {
+				if(index + 1 >= end) { //high surrogate that may be continued
+					return index;
+				}
+				final char low = text.charAt(index + 1);
+				if(Character.isLowSurrogate(low)) {
+					if(getValue(Character.toCodePoint(c, low)) != 0) {
+						return index;
+					}
+					index += 2;
+				} else {
+					++index; //unpaired surrogates are left unchanged
+				}
+			} else {
+				if(getValue(c) != 0) {
+					return index;
+				}
+				++index;
+			}
+		}
+		return end;
+	}
+
+	/** @return The approximate number of bytes occupied by the table data. */
+	long getSize() {
+		return ((long)blockIndexes.length + data.length + targets.length) * Character.BYTES;
+	}
+
+}
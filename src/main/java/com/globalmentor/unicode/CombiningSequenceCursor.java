@@ -0,0 +1,263 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import static java.util.Objects.*;
+
+/**
+ * A reusable cursor that iterates the combining character sequences of text held in a {@link CharSequence} or a <code>char[]</code>. Once constructed, the
+ * cursor performs no allocation; it may be reset to iterate new text any number of times.
+ * <p>
+ * Typical use:
+ * </p>
+ *
+ * <pre>
+ * final CombiningSequenceCursor cursor = new CombiningSequenceCursor();
+ * cursor.reset(text);
+ * while(cursor.next()) {
+ * 	process(text, cursor.getStart(), cursor.getEnd());
+ * }
+ * </pre>
+ * <p>
+ * This class is not thread safe; each thread should use its own cursor.
+ * </p>
+ * @author Garret Wilson
+ * @see CombiningSequences
+ */
+public class CombiningSequenceCursor {
+
+	/** The combining table of the database in use. */
+	private final CodePointByteTable combiningTable;
+
+	/** The text being iterated if it is a character sequence, or <code>null</code> if the text is an array. */
+	private CharSequence charSequence = null;
+
+	/** The text being iterated if it is an array, or <code>null</code> if the text is a character sequence. */
+	private char[] charArray = null;
+
+	/** The end of the range being iterated. */
+	private int limit = 0;
+
+	/** The start of the current combining sequence. */
+	private int start = 0;
+
+	/** @return The index of the first character of the current combining sequence. */
+	public int getStart() {
+		return start;
+	}
+
+	/** The end of the current combining sequence. */
+	private int end = 0;
+
+	/** @return The index after the last character of the current combining sequence. */
+	public int getEnd() {
+		return end;
+	}
+
+	/** Creates a cursor that uses the current Unicode database. */
+	public CombiningSequenceCursor() {
+		this(UnicodeDatabase.getCurrent());
+	}
+
+	/**
+	 * Creates a cursor that uses the given Unicode database.
+	 * @param database The Unicode database to consult for combining classes.
+	 */
+	public CombiningSequenceCursor(final UnicodeDatabase database) {
+		combiningTable = CombiningSequences.getCombiningTable(database);
+	}
+
+	/**
+	 * Resets the cursor to iterate all of a character sequence.
+	 * @param text The text to iterate.
+	 * @return This cursor.
+	 */
+	public CombiningSequenceCursor reset(final CharSequence text) {
+		return reset(text, 0, text.length());
+	}
+
+	/**
+	 * Resets the cursor to iterate a range of a character sequence.
+	 * @param text The text to iterate.
+	 * @param start The index of the first character to iterate.
+	 * @param end The index after the last character to iterate.
+	 * @return This cursor.
+	 * @throws IndexOutOfBoundsException if the given range is not within the text.
+	 */
+	public CombiningSequenceCursor reset(final CharSequence text, final int start, final int end) {
+		checkRange(text.length(), start, end);
+		charSequence = text;
+		charArray = null;
+		return resetRange(start, end);
+	}
+
+	/**
+	 * Resets the cursor to iterate all of an array of characters.
+	 * @param text The text to iterate.
+	 * @return This cursor.
+	 */
+	public CombiningSequenceCursor reset(final char[] text) {
+		return reset(text, 0, text.length);
+	}
+
+	/**
+	 * Resets the cursor to iterate a range of an array of characters.
+	 * @param text The text to iterate.
+	 * @param start The index of the first character to iterate.
+	 * @param end The index after the last character to iterate.
+	 * @return This cursor.
+	 * @throws IndexOutOfBoundsException if the given range is not within the text.
+	 */
+	public CombiningSequenceCursor reset(final char[] text, final int start, final int end) {
+		checkRange(text.length, start, end);
+		charArray = text;
+		charSequence = null;
+		return resetRange(start, end);
+	}
+
+	/**
+	 * Checks a range of text.
+	 * @param length The length of the text.
+	 * @param start The start of the range.
+	 * @param end The end of the range.
+	 * @throws IndexOutOfBoundsException if the given range is not within the text.
+	 */
+	private static void checkRange(final int length, final int start, final int end) {
+		if(start < 0 || start > end || end > length) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") not within text of length " + length + ".");
+		}
+	}
+
+	/**
+	 * Positions the cursor before the first sequence of a new range.
+	 * @param start The start of the range.
+	 * @param end The end of the range.
+	 * @return This cursor.
+	 */
+	private CombiningSequenceCursor resetRange(final int start, final int end) {
+		this.start = start;
+		this.end = start;
+		this.limit = end;
+		return this;
+	}
+
+	/**
+	 * Advances to the next combining sequence.
+	 * @return <code>true</code> if there was another sequence, now available via {@link #getStart()} and {@link #getEnd()}; or <code>false</code> if the end of
+	 *         the text has been reached.
+	 * @throws IllegalStateException if the cursor has not been reset with any text.
+	 */
+	public boolean next() {
+		if(charSequence == null && charArray == null) {
+			throw new IllegalStateException("Cursor has not been reset with text.");
+		}
+		start = end;
+		if(end >= limit) {
+			return false;
+		}
+		end = charArray != null ? findEnd(charArray, start, limit) : findEnd(charSequence, start, limit);
+		return true;
+	}
+
+	/**
+	 * Finds the end of the combining sequence starting at the given index.
+	 * @param text The text being iterated.
+	 * @param index The start of the sequence.
+	 * @param limit The end of the range being iterated.
+	 * @return The index after the last character in the sequence.
+	 */
+	private int findEnd(final char[] text, int index, final int limit) {
+		index = skipCodePoint(text, index, limit); //the first code point always belongs to the sequence
+		while(index < limit) {
+			final char c = text[index];
+			int codePoint = c;
+			int nextIndex = index + 1;
+			if(Character.isHighSurrogate(c) && nextIndex < limit && Character.isLowSurrogate(text[nextIndex])) {
+				codePoint = Character.toCodePoint(c, text[nextIndex++]);
+			}
+			if(combiningTable.get(codePoint) == 0) { //a non-combining code point starts the next sequence
+				break;
+			}
+			index = nextIndex;
+		}
+		return index;
+	}
+
+	/**
+	 * Finds the end of the combining sequence starting at the given index.
+	 * @param text The text being iterated.
+	 * @param index The start of the sequence.
+	 * @param limit The end of the range being iterated.
+	 * @return The index after the last character in the sequence.
+	 */
+	private int findEnd(final CharSequence text, int index, final int limit) {
+		index = skipCodePoint(text, index, limit); //the first code point always belongs to the sequence
+		while(index < limit) {
+			final char c = text.charAt(index);
+			int codePoint = c;
+			int nextIndex = index + 1;
+			if(Character.isHighSurrogate(c) && nextIndex < limit) {
+				final char low = text.charAt(nextIndex);
+				if(Character.isLowSurrogate(low)) {
+					codePoint = Character.toCodePoint(c, low);
+					++nextIndex;
+				}
+			}
+			if(combiningTable.get(codePoint) == 0) { //a non-combining code point starts the next sequence
+				break;
+			}
+			index = nextIndex;
+		}
+		return index;
+	}
+
+	/**
+	 * Skips a single code point, which may be a surrogate pair.
+	 * @param text The text being iterated.
+	 * @param index The index of the code point.
+	 * @param limit The end of the range being iterated.
+	 * @return The index after the code point.
+	 */
+	private static int skipCodePoint(final char[] text, final int index, final int limit) {
+		return Character.isHighSurrogate(text[index]) && index + 1 < limit && Character.isLowSurrogate(text[index + 1]) ? index + 2 : index + 1;
+	}
+
+	/**
+	 * Skips a single code point, which may be a surrogate pair.
+	 * @param text The text being iterated.
+	 * @param index The index of the code point.
+	 * @param limit The end of the range being iterated.
+	 * @return The index after the code point.
+	 */
+	private static int skipCodePoint(final CharSequence text, final int index, final int limit) {
+		return Character.isHighSurrogate(text.charAt(index)) && index + 1 < limit && Character.isLowSurrogate(text.charAt(index + 1)) ? index + 2 : index + 1;
+	}
+
+	/**
+	 * Determines the length of the combining sequence starting at an index, without disturbing the current iteration.
+	 * @param text The text to examine.
+	 * @param index The index of the first character of the sequence.
+	 * @return The number of characters in the combining sequence beginning at the given index.
+	 * @throws IndexOutOfBoundsException if the index is not within the text.
+	 */
+	public int getSequenceLength(final CharSequence text, final int index) {
+		requireNonNull(text);
+		checkRange(text.length(), index, index + 1);
+		return findEnd(text, index, text.length()) - index;
+	}
+
+}
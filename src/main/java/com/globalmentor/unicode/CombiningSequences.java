@@ -0,0 +1,309 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.stream.*;
+
+import static java.util.Objects.*;
+
+/**
+ * Utilities for working with combining character sequences: a base character followed by any number of combining characters.
+ * <p>
+ * A code point is considered combining if its general category is one of the mark categories (<code>Mn</code>, <code>Mc</code>, or <code>Me</code>) or if it
+ * has a non-zero canonical combining class. A combining character at the start of the text, having no base character, forms a sequence by itself along with
+ * any combining characters that follow it. A surrogate pair is never divided.
+ * </p>
+ * <p>
+ * Whether an index is a sequence boundary depends only on the code point at that index, so text may be divided at any boundary and each piece segmented
+ * independently, with the same result as segmenting the whole text.
+ * </p>
+ * <p>
+ * Lookups use a dense combining class table derived once from each {@link UnicodeDatabase}; no {@link UnicodeCharacter} instances are consulted.
+ * </p>
+ * @author Garret Wilson
+ * @see CombiningSequenceCursor
+ */
+public class CombiningSequences {
+
+	/** The key identifying the combining table derived from a database. */
+	private static final Object COMBINING_TABLE_KEY = new Object();
+
+	/**
+	 * Returns the combining table of a database. Each value is <code>0</code> for a non-combining code point, or one more than the canonical combining class of
+	 * a combining code point.
+	 * @param database The Unicode database.
+	 * @return The combining table for the database.
+	 */
+	static CodePointByteTable getCombiningTable(final UnicodeDatabase database) {
+		return database.getDerivedTable(COMBINING_TABLE_KEY, db -> CodePointByteTable.create(db, unicodeCharacter -> {
+			final String generalCategory = unicodeCharacter.getGeneralCategory();
+			final int canonicalCombiningClass = Math.max(unicodeCharacter.getCanonicalCombiningClass(), 0);
+			final boolean isMark = generalCategory != null && generalCategory.length() > 0 && generalCategory.charAt(0) == 'M';
+			return isMark || canonicalCombiningClass != 0 ? canonicalCombiningClass + 1 : 0;
+		}));
+	}
+
+	/**
+	 * Determines whether a code point is a combining character in the current Unicode database.
+	 * @param codePoint The code point to check.
+	 * @return <code>true</code> if the code point combines with a preceding base character.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static boolean isCombining(final int codePoint) {
+		return isCombining(UnicodeDatabase.getCurrent(), codePoint);
+	}
+
+	/**
+	 * Determines whether a code point is a combining character.
+	 * @param database The Unicode database to consult.
+	 * @param codePoint The code point to check.
+	 * @return <code>true</code> if the code point combines with a preceding base character.
+	 */
+	public static boolean isCombining(final UnicodeDatabase database, final int codePoint) {
+		return getCombiningTable(database).get(codePoint) != 0;
+	}
+
+	/**
+	 * Returns the canonical combining class of a code point in the current Unicode database, without looking up a {@link UnicodeCharacter}.
+	 * @param codePoint The code point to check.
+	 * @return The canonical combining class of the code point, or <code>0</code> if the code point is not assigned.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static int getCanonicalCombiningClass(final int codePoint) {
+		return getCanonicalCombiningClass(UnicodeDatabase.getCurrent(), codePoint);
+	}
+
+	/**
+	 * Returns the canonical combining class of a code point, without looking up a {@link UnicodeCharacter}.
+	 * @param database The Unicode database to consult.
+	 * @param codePoint The code point to check.
+	 * @return The canonical combining class of the code point, or <code>0</code> if the code point is not assigned.
+	 */
+	public static int getCanonicalCombiningClass(final UnicodeDatabase database, final int codePoint) {
+		final int value = getCombiningTable(database).get(codePoint);
+		return value != 0 ? value - 1 : 0;
+	}
+
+	/**
+	 * Determines whether an index in a character sequence is a combining sequence boundary.
+	 * @param table The combining table to consult.
+	 * @param text The text being segmented.
+	 * @param start The start of the range being segmented.
+	 * @param end The end of the range being segmented.
+	 * @param index The index to check, which must be within the range, inclusive.
+	 * @return <code>true</code> if a combining sequence starts or the range ends at the given index.
+	 */
+	static boolean isBoundary(final CodePointByteTable table, final CharSequence text, final int start, final int end, final int index) {
+		if(index == start || index == end) {
+			return true;
+		}
+		final char c = text.charAt(index);
+		if(Character.isLowSurrogate(c) && Character.isHighSurrogate(text.charAt(index - 1))) { //never split a surrogate pair
+			return false;
+		}
+		final int codePoint;
+		if(Character.isHighSurrogate(c) && index + 1 < end) {
+			final char low = text.charAt(index + 1);
+			codePoint = Character.isLowSurrogate(low) ? Character.toCodePoint(c, low) : c;
+		} else {
+			codePoint = c;
+		}
+		return table.get(codePoint) == 0;
+	}
+
+	/**
+	 * Determines whether an index in a character sequence is a combining sequence boundary in the current Unicode database.
+	 * @param text The text being segmented.
+	 * @param index The index to check, from <code>0</code> to the length of the text, inclusive.
+	 * @return <code>true</code> if a combining sequence starts or the text ends at the given index.
+	 * @throws IndexOutOfBoundsException if the index is negative or greater than the length of the text.
+	 */
+	public static boolean isBoundary(final CharSequence text, final int index) {
+		checkRange(text, index);
+		return isBoundary(getCombiningTable(UnicodeDatabase.getCurrent()), text, 0, text.length(), index);
+	}
+
+	/**
+	 * Returns the first combining sequence boundary at or after the given index, using the current Unicode database. The returned index is always a safe place
+	 * to divide the text.
+	 * @param text The text being segmented.
+	 * @param index The index from which to search, from <code>0</code> to the length of the text, inclusive.
+	 * @return The index of the first boundary at or after the given index, which will be the length of the text if there are no further boundaries.
+	 * @throws IndexOutOfBoundsException if the index is negative or greater than the length of the text.
+	 */
+	public static int getBoundaryAtOrAfter(final CharSequence text, final int index) {
+		checkRange(text, index);
+		return getBoundaryAtOrAfter(getCombiningTable(UnicodeDatabase.getCurrent()), text, 0, text.length(), index);
+	}
+
+	/**
+	 * Returns the first combining sequence boundary at or after the given index.
+	 * @param table The combining table to consult.
+	 * @param text The text being segmented.
+	 * @param start The start of the range being segmented.
+	 * @param end The end of the range being segmented.
+	 * @param index The index from which to search, which must be within the range, inclusive.
+	 * @return The index of the first boundary at or after the given index, which will be the end of the range if there are no further boundaries.
+	 */
+	static int getBoundaryAtOrAfter(final CodePointByteTable table, final CharSequence text, final int start, final int end, int index) {
+		while(!isBoundary(table, text, start, end, index)) {
+			++index;
+		}
+		return index;
+	}
+
+	/**
+	 * Checks that an index is a valid position between characters of some text.
+	 * @param text The text.
+	 * @param index The index to check.
+	 * @throws IndexOutOfBoundsException if the index is negative or greater than the length of the text.
+	 */
+	private static void checkRange(final CharSequence text, final int index) {
+		if(index < 0 || index > text.length()) {
+			throw new IndexOutOfBoundsException("Index " + index + " not within text of length " + text.length() + ".");
+		}
+	}
+
+	/**
+	 * Divides text into approximately equal chunks without dividing any combining sequence, using the current Unicode database. This is useful for distributing
+	 * text processing among several threads.
+	 * @param text The text to divide.
+	 * @param chunkCount The maximum number of chunks.
+	 * @return The boundaries of the chunks, starting with <code>0</code> and ending with the length of the text; chunk <var>i</var> extends from boundary
+	 *         <var>i</var> to boundary <var>i</var>+1. Fewer chunks than requested are returned if the text is too short or a sequence spans a requested
+	 *         division.
+	 * @throws IllegalArgumentException if the chunk count is not positive.
+	 */
+	public static int[] split(final CharSequence text, final int chunkCount) {
+		if(chunkCount <= 0) {
+			throw new IllegalArgumentException("Chunk count must be positive: " + chunkCount);
+		}
+		final CodePointByteTable table = getCombiningTable(UnicodeDatabase.getCurrent());
+		final int length = text.length();
+		final int[] boundaries = new int[chunkCount + 1];
+		int boundaryCount = 1; //boundaries[0] is already zero
+		for(int chunk = 1; chunk < chunkCount; ++chunk) {
+			final int boundary = getBoundaryAtOrAfter(table, text, 0, length, (int)((long)length * chunk / chunkCount));
+			if(boundary > boundaries[boundaryCount - 1] && boundary < length) { //skip empty chunks
+				boundaries[boundaryCount++] = boundary;
+			}
+		}
+		boundaries[boundaryCount++] = length;
+		return boundaryCount == boundaries.length ? boundaries : Arrays.copyOf(boundaries, boundaryCount);
+	}
+
+	/**
+	 * Returns a stream of the start indexes of the combining sequences in some text, using the current Unicode database. The stream supports efficient parallel
+	 * processing; the text is never divided within a combining sequence.
+	 * @param text The text to segment; it must not be modified while the stream is in use.
+	 * @return A stream of the indexes at which combining sequences start, in increasing order.
+	 */
+	public static IntStream sequenceStarts(final CharSequence text) {
+		return StreamSupport.intStream(new SequenceStartSpliterator(getCombiningTable(UnicodeDatabase.getCurrent()), requireNonNull(text), 0, text.length()),
+				false);
+	}
+
+	/**
+	 * A spliterator over the start indexes of combining sequences. Splitting occurs only at sequence boundaries.
+	 * @author Garret Wilson
+	 */
+	private static final class SequenceStartSpliterator implements Spliterator.OfInt {
+
+		/** The minimum number of characters worth splitting off for another thread. */
+		private static final int MIN_SPLIT_LENGTH = 1 << 10;
+
+		/** The combining table to consult. */
+		private final CodePointByteTable table;
+
+		/** The text being segmented. */
+		private final CharSequence text;
+
+		/** The index of the next sequence start to report. */
+		private int index;
+
+		/** The end of the range of text to segment. */
+		private final int end;
+
+		/**
+		 * Constructor.
+		 * @param table The combining table to consult.
+		 * @param text The text being segmented.
+		 * @param start The start of the range, which must be a boundary.
+		 * @param end The end of the range, which must be a boundary.
+		 */
+		SequenceStartSpliterator(final CodePointByteTable table, final CharSequence text, final int start, final int end) {
+			this.table = table;
+			this.text = text;
+			this.index = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(final IntConsumer action) {
+			if(index >= end) {
+				return false;
+			}
+			final int sequenceStart = index;
+			index = getBoundaryAtOrAfter(table, text, sequenceStart, end, sequenceStart + 1);
+			action.accept(sequenceStart);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(final IntConsumer action) {
+			final int start = index;
+			while(index < end) {
+				final int sequenceStart = index;
+				index = getBoundaryAtOrAfter(table, text, start, end, sequenceStart + 1);
+				action.accept(sequenceStart);
+			}
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			final int length = end - index;
+			if(length < MIN_SPLIT_LENGTH) {
+				return null;
+			}
+			final int middle = getBoundaryAtOrAfter(table, text, index, end, index + (length >>> 1));
+			if(middle >= end) { //if a single sequence spans the rest of the range, we can't split
+				return null;
+			}
+			final Spliterator.OfInt prefix = new SequenceStartSpliterator(table, text, index, middle);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - index; //there can be no more sequences than characters
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE;
+		}
+
+		@Override
+		public Comparator<? super Integer> getComparator() {
+			return null; //natural order
+		}
+	}
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.nio.CharBuffer;
+import java.nio.charset.CoderResult;
+
+import static com.globalmentor.unicode.UnicodeConstants.*;
+
+/**
+ * Removes diacritics from text, such as for generating accent-insensitive search keys, so that "café" becomes "cafe".
+ * <p>
+ * Each code point with a canonical decomposition is replaced by its full decomposition, and nonspacing marks (category
+ * {@link UnicodeConstants#MARK_NONSPACING}) are removed, whether they were decomposed or present in the original text. Optionally each remaining character is
+ * also replaced by its lowercase mapping. Characters without canonical decompositions, such as "ø", are not folded.
+ * </p>
+ * <p>
+ * The fold target of every code point is computed once per database and kept in a table indexed directly by code point, so folding looks up no
+ * {@link UnicodeCharacter} instances. Runs of text that do not fold are copied in bulk, and text that does not fold at all is returned without creating any
+ * objects.
+ * </p>
+ * <p>
+ * A folder is immutable and may be shared among threads.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class DiacriticFolder {
+
+	/** The greatest depth of decompositions and mappings followed when computing fold targets, to guard against cycles in malformed data. */
+	private static final int MAX_FOLD_DEPTH = 8;
+
+	/** The derived table key for the folder of a database that does not lowercase. */
+	private static final Object FOLDER_KEY = new Object();
+
+	/** The derived table key for the folder of a database that lowercases. */
+	private static final Object LOWERCASING_FOLDER_KEY = new Object();
+
+	/** Whether folded text is also lowercased. */
+	private final boolean lowercasing;
+
+	/** @return Whether folded text is also lowercased. */
+	public boolean isLowercasing() {
+		return lowercasing;
+	}
+
+	/** The table of fold targets. */
+	private final CodePointMappingTable table;
+
+	/**
+	 * Database constructor.
+	 * @param database The Unicode database from which to determine decompositions, categories, and case mappings.
+	 * @param lowercasing Whether folded text should also be lowercased.
+	 * @throws IllegalStateException if the database has too many fold targets to be represented.
+	 */
+	private DiacriticFolder(final UnicodeDatabase database, final boolean lowercasing) {
+		this.lowercasing = lowercasing;
+		table = new CodePointMappingTable(database, (codePoint, stringBuilder) -> appendFold(database, codePoint, lowercasing, stringBuilder, 0));
+	}
+
+	/**
+	 * Appends the fold target of a code point, following decompositions and case mappings recursively.
+	 * @param database The Unicode database.
+	 * @param codePoint The code point to fold.
+	 * @param lowercasing Whether characters should be lowercased.
+	 * @param stringBuilder The string builder to which to append the fold target.
+	 * @param depth The current depth of recursion.
+	 * @return <code>true</code> if the code point folds, or <code>false</code> if it is unchanged, in which case the code point itself has been appended.
+	 */
+	private static boolean appendFold(final UnicodeDatabase database, final int codePoint, final boolean lowercasing, final StringBuilder stringBuilder,
+			final int depth) {
+		final UnicodeCharacter unicodeCharacter = depth < MAX_FOLD_DEPTH ? database.getUnicodeCharacter(codePoint) : null;
+		if(unicodeCharacter != null) {
+			if(MARK_NONSPACING.equals(unicodeCharacter.getGeneralCategory())) { //remove nonspacing marks
+				return true;
+			}
+			final String decompositionMappings = unicodeCharacter.getCharacterDecompositionMappings();
+			if(decompositionMappings.length() > 0 && unicodeCharacter.getCharacterDecompositionTag().length() == 0) { //canonical decomposition
+				decompositionMappings.codePoints().forEach(mappedCodePoint -> appendFold(database, mappedCodePoint, lowercasing, stringBuilder, depth + 1));
+				return true;
+			}
+			final int lowercaseMapping = lowercasing ? unicodeCharacter.getLowercaseMappingCodePoint() : 0;
+			if(lowercaseMapping != 0 && lowercaseMapping != codePoint) {
+				appendFold(database, lowercaseMapping, lowercasing, stringBuilder, depth + 1);
+				return true;
+			}
+		}
+		stringBuilder.appendCodePoint(codePoint);
+		return false;
+	}
+
+	/**
+	 * Returns the folder of the current Unicode database.
+	 * @param lowercasing Whether folded text should also be lowercased.
+	 * @return The diacritic folder of the current database.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static DiacriticFolder getInstance(final boolean lowercasing) {
+		return forDatabase(UnicodeDatabase.getCurrent(), lowercasing);
+	}
+
+	/**
+	 * Returns the folder of a Unicode database. The fold table of each database is computed once and cached.
+	 * @param database The Unicode database.
+	 * @param lowercasing Whether folded text should also be lowercased.
+	 * @return The diacritic folder of the database.
+	 */
+	public static DiacriticFolder forDatabase(final UnicodeDatabase database, final boolean lowercasing) {
+		return database.getDerivedTable(lowercasing ? LOWERCASING_FOLDER_KEY : FOLDER_KEY, db -> new DiacriticFolder(db, lowercasing));
+	}
+
+	/**
+	 * Determines whether a code point is changed by folding.
+	 * @param codePoint The code point to check.
+	 * @return <code>true</code> if the code point is removed or replaced when folding.
+	 */
+	public boolean folds(final int codePoint) {
+		return table.isMapped(codePoint);
+	}
+
+	/**
+	 * Returns the fold target of a code point.
+	 * @param codePoint The code point to fold.
+	 * @return The characters that replace the code point, which may be empty; or <code>null</code> if the code point does not fold.
+	 */
+	public String getFoldTarget(final int codePoint) {
+		return table.getTarget(codePoint);
+	}
+
+	/**
+	 * Finds the next code point in text that folds.
+	 * @param text The text to scan.
+	 * @param start The index at which to start scanning.
+	 * @param end The index at which to stop scanning.
+	 * @return The index of the first code point that folds, or of a high surrogate at the end that might begin a pair; or the end if nothing in the span folds.
+	 */
+	int scan(final CharSequence text, final int start, final int end) {
+		return table.scan(text, start, end);
+	}
+
+	/**
+	 * Determines whether text is changed by folding.
+	 * @param text The text to check.
+	 * @return <code>true</code> if any code point in the text is removed or replaced when folding.
+	 */
+	public boolean folds(final CharSequence text) {
+		final int length = text.length();
+		final int index = scan(text, 0, length);
+		return index < length && !(index == length - 1 && Character.isHighSurrogate(text.charAt(index))); //a high surrogate at the end is left unchanged
+	}
+
+	/**
+	 * Returns the code point at an index for folding.
+	 * @param text The text containing the code point.
+	 * @param index The index of the code point.
+	 * @param end The end of the text.
+	 * @return The code point, or the code unit itself if it is an unpaired surrogate.
+	 */
+	private static int codePointAt(final CharSequence text, final int index, final int end) {
+		final char c = text.charAt(index);
+		if(Character.isHighSurrogate(c) && index + 1 < end) {
+			final char low = text.charAt(index + 1);
+			if(Character.isLowSurrogate(low)) {
+				return Character.toCodePoint(c, low);
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Folds text.
+	 * @param text The text to fold.
+	 * @return The folded text; the same string instance if nothing folds.
+	 */
+	public String fold(final String text) {
+		if(!folds(text)) {
+			return text;
+		}
+		final StringBuilder stringBuilder = new StringBuilder(text.length());
+		appendFolded(text, stringBuilder);
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * Folds text, using a reusable string builder only if something folds.
+	 * @param text The text to fold.
+	 * @param stringBuilder The string builder to clear and fill with the folded text if anything folds.
+	 * @return The text itself if nothing folds, or the string builder containing the folded text.
+	 */
+	public CharSequence fold(final CharSequence text, final StringBuilder stringBuilder) {
+		if(!folds(text)) {
+			return text;
+		}
+		stringBuilder.setLength(0);
+		appendFolded(text, stringBuilder);
+		return stringBuilder;
+	}
+
+	/**
+	 * Appends folded text to a string builder.
+	 * @param text The text to fold.
+	 * @param stringBuilder The string builder to which to append the folded text.
+	 * @return The string builder.
+	 */
+	public StringBuilder appendFolded(final CharSequence text, final StringBuilder stringBuilder) {
+		final int length = text.length();
+		int index = 0;
+		while(index < length) {
+			final int unfoldedEnd = scan(text, index, length);
+			stringBuilder.append(text, index, unfoldedEnd); //copy the unfolded span in bulk
+			index = unfoldedEnd;
+			if(index < length) {
+				final int codePoint = codePointAt(text, index, length);
+				final int value = table.getValue(codePoint);
+				if(value != 0) {
+					stringBuilder.append(table.targets, value, table.targets[value - 1]);
+				} else { //a high surrogate at the end
+					stringBuilder.append(text.charAt(index));
+				}
+				index += Character.charCount(codePoint);
+			}
+		}
+		return stringBuilder;
+	}
+
+	/**
+	 * Folds characters from one buffer into another, in the manner of {@link java.nio.charset.CharsetDecoder#decode(java.nio.ByteBuffer, CharBuffer, boolean)}.
+	 * Unfolded spans are copied in bulk when the input buffer is backed by an array. If the input ends with a high surrogate and more input may follow, the
+	 * high surrogate is left in the input buffer.
+	 * @param in The input buffer, the position of which will be advanced past the characters consumed.
+	 * @param out The output buffer, the position of which will be advanced past the characters produced.
+	 * @param endOfInput <code>true</code> if the input buffer contains the last of the input.
+	 * @return {@link CoderResult#UNDERFLOW} if the input was consumed as far as possible, or {@link CoderResult#OVERFLOW} if the output buffer is full.
+	 */
+	public CoderResult fold(final CharBuffer in, final CharBuffer out, final boolean endOfInput) {
+		final int position = in.position();
+		final int limit = in.limit();
+		int index = position;
+		try {
+			while(index < limit) {
+				final int unfoldedEnd = scan(in, index - position, limit - position) + position; //CharBuffer.charAt() is relative to the position
+				final int unfoldedLength = unfoldedEnd - index;
+				if(unfoldedLength > 0) {
+					if(out.remaining() < unfoldedLength) { //copy what we can
+						final int partialLength = out.remaining();
+						put(in, index, out, partialLength);
+						index += partialLength;
+						return CoderResult.OVERFLOW;
+					}
+					put(in, index, out, unfoldedLength);
+					index = unfoldedEnd;
+					continue;
+				}
+				final char c = in.get(index);
+				if(Character.isHighSurrogate(c) && index + 1 >= limit) { //a high surrogate at the end
+					if(!endOfInput) { //wait for the rest of the pair
+						return CoderResult.UNDERFLOW;
+					}
+					if(!out.hasRemaining()) {
+						return CoderResult.OVERFLOW;
+					}
+					out.put(c);
+					++index;
+					continue;
+				}
+				final int codePoint = Character.isHighSurrogate(c) ? Character.toCodePoint(c, in.get(index + 1)) : c; //scan only stops at valid pairs
+				final int value = table.getValue(codePoint);
+				final int targetLength = table.targets[value - 1];
+				if(out.remaining() < targetLength) {
+					return CoderResult.OVERFLOW;
+				}
+				out.put(table.targets, value, targetLength);
+				index += Character.charCount(codePoint);
+			}
+			return CoderResult.UNDERFLOW;
+		} finally {
+			in.position(index);
+		}
+	}
+
+	/**
+	 * Copies characters from one buffer to another, using a bulk copy if possible.
+	 * @param in The input buffer; its position is not changed.
+	 * @param index The absolute index in the input buffer from which to copy.
+	 * @param out The output buffer.
+	 * @param length The number of characters to copy.
+	 */
+	private static void put(final CharBuffer in, final int index, final CharBuffer out, final int length) {
+		if(in.hasArray()) {
+			out.put(in.array(), in.arrayOffset() + index, length);
+		} else {
+			for(int i = 0; i < length; ++i) {
+				out.put(in.get(index + i));
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + (lowercasing ? " (lowercasing)" : "");
+	}
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.*;
+
+import static com.globalmentor.unicode.UnicodeConstants.*;
+
+/**
+ * Fast access to the general categories of code points, without looking up {@link UnicodeCharacter} instances.
+ * <p>
+ * Each general category is identified by a small index, with {@link UnicodeConstants#OTHER_NOT_ASSIGNED} at index <code>0</code>. The category indexes of all
+ * code points in a database are kept in a compact table created once per database. As there are fewer than 32 categories, a set of categories can be
+ * represented as an <code>int</code> bit mask, allowing a code point to be tested against any number of categories in constant time.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class GeneralCategories {
+
+	/** The general categories, in index order. */
+	private static final String[] GENERAL_CATEGORIES = {OTHER_NOT_ASSIGNED, LETTER_UPPERCASE, LETTER_LOWERCASE, LETTER_TITLECASE, LETTER_MODIFIER, LETTER_OTHER,
+			MARK_NONSPACING, MARK_SPACING_COMBINING, MARK_ENCLOSING, NUMBER_DECIMAL_DIGIT, NUMBER_LETTER, NUMBER_OTHER, PUNCTUATION_CONNECTOR, PUNCTUATION_DASH,
+			PUNCTUATION_OPEN, PUNCTUATION_CLOSE, PUNCTUATION_INITIAL_QUOTE, PUNCTUATION_FINAL, PUNCTUATION_OTHER, SYMBOL_MATH, SYMBOL_CURRENCY, SYMBOL_MODIFIER,
+			SYMBOL_OTHER, SEPARATOR_SPACE, SEPARATOR_LINE, SEPARATOR_PARAGRAPH, OTHER_CONTROL, OTHER_FORMAT, OTHER_SURROGATE, OTHER_PRIVATE_USE};
+
+	/** The number of general categories. */
+	public static final int COUNT = GENERAL_CATEGORIES.length;
+
+	/** The indexes of the general categories, keyed to the general categories. */
+	private static final Map<String, Integer> INDEXES;
+
+	static {
+		final Map<String, Integer> indexes = new HashMap<String, Integer>();
+		for(int index = 0; index < GENERAL_CATEGORIES.length; ++index) {
+			indexes.put(GENERAL_CATEGORIES[index], Integer.valueOf(index));
+		}
+		INDEXES = Collections.unmodifiableMap(indexes);
+	}
+
+	/** The derived table key for the general category index table of a database. */
+	private static final Object TABLE_KEY = new Object();
+
+	/** This class cannot be publicly instantiated. */
+	private GeneralCategories() {
+	}
+
+	/**
+	 * Returns the index of a general category.
+	 * @param generalCategory The general category, such as {@link UnicodeConstants#LETTER_UPPERCASE}.
+	 * @return The index of the general category, or <code>-1</code> if the general category is not recognized.
+	 */
+	public static int indexOf(final String generalCategory) {
+		final Integer index = INDEXES.get(generalCategory);
+		return index != null ? index.intValue() : -1;
+	}
+
+	/**
+	 * Returns the index of a general category held in a range of characters, without creating a string.
+	 * @param chars The characters containing the general category.
+	 * @param start The start of the general category.
+	 * @param end The end of the general category.
+	 * @return The index of the general category, or <code>-1</code> if the general category is not recognized.
+	 */
+	static int indexOf(final char[] chars, final int start, final int end) {
+		if(end - start == 2) { //all general categories have two letters
+			for(int index = 0; index < GENERAL_CATEGORIES.length; ++index) {
+				final String generalCategory = GENERAL_CATEGORIES[index];
+				if(generalCategory.charAt(0) == chars[start] && generalCategory.charAt(1) == chars[start + 1]) {
+					return index;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the general category with the given index.
+	 * @param index The index of the general category.
+	 * @return The general category, one of the constants of {@link UnicodeConstants}.
+	 * @throws IndexOutOfBoundsException if the index is not less than {@link #COUNT}.
+	 */
+	public static String get(final int index) {
+		return GENERAL_CATEGORIES[index];
+	}
+
+	/**
+	 * Returns a bit mask of general categories, in which the bit at the index of each category is set.
+	 * @param generalCategories The general categories. A single-letter major category such as "L" includes all categories beginning with that letter.
+	 * @return The bit mask of the given categories.
+	 * @throws IllegalArgumentException if one of the general categories is not recognized.
+	 */
+	public static int maskOf(final String... generalCategories) {
+		int mask = 0;
+		for(final String generalCategory : generalCategories) {
+			final int index = indexOf(generalCategory);
+			if(index >= 0) {
+				mask |= 1 << index;
+			} else if(generalCategory.length() == 1) { //major category
+				boolean found = false;
+				for(int i = 0; i < GENERAL_CATEGORIES.length; ++i) {
+					if(GENERAL_CATEGORIES[i].charAt(0) == generalCategory.charAt(0)) {
+						mask |= 1 << i;
+						found = true;
+					}
+				}
+				if(!found) {
+					throw new IllegalArgumentException("Unrecognized general category: " + generalCategory);
+				}
+			} else {
+				throw new IllegalArgumentException("Unrecognized general category: " + generalCategory);
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the table of general category indexes of a database.
+	 * @param database The Unicode database.
+	 * @return The table mapping each code point to its general category index.
+	 */
+	static CodePointByteTable getTable(final UnicodeDatabase database) {
+		return database.getDerivedTable(TABLE_KEY,
+				db -> CodePointByteTable.create(db, unicodeCharacter -> Math.max(indexOf(unicodeCharacter.getGeneralCategory()), 0)));
+	}
+
+	/**
+	 * Returns the general category index of a code point in the current Unicode database.
+	 * @param codePoint The code point.
+	 * @return The index of the general category of the code point; <code>0</code>, the index of {@link UnicodeConstants#OTHER_NOT_ASSIGNED}, if the code point
+	 *         is not assigned or is not a valid code point.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static int getIndex(final int codePoint) {
+		return getIndex(UnicodeDatabase.getCurrent(), codePoint);
+	}
+
+	/**
+	 * Returns the general category index of a code point in a Unicode database.
+	 * @param database The Unicode database.
+	 * @param codePoint The code point.
+	 * @return The index of the general category of the code point; <code>0</code>, the index of {@link UnicodeConstants#OTHER_NOT_ASSIGNED}, if the code point
+	 *         is not assigned or is not a valid code point.
+	 */
+	public static int getIndex(final UnicodeDatabase database, final int codePoint) {
+		return getTable(database).get(codePoint);
+	}
+
+	/**
+	 * Returns the general category of a code point in the current Unicode database.
+	 * @param codePoint The code point.
+	 * @return The general category of the code point, which is {@link UnicodeConstants#OTHER_NOT_ASSIGNED} if the code point is not assigned.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static String getGeneralCategory(final int codePoint) {
+		return get(getIndex(codePoint));
+	}
+
+	/**
+	 * Returns the general category of a code point in a Unicode database.
+	 * @param database The Unicode database.
+	 * @param codePoint The code point.
+	 * @return The general category of the code point, which is {@link UnicodeConstants#OTHER_NOT_ASSIGNED} if the code point is not assigned.
+	 */
+	public static String getGeneralCategory(final UnicodeDatabase database, final int codePoint) {
+		return get(getIndex(database, codePoint));
+	}
+
+	/**
+	 * Determines whether a code point has one of a set of general categories in a Unicode database.
+	 * @param database The Unicode database.
+	 * @param codePoint The code point.
+	 * @param mask The bit mask of general categories, as returned by {@link #maskOf(String...)}.
+	 * @return <code>true</code> if the general category of the code point is in the mask.
+	 */
+	public static boolean isIn(final UnicodeDatabase database, final int codePoint, final int mask) {
+		return (mask & (1 << getIndex(database, codePoint))) != 0;
+	}
+
+}
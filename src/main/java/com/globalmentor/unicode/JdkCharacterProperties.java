@@ -0,0 +1,380 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.Objects;
+
+import static com.globalmentor.unicode.UnicodeConstants.*;
+
+/**
+ * Character properties of a Unicode database served where possible by {@link java.lang.Character}, the tables of which the JVM keeps resident and in some
+ * cases intrinsifies, with the database consulted only for the code points on which the two disagree.
+ * <p>
+ * The Unicode version of the JDK is usually newer than that of the database, so the JDK may assign characters the database does not know, or may have
+ * revised their properties. When the properties of a database are first requested, a differential verifier compares every BMP code point of the database
+ * with {@link Character#getType(int)}, {@link Character#getDirectionality(int)}, and {@link Character#isMirrored(int)}, recording the code points on which
+ * each property diverges. Lookups of a property for a BMP code point whose bit is clear in the divergence bitmap of that property are answered by the JDK;
+ * all other lookups, including those of supplementary code points, are answered by the dense tables of the database. Either way the answer is that of the
+ * database.
+ * </p>
+ * <p>
+ * The result of the verification is available from {@link #getDivergence()} for reporting.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class JdkCharacterProperties {
+
+	/** The number of code points in the Basic Multilingual Plane, which are verified and may be served by the JDK. */
+	public static final int BMP_CODE_POINT_COUNT = Character.MAX_VALUE + 1;
+
+	/** The bidirectional categories, in index order; index <code>0</code> indicates no bidirectional category. */
+	private static final String[] BIDIRECTIONAL_CATEGORIES = {null, LEFT_TO_RIGHT, LEFT_TO_RIGHT_EMBEDDING, LEFT_TO_RIGHT_OVERRIDE, RIGHT_TO_LEFT,
+			RIGHT_TO_LEFT_ARABIC, RIGHT_TO_LEFT_EMBEDDING, RIGHT_TO_LEFT_OVERRIDE, POP_DIRECTIONAL_FORMAT, EUROPEAN_NUMBER, EUROPEAN_NUMBER_SEPARATOR,
+			EUROPEAN_NUMBER_TERMINATOR, ARABIC_NUMBER, COMMON_NUMBER_SEPARATOR, NON_SPACING_MARK, BOUNDARY_NEUTRAL, PARAGRAPH_SEPARATOR, SEGMENT_SEPARATOR,
+			WHITESPACE, OTHER_NEUTRALS};
+
+	/** The general category indexes of the JDK character types, indexed by the values returned by {@link Character#getType(int)}. */
+	private static final byte[] JDK_GENERAL_CATEGORY_INDEXES = new byte[Character.FINAL_QUOTE_PUNCTUATION + 1];
+
+	/** The bidirectional category indexes of the JDK directionalities, indexed by the values returned by {@link Character#getDirectionality(int)}. */
+	private static final byte[] JDK_BIDIRECTIONAL_CATEGORY_INDEXES = new byte[Character.DIRECTIONALITY_POP_DIRECTIONAL_FORMAT + 1];
+
+	static {
+		final String[] generalCategories = new String[JDK_GENERAL_CATEGORY_INDEXES.length];
+		generalCategories[Character.UNASSIGNED] = OTHER_NOT_ASSIGNED;
+		generalCategories[Character.UPPERCASE_LETTER] = LETTER_UPPERCASE;
+		generalCategories[Character.LOWERCASE_LETTER] = LETTER_LOWERCASE;
+		generalCategories[Character.TITLECASE_LETTER] = LETTER_TITLECASE;
+		generalCategories[Character.MODIFIER_LETTER] = LETTER_MODIFIER;
+		generalCategories[Character.OTHER_LETTER] = LETTER_OTHER;
+		generalCategories[Character.NON_SPACING_MARK] = MARK_NONSPACING;
+		generalCategories[Character.ENCLOSING_MARK] = MARK_ENCLOSING;
+		generalCategories[Character.COMBINING_SPACING_MARK] = MARK_SPACING_COMBINING;
+		generalCategories[Character.DECIMAL_DIGIT_NUMBER] = NUMBER_DECIMAL_DIGIT;
+		generalCategories[Character.LETTER_NUMBER] = NUMBER_LETTER;
+		generalCategories[Character.OTHER_NUMBER] = NUMBER_OTHER;
+		generalCategories[Character.SPACE_SEPARATOR] = SEPARATOR_SPACE;
+		generalCategories[Character.LINE_SEPARATOR] = SEPARATOR_LINE;
+		generalCategories[Character.PARAGRAPH_SEPARATOR] = SEPARATOR_PARAGRAPH;
+		generalCategories[Character.CONTROL] = OTHER_CONTROL;
+		generalCategories[Character.FORMAT] = OTHER_FORMAT;
+		generalCategories[Character.PRIVATE_USE] = OTHER_PRIVATE_USE;
+		generalCategories[Character.SURROGATE] = OTHER_SURROGATE;
+		generalCategories[Character.DASH_PUNCTUATION] = PUNCTUATION_DASH;
+		generalCategories[Character.START_PUNCTUATION] = PUNCTUATION_OPEN;
+		generalCategories[Character.END_PUNCTUATION] = PUNCTUATION_CLOSE;
+		generalCategories[Character.CONNECTOR_PUNCTUATION] = PUNCTUATION_CONNECTOR;
+		generalCategories[Character.OTHER_PUNCTUATION] = PUNCTUATION_OTHER;
+		generalCategories[Character.MATH_SYMBOL] = SYMBOL_MATH;
+		generalCategories[Character.CURRENCY_SYMBOL] = SYMBOL_CURRENCY;
+		generalCategories[Character.MODIFIER_SYMBOL] = SYMBOL_MODIFIER;
+		generalCategories[Character.OTHER_SYMBOL] = SYMBOL_OTHER;
+		generalCategories[Character.INITIAL_QUOTE_PUNCTUATION] = PUNCTUATION_INITIAL_QUOTE;
+		generalCategories[Character.FINAL_QUOTE_PUNCTUATION] = PUNCTUATION_FINAL;
+		for(int type = 0; type < generalCategories.length; ++type) { //an unused type maps to "not assigned"
+			JDK_GENERAL_CATEGORY_INDEXES[type] = (byte)Math.max(GeneralCategories.indexOf(generalCategories[type]), 0);
+		}
+		final String[] bidirectionalCategories = new String[JDK_BIDIRECTIONAL_CATEGORY_INDEXES.length];
+		bidirectionalCategories[Character.DIRECTIONALITY_LEFT_TO_RIGHT] = LEFT_TO_RIGHT;
+		bidirectionalCategories[Character.DIRECTIONALITY_RIGHT_TO_LEFT] = RIGHT_TO_LEFT;
+		bidirectionalCategories[Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC] = RIGHT_TO_LEFT_ARABIC;
+		bidirectionalCategories[Character.DIRECTIONALITY_EUROPEAN_NUMBER] = EUROPEAN_NUMBER;
+		bidirectionalCategories[Character.DIRECTIONALITY_EUROPEAN_NUMBER_SEPARATOR] = EUROPEAN_NUMBER_SEPARATOR;
+		bidirectionalCategories[Character.DIRECTIONALITY_EUROPEAN_NUMBER_TERMINATOR] = EUROPEAN_NUMBER_TERMINATOR;
+		bidirectionalCategories[Character.DIRECTIONALITY_ARABIC_NUMBER] = ARABIC_NUMBER;
+		bidirectionalCategories[Character.DIRECTIONALITY_COMMON_NUMBER_SEPARATOR] = COMMON_NUMBER_SEPARATOR;
+		bidirectionalCategories[Character.DIRECTIONALITY_NONSPACING_MARK] = NON_SPACING_MARK;
+		bidirectionalCategories[Character.DIRECTIONALITY_BOUNDARY_NEUTRAL] = BOUNDARY_NEUTRAL;
+		bidirectionalCategories[Character.DIRECTIONALITY_PARAGRAPH_SEPARATOR] = PARAGRAPH_SEPARATOR;
+		bidirectionalCategories[Character.DIRECTIONALITY_SEGMENT_SEPARATOR] = SEGMENT_SEPARATOR;
+		bidirectionalCategories[Character.DIRECTIONALITY_WHITESPACE] = WHITESPACE;
+		bidirectionalCategories[Character.DIRECTIONALITY_OTHER_NEUTRALS] = OTHER_NEUTRALS;
+		bidirectionalCategories[Character.DIRECTIONALITY_LEFT_TO_RIGHT_EMBEDDING] = LEFT_TO_RIGHT_EMBEDDING;
+		bidirectionalCategories[Character.DIRECTIONALITY_LEFT_TO_RIGHT_OVERRIDE] = LEFT_TO_RIGHT_OVERRIDE;
+		bidirectionalCategories[Character.DIRECTIONALITY_RIGHT_TO_LEFT_EMBEDDING] = RIGHT_TO_LEFT_EMBEDDING;
+		bidirectionalCategories[Character.DIRECTIONALITY_RIGHT_TO_LEFT_OVERRIDE] = RIGHT_TO_LEFT_OVERRIDE;
+		bidirectionalCategories[Character.DIRECTIONALITY_POP_DIRECTIONAL_FORMAT] = POP_DIRECTIONAL_FORMAT;
+		for(int directionality = 0; directionality < bidirectionalCategories.length; ++directionality) {
+			JDK_BIDIRECTIONAL_CATEGORY_INDEXES[directionality] = (byte)indexOfBidirectionalCategory(bidirectionalCategories[directionality]);
+		}
+	}
+
+	/** The derived table key for the properties of a database. */
+	private static final Object PROPERTIES_KEY = new Object();
+
+	/**
+	 * Returns the index of a bidirectional category.
+	 * @param bidirectionalCategory The bidirectional category, or <code>null</code> for none.
+	 * @return The index of the bidirectional category, or <code>0</code> if there is no bidirectional category or it is not recognized.
+	 */
+	private static int indexOfBidirectionalCategory(final String bidirectionalCategory) {
+		for(int index = 1; index < BIDIRECTIONAL_CATEGORIES.length; ++index) {
+			if(BIDIRECTIONAL_CATEGORIES[index].equals(bidirectionalCategory)) {
+				return index;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the general category index the JDK assigns to a code point.
+	 * @param codePoint The code point.
+	 * @return The index of the general category of the code point according to {@link Character#getType(int)}.
+	 */
+	private static int getJdkGeneralCategoryIndex(final int codePoint) {
+		return JDK_GENERAL_CATEGORY_INDEXES[Character.getType(codePoint)];
+	}
+
+	/**
+	 * Returns the bidirectional category the JDK assigns to a code point.
+	 * @param codePoint The code point.
+	 * @return The bidirectional category of the code point according to {@link Character#getDirectionality(int)}, or <code>null</code> if the directionality
+	 *         is undefined; or the string form of the directionality if it is not one of the categories known to this library.
+	 */
+	private static String getJdkBidirectionalCategory(final int codePoint) {
+		final byte directionality = Character.getDirectionality(codePoint);
+		if(directionality == Character.DIRECTIONALITY_UNDEFINED) {
+			return null;
+		}
+		final int index = directionality < JDK_BIDIRECTIONAL_CATEGORY_INDEXES.length ? JDK_BIDIRECTIONAL_CATEGORY_INDEXES[directionality] : 0;
+		return index != 0 ? BIDIRECTIONAL_CATEGORIES[index] : String.valueOf(directionality); //directionalities added after Unicode 4.0 never match
+	}
+
+	/**
+	 * The result of comparing the properties of a database with those of the JDK.
+	 * @author Garret Wilson
+	 */
+	public static final class Divergence {
+
+		/** The Unicode database compared. */
+		private final UnicodeDatabase database;
+
+		/** @return The Unicode database compared. */
+		public UnicodeDatabase getDatabase() {
+			return database;
+		}
+
+		/** The BMP code points with a different general category in the JDK. */
+		private final UnicodeSet generalCategoryCodePoints;
+
+		/** @return The BMP code points with a different general category in the JDK. */
+		public UnicodeSet getGeneralCategoryCodePoints() {
+			return generalCategoryCodePoints;
+		}
+
+		/** The BMP code points with a different bidirectional category in the JDK. */
+		private final UnicodeSet bidirectionalCategoryCodePoints;
+
+		/** @return The BMP code points with a different bidirectional category in the JDK. */
+		public UnicodeSet getBidirectionalCategoryCodePoints() {
+			return bidirectionalCategoryCodePoints;
+		}
+
+		/** The BMP code points with a different mirrored property in the JDK. */
+		private final UnicodeSet mirroredCodePoints;
+
+		/** @return The BMP code points with a different mirrored property in the JDK. */
+		public UnicodeSet getMirroredCodePoints() {
+			return mirroredCodePoints;
+		}
+
+		/**
+		 * Database constructor. Each BMP code point is compared using the getters of its {@link UnicodeCharacter}, if the database lists the code point
+		 * individually, or otherwise using the properties of the range containing it, if any.
+		 * @param database The Unicode database to compare with the JDK.
+		 */
+		private Divergence(final UnicodeDatabase database) {
+			this.database = database;
+			final CodePointByteTable generalCategoryTable = GeneralCategories.getTable(database);
+			final CodePointByteTable bidirectionalCategoryTable = getBidirectionalCategoryTable(database);
+			final UnicodeSet mirroredSet = UnicodeSet.forMirrored(database);
+			final UnicodeSet.Builder generalCategoryBuilder = new UnicodeSet.Builder();
+			final UnicodeSet.Builder bidirectionalCategoryBuilder = new UnicodeSet.Builder();
+			final UnicodeSet.Builder mirroredBuilder = new UnicodeSet.Builder();
+			for(int codePoint = 0; codePoint < BMP_CODE_POINT_COUNT; ++codePoint) {
+				final UnicodeCharacter unicodeCharacter = database.getUnicodeCharacter(codePoint);
+				final String generalCategory;
+				final String bidirectionalCategory;
+				final boolean mirrored;
+				if(unicodeCharacter != null) {
+					generalCategory = unicodeCharacter.getGeneralCategory();
+					bidirectionalCategory = unicodeCharacter.getBidirectionalCategory();
+					mirrored = unicodeCharacter.isMirrored();
+				} else { //the code point is either in a range or unassigned
+					generalCategory = GeneralCategories.get(generalCategoryTable.get(codePoint));
+					bidirectionalCategory = BIDIRECTIONAL_CATEGORIES[bidirectionalCategoryTable.get(codePoint)];
+					mirrored = mirroredSet.contains(codePoint);
+				}
+				if(!Objects.equals(generalCategory, GeneralCategories.get(getJdkGeneralCategoryIndex(codePoint)))) {
+					generalCategoryBuilder.add(codePoint);
+				}
+				if(!Objects.equals(bidirectionalCategory, getJdkBidirectionalCategory(codePoint))) {
+					bidirectionalCategoryBuilder.add(codePoint);
+				}
+				if(mirrored != Character.isMirrored(codePoint)) {
+					mirroredBuilder.add(codePoint);
+				}
+			}
+			generalCategoryCodePoints = generalCategoryBuilder.build();
+			bidirectionalCategoryCodePoints = bidirectionalCategoryBuilder.build();
+			mirroredCodePoints = mirroredBuilder.build();
+		}
+
+		@Override
+		public String toString() {
+			return "Unicode " + database.getVersion() + " vs. Java " + System.getProperty("java.version") + ": " + generalCategoryCodePoints.size()
+					+ " general category, " + bidirectionalCategoryCodePoints.size() + " bidirectional category, " + mirroredCodePoints.size()
+					+ " mirrored divergences of " + BMP_CODE_POINT_COUNT + " code points";
+		}
+	}
+
+	/** The derived table key for the bidirectional category index table of a database. */
+	private static final Object BIDIRECTIONAL_CATEGORY_TABLE_KEY = new Object();
+
+	/**
+	 * Returns the table of bidirectional category indexes of a database.
+	 * @param database The Unicode database.
+	 * @return The table mapping each code point to its bidirectional category index, or <code>0</code> if it has none.
+	 */
+	private static CodePointByteTable getBidirectionalCategoryTable(final UnicodeDatabase database) {
+		return database.getDerivedTable(BIDIRECTIONAL_CATEGORY_TABLE_KEY,
+				db -> CodePointByteTable.create(db, unicodeCharacter -> indexOfBidirectionalCategory(unicodeCharacter.getBidirectionalCategory())));
+	}
+
+	/** The result of comparing the database with the JDK. */
+	private final Divergence divergence;
+
+	/** @return The result of comparing the database with the JDK. */
+	public Divergence getDivergence() {
+		return divergence;
+	}
+
+	/** The general category index table of the database. */
+	private final CodePointByteTable generalCategoryTable;
+
+	/** The bidirectional category index table of the database. */
+	private final CodePointByteTable bidirectionalCategoryTable;
+
+	/** The mirrored code points of the database. */
+	private final CodePointBitTable mirroredTable;
+
+	/** The bits of the BMP code points the general category of which must be looked up in the database. */
+	private final long[] generalCategoryDivergenceBits;
+
+	/** The bits of the BMP code points the bidirectional category of which must be looked up in the database. */
+	private final long[] bidirectionalCategoryDivergenceBits;
+
+	/** The bits of the BMP code points the mirrored property of which must be looked up in the database. */
+	private final long[] mirroredDivergenceBits;
+
+	/**
+	 * Database constructor.
+	 * @param database The Unicode database.
+	 */
+	private JdkCharacterProperties(final UnicodeDatabase database) {
+		divergence = new Divergence(database);
+		generalCategoryTable = GeneralCategories.getTable(database);
+		bidirectionalCategoryTable = getBidirectionalCategoryTable(database);
+		mirroredTable = new CodePointBitTable(UnicodeSet.forMirrored(database));
+		generalCategoryDivergenceBits = toBitmap(divergence.getGeneralCategoryCodePoints());
+		bidirectionalCategoryDivergenceBits = toBitmap(divergence.getBidirectionalCategoryCodePoints());
+		mirroredDivergenceBits = toBitmap(divergence.getMirroredCodePoints());
+	}
+
+	/**
+	 * Creates a bitmap of the BMP code points of a set.
+	 * @param unicodeSet The set of code points.
+	 * @return A bitmap with a bit set for each BMP code point in the set.
+	 */
+	private static long[] toBitmap(final UnicodeSet unicodeSet) {
+		final long[] bits = new long[BMP_CODE_POINT_COUNT / Long.SIZE];
+		for(int rangeIndex = 0; rangeIndex < unicodeSet.getRangeCount(); ++rangeIndex) {
+			final int end = Math.min(unicodeSet.getRangeEnd(rangeIndex) + 1, BMP_CODE_POINT_COUNT);
+			for(int codePoint = unicodeSet.getRangeStart(rangeIndex); codePoint < end; ++codePoint) {
+				bits[codePoint >> 6] |= 1L << codePoint;
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns the properties of the current Unicode database.
+	 * @return The JDK-assisted properties of the current database.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static JdkCharacterProperties getInstance() {
+		return forDatabase(UnicodeDatabase.getCurrent());
+	}
+
+	/**
+	 * Returns the properties of a Unicode database. The database is compared with the JDK once, when the properties are first requested, and the result is
+	 * cached.
+	 * @param database The Unicode database.
+	 * @return The JDK-assisted properties of the database.
+	 */
+	public static JdkCharacterProperties forDatabase(final UnicodeDatabase database) {
+		return database.getDerivedTable(PROPERTIES_KEY, JdkCharacterProperties::new);
+	}
+
+	/**
+	 * Determines whether the database must be consulted for a code point.
+	 * @param divergenceBits The divergence bitmap of the property.
+	 * @param codePoint The code point.
+	 * @return <code>true</code> if the code point is not in the BMP or the property of the code point diverges.
+	 */
+	private static boolean isDivergent(final long[] divergenceBits, final int codePoint) {
+		return (codePoint >>> 16) != 0 || (divergenceBits[codePoint >> 6] & (1L << codePoint)) != 0;
+	}
+
+	/**
+	 * Returns the general category index of a code point.
+	 * @param codePoint The code point.
+	 * @return The index of the general category of the code point in the database, as defined by {@link GeneralCategories}.
+	 */
+	public int getGeneralCategoryIndex(final int codePoint) {
+		return isDivergent(generalCategoryDivergenceBits, codePoint) ? generalCategoryTable.get(codePoint) : getJdkGeneralCategoryIndex(codePoint);
+	}
+
+	/**
+	 * Returns the general category of a code point.
+	 * @param codePoint The code point.
+	 * @return The general category of the code point in the database, which is {@link UnicodeConstants#OTHER_NOT_ASSIGNED} if the code point is not assigned.
+	 */
+	public String getGeneralCategory(final int codePoint) {
+		return GeneralCategories.get(getGeneralCategoryIndex(codePoint));
+	}
+
+	/**
+	 * Returns the bidirectional category of a code point.
+	 * @param codePoint The code point.
+	 * @return The bidirectional category of the code point in the database, or <code>null</code> if the code point is not assigned.
+	 */
+	public String getBidirectionalCategory(final int codePoint) {
+		return isDivergent(bidirectionalCategoryDivergenceBits, codePoint) ? BIDIRECTIONAL_CATEGORIES[bidirectionalCategoryTable.get(codePoint)]
+				: getJdkBidirectionalCategory(codePoint);
+	}
+
+	/**
+	 * Determines whether a code point is mirrored in bidirectional text.
+	 * @param codePoint The code point.
+	 * @return <code>true</code> if the code point is mirrored according to the database.
+	 */
+	public boolean isMirrored(final int codePoint) {
+		return isDivergent(mirroredDivergenceBits, codePoint) ? mirroredTable.contains(codePoint) : Character.isMirrored(codePoint);
+	}
+
+}
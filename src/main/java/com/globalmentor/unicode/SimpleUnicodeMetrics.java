@@ -0,0 +1,127 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A simple in-memory implementation of Unicode metrics, keeping for each counter its total and for each timer its count, total duration, and maximum duration.
+ * Updates are contention-free and never block.
+ * @author Garret Wilson
+ */
+public class SimpleUnicodeMetrics implements UnicodeMetrics {
+
+	/** The counters, keyed to their names. */
+	private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+
+	/** The timers, keyed to their names. */
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+
+	@Override
+	public void incrementCounter(final String name, final long amount) {
+		counters.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+	}
+
+	@Override
+	public void recordTimer(final String name, final long durationNanos) {
+		timers.computeIfAbsent(name, key -> new Timer()).record(durationNanos);
+	}
+
+	/**
+	 * Returns the total of a counter.
+	 * @param name The name of the counter.
+	 * @return The sum of all increments of the counter, or <code>0</code> if the counter has never been incremented.
+	 */
+	public long getCount(final String name) {
+		final LongAdder counter = counters.get(name);
+		return counter != null ? counter.sum() : 0;
+	}
+
+	/**
+	 * Returns the number of events recorded by a timer.
+	 * @param name The name of the timer.
+	 * @return The number of timed events recorded, or <code>0</code> if none have been recorded.
+	 */
+	public long getTimerCount(final String name) {
+		final Timer timer = timers.get(name);
+		return timer != null ? timer.count.sum() : 0;
+	}
+
+	/**
+	 * Returns the total duration of the events recorded by a timer.
+	 * @param name The name of the timer.
+	 * @return The total duration of all events recorded, in nanoseconds.
+	 */
+	public long getTimerTotalNanos(final String name) {
+		final Timer timer = timers.get(name);
+		return timer != null ? timer.totalNanos.sum() : 0;
+	}
+
+	/**
+	 * Returns the longest duration of the events recorded by a timer.
+	 * @param name The name of the timer.
+	 * @return The maximum duration of the events recorded, in nanoseconds.
+	 */
+	public long getTimerMaxNanos(final String name) {
+		final Timer timer = timers.get(name);
+		return timer != null ? timer.maxNanos.get() : 0;
+	}
+
+	/** Resets all counters and timers. */
+	public void clear() {
+		counters.clear();
+		timers.clear();
+	}
+
+	/** @return A string listing all counters and timers. */
+	public String toString() {
+		final StringBuilder stringBuilder = new StringBuilder();
+		new TreeMap<String, LongAdder>(counters).forEach((name, counter) -> stringBuilder.append(name).append('=').append(counter.sum()).append('\n'));
+		new TreeMap<String, Timer>(timers).forEach((name, timer) -> stringBuilder.append(name).append(": count=").append(timer.count.sum())
+				.append(" totalNanos=").append(timer.totalNanos.sum()).append(" maxNanos=").append(timer.maxNanos.get()).append('\n'));
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * The accumulated statistics of a timer.
+	 * @author Garret Wilson
+	 */
+	private static final class Timer {
+
+		/** The number of events recorded. */
+		private final LongAdder count = new LongAdder();
+
+		/** The total duration of the events recorded, in nanoseconds. */
+		private final LongAdder totalNanos = new LongAdder();
+
+		/** The longest duration of any event recorded, in nanoseconds. */
+		private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+		/**
+		 * Records a timed event.
+		 * @param durationNanos The duration of the event, in nanoseconds.
+		 */
+		void record(final long durationNanos) {
+			count.increment();
+			totalNanos.add(durationNanos);
+			maxNanos.accumulate(durationNanos);
+		}
+	}
+
+}
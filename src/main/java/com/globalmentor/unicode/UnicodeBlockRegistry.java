@@ -0,0 +1,364 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.*;
+
+import static java.util.Collections.*;
+
+/**
+ * An immutable registry of the Unicode blocks of a database, with precomputed statistics.
+ * <p>
+ * Each block is assigned a dense integer identifier, its position in sequential block order, which may be used as an index into arrays of per-block values.
+ * Blocks may be looked up by identifier or by code point, or by name in constant time. Names are matched loosely as recommended by the <code>Blocks.txt</code>
+ * file, so that "Basic Latin", "BASIC LATIN", and "basic_latin" are equivalent. Blocks are also partitioned by plane, so that the blocks of a plane have
+ * consecutive identifiers.
+ * </p>
+ * <p>
+ * For each block the registry records the number of assigned code points and the number of code points in each general category, counting code points within
+ * ranges designated by <code>&lt;..., First&gt;</code> and <code>&lt;..., Last&gt;</code> entries.
+ * </p>
+ * <p>
+ * A registry is created once per database and may be shared freely among threads without locking.
+ * </p>
+ * @author Garret Wilson
+ * @see GeneralCategories
+ */
+public final class UnicodeBlockRegistry {
+
+	/** The number of planes in the Unicode code point space. */
+	public static final int PLANE_COUNT = (Character.MAX_CODE_POINT >> 16) + 1;
+
+	/** The derived table key for the block registry of a database. */
+	private static final Object REGISTRY_KEY = new Object();
+
+	/** Former block names, as still recognized by the JDK, keyed to the normalized names of the current blocks. */
+	private static final Map<String, String> BLOCK_NAME_ALIASES;
+
+	static {
+		final Map<String, String> blockNameAliases = new HashMap<String, String>();
+		blockNameAliases.put("greekandcoptic", "greek");
+		blockNameAliases.put("combiningdiacriticalmarksforsymbols", "combiningmarksforsymbols");
+		blockNameAliases.put("cyrillicsupplement", "cyrillicsupplementary");
+		BLOCK_NAME_ALIASES = unmodifiableMap(blockNameAliases);
+	}
+
+	/**
+	 * Returns the block registry of the current Unicode database.
+	 * @return The block registry of the current database.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static UnicodeBlockRegistry getCurrent() {
+		return forDatabase(UnicodeDatabase.getCurrent());
+	}
+
+	/**
+	 * Returns the block registry of a Unicode database, creating it if needed.
+	 * @param database The Unicode database.
+	 * @return The block registry of the database.
+	 */
+	public static UnicodeBlockRegistry forDatabase(final UnicodeDatabase database) {
+		return database.getDerivedTable(REGISTRY_KEY, UnicodeBlockRegistry::new);
+	}
+
+	/**
+	 * Normalizes a property or block name for loose matching by removing spaces, hyphens, and underscores and converting to lowercase.
+	 * @param name The name to normalize.
+	 * @return The normalized name.
+	 */
+	public static String normalizeName(final CharSequence name) {
+		final StringBuilder stringBuilder = new StringBuilder(name.length());
+		for(int i = 0; i < name.length(); ++i) {
+			final char c = name.charAt(i);
+			if(c != ' ' && c != '-' && c != '_') {
+				stringBuilder.append(Character.toLowerCase(c));
+			}
+		}
+		return stringBuilder.toString();
+	}
+
+	/** The database the blocks of which are registered. */
+	private final UnicodeDatabase database;
+
+	/** @return The database the blocks of which are registered. */
+	public UnicodeDatabase getDatabase() {
+		return database;
+	}
+
+	/** The blocks, indexed by identifier. */
+	private final UnicodeBlock[] blocks;
+
+	/** The unmodifiable list of blocks, indexed by identifier. */
+	private final List<UnicodeBlock> blockList;
+
+	/** The start codes of the blocks, indexed by identifier, for binary searching. */
+	private final int[] startCodes;
+
+	/** The inclusive end codes of the blocks, indexed by identifier. */
+	private final int[] endCodes;
+
+	/** The block identifiers keyed to normalized block names, including the former names of renamed blocks. */
+	private final Map<String, Integer> idsByNormalizedName;
+
+	/** The number of code points in each general category, indexed by block identifier and then by general category index. */
+	private final int[][] generalCategoryCounts;
+
+	/** The identifier of the first block of each plane, with an extra element holding the number of blocks. */
+	private final int[] planeStartIds;
+
+	/**
+	 * Database constructor.
+	 * @param database The Unicode database the blocks of which should be registered.
+	 */
+	private UnicodeBlockRegistry(final UnicodeDatabase database) {
+		this.database = database;
+		final SortedSet<UnicodeBlock> unicodeBlocks = database.getUnicodeBlocks();
+		final int blockCount = unicodeBlocks.size();
+		blocks = unicodeBlocks.toArray(new UnicodeBlock[blockCount]);
+		blockList = unmodifiableList(Arrays.asList(blocks));
+		startCodes = new int[blockCount];
+		endCodes = new int[blockCount];
+		generalCategoryCounts = new int[blockCount][GeneralCategories.COUNT];
+		planeStartIds = new int[PLANE_COUNT + 1];
+		final Map<String, Integer> idsByNormalizedName = new HashMap<String, Integer>(blockCount * 2);
+		final CodePointByteTable generalCategoryTable = GeneralCategories.getTable(database);
+		int plane = 0;
+		for(int id = 0; id < blockCount; ++id) {
+			final UnicodeBlock block = blocks[id];
+			final int startCode = block.getStartCode();
+			final int endCode = block.getEndCode();
+			startCodes[id] = startCode;
+			endCodes[id] = endCode;
+			idsByNormalizedName.put(normalizeName(block.getName()), Integer.valueOf(id));
+			final int[] counts = generalCategoryCounts[id];
+			for(int codePoint = startCode; codePoint <= endCode; ++codePoint) {
+				++counts[generalCategoryTable.get(codePoint)];
+			}
+			while(plane < (startCode >> 16)) { //blocks never straddle planes, so the plane of the start code is the plane of the block
+				planeStartIds[++plane] = id;
+			}
+		}
+		while(plane < PLANE_COUNT) { //the remaining planes have no blocks
+			planeStartIds[++plane] = blockCount;
+		}
+		BLOCK_NAME_ALIASES.forEach((normalizedName, alias) -> {
+			final Integer id = idsByNormalizedName.get(normalizedName);
+			if(id != null) {
+				idsByNormalizedName.putIfAbsent(alias, id);
+			}
+		});
+		this.idsByNormalizedName = idsByNormalizedName;
+	}
+
+	/** @return The number of blocks; block identifiers range from <code>0</code> to one less than this value. */
+	public int getBlockCount() {
+		return blocks.length;
+	}
+
+	/** @return An unmodifiable list of the blocks in sequential order, the index of each block being its identifier. */
+	public List<UnicodeBlock> getBlocks() {
+		return blockList;
+	}
+
+	/**
+	 * Returns the block with the given identifier.
+	 * @param id The block identifier.
+	 * @return The block with the given identifier.
+	 * @throws IndexOutOfBoundsException if the identifier is negative or not less than the number of blocks.
+	 */
+	public UnicodeBlock getBlock(final int id) {
+		return blocks[id];
+	}
+
+	/**
+	 * Returns the identifier of a block.
+	 * @param block The block, which need not be the same instance as that in the registry.
+	 * @return The identifier of the block, or <code>-1</code> if the block is not in the registry.
+	 */
+	public int getId(final UnicodeBlock block) {
+		final int id = Arrays.binarySearch(startCodes, block.getStartCode());
+		return id >= 0 && endCodes[id] == block.getEndCode() ? id : -1;
+	}
+
+	/**
+	 * Returns the identifier of the block in which a code point falls.
+	 * @param codePoint The code point.
+	 * @return The identifier of the block containing the code point, or <code>-1</code> if the code point does not fall in any block.
+	 */
+	public int getIdByCodePoint(final int codePoint) {
+		int id = Arrays.binarySearch(startCodes, codePoint);
+		if(id < 0) { //if the code point doesn't start a block, check the block before the insertion point
+			id = -id - 2;
+			if(id < 0 || codePoint > endCodes[id]) {
+				return -1;
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the block in which a code point falls.
+	 * @param codePoint The code point.
+	 * @return The block containing the code point, or <code>null</code> if the code point does not fall in any block.
+	 */
+	public UnicodeBlock getBlockByCodePoint(final int codePoint) {
+		final int id = getIdByCodePoint(codePoint);
+		return id >= 0 ? blocks[id] : null;
+	}
+
+	/**
+	 * Returns the identifier of the block with the given name, matched loosely ignoring case, spaces, hyphens, and underscores. Former names of renamed blocks,
+	 * such as "Greek" for "Greek and Coptic", are recognized as well.
+	 * @param name The name of the block.
+	 * @return The identifier of the block with the given name, or <code>-1</code> if there is no such block.
+	 * @see #normalizeName(CharSequence)
+	 */
+	public int getIdByName(final CharSequence name) {
+		final Integer id = idsByNormalizedName.get(normalizeName(name));
+		return id != null ? id.intValue() : -1;
+	}
+
+	/**
+	 * Returns the block with the given name, matched loosely ignoring case, spaces, hyphens, and underscores. Former names of renamed blocks, such as "Greek"
+	 * for "Greek and Coptic", are recognized as well.
+	 * @param name The name of the block.
+	 * @return The block with the given name, or <code>null</code> if there is no such block.
+	 * @see #normalizeName(CharSequence)
+	 */
+	public UnicodeBlock getBlockByName(final CharSequence name) {
+		final int id = getIdByName(name);
+		return id >= 0 ? blocks[id] : null;
+	}
+
+	/**
+	 * Returns the number of code points in a block.
+	 * @param id The block identifier.
+	 * @return The number of code points in the range of the block.
+	 * @throws IndexOutOfBoundsException if the identifier is negative or not less than the number of blocks.
+	 */
+	public int getSize(final int id) {
+		return endCodes[id] - startCodes[id] + 1;
+	}
+
+	/**
+	 * Returns the number of assigned code points in a block; that is, the code points having a general category other than
+	 * {@link UnicodeConstants#OTHER_NOT_ASSIGNED}.
+	 * @param id The block identifier.
+	 * @return The number of assigned code points in the block.
+	 * @throws IndexOutOfBoundsException if the identifier is negative or not less than the number of blocks.
+	 */
+	public int getAssignedCount(final int id) {
+		return getSize(id) - generalCategoryCounts[id][0]; //the index of Cn is zero
+	}
+
+	/**
+	 * Returns the number of code points in a block having a general category.
+	 * @param id The block identifier.
+	 * @param generalCategoryIndex The index of the general category.
+	 * @return The number of code points in the block with the given general category.
+	 * @throws IndexOutOfBoundsException if the identifier is negative or not less than the number of blocks, or if the general category index is not valid.
+	 * @see GeneralCategories#indexOf(String)
+	 */
+	public int getGeneralCategoryCount(final int id, final int generalCategoryIndex) {
+		return generalCategoryCounts[id][generalCategoryIndex];
+	}
+
+	/**
+	 * Returns the number of code points in a block having a general category.
+	 * @param id The block identifier.
+	 * @param generalCategory The general category, such as {@link UnicodeConstants#LETTER_UPPERCASE}.
+	 * @return The number of code points in the block with the given general category.
+	 * @throws IndexOutOfBoundsException if the identifier is negative or not less than the number of blocks.
+	 * @throws IllegalArgumentException if the general category is not recognized.
+	 */
+	public int getGeneralCategoryCount(final int id, final String generalCategory) {
+		final int generalCategoryIndex = GeneralCategories.indexOf(generalCategory);
+		if(generalCategoryIndex < 0) {
+			throw new IllegalArgumentException("Unrecognized general category: " + generalCategory);
+		}
+		return getGeneralCategoryCount(id, generalCategoryIndex);
+	}
+
+	/**
+	 * Returns the breakdown of the code points of a block by general category.
+	 * @param id The block identifier.
+	 * @return An unmodifiable map of the number of code points of the block in each general category present, keyed to the general categories in index order.
+	 * @throws IndexOutOfBoundsException if the identifier is negative or not less than the number of blocks.
+	 */
+	public Map<String, Integer> getGeneralCategoryCounts(final int id) {
+		final int[] counts = generalCategoryCounts[id];
+		final Map<String, Integer> generalCategoryCountMap = new LinkedHashMap<String, Integer>();
+		for(int generalCategoryIndex = 0; generalCategoryIndex < counts.length; ++generalCategoryIndex) {
+			if(counts[generalCategoryIndex] != 0) {
+				generalCategoryCountMap.put(GeneralCategories.get(generalCategoryIndex), Integer.valueOf(counts[generalCategoryIndex]));
+			}
+		}
+		return unmodifiableMap(generalCategoryCountMap);
+	}
+
+	/**
+	 * Returns the plane in which a block lies.
+	 * @param id The block identifier.
+	 * @return The plane of the block, from <code>0</code> to {@link #PLANE_COUNT} - 1.
+	 * @throws IndexOutOfBoundsException if the identifier is negative or not less than the number of blocks.
+	 */
+	public int getPlane(final int id) {
+		return startCodes[id] >> 16;
+	}
+
+	/**
+	 * Returns the identifier of the first block in a plane. The blocks of a plane have consecutive identifiers.
+	 * @param plane The plane.
+	 * @return The identifier of the first block in the plane; equal to {@link #getPlaneEndId(int)} if the plane has no blocks.
+	 * @throws IndexOutOfBoundsException if the plane is negative or not less than {@link #PLANE_COUNT}.
+	 */
+	public int getPlaneStartId(final int plane) {
+		if(plane < 0 || plane >= PLANE_COUNT) {
+			throw new IndexOutOfBoundsException("Invalid plane: " + plane);
+		}
+		return planeStartIds[plane];
+	}
+
+	/**
+	 * Returns the exclusive end of the identifiers of the blocks in a plane.
+	 * @param plane The plane.
+	 * @return One more than the identifier of the last block in the plane.
+	 * @throws IndexOutOfBoundsException if the plane is negative or not less than {@link #PLANE_COUNT}.
+	 */
+	public int getPlaneEndId(final int plane) {
+		if(plane < 0 || plane >= PLANE_COUNT) {
+			throw new IndexOutOfBoundsException("Invalid plane: " + plane);
+		}
+		return planeStartIds[plane + 1];
+	}
+
+	/**
+	 * Returns the blocks of a plane.
+	 * @param plane The plane.
+	 * @return An unmodifiable list of the blocks in the plane, in sequential order.
+	 * @throws IndexOutOfBoundsException if the plane is negative or not less than {@link #PLANE_COUNT}.
+	 */
+	public List<UnicodeBlock> getPlaneBlocks(final int plane) {
+		return blockList.subList(getPlaneStartId(plane), getPlaneEndId(plane));
+	}
+
+	/** @return A string representation of this registry in the form "Unicode 0.0.0 blocks (0)". */
+	public String toString() {
+		return database + " blocks (" + blocks.length + ')';
+	}
+
+}
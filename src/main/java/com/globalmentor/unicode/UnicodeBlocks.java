@@ -39,18 +39,34 @@ public class UnicodeBlocks {
 	public static final char FIELD_DELIMITER = ';';
 
 	/** A reference to a cached unmodifiable set of Unicode blocks. */
-	private static Reference<SortedSet<UnicodeBlock>> blockSetReference = null;
+	private static volatile Reference<SortedSet<UnicodeBlock>> blockSetReference = null;
+
+	/** @return The cached unmodifiable set of Unicode blocks, or <code>null</code> if the blocks have not been loaded or have been reclaimed. */
+	static SortedSet<UnicodeBlock> getCachedBlocks() {
+		final Reference<SortedSet<UnicodeBlock>> cachedBlockSetReference = blockSetReference; //read the volatile reference once
+		return cachedBlockSetReference != null ? cachedBlockSetReference.get() : null;
+	}
+
+	/** Discards the cached set of Unicode blocks, so that the blocks are loaded again when next requested. */
+	static void clearCache() {
+		blockSetReference = null;
+	}
 
 	/** @return An unmodifiable set of Unicode blocks, reloading them if needed. */
 	public static SortedSet<UnicodeBlock> getUnicodeBlocks() {
-		SortedSet<UnicodeBlock> blockSet = blockSetReference != null ? blockSetReference.get() : null; //get the cached Unicode block set, if there is one
+		final Reference<SortedSet<UnicodeBlock>> cachedBlockSetReference = blockSetReference; //read the volatile reference once
+		SortedSet<UnicodeBlock> blockSet = cachedBlockSetReference != null ? cachedBlockSetReference.get() : null; //get the cached Unicode block set, if there is one
 		if(blockSet == null) { //if we haven't loaded the blocks, or they have been reclaimed by the garbage collector
+			final Object event = UnicodeMonitoring.beginBlocksLoad();
+			final long startNanos = System.nanoTime();
 			try {
 				blockSet = Collections.unmodifiableSortedSet(load()); //load a new block set
 			} catch(final IOException ioException) { //if there is an error loading the blocks (there never should be, as they should be known resources)
 				throw new AssertionError(ioException);
 			}
+			UnicodeMonitoring.endBlocksLoad(event, startNanos, blockSet.size(), cachedBlockSetReference != null); //report whether we reloaded reclaimed blocks
 			blockSetReference = new SoftReference<SortedSet<UnicodeBlock>>(blockSet); //create a new soft reference to the set of Unicode blocks we just loaded
+			UnicodeMemory.blocksLoaded(blockSet); //pin the blocks if needed
 		}
 		return blockSet; //return the block set
 	}
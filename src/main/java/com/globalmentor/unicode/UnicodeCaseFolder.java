@@ -0,0 +1,239 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.nio.CharBuffer;
+import java.util.*;
+
+/**
+ * Simple case folding of code points, as determined by the case mappings of a Unicode database, for comparing and searching text without regard to case.
+ * <p>
+ * Each code point is folded to its lowercase mapping. A code point with no lowercase mapping but with an uppercase mapping, such as "ſ" or final "ς", is folded
+ * to the lowercase mapping of its uppercase form, so that "ſ", "s", and "S" all fold to "s". Every code point folds to exactly one code point in the same
+ * plane, so folding never changes the length of text in UTF-16 code units, and folding may be performed on individual code units.
+ * </p>
+ * <p>
+ * The folds are kept in a dense two-level table of differences, in the manner of {@link CodePointByteTable}, so that folding a code point is two array
+ * accesses, and folding an ASCII character is one.
+ * </p>
+ * <p>
+ * A case folder is immutable and may be shared among threads.
+ * </p>
+ * @author Garret Wilson
+ * @see CaseInsensitiveMatcher
+ * @see CaseInsensitiveMultiMatcher
+ */
+public final class UnicodeCaseFolder {
+
+	/** The derived table key for the case folder of a database. */
+	private static final Object CASE_FOLDER_KEY = new Object();
+
+	/** The number of the data block for each block of code points. */
+	private final char[] blockIndexes;
+
+	/** The deduplicated data blocks of the differences, modulo <code>0x10000</code>, between each folded code point and the code point itself. */
+	private final char[] data;
+
+	/** The folds of the ASCII characters. */
+	private final char[] asciiFolds = new char[0x80];
+
+	/**
+	 * Database constructor.
+	 * @param database The Unicode database from which to determine case mappings.
+	 */
+	private UnicodeCaseFolder(final UnicodeDatabase database) {
+		final char[] values = new char[CodePointByteTable.CODE_POINT_COUNT];
+		for(final UnicodeCharacter unicodeCharacter : database.getUnicodeCharacters()) { //ranges have no case mappings, so only listed characters fold
+			final int codePoint = unicodeCharacter.getCodeValue();
+			int fold = unicodeCharacter.getLowercaseMappingCodePoint();
+			if(fold == 0) { //if there is no lowercase mapping, use the lowercase of the uppercase mapping
+				final int uppercaseMapping = unicodeCharacter.getUppercaseMappingCodePoint();
+				final UnicodeCharacter uppercaseCharacter = uppercaseMapping != 0 && uppercaseMapping != codePoint ? database.getUnicodeCharacter(uppercaseMapping)
+						: null;
+				if(uppercaseCharacter != null) {
+					fold = uppercaseCharacter.getLowercaseMappingCodePoint();
+				}
+			}
+			if(fold == 0) {
+				fold = codePoint;
+			}
+			values[codePoint] = (char)(fold - codePoint);
+		}
+		final int blockCount = CodePointByteTable.CODE_POINT_COUNT >> CodePointByteTable.BLOCK_SHIFT;
+		blockIndexes = new char[blockCount];
+		final Map<CharBuffer, Integer> blockNumbers = new HashMap<CharBuffer, Integer>(); //the data block number of each unique block of differences
+		final CharBuffer dataBuffer = CharBuffer.allocate(values.length);
+		for(int block = 0; block < blockCount; ++block) {
+			final CharBuffer blockValues = CharBuffer.wrap(values, block << CodePointByteTable.BLOCK_SHIFT, CodePointByteTable.BLOCK_SIZE); //compares by content
+			Integer blockNumber = blockNumbers.get(blockValues);
+			if(blockNumber == null) { //if we haven't seen these block values before, add them to the data
+				blockNumber = Integer.valueOf(blockNumbers.size());
+				blockNumbers.put(blockValues, blockNumber);
+				dataBuffer.put(values, block << CodePointByteTable.BLOCK_SHIFT, CodePointByteTable.BLOCK_SIZE);
+			}
+			blockIndexes[block] = (char)blockNumber.intValue();
+		}
+		data = Arrays.copyOf(dataBuffer.array(), dataBuffer.position());
+		for(char c = 0; c < asciiFolds.length; ++c) {
+			asciiFolds[c] = (char)(c + values[c]);
+		}
+	}
+
+	/**
+	 * Returns the case folder of the current Unicode database.
+	 * @return The case folder of the current database.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static UnicodeCaseFolder getInstance() {
+		return forDatabase(UnicodeDatabase.getCurrent());
+	}
+
+	/**
+	 * Returns the case folder of a Unicode database. The fold table of each database is computed once and cached.
+	 * @param database The Unicode database.
+	 * @return The case folder of the database.
+	 */
+	public static UnicodeCaseFolder forDatabase(final UnicodeDatabase database) {
+		return database.getDerivedTable(CASE_FOLDER_KEY, UnicodeCaseFolder::new);
+	}
+
+	/**
+	 * Folds a code point.
+	 * @param codePoint The code point to fold.
+	 * @return The folded code point, which is the code point itself if it has no case or is not a valid code point.
+	 */
+	public int fold(final int codePoint) {
+		if(codePoint < 0x80) {
+			return codePoint >= 0 ? asciiFolds[codePoint] : codePoint;
+		}
+		if(codePoint > Character.MAX_CODE_POINT) {
+			return codePoint;
+		}
+		final char difference = data[(blockIndexes[codePoint >> CodePointByteTable.BLOCK_SHIFT] << CodePointByteTable.BLOCK_SHIFT)
+				| (codePoint & CodePointByteTable.BLOCK_MASK)];
+		return (codePoint & ~0xFFFF) | ((codePoint + difference) & 0xFFFF); //folds stay within the plane
+	}
+
+	/**
+	 * Folds a character that is not a surrogate.
+	 * @param c The character to fold.
+	 * @return The folded character.
+	 */
+	char fold(final char c) {
+		return c < 0x80 ? asciiFolds[c] : (char)(c + data[(blockIndexes[c >> CodePointByteTable.BLOCK_SHIFT] << CodePointByteTable.BLOCK_SHIFT)
+				| (c & CodePointByteTable.BLOCK_MASK)]);
+	}
+
+	/**
+	 * Folds the code unit at an index of text. A surrogate that is part of a pair is folded to the corresponding surrogate of the folded code point; an
+	 * unpaired surrogate is left unchanged.
+	 * @param text The text.
+	 * @param index The index of the code unit to fold.
+	 * @param start The start of the text, before which surrogates are not paired.
+	 * @param end The end of the text, after which surrogates are not paired.
+	 * @return The folded code unit.
+	 */
+	char foldAt(final CharSequence text, final int index, final int start, final int end) {
+		final char c = text.charAt(index);
+		if(!Character.isSurrogate(c)) {
+			return fold(c);
+		}
+		if(Character.isHighSurrogate(c)) {
+			if(index + 1 < end) {
+				final char low = text.charAt(index + 1);
+				if(Character.isLowSurrogate(low)) {
+					return Character.highSurrogate(fold(Character.toCodePoint(c, low)));
+				}
+			}
+		} else if(index > start) {
+			final char high = text.charAt(index - 1);
+			if(Character.isHighSurrogate(high)) {
+				return Character.lowSurrogate(fold(Character.toCodePoint(high, c)));
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Folds the code unit at an index of a character array. A surrogate that is part of a pair is folded to the corresponding surrogate of the folded code
+	 * point; an unpaired surrogate is left unchanged.
+	 * @param text The characters.
+	 * @param index The index of the code unit to fold.
+	 * @param start The start of the text, before which surrogates are not paired.
+	 * @param end The end of the text, after which surrogates are not paired.
+	 * @return The folded code unit.
+	 */
+	char foldAt(final char[] text, final int index, final int start, final int end) {
+		final char c = text[index];
+		if(!Character.isSurrogate(c)) {
+			return fold(c);
+		}
+		if(Character.isHighSurrogate(c)) {
+			if(index + 1 < end) {
+				final char low = text[index + 1];
+				if(Character.isLowSurrogate(low)) {
+					return Character.highSurrogate(fold(Character.toCodePoint(c, low)));
+				}
+			}
+		} else if(index > start) {
+			final char high = text[index - 1];
+			if(Character.isHighSurrogate(high)) {
+				return Character.lowSurrogate(fold(Character.toCodePoint(high, c)));
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Folds text.
+	 * @param text The text to fold.
+	 * @return The folded text, which has the same length as the original text.
+	 */
+	public String fold(final CharSequence text) {
+		final int length = text.length();
+		final char[] folded = new char[length];
+		for(int i = 0; i < length; ++i) {
+			folded[i] = foldAt(text, i, 0, length);
+		}
+		return new String(folded);
+	}
+
+	/**
+	 * Determines whether two texts are equal when folded, without creating the folded texts.
+	 * @param text1 The first text.
+	 * @param text2 The second text.
+	 * @return <code>true</code> if the texts are equal ignoring case.
+	 */
+	public boolean equalsIgnoreCase(final CharSequence text1, final CharSequence text2) {
+		final int length = text1.length();
+		if(text2.length() != length) {
+			return false;
+		}
+		for(int i = 0; i < length; ++i) {
+			if(foldAt(text1, i, 0, length) != foldAt(text2, i, 0, length)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** @return The approximate number of bytes occupied by the fold table. */
+	long getSize() {
+		return ((long)blockIndexes.length + data.length + asciiFolds.length) * Character.BYTES;
+	}
+
+}
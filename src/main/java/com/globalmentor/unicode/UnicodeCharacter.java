@@ -21,39 +21,43 @@
 
 /**
  * Represents a character in the Unicode database. Created for Unicode 3.0.0.
+ * <p>
+ * A Unicode character is immutable; its fields are final, so it may be shared among threads without synchronization. Characters with more than a code value
+ * and name are created using a {@link Builder}.
+ * </p>
+ * <p>
+ * The properties shared by many characters (general category, canonical combining class, bidirectional category, decomposition tag, and mirrored status) are
+ * kept together in a {@link UnicodePropertySet}, which is interned so that characters with the same properties share a single property set.
+ * </p>
  * @author Garret Wilson
  * @version 1.0
  */
 public class UnicodeCharacter implements Comparable<UnicodeCharacter> {
 
+	/** The set of properties this character shares with other characters. */
+	private final UnicodePropertySet propertySet;
+
+	/** @return The set of properties this character shares with other characters, which is interned unless the interning table was full. */
+	public UnicodePropertySet getPropertySet() {
+		return propertySet;
+	}
+
 	/** The code value of the Unicode character. */
-	private int codeValue;
+	private final int codeValue;
 
 	/** @return The code value of the Unicode character. */
 	public int getCodeValue() {
 		return codeValue;
 	}
 
-	void setCodeValue(final int newCodeValue) {
-		codeValue = newCodeValue;
-	} //TODO del and change the parsing routine to collect all data before construction
-
 	/** The name of the character. */
-	private String characterName;
+	private final String characterName;
 
 	/** @return The name of the character. */
 	public String getCharacterName() {
 		return characterName;
 	}
 
-	/**
-	 * Sets the name of the character.
-	 * @param newCharacterName The name of the character.
-	 */
-	public void setCharacterName(final String newCharacterName) {
-		characterName = newCharacterName;
-	}
-
 	/**
 	 * If this is a control character (&lt;control&gt;), returns the Unicode 1.0 name.
 	 * @return The unique name of the character, or the empty string if there is no unique name.
@@ -76,128 +80,58 @@ public boolean isControl() {
 		return CONTROL_NAME.equalsIgnoreCase(getCharacterName()); //return whether the name is "<control>"
 	}
 
-	/** The character's general category. */
-	private String generalCategory;
-
 	/** @return The character's general category. */
 	public String getGeneralCategory() {
-		return generalCategory;
-	}
-
-	/**
-	 * Sets the character's general category.
-	 * @param newGeneralCategory The character's general category.
-	 */
-	public void setGeneralCategory(final String newGeneralCategory) {
-		generalCategory = newGeneralCategory;
+		return getPropertySet().getGeneralCategory();
 	}
 
-	/** The combining class of the character. */
-	private int canonicalCombiningClass = -1;
-
 	/**
 	 * @return The combining class of the character, or <code>-1</code> if the combining class has not been assigned.
 	 */
 	public int getCanonicalCombiningClass() {
-		return canonicalCombiningClass;
-	}
-
-	/**
-	 * Sets the combining class of the character.
-	 * @param newCanonicalCombiningClass The canonical combining class of the character.
-	 */
-	public void setCanonicalCombiningClass(final int newCanonicalCombiningClass) {
-		canonicalCombiningClass = newCanonicalCombiningClass;
+		return getPropertySet().getCanonicalCombiningClass();
 	}
 
-	/** The bidirectional category. */
-	private String bidirectionalCategory = LEFT_TO_RIGHT;
-
 	/** @return The bidirectional category. */
 	public String getBidirectionalCategory() {
-		return bidirectionalCategory;
+		return getPropertySet().getBidirectionalCategory();
 	}
 
-	/**
-	 * Sets the bidirectional category.
-	 * @param newBidirectionalCategory The new bidirectional category.
-	 */
-	public void setBidirectionalCategory(final String newBidirectionalCategory) {
-		bidirectionalCategory = newBidirectionalCategory;
-	}
-
-	/**
-	 * The character decomposition formatting tag, if this is a compatibility mapping and not a canonical mapping.
-	 */
-	private String characterDecompositionTag = "";
-
 	/**
 	 * @return A string with the character formatting tag, if this is a compatibility mapping and not a canonical mapping.
 	 */
 	public String getCharacterDecompositionTag() {
-		return characterDecompositionTag;
-	}
-
-	/**
-	 * Sets the character decomposition formatting tag.
-	 * @param newCharacterDecompositionTag The character decomposition formatting tag.
-	 */
-	public void setCharacterDecompositionTag(final String newCharacterDecompositionTag) {
-		characterDecompositionTag = newCharacterDecompositionTag;
+		return getPropertySet().getCharacterDecompositionTag();
 	}
 
 	/** The character decomposition mappings, if any. */
-	private String characterDecompositionMappings = "";
+	private final String characterDecompositionMappings;
 
-	/** @return A string with the character decomposition mappings, if any. */
+	/** @return A string with the character decomposition mappings, if any, with supplementary code points represented by surrogate pairs. */
 	public String getCharacterDecompositionMappings() {
 		return characterDecompositionMappings;
 	}
 
-	/**
-	 * Sets the character decomposition mappings.
-	 * @param newCharacterDecompositionMappings A string with the character decomposition mappings as characters in the correct order.
-	 */
-	public void setCharacterDecompositionMappings(final String newCharacterDecompositionMappings) {
-		characterDecompositionMappings = newCharacterDecompositionMappings;
-	}
-
 	/** The decimal digit value, or <code>-1</code> if there is no decimal digit value. */
-	private int decimalDigitValue = -1;
+	private final int decimalDigitValue;
 
 	/** @return The decimal digit value, or <code>-1</code> if there is no decimal digit value. */
 	public int getDecimalDigitValue() {
 		return decimalDigitValue;
 	}
 
-	/**
-	 * Sets the decimal digit value.
-	 * @param newDecimalDigitValue The decimal digit value.
-	 */
-	public void setDecimalDigitValue(final int newDecimalDigitValue) {
-		decimalDigitValue = newDecimalDigitValue;
-	}
-
 	/** The digit value, or <code>-1</code> if there is no digit value. */
-	private int digitValue = -1;
+	private final int digitValue;
 
 	/** @return The digit value, or <code>-1</code> if there is no digit value. */
 	public int getDigitValue() {
 		return digitValue;
 	}
 
-	/**
-	 * Sets the digit value.
-	 * @param newDigitValue The digit value.
-	 */
-	public void setDigitValue(final int newDigitValue) {
-		digitValue = newDigitValue;
-	}
-
 	/**
 	 * The numeric value numerator of the character, or <code>-1</code> if the character has no numeric value.
 	 */
-	private int numericValueNumerator = -1;
+	private final int numericValueNumerator;
 
 	/**
 	 * @return The numeric value numerator of the character, or <code>int</code> if the character has no numeric value.
@@ -206,18 +140,10 @@ public int getNumericValueNumerator() {
 		return numericValueNumerator;
 	}
 
-	/**
-	 * Sets the numeric value numerator of the character.
-	 * @param newNumericValueNumerator The numeric value numerator.
-	 */
-	public void setNumericValueNumerator(final int newNumericValueNumerator) {
-		numericValueNumerator = newNumericValueNumerator;
-	}
-
 	/**
 	 * The numeric value denominator of the character, or <code>1</code> if the character is not a fraction or has no numeric value.
 	 */
-	private int numericValueDenominator = 1;
+	private final int numericValueDenominator;
 
 	/**
 	 * @return The numeric value denominator of the character, or <code>1</code> if the character is not a fraction or has no numeric value.
@@ -226,14 +152,6 @@ public int getNumericValueDenominator() {
 		return numericValueDenominator;
 	}
 
-	/**
-	 * Sets the numeric value denominator of the character.
-	 * @param newNumericValueDenominator The numeric value.
-	 */
-	public void setNumericValueDenominator(final int newNumericValueDenominator) {
-		numericValueDenominator = newNumericValueDenominator;
-	}
-
 	/**
 	 * @return Whether the numeric value is a fraction (that is, the denominator is not <code>1</code>.
 	 * @see #getNumericValueNumerator
@@ -251,37 +169,15 @@ public float getNumericValue() {
 				: getNumericValueNumerator() / getNumericValueDenominator();
 	}
 
-	/**
-	 * Sets the numeric value of the character. For setting a fraction, use <code>setNumericValueNumerator</code> and <code>setNumericValueDenominator</code>.
-	 * @param newNumericValue The numeric value of the character.
-	 * @see #setNumericValueNumerator
-	 * @see #setNumericValueDenominator
-	 */
-	public void setNumericValue(final int newNumericValue) {
-		setNumericValueNumerator(newNumericValue); //set the numerator
-		setNumericValueDenominator(1); //set the denominator to one, since this isn't a fraction
-	}
-
-	/** Whether this is a mirrored character in bidirectional text. */
-	private boolean mirrored = false;
-
 	/** @return <code>true</code> if this is a mirrored character in bidirectional text. */
 	public boolean isMirrored() {
-		return mirrored;
-	}
-
-	/**
-	 * Sets whether this is a mirrored character in bidirectional text.
-	 * @param newMirrored <code>true</code>if this is a mirrored character.
-	 */
-	public void setMirrored(final boolean newMirrored) {
-		mirrored = newMirrored;
+		return getPropertySet().isMirrored();
 	}
 
 	/**
 	 * The Unicode 1.0 name of the character, if it is significantly different than the Unicode 3.0 name.
 	 */
-	private String unicode10Name = "";
+	private final String unicode10Name;
 
 	/**
 	 * @return The Unicode 1.0 name of the character, if it is significantly different than the Unicode 3.0 name.
@@ -291,35 +187,18 @@ public String getUnicode10Name() {
 		return unicode10Name;
 	}
 
-	/**
-	 * Sets the Unicode 1.0 name of the character
-	 * @param newUnicode10Name The Unicode 1.0 name of the character.
-	 * @see #setCharacterName
-	 */
-	public void setUnicode10Name(final String newUnicode10Name) {
-		unicode10Name = newUnicode10Name;
-	}
-
 	/** The ISO 10646 comment, if present. */
-	private String iso10646Comment = "";
+	private final String iso10646Comment;
 
 	/** @return The ISO 10646 comment, if present. */
 	public String getISO10646Comment() {
 		return iso10646Comment;
 	}
 
-	/**
-	 * Sets the ISO 10646 comment.
-	 * @param newISO10646Comment The ISO 10646 comment.
-	 */
-	public void setISO10646Comment(final String newISO10646Comment) {
-		iso10646Comment = newISO10646Comment;
-	}
-
 	/**
 	 * The uppercase mapping of this character, or <code>0</code> if this character has no uppercase mapping.
 	 */
-	private char uppercaseMapping = 0;
+	private final char uppercaseMapping;
 
 	/**
 	 * @return The uppercase mapping of this character, or <code>0</code> if this character has no uppercase mapping.
@@ -329,17 +208,19 @@ public char getUppercaseMapping() {
 	}
 
 	/**
-	 * Sets the uppercase mapping of this character.
-	 * @param newUppercaseMapping The uppercase mapping of the character.
+	 * Returns the code point of the uppercase mapping of this character. The uppercase mapping is stored as a single UTF-16 code unit, so the mapping of a
+	 * supplementary character has lost its plane; because case pairs always lie within the same plane, the plane of this character is restored.
+	 * @return The code point of the uppercase mapping of this character, or <code>0</code> if this character has no uppercase mapping.
+	 * @see #getUppercaseMapping()
 	 */
-	public void setUppercaseMapping(final char newUppercaseMapping) {
-		uppercaseMapping = newUppercaseMapping;
+	public int getUppercaseMappingCodePoint() {
+		return getMappingCodePoint(uppercaseMapping);
 	}
 
 	/**
 	 * The lowercase mapping of this character, or <code>0</code> if this character has no lowercase mapping.
 	 */
-	private char lowercaseMapping = 0;
+	private final char lowercaseMapping;
 
 	/**
 	 * @return The lowercase mapping of this character, or <code>0</code> if this character has no lowercase mapping.
@@ -349,17 +230,19 @@ public char getLowercaseMapping() {
 	}
 
 	/**
-	 * Sets the lowercase mapping of this character.
-	 * @param newLowercaseMapping The lowercase mapping of the character.
+	 * Returns the code point of the lowercase mapping of this character. The lowercase mapping is stored as a single UTF-16 code unit, so the mapping of a
+	 * supplementary character has lost its plane; because case pairs always lie within the same plane, the plane of this character is restored.
+	 * @return The code point of the lowercase mapping of this character, or <code>0</code> if this character has no lowercase mapping.
+	 * @see #getLowercaseMapping()
 	 */
-	public void setLowercaseMapping(final char newLowercaseMapping) {
-		lowercaseMapping = newLowercaseMapping;
+	public int getLowercaseMappingCodePoint() {
+		return getMappingCodePoint(lowercaseMapping);
 	}
 
 	/**
 	 * The titlecase mapping of this character, or <code>0</code> if this character has no titlecase mapping.
 	 */
-	private char titlecaseMapping = 0;
+	private final char titlecaseMapping;
 
 	/**
 	 * @return The titlecase mapping of this character, or <code>0</code> if this character has no titlecase mapping.
@@ -369,32 +252,60 @@ public char getTitlecaseMapping() {
 	}
 
 	/**
-	 * Sets the titlecase mapping of this character.
-	 * @param newTitlecaseMapping The titlecase mapping of the character.
+	 * Returns the code point of the titlecase mapping of this character. The titlecase mapping is stored as a single UTF-16 code unit, so the mapping of a
+	 * supplementary character has lost its plane; because case pairs always lie within the same plane, the plane of this character is restored.
+	 * @return The code point of the titlecase mapping of this character, or <code>0</code> if this character has no titlecase mapping.
+	 * @see #getTitlecaseMapping()
 	 */
-	public void setTitlecaseMapping(final char newTitlecaseMapping) {
-		titlecaseMapping = newTitlecaseMapping;
+	public int getTitlecaseMappingCodePoint() {
+		return getMappingCodePoint(titlecaseMapping);
 	}
 
-	public UnicodeCharacter() {
-	} //TODO del and change the parsing routine to collect all data before construction
+	/**
+	 * Determines the code point of a case mapping of this character, restoring the plane of this character.
+	 * @param mapping The case mapping, or <code>0</code> if there is no mapping.
+	 * @return The code point of the mapping, or <code>0</code> if there is no mapping.
+	 */
+	private int getMappingCodePoint(final char mapping) {
+		return mapping != 0 ? (getCodeValue() & ~0xFFFF) | mapping : 0;
+	}
 
 	/**
-	 * Creates a new Unicode character.
+	 * Creates a new Unicode character with no properties other than its code value.
 	 * @param newCodeValue The code value of the Unicode character.
 	 */
-	public UnicodeCharacter(final int newCodeValue) { //TODO make a complete constructor and remove this constructor
-		codeValue = newCodeValue; //save the code value
+	public UnicodeCharacter(final int newCodeValue) {
+		this(new Builder(newCodeValue));
 	}
 
 	/**
-	 * Creates a new Unicode character with a name.
+	 * Creates a new Unicode character with no properties other than its code value and name.
 	 * @param newCodeValue The code value of the Unicode character.
 	 * @param newCharacterName The name of the Unicode character.
 	 */
 	public UnicodeCharacter(final int newCodeValue, final String newCharacterName) {
-		this(newCodeValue); //do the default construction
-		setCharacterName(newCharacterName); //set the character name
+		this(new Builder(newCodeValue).setCharacterName(newCharacterName));
+	}
+
+	/**
+	 * Creates a new Unicode character from the values in a builder.
+	 * @param builder The builder containing the values of the character.
+	 */
+	protected UnicodeCharacter(final Builder builder) {
+		codeValue = builder.codeValue;
+		characterName = builder.characterName;
+		propertySet = UnicodePropertySet.intern(builder.generalCategory, builder.canonicalCombiningClass, builder.bidirectionalCategory,
+				builder.characterDecompositionTag, builder.mirrored);
+		characterDecompositionMappings = builder.characterDecompositionMappings;
+		decimalDigitValue = builder.decimalDigitValue;
+		digitValue = builder.digitValue;
+		numericValueNumerator = builder.numericValueNumerator;
+		numericValueDenominator = builder.numericValueDenominator;
+		unicode10Name = builder.unicode10Name;
+		iso10646Comment = builder.iso10646Comment;
+		uppercaseMapping = builder.uppercaseMapping;
+		lowercaseMapping = builder.lowercaseMapping;
+		titlecaseMapping = builder.titlecaseMapping;
 	}
 
 	/**
@@ -412,4 +323,272 @@ public String toString() {
 		return getCodePointString(getCodeValue()); //return a string representation of the code point
 	}
 
+	/**
+	 * Builds immutable Unicode characters. A builder may be reused to build any number of characters.
+	 * @author Garret Wilson
+	 */
+	public static class Builder {
+
+		/** The code value of the character. */
+		private int codeValue;
+
+		/** The name of the character. */
+		private String characterName = null;
+
+		/** The general category of the character. */
+		private String generalCategory = null;
+
+		/** The canonical combining class of the character. */
+		private int canonicalCombiningClass = -1;
+
+		/** The bidirectional category of the character. */
+		private String bidirectionalCategory = LEFT_TO_RIGHT;
+
+		/** The character decomposition tag, or the empty string if there is no tag. */
+		private String characterDecompositionTag = "";
+
+		/** The character decomposition mappings, or the empty string if there are no mappings. */
+		private String characterDecompositionMappings = "";
+
+		/** The decimal digit value, or <code>-1</code> if there is no decimal digit value. */
+		private int decimalDigitValue = -1;
+
+		/** The digit value, or <code>-1</code> if there is no digit value. */
+		private int digitValue = -1;
+
+		/** The numerator of the numeric value, or <code>-1</code> if there is no numeric value. */
+		private int numericValueNumerator = -1;
+
+		/** The denominator of the numeric value. */
+		private int numericValueDenominator = 1;
+
+		/** Whether the character is mirrored. */
+		private boolean mirrored = false;
+
+		/** The Unicode 1.0 name, or the empty string if there is no Unicode 1.0 name. */
+		private String unicode10Name = "";
+
+		/** The ISO 10646 comment, or the empty string if there is no comment. */
+		private String iso10646Comment = "";
+
+		/** The uppercase mapping, or <code>0</code> if there is no uppercase mapping. */
+		private char uppercaseMapping = 0;
+
+		/** The lowercase mapping, or <code>0</code> if there is no lowercase mapping. */
+		private char lowercaseMapping = 0;
+
+		/** The titlecase mapping, or <code>0</code> if there is no titlecase mapping. */
+		private char titlecaseMapping = 0;
+
+		/**
+		 * Code value constructor.
+		 * @param codeValue The code value of the Unicode character.
+		 */
+		public Builder(final int codeValue) {
+			this.codeValue = codeValue;
+		}
+
+		/**
+		 * Copy constructor.
+		 * @param unicodeCharacter The character the values of which should be copied.
+		 */
+		public Builder(final UnicodeCharacter unicodeCharacter) {
+			this(unicodeCharacter.getCodeValue());
+			characterName = unicodeCharacter.getCharacterName();
+			final UnicodePropertySet propertySet = unicodeCharacter.getPropertySet();
+			generalCategory = propertySet.getGeneralCategory();
+			canonicalCombiningClass = propertySet.getCanonicalCombiningClass();
+			bidirectionalCategory = propertySet.getBidirectionalCategory();
+			characterDecompositionTag = propertySet.getCharacterDecompositionTag();
+			mirrored = propertySet.isMirrored();
+			characterDecompositionMappings = unicodeCharacter.getCharacterDecompositionMappings();
+			decimalDigitValue = unicodeCharacter.getDecimalDigitValue();
+			digitValue = unicodeCharacter.getDigitValue();
+			numericValueNumerator = unicodeCharacter.getNumericValueNumerator();
+			numericValueDenominator = unicodeCharacter.getNumericValueDenominator();
+			unicode10Name = unicodeCharacter.getUnicode10Name();
+			iso10646Comment = unicodeCharacter.getISO10646Comment();
+			uppercaseMapping = unicodeCharacter.getUppercaseMapping();
+			lowercaseMapping = unicodeCharacter.getLowercaseMapping();
+			titlecaseMapping = unicodeCharacter.getTitlecaseMapping();
+		}
+
+		/**
+		 * @param codeValue The code value of the Unicode character.
+		 * @return This builder.
+		 */
+		public Builder setCodeValue(final int codeValue) {
+			this.codeValue = codeValue;
+			return this;
+		}
+
+		/**
+		 * @param characterName The name of the character.
+		 * @return This builder.
+		 */
+		public Builder setCharacterName(final String characterName) {
+			this.characterName = characterName;
+			return this;
+		}
+
+		/**
+		 * @param generalCategory The character's general category.
+		 * @return This builder.
+		 */
+		public Builder setGeneralCategory(final String generalCategory) {
+			this.generalCategory = generalCategory;
+			return this;
+		}
+
+		/**
+		 * @param canonicalCombiningClass The canonical combining class of the character.
+		 * @return This builder.
+		 */
+		public Builder setCanonicalCombiningClass(final int canonicalCombiningClass) {
+			this.canonicalCombiningClass = canonicalCombiningClass;
+			return this;
+		}
+
+		/**
+		 * @param bidirectionalCategory The bidirectional category.
+		 * @return This builder.
+		 */
+		public Builder setBidirectionalCategory(final String bidirectionalCategory) {
+			this.bidirectionalCategory = bidirectionalCategory;
+			return this;
+		}
+
+		/**
+		 * @param characterDecompositionTag The character decomposition formatting tag.
+		 * @return This builder.
+		 */
+		public Builder setCharacterDecompositionTag(final String characterDecompositionTag) {
+			this.characterDecompositionTag = characterDecompositionTag;
+			return this;
+		}
+
+		/**
+		 * @param characterDecompositionMappings A string with the character decomposition mappings as code points in the correct order.
+		 * @return This builder.
+		 */
+		public Builder setCharacterDecompositionMappings(final String characterDecompositionMappings) {
+			this.characterDecompositionMappings = characterDecompositionMappings;
+			return this;
+		}
+
+		/**
+		 * @param decimalDigitValue The decimal digit value.
+		 * @return This builder.
+		 */
+		public Builder setDecimalDigitValue(final int decimalDigitValue) {
+			this.decimalDigitValue = decimalDigitValue;
+			return this;
+		}
+
+		/**
+		 * @param digitValue The digit value.
+		 * @return This builder.
+		 */
+		public Builder setDigitValue(final int digitValue) {
+			this.digitValue = digitValue;
+			return this;
+		}
+
+		/**
+		 * @param numericValueNumerator The numeric value numerator.
+		 * @return This builder.
+		 */
+		public Builder setNumericValueNumerator(final int numericValueNumerator) {
+			this.numericValueNumerator = numericValueNumerator;
+			return this;
+		}
+
+		/**
+		 * @param numericValueDenominator The numeric value denominator.
+		 * @return This builder.
+		 */
+		public Builder setNumericValueDenominator(final int numericValueDenominator) {
+			this.numericValueDenominator = numericValueDenominator;
+			return this;
+		}
+
+		/**
+		 * Sets a numeric value that is not a fraction.
+		 * @param numericValue The numeric value of the character.
+		 * @return This builder.
+		 */
+		public Builder setNumericValue(final int numericValue) {
+			this.numericValueNumerator = numericValue;
+			this.numericValueDenominator = 1;
+			return this;
+		}
+
+		/**
+		 * @param mirrored <code>true</code> if this is a mirrored character.
+		 * @return This builder.
+		 */
+		public Builder setMirrored(final boolean mirrored) {
+			this.mirrored = mirrored;
+			return this;
+		}
+
+		/**
+		 * @param unicode10Name The Unicode 1.0 name of the character.
+		 * @return This builder.
+		 */
+		public Builder setUnicode10Name(final String unicode10Name) {
+			this.unicode10Name = unicode10Name;
+			return this;
+		}
+
+		/**
+		 * @param iso10646Comment The ISO 10646 comment.
+		 * @return This builder.
+		 */
+		public Builder setISO10646Comment(final String iso10646Comment) {
+			this.iso10646Comment = iso10646Comment;
+			return this;
+		}
+
+		/**
+		 * @param uppercaseMapping The uppercase mapping of the character.
+		 * @return This builder.
+		 */
+		public Builder setUppercaseMapping(final char uppercaseMapping) {
+			this.uppercaseMapping = uppercaseMapping;
+			return this;
+		}
+
+		/**
+		 * @param lowercaseMapping The lowercase mapping of the character.
+		 * @return This builder.
+		 */
+		public Builder setLowercaseMapping(final char lowercaseMapping) {
+			this.lowercaseMapping = lowercaseMapping;
+			return this;
+		}
+
+		/**
+		 * @param titlecaseMapping The titlecase mapping of the character.
+		 * @return This builder.
+		 */
+		public Builder setTitlecaseMapping(final char titlecaseMapping) {
+			this.titlecaseMapping = titlecaseMapping;
+			return this;
+		}
+
+		/** @return The character decomposition formatting tag set so far. */
+		String getCharacterDecompositionTag() {
+			return characterDecompositionTag;
+		}
+
+		/**
+		 * Builds an immutable Unicode character from the current values. Shared properties are interned in a {@link UnicodePropertySet}.
+		 * @return A new immutable Unicode character.
+		 */
+		public UnicodeCharacter build() {
+			return new UnicodeCharacter(this);
+		}
+	}
+
 }
\ No newline at end of file
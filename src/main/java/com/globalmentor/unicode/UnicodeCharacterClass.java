@@ -0,0 +1,466 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.*;
+import java.util.regex.PatternSyntaxException;
+
+import static java.util.Objects.*;
+
+/**
+ * An immutable character class compiled from an expression such as <code>[\p{Lu}\p{InGreek}]</code>, using the properties of a {@link UnicodeDatabase}
+ * rather than those of the JDK.
+ * <p>
+ * The expression syntax is a subset of that of {@link java.util.regex.Pattern} character classes:
+ * </p>
+ * <ul>
+ * <li><code>[...]</code> and <code>[^...]</code>: a class and its complement; classes may be nested, which forms a union.</li>
+ * <li><code>&amp;&amp;</code>: the intersection of the classes on either side, such as <code>[\p{L}&amp;&amp;[^\p{Lu}]]</code>.</li>
+ * <li><code>a</code>, <code>a-z</code>: a literal character or range of characters.</li>
+ * <li><code>\</code><code>uFFFF</code>, <code>\x{10FFFF}</code>, <code>\t</code>, <code>\n</code>, <code>\r</code>, <code>\f</code>, <code>\e</code>: escaped
+ * characters; any other escaped character represents itself.</li>
+ * <li><code>\p{Lu}</code>, <code>\p{L}</code>, <code>\p{IsLu}</code>, <code>\p{gc=Lu}</code>: a general category or major general category.</li>
+ * <li><code>\p{InGreek}</code>, <code>\p{blk=Greek and Coptic}</code>: a Unicode block, matched loosely ignoring case, spaces, hyphens, and underscores.</li>
+ * <li><code>\p{bc=R}</code>, <code>\p{Bidi_Class=AL}</code>: a bidirectional category.</li>
+ * <li><code>\p{Any}</code>, <code>\p{Assigned}</code>: all code points, or all code points in the database.</li>
+ * <li><code>\P{...}</code>: the complement of a property.</li>
+ * </ul>
+ * <p>
+ * An expression is evaluated once into a {@link UnicodeSet}, which is then compiled into a two-level bitmap. Matching a code point therefore takes constant
+ * time, no matter how complex the expression.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodeCharacterClass {
+
+	/** The expression from which the class was compiled. */
+	private final String expression;
+
+	/** @return The expression from which the class was compiled. */
+	public String getExpression() {
+		return expression;
+	}
+
+	/** The set of code points in the class. */
+	private final UnicodeSet unicodeSet;
+
+	/** @return The set of code points in the class. */
+	public UnicodeSet getUnicodeSet() {
+		return unicodeSet;
+	}
+
+	/** The bitmap of code points in the class. */
+	private final CodePointBitTable bitTable;
+
+	/**
+	 * Constructor.
+	 * @param expression The expression from which the class was compiled.
+	 * @param unicodeSet The set of code points in the class.
+	 */
+	private UnicodeCharacterClass(final String expression, final UnicodeSet unicodeSet) {
+		this.expression = expression;
+		this.unicodeSet = unicodeSet;
+		this.bitTable = new CodePointBitTable(unicodeSet);
+	}
+
+	/**
+	 * Compiles a character class expression using the current Unicode database.
+	 * @param expression The character class expression, such as <code>[\p{Lu}\p{InGreek}]</code>.
+	 * @return The compiled character class.
+	 * @throws NullPointerException if the given expression is <code>null</code>.
+	 * @throws PatternSyntaxException if the expression is not valid or refers to an unknown property.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static UnicodeCharacterClass compile(final String expression) {
+		return compile(UnicodeDatabase.getCurrent(), expression);
+	}
+
+	/**
+	 * Compiles a character class expression using a given Unicode database.
+	 * @param database The Unicode database providing character properties.
+	 * @param expression The character class expression, such as <code>[\p{Lu}\p{InGreek}]</code>.
+	 * @return The compiled character class.
+	 * @throws NullPointerException if the given database and/or expression is <code>null</code>.
+	 * @throws PatternSyntaxException if the expression is not valid or refers to an unknown property.
+	 */
+	public static UnicodeCharacterClass compile(final UnicodeDatabase database, final String expression) {
+		return new UnicodeCharacterClass(expression, new Parser(requireNonNull(database), requireNonNull(expression)).parse());
+	}
+
+	/**
+	 * Creates a character class from a set of code points.
+	 * @param unicodeSet The set of code points in the class.
+	 * @return A character class matching the given code points.
+	 */
+	public static UnicodeCharacterClass of(final UnicodeSet unicodeSet) {
+		return new UnicodeCharacterClass(unicodeSet.toString(), unicodeSet);
+	}
+
+	/**
+	 * Determines whether a code point is in this class.
+	 * @param codePoint The code point to check.
+	 * @return <code>true</code> if the code point is in this class.
+	 */
+	public boolean matches(final int codePoint) {
+		return bitTable.contains(codePoint);
+	}
+
+	/**
+	 * Determines whether every code point of a character sequence is in this class.
+	 * @param text The text to check.
+	 * @return <code>true</code> if the text consists entirely of code points in this class.
+	 */
+	public boolean matchesAll(final CharSequence text) {
+		return span(text, 0, text.length(), true) == text.length();
+	}
+
+	/**
+	 * Finds the first code point in a character sequence that is in this class.
+	 * @param text The text to search.
+	 * @param start The index at which to begin searching.
+	 * @return The index of the first matching code point at or after the start, or <code>-1</code> if there is none.
+	 * @throws IndexOutOfBoundsException if the start is out of bounds.
+	 */
+	public int indexIn(final CharSequence text, final int start) {
+		final int end = text.length();
+		final int index = span(text, start, end, false);
+		return index < end ? index : -1;
+	}
+
+	/**
+	 * Finds the end of a run of code points that are all either in or not in this class. Unpaired surrogates are checked as code points in their own right.
+	 * @param text The text to examine.
+	 * @param start The index at which to start, inclusive.
+	 * @param end The index at which to stop, exclusive.
+	 * @param matching <code>true</code> to span code points in this class, or <code>false</code> to span code points not in this class.
+	 * @return The index of the first code point at or after the start that does not satisfy the condition, or the end if there is none.
+	 * @throws IndexOutOfBoundsException if the start or end is out of bounds.
+	 */
+	public int span(final CharSequence text, final int start, final int end, final boolean matching) {
+		if(start < 0 || end > text.length() || start > end) {
+			throw new IndexOutOfBoundsException("Invalid span [" + start + ", " + end + ") of text of length " + text.length() + ".");
+		}
+		int index = start;
+		while(index < end) {
+			final char c = text.charAt(index);
+			if(Character.isHighSurrogate(c) && index + 1 < end && Character.isLowSurrogate(text.charAt(index + 1))) {
+				if(bitTable.contains(Character.toCodePoint(c, text.charAt(index + 1))) != matching) {
+					return index;
+				}
+				index += 2;
+			} else {
+				if(bitTable.contains(c) != matching) {
+					return index;
+				}
+				++index;
+			}
+		}
+		return end;
+	}
+
+	/** @return A hash code for the code points in this class. */
+	public int hashCode() {
+		return unicodeSet.hashCode();
+	}
+
+	/**
+	 * Determines whether an object is a character class matching the same code points.
+	 * @param object The object to compare.
+	 * @return <code>true</code> if the object is a character class with the same code points, regardless of expression.
+	 */
+	public boolean equals(final Object object) {
+		return this == object || (object instanceof UnicodeCharacterClass && unicodeSet.equals(((UnicodeCharacterClass)object).unicodeSet));
+	}
+
+	/** @return The expression from which the class was compiled. */
+	public String toString() {
+		return expression;
+	}
+
+	/**
+	 * A recursive-descent parser of character class expressions.
+	 * @author Garret Wilson
+	 */
+	private static final class Parser {
+
+		/** The Unicode database providing character properties. */
+		private final UnicodeDatabase database;
+
+		/** The expression being parsed. */
+		private final String expression;
+
+		/** The index of the next character of the expression to parse. */
+		private int index = 0;
+
+		/**
+		 * Constructor.
+		 * @param database The Unicode database providing character properties.
+		 * @param expression The expression to parse.
+		 */
+		Parser(final UnicodeDatabase database, final String expression) {
+			this.database = database;
+			this.expression = expression;
+		}
+
+		/**
+		 * Parses the entire expression, which must be a single class or property.
+		 * @return The set of code points represented by the expression.
+		 * @throws PatternSyntaxException if the expression is not valid.
+		 */
+		UnicodeSet parse() {
+			final UnicodeSet unicodeSet;
+			if(peek() == '[') {
+				unicodeSet = parseClass();
+			} else if(peek() == '\\' && index + 1 < expression.length() && (expression.charAt(index + 1) == 'p' || expression.charAt(index + 1) == 'P')) {
+				++index;
+				unicodeSet = parseProperty();
+			} else {
+				throw error("Expected a character class or property");
+			}
+			if(index != expression.length()) {
+				throw error("Unexpected characters after character class");
+			}
+			return unicodeSet;
+		}
+
+		/** @return The next character of the expression, or <code>-1</code> if the end has been reached. */
+		private int peek() {
+			return index < expression.length() ? expression.charAt(index) : -1;
+		}
+
+		/**
+		 * Returns the next character of the expression and advances past it.
+		 * @return The next character.
+		 * @throws PatternSyntaxException if the end of the expression has been reached.
+		 */
+		private char next() {
+			if(index >= expression.length()) {
+				throw error("Unexpected end of expression");
+			}
+			return expression.charAt(index++);
+		}
+
+		/**
+		 * Creates an exception indicating a syntax error at the current position.
+		 * @param description A description of the error.
+		 * @return A new exception.
+		 */
+		private PatternSyntaxException error(final String description) {
+			return new PatternSyntaxException(description, expression, Math.min(index, expression.length()));
+		}
+
+		/**
+		 * Parses a bracketed class, beginning at its opening bracket.
+		 * @return The set of code points in the class.
+		 */
+		private UnicodeSet parseClass() {
+			next(); //[
+			final boolean negated = peek() == '^';
+			if(negated) {
+				++index;
+			}
+			UnicodeSet intersection = null; //the intersection of the operands before the last "&&", if any
+			UnicodeSet.Builder unionBuilder = new UnicodeSet.Builder();
+			boolean empty = true; //Java character classes do not allow an empty class
+			while(peek() != ']') {
+				if(peek() == -1) {
+					throw error("Unclosed character class");
+				}
+				if(expression.startsWith("&&", index)) {
+					index += 2;
+					final UnicodeSet operand = unionBuilder.build();
+					intersection = intersection == null ? operand : intersection.intersection(operand);
+					unionBuilder = new UnicodeSet.Builder();
+					continue;
+				}
+				empty = false;
+				if(peek() == '[') {
+					unionBuilder.addAll(parseClass());
+					continue;
+				}
+				if(peek() == '\\' && index + 1 < expression.length() && (expression.charAt(index + 1) == 'p' || expression.charAt(index + 1) == 'P')) {
+					++index;
+					unionBuilder.addAll(parseProperty());
+					continue;
+				}
+				final int first = parseCodePoint();
+				if(peek() == '-' && index + 1 < expression.length() && expression.charAt(index + 1) != ']') { //range
+					++index;
+					final int last = parseCodePoint();
+					if(last < first) {
+						throw error("Illegal character range");
+					}
+					unionBuilder.add(first, last);
+				} else {
+					unionBuilder.add(first);
+				}
+			}
+			if(empty) {
+				throw error("Empty character class");
+			}
+			next(); //]
+			final UnicodeSet union = unionBuilder.build();
+			final UnicodeSet unicodeSet = intersection == null ? union : intersection.intersection(union);
+			return negated ? unicodeSet.complement() : unicodeSet;
+		}
+
+		/**
+		 * Parses a single literal or escaped code point.
+		 * @return The code point.
+		 */
+		private int parseCodePoint() {
+			final char c = next();
+			if(c != '\\') {
+				if(Character.isHighSurrogate(c) && index < expression.length() && Character.isLowSurrogate(expression.charAt(index))) {
+					return Character.toCodePoint(c, next());
+				}
+				return c;
+			}
+			final char escaped = next();
+			switch(escaped) {
+				case 't':
+					return '\t';
+				case 'n':
+					return '\n';
+				case 'r':
+					return '\r';
+				case 'f':
+					return '\f';
+				case 'e':
+					return '\u001B';
+				case 'u':
+					return parseHex(4);
+				case 'x':
+					if(peek() == '{') {
+						++index;
+						final int close = expression.indexOf('}', index);
+						if(close < 0) {
+							throw error("Unclosed hexadecimal escape");
+						}
+						final int codePoint = parseHex(close - index);
+						++index; //}
+						return codePoint;
+					}
+					return parseHex(2);
+				default:
+					if(Character.isLetterOrDigit(escaped)) {
+						throw error("Unsupported escape sequence");
+					}
+					return escaped;
+			}
+		}
+
+		/**
+		 * Parses a number of hexadecimal digits as a code point.
+		 * @param digitCount The number of digits.
+		 * @return The code point.
+		 */
+		private int parseHex(final int digitCount) {
+			if(digitCount < 1 || digitCount > 6 || index + digitCount > expression.length()) {
+				throw error("Illegal hexadecimal escape sequence");
+			}
+			int codePoint = 0;
+			for(int i = 0; i < digitCount; ++i) {
+				final int digit = Character.digit(next(), 16);
+				if(digit < 0) {
+					throw error("Illegal hexadecimal escape sequence");
+				}
+				codePoint = (codePoint << 4) | digit;
+			}
+			if(codePoint > Character.MAX_CODE_POINT) {
+				throw error("Hexadecimal code point is out of range");
+			}
+			return codePoint;
+		}
+
+		/**
+		 * Parses a property, beginning with the <code>p</code> or <code>P</code> after the backslash.
+		 * @return The set of code points with the property.
+		 */
+		private UnicodeSet parseProperty() {
+			final boolean negated = next() == 'P';
+			if(next() != '{') {
+				throw error("Expected '{' after property escape");
+			}
+			final int nameStart = index;
+			final int close = expression.indexOf('}', index);
+			if(close < 0) {
+				throw error("Unclosed property name");
+			}
+			final String name = expression.substring(nameStart, close);
+			final UnicodeSet unicodeSet = resolveProperty(name);
+			if(unicodeSet == null) {
+				throw error("Unknown property " + name);
+			}
+			index = close + 1;
+			return negated ? unicodeSet.complement() : unicodeSet;
+		}
+
+		/**
+		 * Determines the code points having a named property.
+		 * @param name The property name within the braces.
+		 * @return The set of code points with the property, or <code>null</code> if the property is not recognized.
+		 */
+		private UnicodeSet resolveProperty(final String name) {
+			final int equalsIndex = name.indexOf('=');
+			if(equalsIndex >= 0) { //key=value
+				final String key = UnicodeBlockRegistry.normalizeName(name.substring(0, equalsIndex));
+				final String value = name.substring(equalsIndex + 1).trim();
+				switch(key) {
+					case "gc":
+					case "generalcategory":
+						return UnicodeSet.getGeneralCategorySets(database).get(value);
+					case "bc":
+					case "bidi":
+					case "bidiclass":
+						return UnicodeSet.getBidirectionalCategorySets(database).get(value);
+					case "blk":
+					case "block":
+						return resolveBlock(value);
+					default:
+						return null;
+				}
+			}
+			final String normalizedName = UnicodeBlockRegistry.normalizeName(name);
+			if(normalizedName.equals("any")) {
+				return UnicodeSet.ALL;
+			}
+			if(normalizedName.equals("assigned")) {
+				return UnicodeSet.getGeneralCategorySets(database).get(UnicodeConstants.OTHER_NOT_ASSIGNED).complement();
+			}
+			final UnicodeSet generalCategorySet = UnicodeSet.getGeneralCategorySets(database).get(name.startsWith("Is") ? name.substring(2) : name);
+			if(generalCategorySet != null) {
+				return generalCategorySet;
+			}
+			if(name.startsWith("In")) {
+				return resolveBlock(name.substring(2));
+			}
+			return null;
+		}
+
+		/**
+		 * Determines the code points in a named block.
+		 * @param blockName The name of the block, matched loosely.
+		 * @return The set of code points in the block, or <code>null</code> if there is no such block.
+		 */
+		private UnicodeSet resolveBlock(final String blockName) {
+			final UnicodeBlock block = UnicodeBlockRegistry.forDatabase(database).getBlockByName(blockName);
+			return block != null ? UnicodeSet.forBlocks(block) : null;
+		}
+	}
+
+}
@@ -19,6 +19,8 @@
 import java.io.*;
 import java.lang.ref.*;
 import java.util.*;
+import java.util.concurrent.locks.*;
+import java.util.stream.*;
 
 import static com.globalmentor.unicode.UnicodeBlocks.*;
 import static com.globalmentor.unicode.UnicodeConstants.*;
@@ -28,7 +30,6 @@
 import java.util.StringTokenizer;
 
 import com.globalmentor.log.Log;
-import com.globalmentor.java.Integers;
 
 /**
  * Represents the Unicode data in the file <code>UnicodeData.txt</code>.
@@ -37,7 +38,8 @@
  * </p>
  * <p>
  * This class keeps soft references of all requested Unicode characters so that they may be quickly returned when needed, but still be garbage collected if
- * memory is a premium.
+ * memory is a premium. The cache is guarded by a {@link ReentrantLock} that is never held during I/O, so that virtual threads are not pinned. For lookups
+ * that do not block on I/O at all, see {@link AsyncUnicodeData}. The memory held by the cache may be inspected and controlled using {@link UnicodeMemory}.
  * </p>
  * @author Garret Wilson
  * @version 1.0
@@ -50,25 +52,52 @@ public class UnicodeData {
 	/** The map of soft references to Unicode characters, each keyed to a Unicode integer value. */
 	protected static final Map<Integer, Reference<UnicodeCharacter>> unicodeCharacterReferenceMap = new HashMap<Integer, Reference<UnicodeCharacter>>(); //TODO create a SoftValueHashMap to use here
 
+	/** The lock guarding the character cache and the set of unassigned code points. */
+	protected static final Lock cacheLock = new ReentrantLock();
+
 	/**
 	 * Looks up a cached Unicode character.
 	 * @param codePoint The code point of the character to find.
 	 * @return The Unicode character, or <code>null</code> if the character is not cached.
 	 */
 	protected static UnicodeCharacter getUnicodeCharacter(final Integer codePoint) {
-		final Reference<UnicodeCharacter> unicodeCharacterReference = unicodeCharacterReferenceMap.get(codePoint); //see if there is a reference to the character in our map
-		return unicodeCharacterReference != null ? unicodeCharacterReference.get() : null; //if the character was stored at one time, see if it still exists
+		cacheLock.lock();
+		try {
+			final Reference<UnicodeCharacter> unicodeCharacterReference = unicodeCharacterReferenceMap.get(codePoint); //see if there is a reference to the character in our map
+			return unicodeCharacterReference != null ? unicodeCharacterReference.get() : null; //if the character was stored at one time, see if it still exists
+		} finally {
+			cacheLock.unlock();
+		}
+	}
+
+	/**
+	 * Determines whether a character was cached but has since been reclaimed by the garbage collector.
+	 * @param codePoint The code point of the character to check.
+	 * @return <code>true</code> if the character was cached at one time.
+	 */
+	protected static boolean wasCached(final Integer codePoint) {
+		cacheLock.lock();
+		try {
+			return unicodeCharacterReferenceMap.containsKey(codePoint);
+		} finally {
+			cacheLock.unlock();
+		}
 	}
 
 	/** The reference to the set of unassigned Unicode code points, which can be recollected by the garbage collector if needed. */
 	protected static Reference<Set<Integer>> unassignedCodeSetReference = null;
 
-	/** @return The set of unassigned codes, created if necessary. */
+	/**
+	 * Returns the set of unassigned codes. The caller must hold {@link #cacheLock} while accessing the set.
+	 * @return The set of unassigned codes, created if necessary.
+	 */
 	protected static Set<Integer> getUnassignedCodeSet() {
 		Set<Integer> unassignedCodeSet = unassignedCodeSetReference != null ? unassignedCodeSetReference.get() : null; //get the set, if there is one
 		if(unassignedCodeSet == null) { //if there is no unassigned code set (it was never created, or it has been garbage collected)
+			UnicodeMonitoring.unassignedSetRebuilt(unassignedCodeSetReference != null); //report whether we're rebuilding a set that was garbage collected
 			unassignedCodeSet = new HashSet<Integer>(); //create a new hash set
 			unassignedCodeSetReference = new SoftReference<Set<Integer>>(unassignedCodeSet); //store a soft reference to the set
+			UnicodeMemory.unassignedCodeSetCreated(unassignedCodeSet); //pin the set if needed
 		}
 		return unassignedCodeSet; //return the set of unassigned code points
 	}
@@ -80,7 +109,12 @@ protected static Set<Integer> getUnassignedCodeSet() {
 	 *         unknown whether the code point is assigned.
 	 */
 	protected static boolean isUnassigned(final Integer codePoint) {
-		return getUnassignedCodeSet().contains(codePoint); //see whether the given code point is in the set of unassigned code points
+		cacheLock.lock();
+		try {
+			return getUnassignedCodeSet().contains(codePoint); //see whether the given code point is in the set of unassigned code points
+		} finally {
+			cacheLock.unlock();
+		}
 	}
 
 	//Unicode data file fields
@@ -127,15 +161,19 @@ public static UnicodeCharacter getUnicodeCharacter(final int codeValue) {
 		final Integer codeValueInteger = Integer.valueOf(codeValue); //create an integer from the code value
 		UnicodeCharacter unicodeCharacter = getUnicodeCharacter(codeValueInteger); //look up the character in the cache
 		if(unicodeCharacter == null && !isUnassigned(codeValueInteger)) { //if the Unicode character was never stored or has been reclaimed, and we haven't marked it as unassigned
+			UnicodeMonitoring.cacheMiss(codeValue, wasCached(codeValueInteger)); //report whether the character was reclaimed
 			try {
 				final UnicodeBlock unicodeBlock = getUnicodeBlockByCodePoint(codeValue); //see in which block this character resides
 				if(unicodeBlock != null) { //if we know the block of the code point (if we don't know the block, assume we don't know the character, either
-					final List<UnicodeCharacter> characterList = load(unicodeBlock.getStartCode(), unicodeBlock.getEndCode()); //load data for all the characters in the block
+					UnicodePrefetcher.blockDemanded(unicodeBlock); //record the demand, and start loading correlated blocks in the background
+					load(unicodeBlock); //load data for all the characters in the block
 					unicodeCharacter = getUnicodeCharacter(codeValueInteger); //see if the character is loaded now
 				}
 			} catch(IOException ioException) { //we don't expect errors reading the data file, as it's a local resource
 				Log.warn(ioException); //don't do anything major if we can't read the data file 
 			}
+		} else { //if we found the character, or we already knew it was unassigned
+			UnicodeMonitoring.cacheHit();
 		}
 		return unicodeCharacter; //return the character we found, if any
 	}
@@ -152,6 +190,78 @@ public static List<UnicodeCharacter> getUnicodeCharacters() {
 		}
 	}
 
+	/** The reference to the unparsed contents of the Unicode data resource file, which can be recollected by the garbage collector if needed. */
+	protected static Reference<char[]> unicodeDataCharsReference = null;
+
+	/** @return The unparsed contents of the Unicode data resource file, read if necessary. */
+	protected static char[] getUnicodeDataChars() {
+		char[] unicodeDataChars = unicodeDataCharsReference != null ? unicodeDataCharsReference.get() : null; //get the data, if we have it
+		if(unicodeDataChars == null) { //if the data was never read, or it has been garbage collected
+			try (final Reader reader = getUnicodeDataReader()) {
+				unicodeDataChars = UnicodeDataSpliterator.read(reader); //read the data without parsing it
+			} catch(final IOException ioException) { //we don't expect errors reading the data file, as it's a local resource
+				throw new AssertionError(ioException);
+			}
+			if(unicodeDataCharsReference != null) { //if the data was reclaimed by the garbage collector
+				UnicodeMemory.rebuilt(UnicodeMemory.Structure.DATA_TEXT);
+			}
+			unicodeDataCharsReference = new SoftReference<char[]>(unicodeDataChars); //store a soft reference to the data
+			UnicodeMemory.unicodeDataCharsLoaded(unicodeDataChars); //pin the data if needed
+		}
+		return unicodeDataChars;
+	}
+
+	/**
+	 * Returns a stream of the Unicode characters in the Unicode data resource text file. Each line is parsed only as the stream consumes it, so
+	 * short-circuiting operations parse only as much of the data as they need. The stream is in the order of the lines of the data, which is code point order,
+	 * and is reported as sorted and distinct. It splits on line boundaries, so it may be processed in parallel.
+	 * <p>
+	 * Unlike {@link #getUnicodeCharacter(int)}, characters retrieved from the stream are not cached.
+	 * </p>
+	 * @return A stream of Unicode character objects in code point order.
+	 * @throws UncheckedIOException if a line of the data could not be parsed.
+	 */
+	public static Stream<UnicodeCharacter> stream() {
+		final char[] unicodeDataChars = getUnicodeDataChars();
+		return StreamSupport.stream(new UnicodeDataSpliterator.OfCharacter(unicodeDataChars, 0, unicodeDataChars.length, true), false);
+	}
+
+	/**
+	 * Returns a stream of the Unicode characters in Unicode data from a reader. The data is read immediately but each line is parsed only as the stream
+	 * consumes it. The stream is in the order of the lines of the data; it does not report itself as sorted, as the data is not verified to be in code point
+	 * order. The reader is not closed.
+	 * @param reader The reader which contains the data in the Unicode data format.
+	 * @return A stream of Unicode character objects in the order in which they appear in the data.
+	 * @throws IOException if there was an error reading the Unicode data.
+	 * @see #stream()
+	 */
+	public static Stream<UnicodeCharacter> stream(final Reader reader) throws IOException {
+		final char[] unicodeDataChars = UnicodeDataSpliterator.read(reader);
+		return StreamSupport.stream(new UnicodeDataSpliterator.OfCharacter(unicodeDataChars, 0, unicodeDataChars.length, false), false);
+	}
+
+	/**
+	 * Returns a stream of the code points listed in the Unicode data resource text file. Only the code value field of each line is examined; no Unicode
+	 * characters are created.
+	 * @return A stream of code points in increasing order.
+	 * @throws UncheckedIOException if the code value of a line could not be parsed.
+	 */
+	public static IntStream codePoints() {
+		return codePoints(null);
+	}
+
+	/**
+	 * Returns a stream of the code points listed in the Unicode data resource text file with the given general category. Only the code value and general
+	 * category fields of each line are examined; no Unicode characters or strings are created.
+	 * @param generalCategory The general category, such as {@link UnicodeConstants#SYMBOL_CURRENCY}, or <code>null</code> to include all code points.
+	 * @return A stream of code points in increasing order.
+	 * @throws UncheckedIOException if the code value of a line could not be parsed.
+	 */
+	public static IntStream codePoints(final String generalCategory) {
+		final char[] unicodeDataChars = getUnicodeDataChars();
+		return StreamSupport.intStream(new UnicodeDataSpliterator.OfCodePoint(unicodeDataChars, 0, unicodeDataChars.length, generalCategory, true), false);
+	}
+
 	/**
 	 * @return A reader to the Unicode data resource file.
 	 * @throws UnsupportedEncodingException Thrown if the Unicode data file encoding (ISO 8859-1) is unsupported. This situation should never occur.
@@ -202,8 +312,43 @@ protected static UnicodeCharacter load(final int codeValue) throws IOException {
 	 */
 	protected static List<UnicodeCharacter> load(final int firstCodeValue, final int lastCodeValue) throws IOException {
 		try (final Reader reader = getUnicodeDataReader()) { //get a reader to our data
-			final List<UnicodeCharacter> unicodeCharacterList = parse(reader, firstCodeValue, lastCodeValue); //parse the Unicode data from the reader
-			sort(unicodeCharacterList); //make sure the list is sorted
+			final List<UnicodeCharacter> unicodeCharacterList = parseLines(new LineNumberReader(reader), firstCodeValue, lastCodeValue); //parse the Unicode data from the reader
+			cache(unicodeCharacterList, firstCodeValue, lastCodeValue); //cache the characters and note the unassigned code points
+			return unicodeCharacterList; //return the list of Unicode characters we loaded
+		}
+	}
+
+	/**
+	 * Loads the Unicode characters of a block from the Unicode data resource text file, reporting the load to {@link UnicodeMonitoring}.
+	 * <p>
+	 * Every loaded character will be weakly cached for fast lookup in the future.
+	 * </p>
+	 * @param unicodeBlock The block the characters of which should be loaded.
+	 * @return A list of Unicode character objects.
+	 * @throws IOException Thrown if there was an error parsing the Unicode data.
+	 */
+	protected static List<UnicodeCharacter> load(final UnicodeBlock unicodeBlock) throws IOException {
+		final Object event = UnicodeMonitoring.beginBlockLoad();
+		final long startNanos = System.nanoTime();
+		try (final Reader reader = getUnicodeDataReader()) { //get a reader to our data
+			final LineNumberReader lineNumberReader = new LineNumberReader(reader); //keep track of how many lines we scan
+			final List<UnicodeCharacter> unicodeCharacterList = parseLines(lineNumberReader, unicodeBlock.getStartCode(), unicodeBlock.getEndCode()); //parse the Unicode data from the reader
+			cache(unicodeCharacterList, unicodeBlock.getStartCode(), unicodeBlock.getEndCode()); //cache the characters and note the unassigned code points
+			UnicodeMonitoring.endBlockLoad(event, startNanos, unicodeBlock, lineNumberReader.getLineNumber(), unicodeCharacterList.size());
+			return unicodeCharacterList; //return the list of Unicode characters we loaded
+		}
+	}
+
+	/**
+	 * Caches a range of loaded Unicode characters, sorting them and marking all code points in the range not present as unassigned.
+	 * @param unicodeCharacterList The list of loaded characters, which will be sorted.
+	 * @param firstCodeValue The first code point of the range that was loaded.
+	 * @param lastCodeValue The last code point, inclusive, of the range that was loaded.
+	 */
+	protected static void cache(final List<UnicodeCharacter> unicodeCharacterList, final int firstCodeValue, final int lastCodeValue) {
+		sort(unicodeCharacterList); //make sure the list is sorted
+		cacheLock.lock();
+		try {
 			final Set<Integer> unassignedCodeSet = getUnassignedCodeSet(); //get the set of unassigned codes
 			int nextCodeValue = firstCodeValue; //show that we expect the first code value first
 			for(final UnicodeCharacter unicodeCharacter : unicodeCharacterList) { //for each of the Unicode characters loaded
@@ -218,7 +363,9 @@ protected static List<UnicodeCharacter> load(final int firstCodeValue, final int
 			for(int codeValue = nextCodeValue; codeValue <= lastCodeValue; ++codeValue) { //for all the unavailable code values (i.e. the unassigned code points) at the end of the list
 				unassignedCodeSet.add(Integer.valueOf(codeValue)); //add the skipped code value to the set of unassigned code points
 			}
-			return unicodeCharacterList; //return the list of Unicode characters we loaded
+			UnicodeMemory.charactersCached(unicodeCharacterList); //pin the characters if needed
+		} finally {
+			cacheLock.unlock();
 		}
 	}
 
@@ -245,8 +392,21 @@ public static List<UnicodeCharacter> parse(final Reader reader) throws IOExcepti
 	 * @see UnicodeConstants
 	 */
 	public static List<UnicodeCharacter> parse(final Reader reader, final int firstCodeValue, final int lastCodeValue) throws IOException { //TODO as some characters aren't described in the file, put dummy characters in the map so that they won't be reloaded every time just because they are missing
+		return parseLines(new LineNumberReader(reader), firstCodeValue, lastCodeValue); //create a reader to allow us to read the file line by line
+	}
+
+	/**
+	 * Parses a line number reader which contains Unicode data, and creates and returns a list of Unicode characters. When parsing finishes, the reader's line
+	 * number indicates how many lines were scanned.
+	 * @param lineNumberReader The reader which contains the data in the Unicode data format.
+	 * @param firstCodeValue The first code point for which to return a character.
+	 * @param lastCodeValue The last code point, inclusive, for which to return a character.
+	 * @return A list of Unicode character objects.
+	 * @throws IOException Thrown if there was an error parsing the Unicode data.
+	 */
+	protected static List<UnicodeCharacter> parseLines(final LineNumberReader lineNumberReader, final int firstCodeValue, final int lastCodeValue)
+			throws IOException {
 		final List<UnicodeCharacter> unidataList = new ArrayList<UnicodeCharacter>(); //create a list so that we can pass back the Unicode characters
-		final LineNumberReader lineNumberReader = new LineNumberReader(reader); //create a reader to allow us to read the file line by line
 		try {
 			String unidataLine = lineNumberReader.readLine(); //read the first line of text
 			while(unidataLine != null) { //while there are more lines left
@@ -270,7 +430,8 @@ public static List<UnicodeCharacter> parse(final Reader reader, final int firstC
 	}
 
 	/**
-	 * Parses a line in a Unicode data file and constructs and returns a Unicode character object.
+	 * Parses a line in a Unicode data file and constructs and returns a Unicode character object. The returned character is immutable and shares its common
+	 * properties with other characters through an interned {@link UnicodePropertySet}.
 	 * @param unidataLine The line of text to parse.
 	 * @return The Unicode character object that represents the character the information for which was contained in the line.
 	 * @throws IOException Thrown if there was an error parsing the Unicode data.
@@ -278,7 +439,7 @@ public static List<UnicodeCharacter> parse(final Reader reader, final int firstC
 	protected static UnicodeCharacter parseLine(String unidataLine) throws IOException {
 		//TODO del		UnicodeCharacter unicodeCharacter=null;	//we'll create this when we find the code value
 		unidataLine += FIELD_DELIMITER; //since the Unicode data file doesn't have an ending delimiter, add one so that StringTokenizer will recognize the last field
-		final UnicodeCharacter unicodeCharacter = new UnicodeCharacter(); //create a new Unicode character that will hold the data we parse from this line
+		final UnicodeCharacter.Builder unicodeCharacterBuilder = new UnicodeCharacter.Builder(0); //create a builder that will hold the data we parse from this line
 		final StringTokenizer fieldTokenizer = new StringTokenizer(unidataLine, String.valueOf(FIELD_DELIMITER), true); //create an object to tokenize the line of Unicode data, and return the delimiters as well (because otherwise two consecutive delimiters will be skipped)
 		int fieldIndex = 0; //show which field we are processing
 		boolean expectingToken = true; //show that we're expecting a token first of all
@@ -299,19 +460,19 @@ protected static UnicodeCharacter parseLine(String unidataLine) throws IOExcepti
 				//TODO del System.out.println("Field "+fieldIndex+": \""+fieldValue+"\".");	//TODO del
 				switch(fieldIndex) { //see which field this is
 					case FIELD_CODE_VALUE:
-						unicodeCharacter.setCodeValue(Integer.parseInt(fieldValue, 16)); //decode the hexadecimal code value
+						unicodeCharacterBuilder.setCodeValue(Integer.parseInt(fieldValue, 16)); //decode the hexadecimal code value
 						break;
 					case FIELD_CHARACTER_NAME:
-						unicodeCharacter.setCharacterName(fieldValue); //store the character name
+						unicodeCharacterBuilder.setCharacterName(fieldValue); //store the character name
 						break;
 					case FIELD_GENERAL_CATEGORY:
-						unicodeCharacter.setGeneralCategory(fieldValue); //store the general category
+						unicodeCharacterBuilder.setGeneralCategory(fieldValue); //store the general category
 						break;
 					case FIELD_CANONICAL_COMBINING_CLASS:
-						unicodeCharacter.setCanonicalCombiningClass(Integer.parseInt(fieldValue)); //store the canonical combining class
+						unicodeCharacterBuilder.setCanonicalCombiningClass(Integer.parseInt(fieldValue)); //store the canonical combining class
 						break;
 					case FIELD_BIDIRECTIONAL_CATEGORY:
-						unicodeCharacter.setBidirectionalCategory(fieldValue); //store the bidirectional category
+						unicodeCharacterBuilder.setBidirectionalCategory(fieldValue); //store the bidirectional category
 						break;
 					case FIELD_CHARACTER_DECOMPOSITION_MAPPINGS: {
 						final StringBuilder mappingsBuilder = new StringBuilder(); //create a buffer to hold our mappings
@@ -320,59 +481,59 @@ protected static UnicodeCharacter parseLine(String unidataLine) throws IOExcepti
 							final String characterDecompositionToken = mappingTokenizer.nextToken(); //get the next character decomposition token
 							//TODO del System.out.println("  Character decomposition token: \""+characterDecompositionToken+"\".");	//TODO del
 							if(characterDecompositionToken.charAt(0) == CHARACTER_DECOMPOSITION_TAG_BEGIN) { //if this is the beginning of a character decomposition tag
-								if(unicodeCharacter.getCharacterDecompositionTag().length() > 0) //if we've already found a formatting tag
+								if(unicodeCharacterBuilder.getCharacterDecompositionTag().length() > 0) //if we've already found a formatting tag
 									throw new IOException("Multiple character decomposition formatting tags present."); //show that we don't recognize multiple formatting tags
 								else
 									//if this is the first formatting tag we've found
-									unicodeCharacter.setCharacterDecompositionTag(characterDecompositionToken); //set the character's tag
+									unicodeCharacterBuilder.setCharacterDecompositionTag(characterDecompositionToken); //set the character's tag
 							} else
 								//if this is another mapping in the decomposition
-								mappingsBuilder.append((char)Integer.parseInt(characterDecompositionToken, 16)); //convert the mapping from a hex string to an integer, cast it to a char, and add it to our list of decomposition mappings
+								mappingsBuilder.appendCodePoint(Integer.parseInt(characterDecompositionToken, 16)); //convert the mapping from a hex string to a code point and add it to our list of decomposition mappings
 						}
-						unicodeCharacter.setCharacterDecompositionMappings(mappingsBuilder.toString()); //convert the mappings to a string and store it in our Unicode character object
+						unicodeCharacterBuilder.setCharacterDecompositionMappings(mappingsBuilder.toString()); //convert the mappings to a string and store it in our Unicode character object
 					}
 						break;
 					case FIELD_DECIMAL_DIGIT_VALUE:
 						if(fieldValue.length() > 0) //if there is a field value
-							unicodeCharacter.setDecimalDigitValue(Integer.parseInt(fieldValue)); //get its integer value
+							unicodeCharacterBuilder.setDecimalDigitValue(Integer.parseInt(fieldValue)); //get its integer value
 						break;
 					case FIELD_DIGIT_VALUE:
 						if(fieldValue.length() > 0) //if there is a field value
-							unicodeCharacter.setDigitValue(Integer.parseInt(fieldValue)); //get its integer value
+							unicodeCharacterBuilder.setDigitValue(Integer.parseInt(fieldValue)); //get its integer value
 						break;
 					case FIELD_NUMERIC_VALUE:
 						if(fieldValue.length() > 0) { //if there is a field value
 							final int fractionDividerIndex = fieldValue.indexOf(FRACTION_DIVIDER); //see where the fraction divider is, if there is one
 							if(fractionDividerIndex != -1) { //if this is a fraction
-								unicodeCharacter.setNumericValueNumerator(Integer.parseInt(fieldValue.substring(0, fractionDividerIndex))); //get the float value of the numerator
-								unicodeCharacter.setNumericValueDenominator(Integer.parseInt(fieldValue.substring(fractionDividerIndex + 1))); //get the integer value of the denominator
+								unicodeCharacterBuilder.setNumericValueNumerator(Integer.parseInt(fieldValue.substring(0, fractionDividerIndex))); //get the float value of the numerator
+								unicodeCharacterBuilder.setNumericValueDenominator(Integer.parseInt(fieldValue.substring(fractionDividerIndex + 1))); //get the integer value of the denominator
 							} else
 								//if this is not a fraction
-								unicodeCharacter.setNumericValue(Integer.parseInt(fieldValue)); //get its float value
+								unicodeCharacterBuilder.setNumericValue(Integer.parseInt(fieldValue)); //get its float value
 						}
 						break;
 					case FIELD_MIRRORED:
-						unicodeCharacter.setMirrored(fieldValue.equals(MIRRORED_YES)); //see if the field specifies mirrored
+						unicodeCharacterBuilder.setMirrored(fieldValue.equals(MIRRORED_YES)); //see if the field specifies mirrored
 						break;
 					case FIELD_UNICODE10_NAME:
 						if(fieldValue.length() > 0) //if there is a field value
-							unicodeCharacter.setUnicode10Name(fieldValue); //set the Unicode 1.0 name
+							unicodeCharacterBuilder.setUnicode10Name(fieldValue); //set the Unicode 1.0 name
 						break;
 					case FIELD_10646_COMMENT_FIELD:
 						if(fieldValue.length() > 0) //if there is a field value
-							unicodeCharacter.setISO10646Comment(fieldValue); //set the ISO 10646 comment
+							unicodeCharacterBuilder.setISO10646Comment(fieldValue); //set the ISO 10646 comment
 						break;
 					case FIELD_UPPERCASE_MAPPING:
 						if(fieldValue.length() > 0) //if there is a field value
-							unicodeCharacter.setUppercaseMapping((char)Integer.parseInt(fieldValue, 16)); //convert the mapping from a hex string to an integer, and cast it to a char
+							unicodeCharacterBuilder.setUppercaseMapping((char)Integer.parseInt(fieldValue, 16)); //convert the mapping from a hex string to an integer, and cast it to a char
 						break;
 					case FIELD_LOWERCASE_MAPPING:
 						if(fieldValue.length() > 0) //if there is a field value
-							unicodeCharacter.setLowercaseMapping((char)Integer.parseInt(fieldValue, 16)); //convert the mapping from a hex string to an integer, and cast it to a char
+							unicodeCharacterBuilder.setLowercaseMapping((char)Integer.parseInt(fieldValue, 16)); //convert the mapping from a hex string to an integer, and cast it to a char
 						break;
 					case FIELD_TITLECASE_MAPPING:
 						if(fieldValue.length() > 0) //if there is a field value
-							unicodeCharacter.setTitlecaseMapping((char)Integer.parseInt(fieldValue, 16)); //convert the mapping from a hex string to an integer, and cast it to a char
+							unicodeCharacterBuilder.setTitlecaseMapping((char)Integer.parseInt(fieldValue, 16)); //convert the mapping from a hex string to an integer, and cast it to a char
 						break;
 					default:
 						throw new IOException("Unrecognized field: " + fieldIndex); //show that we don't recognize this field
@@ -384,77 +545,19 @@ protected static UnicodeCharacter parseLine(String unidataLine) throws IOExcepti
 		}
 		if(fieldIndex <= MAX_FIELD) //if this line didn't have enough fields
 			throw new IOException("Missing fields; trying to process field " + fieldIndex + "."); //show that there weren't enough fields on this line
-		return unicodeCharacter; //return the character we constructed
+		return unicodeCharacterBuilder.build(); //build an immutable character from the data we parsed
 	}
 
-	/**
-	 * Converts a value into a four-digit hex string.
-	 * @param value The value to convert.
-	 * @return four-digit hex version of the given value
-	 */
-	/*TODO del when works
-		public static String convertValueToFourDigitHexString(final int value) {	//TODO move this to UnicodeUtilities or something
-			final String hexString="0000"+Integer.toHexString(value).toUpperCase();	//create a hex string in uppercase with leading zeros
-			return hexString.substring(hexString.length()-4);	//return only the last four digits
-		}
-	*/
-
 	/**
 	 * Converts the Unicode character into a string with the same format as that in the Unicode data file.
 	 * @param unicodeCharacter The character to convert to a string.
 	 * @return A Unicode data representation of the Unicode character.
+	 * @see UnicodeDataWriter
 	 */
 	public static String toUnicodeDataLine(final UnicodeCharacter unicodeCharacter) {
-		final StringBuilder stringBuilder = new StringBuilder(); //create a string buffer
-		final int codeValue = unicodeCharacter.getCodeValue(); //get the code value
-		//append the code value, using six digits if needed
-		stringBuilder.append(Integers.toHexString(codeValue, codeValue <= 0xFFFF ? 4 : 6).toUpperCase());
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		stringBuilder.append(unicodeCharacter.getCharacterName()); //append the character name
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		stringBuilder.append(unicodeCharacter.getGeneralCategory()); //append the general category
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		stringBuilder.append(unicodeCharacter.getCanonicalCombiningClass()); //append the canonical combining class
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		stringBuilder.append(unicodeCharacter.getBidirectionalCategory()); //append the bidirectional category
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		if(unicodeCharacter.getCharacterDecompositionTag().length() > 0) //if there is a decomposition tag
-			stringBuilder.append(unicodeCharacter.getCharacterDecompositionTag() + MAPPING_DELIMITER); //append the decomposition tag
-		for(int i = 0; i < unicodeCharacter.getCharacterDecompositionMappings().length(); ++i) { //look at each of the decomposition mappings
-			stringBuilder.append(Integers.toHexString(unicodeCharacter.getCharacterDecompositionMappings().charAt(i), 4).toUpperCase()); //append the hex code for this decomposition mapping
-			if(i < unicodeCharacter.getCharacterDecompositionMappings().length() - 1) //if this isn't the last mapping
-				stringBuilder.append(MAPPING_DELIMITER); //append the decomposition tag mapping delimiter to separate the mappings
-		}
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		if(unicodeCharacter.getDecimalDigitValue() != -1) //if there is a decimal digit value
-			stringBuilder.append(unicodeCharacter.getDecimalDigitValue()); //append the decimal digit value
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		if(unicodeCharacter.getDigitValue() != -1) //if there is a digit value
-			stringBuilder.append(unicodeCharacter.getDigitValue()); //append the digit value
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		if(unicodeCharacter.getNumericValue() != -1) { //if there is a numeric value
-			if(unicodeCharacter.isNumericValueFraction()) //if the numeric value is a fraction
-				stringBuilder.append(Integer.toString(unicodeCharacter.getNumericValueNumerator()) + FRACTION_DIVIDER + unicodeCharacter.getNumericValueDenominator()); //append the fraction form of the numeric value
-			else
-				//if the numeric value is not a fraction
-				stringBuilder.append(Integer.toString(unicodeCharacter.getNumericValueNumerator())); //append the numeric value
-		}
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		stringBuilder.append(unicodeCharacter.isMirrored() ? MIRRORED_YES : MIRRORED_NO); //append the mirrored status
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		stringBuilder.append(unicodeCharacter.getUnicode10Name()); //append the Unicode 1.0 name, if present
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		stringBuilder.append(unicodeCharacter.getISO10646Comment()); //append the ISO 10646 comment, if present
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		if(unicodeCharacter.getUppercaseMapping() != 0) //if there is an uppercase mapping
-			stringBuilder.append(Integers.toHexString(unicodeCharacter.getUppercaseMapping(), 4).toUpperCase()); //append the uppercase mapping
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		if(unicodeCharacter.getLowercaseMapping() != 0) //if there is an lowercase mapping
-			stringBuilder.append(Integers.toHexString(unicodeCharacter.getLowercaseMapping(), 4).toUpperCase()); //append the lowercase mapping
-		stringBuilder.append(FIELD_DELIMITER); //separate the fields
-		if(unicodeCharacter.getTitlecaseMapping() != 0) //if there is an titlecase mapping
-			stringBuilder.append(Integers.toHexString(unicodeCharacter.getTitlecaseMapping(), 4).toUpperCase()); //append the titlecase mapping
-		return stringBuilder.toString(); //convert the buffer to a string and return it
+		final UnicodeDataWriter unicodeDataWriter = new UnicodeDataWriter(new StringBuilder()); //the writer's line buffer will hold the formatted line
+		unicodeDataWriter.formatLine(unicodeCharacter); //format the line without a line terminator
+		return unicodeDataWriter.getLine(); //return the formatted line
 	}
 
 }
\ No newline at end of file
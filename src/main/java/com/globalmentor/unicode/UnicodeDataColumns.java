@@ -0,0 +1,642 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.io.*;
+import java.util.*;
+
+import static com.globalmentor.unicode.UnicodeData.*;
+
+/**
+ * A columnar store of selected properties from Unicode data, holding each property in its own compact array rather than in {@link UnicodeCharacter} instances.
+ * <p>
+ * The caller declares the columns needed when loading. Only the fields of those columns are parsed and kept; the remaining fields of each line are skipped
+ * without creating any strings. Every store contains the code values of the entries, which are always parsed. Values are looked up by code point using a
+ * binary search of the entries. A code point within a range designated by <code>&lt;..., First&gt;</code> and <code>&lt;..., Last&gt;</code> entries has the
+ * values of the first entry of the range.
+ * </p>
+ * <p>
+ * Requesting a value from a column that was not loaded results in an {@link IllegalStateException}. A store is immutable and may be shared among threads.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodeDataColumns {
+
+	/**
+	 * A column of Unicode data that may be loaded.
+	 * @author Garret Wilson
+	 */
+	public enum Column {
+		/** The character name, stored in a single shared character pool. */
+		CHARACTER_NAME(FIELD_CHARACTER_NAME),
+		/** The general category, stored as a general category index. */
+		GENERAL_CATEGORY(FIELD_GENERAL_CATEGORY),
+		/** The canonical combining class, stored as an unsigned byte. */
+		CANONICAL_COMBINING_CLASS(FIELD_CANONICAL_COMBINING_CLASS),
+		/** The bidirectional category, stored as an index into the bidirectional categories found. */
+		BIDIRECTIONAL_CATEGORY(FIELD_BIDIRECTIONAL_CATEGORY),
+		/** The decimal digit value, stored as a byte. */
+		DECIMAL_DIGIT_VALUE(FIELD_DECIMAL_DIGIT_VALUE),
+		/** Whether the character is mirrored, stored as a bit. */
+		MIRRORED(FIELD_MIRRORED),
+		/** The simple uppercase mapping, stored as a code point. */
+		UPPERCASE_MAPPING(FIELD_UPPERCASE_MAPPING),
+		/** The simple lowercase mapping, stored as a code point. */
+		LOWERCASE_MAPPING(FIELD_LOWERCASE_MAPPING),
+		/** The simple titlecase mapping, stored as a code point. */
+		TITLECASE_MAPPING(FIELD_TITLECASE_MAPPING);
+
+		/** The index of the field in a line of Unicode data. */
+		private final int field;
+
+		/** @return The index of the field in a line of Unicode data, such as {@link UnicodeData#FIELD_GENERAL_CATEGORY}. */
+		public int getField() {
+			return field;
+		}
+
+		/**
+		 * Field constructor.
+		 * @param field The index of the field in a line of Unicode data.
+		 */
+		private Column(final int field) {
+			this.field = field;
+		}
+	}
+
+	/**
+	 * Loads the given columns from the Unicode data resource text file.
+	 * @param columns The columns to load.
+	 * @return A new store of the given columns.
+	 */
+	public static UnicodeDataColumns load(final Column... columns) {
+		return load(columns.length > 0 ? EnumSet.copyOf(Arrays.asList(columns)) : EnumSet.noneOf(Column.class));
+	}
+
+	/**
+	 * Loads the given columns from the Unicode data resource text file.
+	 * @param columns The columns to load.
+	 * @return A new store of the given columns.
+	 */
+	public static UnicodeDataColumns load(final Set<Column> columns) {
+		final char[] unicodeDataChars = getUnicodeDataChars();
+		try {
+			return new UnicodeDataColumns(unicodeDataChars, columns);
+		} catch(final IOException ioException) { //we don't expect errors parsing the data file, as it's a local resource
+			throw new AssertionError(ioException);
+		}
+	}
+
+	/**
+	 * Loads the given columns from Unicode data in a reader. The reader is not closed.
+	 * @param reader The reader which contains the data in the Unicode data format.
+	 * @param columns The columns to load.
+	 * @return A new store of the given columns.
+	 * @throws IOException if there was an error reading or parsing the Unicode data.
+	 */
+	public static UnicodeDataColumns load(final Reader reader, final Set<Column> columns) throws IOException {
+		return new UnicodeDataColumns(UnicodeDataSpliterator.read(reader), columns);
+	}
+
+	/** The columns loaded. */
+	private final Set<Column> columns;
+
+	/** @return The unmodifiable set of columns loaded. */
+	public Set<Column> getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Determines whether a column was loaded.
+	 * @param column The column.
+	 * @return <code>true</code> if values of the column are available.
+	 */
+	public boolean hasColumn(final Column column) {
+		return columns.contains(column);
+	}
+
+	/** The number of entries. */
+	private final int entryCount;
+
+	/** @return The number of entries, which is the number of lines of Unicode data. */
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	/** The code values of the entries, in increasing order. */
+	private final int[] codePoints;
+
+	/** The entries that begin a range of code points. */
+	private final BitSet rangeFirstEntries;
+
+	/** The concatenated character names, or <code>null</code> if not loaded. */
+	private final char[] namePool;
+
+	/** The offsets of each name in the name pool, with an extra element holding the end of the last name; or <code>null</code> if not loaded. */
+	private final int[] nameOffsets;
+
+	/** The general category indexes, or <code>null</code> if not loaded. */
+	private final byte[] generalCategoryIndexes;
+
+	/** The canonical combining classes, or <code>null</code> if not loaded. */
+	private final byte[] canonicalCombiningClasses;
+
+	/** The distinct bidirectional categories, in order of appearance, or <code>null</code> if not loaded. */
+	private final String[] bidirectionalCategories;
+
+	/** The indexes of the bidirectional categories, or <code>null</code> if not loaded. */
+	private final byte[] bidirectionalCategoryIndexes;
+
+	/** The decimal digit values, <code>-1</code> for none, or <code>null</code> if not loaded. */
+	private final byte[] decimalDigitValues;
+
+	/** The entries which are mirrored, or <code>null</code> if not loaded. */
+	private final BitSet mirroredEntries;
+
+	/** The uppercase mappings, or <code>null</code> if not loaded. */
+	private final int[] uppercaseMappings;
+
+	/** The lowercase mappings, or <code>null</code> if not loaded. */
+	private final int[] lowercaseMappings;
+
+	/** The titlecase mappings, or <code>null</code> if not loaded. */
+	private final int[] titlecaseMappings;
+
+	/**
+	 * Parses the given columns from Unicode data.
+	 * @param data The Unicode data.
+	 * @param columns The columns to load.
+	 * @throws IOException if there was an error parsing the Unicode data.
+	 */
+	private UnicodeDataColumns(final char[] data, final Set<Column> columns) throws IOException {
+		this.columns = Collections.unmodifiableSet(columns.isEmpty() ? EnumSet.noneOf(Column.class) : EnumSet.copyOf(columns));
+		int capacity = 1;
+		for(final char c : data) { //there can be no more entries than lines
+			if(c == '\n') {
+				++capacity;
+			}
+		}
+		int maxField = FIELD_CHARACTER_NAME; //we always need the name to recognize ranges
+		for(final Column column : columns) {
+			maxField = Math.max(maxField, column.getField());
+		}
+		final boolean hasNames = columns.contains(Column.CHARACTER_NAME);
+		int[] codePoints = new int[capacity];
+		final BitSet rangeFirstEntries = new BitSet();
+		final StringBuilder namePool = hasNames ? new StringBuilder() : null;
+		int[] nameOffsets = hasNames ? new int[capacity + 1] : null;
+		byte[] generalCategoryIndexes = columns.contains(Column.GENERAL_CATEGORY) ? new byte[capacity] : null;
+		byte[] canonicalCombiningClasses = columns.contains(Column.CANONICAL_COMBINING_CLASS) ? new byte[capacity] : null;
+		final List<String> bidirectionalCategories = columns.contains(Column.BIDIRECTIONAL_CATEGORY) ? new ArrayList<String>() : null;
+		byte[] bidirectionalCategoryIndexes = bidirectionalCategories != null ? new byte[capacity] : null;
+		byte[] decimalDigitValues = columns.contains(Column.DECIMAL_DIGIT_VALUE) ? new byte[capacity] : null;
+		final BitSet mirroredEntries = columns.contains(Column.MIRRORED) ? new BitSet() : null;
+		int[] uppercaseMappings = columns.contains(Column.UPPERCASE_MAPPING) ? new int[capacity] : null;
+		int[] lowercaseMappings = columns.contains(Column.LOWERCASE_MAPPING) ? new int[capacity] : null;
+		int[] titlecaseMappings = columns.contains(Column.TITLECASE_MAPPING) ? new int[capacity] : null;
+		int entry = 0;
+		int lineNumber = 0;
+		int index = 0;
+		while(index < data.length) {
+			++lineNumber;
+			final int lineStart = index;
+			int lineEnd = lineStart;
+			while(lineEnd < data.length && data[lineEnd] != '\n') {
+				++lineEnd;
+			}
+			index = lineEnd + 1; //skip the line feed
+			if(lineEnd > lineStart && data[lineEnd - 1] == '\r') { //ignore any carriage return
+				--lineEnd;
+			}
+			if(lineEnd == lineStart) { //skip blank lines
+				continue;
+			}
+			int field = FIELD_CODE_VALUE;
+			int fieldStart = lineStart;
+			try {
+				while(true) {
+					int fieldEnd = fieldStart;
+					while(fieldEnd < lineEnd && data[fieldEnd] != FIELD_DELIMITER) {
+						++fieldEnd;
+					}
+					switch(field) { //parse only the fields we need, in place
+						case FIELD_CODE_VALUE:
+							codePoints[entry] = parseHex(data, fieldStart, fieldEnd);
+							if(entry > 0 && codePoints[entry] <= codePoints[entry - 1]) {
+								throw new IOException("Code value not in increasing order.");
+							}
+							break;
+						case FIELD_CHARACTER_NAME:
+							if(endsWith(data, fieldStart, fieldEnd, CodePointByteTable.RANGE_FIRST_NAME_SUFFIX)) {
+								rangeFirstEntries.set(entry);
+							}
+							if(namePool != null) {
+								nameOffsets[entry] = namePool.length();
+								namePool.append(data, fieldStart, fieldEnd - fieldStart);
+							}
+							break;
+						case FIELD_GENERAL_CATEGORY:
+							if(generalCategoryIndexes != null) {
+								final int generalCategoryIndex = GeneralCategories.indexOf(data, fieldStart, fieldEnd);
+								if(generalCategoryIndex < 0) {
+									throw new IOException("Unrecognized general category: " + new String(data, fieldStart, fieldEnd - fieldStart));
+								}
+								generalCategoryIndexes[entry] = (byte)generalCategoryIndex;
+							}
+							break;
+						case FIELD_CANONICAL_COMBINING_CLASS:
+							if(canonicalCombiningClasses != null) {
+								canonicalCombiningClasses[entry] = (byte)parseDecimal(data, fieldStart, fieldEnd, 0xFF);
+							}
+							break;
+						case FIELD_BIDIRECTIONAL_CATEGORY:
+							if(bidirectionalCategories != null) {
+								int bidirectionalCategoryIndex = indexOf(bidirectionalCategories, data, fieldStart, fieldEnd);
+								if(bidirectionalCategoryIndex < 0) { //add each new bidirectional category to the dictionary
+									bidirectionalCategoryIndex = bidirectionalCategories.size();
+									if(bidirectionalCategoryIndex > Byte.MAX_VALUE) {
+										throw new IOException("Too many bidirectional categories.");
+									}
+									bidirectionalCategories.add(new String(data, fieldStart, fieldEnd - fieldStart));
+								}
+								bidirectionalCategoryIndexes[entry] = (byte)bidirectionalCategoryIndex;
+							}
+							break;
+						case FIELD_DECIMAL_DIGIT_VALUE:
+							if(decimalDigitValues != null) {
+								decimalDigitValues[entry] = (byte)(fieldEnd > fieldStart ? parseDecimal(data, fieldStart, fieldEnd, 9) : -1);
+							}
+							break;
+						case FIELD_MIRRORED:
+							if(mirroredEntries != null && fieldEnd - fieldStart == MIRRORED_YES.length()
+									&& endsWith(data, fieldStart, fieldEnd, MIRRORED_YES)) {
+								mirroredEntries.set(entry);
+							}
+							break;
+						case FIELD_UPPERCASE_MAPPING:
+							if(uppercaseMappings != null && fieldEnd > fieldStart) {
+								uppercaseMappings[entry] = parseHex(data, fieldStart, fieldEnd);
+							}
+							break;
+						case FIELD_LOWERCASE_MAPPING:
+							if(lowercaseMappings != null && fieldEnd > fieldStart) {
+								lowercaseMappings[entry] = parseHex(data, fieldStart, fieldEnd);
+							}
+							break;
+						case FIELD_TITLECASE_MAPPING:
+							if(titlecaseMappings != null && fieldEnd > fieldStart) {
+								titlecaseMappings[entry] = parseHex(data, fieldStart, fieldEnd);
+							}
+							break;
+						default: //skip fields we don't need
+							break;
+					}
+					if(field == maxField) { //ignore the rest of the line once we have what we need
+						break;
+					}
+					if(fieldEnd == lineEnd) {
+						throw new IOException("Missing fields; trying to process field " + (field + 1) + ".");
+					}
+					fieldStart = fieldEnd + 1; //skip the delimiter
+					++field;
+				}
+			} catch(final IOException ioException) {
+				throw (IOException)new IOException("Error parsing line " + lineNumber + ", field " + field + ": " + ioException.getMessage())
+						.initCause(ioException);
+			}
+			++entry;
+		}
+		entryCount = entry;
+		this.codePoints = Arrays.copyOf(codePoints, entry); //trim the arrays to the entries actually found
+		this.rangeFirstEntries = rangeFirstEntries;
+		if(namePool != null) {
+			nameOffsets[entry] = namePool.length();
+			this.namePool = namePool.toString().toCharArray();
+			this.nameOffsets = Arrays.copyOf(nameOffsets, entry + 1);
+		} else {
+			this.namePool = null;
+			this.nameOffsets = null;
+		}
+		this.generalCategoryIndexes = generalCategoryIndexes != null ? Arrays.copyOf(generalCategoryIndexes, entry) : null;
+		this.canonicalCombiningClasses = canonicalCombiningClasses != null ? Arrays.copyOf(canonicalCombiningClasses, entry) : null;
+		this.bidirectionalCategories = bidirectionalCategories != null ? bidirectionalCategories.toArray(new String[bidirectionalCategories.size()]) : null;
+		this.bidirectionalCategoryIndexes = bidirectionalCategoryIndexes != null ? Arrays.copyOf(bidirectionalCategoryIndexes, entry) : null;
+		this.decimalDigitValues = decimalDigitValues != null ? Arrays.copyOf(decimalDigitValues, entry) : null;
+		this.mirroredEntries = mirroredEntries;
+		this.uppercaseMappings = uppercaseMappings != null ? Arrays.copyOf(uppercaseMappings, entry) : null;
+		this.lowercaseMappings = lowercaseMappings != null ? Arrays.copyOf(lowercaseMappings, entry) : null;
+		this.titlecaseMappings = titlecaseMappings != null ? Arrays.copyOf(titlecaseMappings, entry) : null;
+	}
+
+	/**
+	 * Parses a hexadecimal value in place.
+	 * @param data The data.
+	 * @param start The start of the value.
+	 * @param end The end of the value.
+	 * @return The value, which is a valid code point.
+	 * @throws IOException if the value is empty, is not hexadecimal, or is not a valid code point.
+	 */
+	private static int parseHex(final char[] data, final int start, final int end) throws IOException {
+		if(start == end) {
+			throw new IOException("Missing code value.");
+		}
+		int value = 0;
+		for(int i = start; i < end; ++i) {
+			final int digit = Character.digit(data[i], 16);
+			if(digit < 0 || value > Character.MAX_CODE_POINT) {
+				throw new IOException("Invalid code value: " + new String(data, start, end - start));
+			}
+			value = (value << 4) | digit;
+		}
+		if(value > Character.MAX_CODE_POINT) {
+			throw new IOException("Invalid code value: " + new String(data, start, end - start));
+		}
+		return value;
+	}
+
+	/**
+	 * Parses a non-negative decimal value in place.
+	 * @param data The data.
+	 * @param start The start of the value.
+	 * @param end The end of the value.
+	 * @param maxValue The maximum value allowed.
+	 * @return The value.
+	 * @throws IOException if the value is empty, is not decimal, or is greater than the maximum value.
+	 */
+	private static int parseDecimal(final char[] data, final int start, final int end, final int maxValue) throws IOException {
+		if(start == end) {
+			throw new IOException("Missing decimal value.");
+		}
+		int value = 0;
+		for(int i = start; i < end; ++i) {
+			final int digit = Character.digit(data[i], 10);
+			if(digit < 0 || value > maxValue) {
+				throw new IOException("Invalid decimal value: " + new String(data, start, end - start));
+			}
+			value = value * 10 + digit;
+		}
+		if(value > maxValue) {
+			throw new IOException("Invalid decimal value: " + new String(data, start, end - start));
+		}
+		return value;
+	}
+
+	/**
+	 * Determines whether a range of data ends with a string.
+	 * @param data The data.
+	 * @param start The start of the range.
+	 * @param end The end of the range.
+	 * @param suffix The suffix to check.
+	 * @return <code>true</code> if the range ends with the suffix.
+	 */
+	private static boolean endsWith(final char[] data, final int start, final int end, final String suffix) {
+		final int length = suffix.length();
+		if(end - start < length) {
+			return false;
+		}
+		for(int i = 0; i < length; ++i) {
+			if(data[end - length + i] != suffix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds a range of data in a list of strings.
+	 * @param strings The strings to search.
+	 * @param data The data.
+	 * @param start The start of the range.
+	 * @param end The end of the range.
+	 * @return The index of the string equal to the range, or <code>-1</code> if there is no such string.
+	 */
+	private static int indexOf(final List<String> strings, final char[] data, final int start, final int end) {
+		for(int index = 0; index < strings.size(); ++index) {
+			final String string = strings.get(index);
+			if(string.length() == end - start && endsWith(data, start, end, string)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Ensures that a column was loaded.
+	 * @param column The column to check.
+	 * @throws IllegalStateException if the column was not loaded.
+	 */
+	private void checkColumn(final Column column) {
+		if(!columns.contains(column)) {
+			throw new IllegalStateException("Column not loaded: " + column);
+		}
+	}
+
+	/**
+	 * Returns the code value of an entry.
+	 * @param entry The index of the entry.
+	 * @return The code point of the entry.
+	 * @throws IndexOutOfBoundsException if the entry index is negative or not less than the number of entries.
+	 */
+	public int getCodePoint(final int entry) {
+		if(entry >= entryCount) {
+			throw new IndexOutOfBoundsException("Invalid entry: " + entry);
+		}
+		return codePoints[entry];
+	}
+
+	/**
+	 * Returns the entry holding the values of a code point.
+	 * @param codePoint The code point.
+	 * @return The index of the entry for the code point or for the range containing it, or <code>-1</code> if the code point is not present in the data.
+	 */
+	public int getEntry(final int codePoint) {
+		final int entry = Arrays.binarySearch(codePoints, codePoint);
+		if(entry >= 0) {
+			return entry;
+		}
+		final int previousEntry = -entry - 2; //the entry before the insertion point, which may begin a range; a range always ends with another entry
+		return previousEntry >= 0 && rangeFirstEntries.get(previousEntry) ? previousEntry : -1;
+	}
+
+	/**
+	 * Determines whether a code point is present in the data, either individually or within a range.
+	 * @param codePoint The code point.
+	 * @return <code>true</code> if the data has values for the code point.
+	 */
+	public boolean contains(final int codePoint) {
+		return getEntry(codePoint) >= 0;
+	}
+
+	/**
+	 * Returns the character name of a code point.
+	 * @param codePoint The code point.
+	 * @return The name of the code point, or <code>null</code> if the code point is not present. The code points of a range have the name of the first entry,
+	 *         such as <code>&lt;CJK Ideograph, First&gt;</code>.
+	 * @throws IllegalStateException if the {@link Column#CHARACTER_NAME} column was not loaded.
+	 */
+	public String getCharacterName(final int codePoint) {
+		checkColumn(Column.CHARACTER_NAME);
+		final int entry = getEntry(codePoint);
+		return entry >= 0 ? new String(namePool, nameOffsets[entry], nameOffsets[entry + 1] - nameOffsets[entry]) : null;
+	}
+
+	/**
+	 * Returns the general category index of a code point.
+	 * @param codePoint The code point.
+	 * @return The general category index of the code point, or <code>0</code>, the index of {@link UnicodeConstants#OTHER_NOT_ASSIGNED}, if the code point is
+	 *         not present.
+	 * @throws IllegalStateException if the {@link Column#GENERAL_CATEGORY} column was not loaded.
+	 * @see GeneralCategories
+	 */
+	public int getGeneralCategoryIndex(final int codePoint) {
+		checkColumn(Column.GENERAL_CATEGORY);
+		final int entry = getEntry(codePoint);
+		return entry >= 0 ? generalCategoryIndexes[entry] : 0;
+	}
+
+	/**
+	 * Returns the general category of a code point.
+	 * @param codePoint The code point.
+	 * @return The general category of the code point, which is {@link UnicodeConstants#OTHER_NOT_ASSIGNED} if the code point is not present.
+	 * @throws IllegalStateException if the {@link Column#GENERAL_CATEGORY} column was not loaded.
+	 */
+	public String getGeneralCategory(final int codePoint) {
+		return GeneralCategories.get(getGeneralCategoryIndex(codePoint));
+	}
+
+	/**
+	 * Returns the canonical combining class of a code point.
+	 * @param codePoint The code point.
+	 * @return The canonical combining class of the code point, or <code>0</code> if the code point is not present.
+	 * @throws IllegalStateException if the {@link Column#CANONICAL_COMBINING_CLASS} column was not loaded.
+	 */
+	public int getCanonicalCombiningClass(final int codePoint) {
+		checkColumn(Column.CANONICAL_COMBINING_CLASS);
+		final int entry = getEntry(codePoint);
+		return entry >= 0 ? canonicalCombiningClasses[entry] & 0xFF : 0;
+	}
+
+	/**
+	 * Returns the bidirectional category of a code point.
+	 * @param codePoint The code point.
+	 * @return The bidirectional category of the code point, or <code>null</code> if the code point is not present.
+	 * @throws IllegalStateException if the {@link Column#BIDIRECTIONAL_CATEGORY} column was not loaded.
+	 */
+	public String getBidirectionalCategory(final int codePoint) {
+		checkColumn(Column.BIDIRECTIONAL_CATEGORY);
+		final int entry = getEntry(codePoint);
+		return entry >= 0 ? bidirectionalCategories[bidirectionalCategoryIndexes[entry]] : null;
+	}
+
+	/**
+	 * Returns the decimal digit value of a code point.
+	 * @param codePoint The code point.
+	 * @return The decimal digit value of the code point, or <code>-1</code> if the code point has no decimal digit value or is not present.
+	 * @throws IllegalStateException if the {@link Column#DECIMAL_DIGIT_VALUE} column was not loaded.
+	 */
+	public int getDecimalDigitValue(final int codePoint) {
+		checkColumn(Column.DECIMAL_DIGIT_VALUE);
+		final int entry = getEntry(codePoint);
+		return entry >= 0 ? decimalDigitValues[entry] : -1;
+	}
+
+	/**
+	 * Determines whether a code point is mirrored.
+	 * @param codePoint The code point.
+	 * @return <code>true</code> if the code point is present and is mirrored.
+	 * @throws IllegalStateException if the {@link Column#MIRRORED} column was not loaded.
+	 */
+	public boolean isMirrored(final int codePoint) {
+		checkColumn(Column.MIRRORED);
+		final int entry = getEntry(codePoint);
+		return entry >= 0 && mirroredEntries.get(entry);
+	}
+
+	/**
+	 * Returns the simple uppercase mapping of a code point.
+	 * @param codePoint The code point.
+	 * @return The uppercase mapping of the code point, or <code>0</code> if the code point has no uppercase mapping or is not present.
+	 * @throws IllegalStateException if the {@link Column#UPPERCASE_MAPPING} column was not loaded.
+	 */
+	public int getUppercaseMapping(final int codePoint) {
+		checkColumn(Column.UPPERCASE_MAPPING);
+		final int entry = getEntry(codePoint);
+		return entry >= 0 ? uppercaseMappings[entry] : 0;
+	}
+
+	/**
+	 * Returns the simple lowercase mapping of a code point.
+	 * @param codePoint The code point.
+	 * @return The lowercase mapping of the code point, or <code>0</code> if the code point has no lowercase mapping or is not present.
+	 * @throws IllegalStateException if the {@link Column#LOWERCASE_MAPPING} column was not loaded.
+	 */
+	public int getLowercaseMapping(final int codePoint) {
+		checkColumn(Column.LOWERCASE_MAPPING);
+		final int entry = getEntry(codePoint);
+		return entry >= 0 ? lowercaseMappings[entry] : 0;
+	}
+
+	/**
+	 * Returns the simple titlecase mapping of a code point.
+	 * @param codePoint The code point.
+	 * @return The titlecase mapping of the code point, or <code>0</code> if the code point has no titlecase mapping or is not present.
+	 * @throws IllegalStateException if the {@link Column#TITLECASE_MAPPING} column was not loaded.
+	 */
+	public int getTitlecaseMapping(final int codePoint) {
+		checkColumn(Column.TITLECASE_MAPPING);
+		final int entry = getEntry(codePoint);
+		return entry >= 0 ? titlecaseMappings[entry] : 0;
+	}
+
+	/** @return The approximate number of bytes occupied by the column data. */
+	public long getSize() {
+		long size = (long)codePoints.length * Integer.BYTES + rangeFirstEntries.size() / Byte.SIZE;
+		if(namePool != null) {
+			size += (long)namePool.length * Character.BYTES + (long)nameOffsets.length * Integer.BYTES;
+		}
+		if(generalCategoryIndexes != null) {
+			size += generalCategoryIndexes.length;
+		}
+		if(canonicalCombiningClasses != null) {
+			size += canonicalCombiningClasses.length;
+		}
+		if(bidirectionalCategoryIndexes != null) {
+			size += bidirectionalCategoryIndexes.length;
+		}
+		if(decimalDigitValues != null) {
+			size += decimalDigitValues.length;
+		}
+		if(mirroredEntries != null) {
+			size += mirroredEntries.size() / Byte.SIZE;
+		}
+		if(uppercaseMappings != null) {
+			size += (long)uppercaseMappings.length * Integer.BYTES;
+		}
+		if(lowercaseMappings != null) {
+			size += (long)lowercaseMappings.length * Integer.BYTES;
+		}
+		if(titlecaseMappings != null) {
+			size += (long)titlecaseMappings.length * Integer.BYTES;
+		}
+		return size;
+	}
+
+	/** @return A string representation of this store in the form "UnicodeDataColumns[0 entries; COLUMN, ...]". */
+	public String toString() {
+		return getClass().getSimpleName() + '[' + entryCount + " entries; " + columns + ']';
+	}
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static com.globalmentor.unicode.UnicodeData.*;
+import static com.globalmentor.unicode.UnicodeDatabase.*;
+
+/**
+ * The structural differences between the characters of two Unicode databases: the code points added, the code points removed, and for each field of the
+ * Unicode data format the code points whose values changed.
+ * <p>
+ * Fields are identified by the field constants of {@link UnicodeData}, such as {@link UnicodeData#FIELD_GENERAL_CATEGORY}. The decomposition tag and
+ * decomposition mappings are both considered part of {@link UnicodeData#FIELD_CHARACTER_DECOMPOSITION_MAPPINGS}, and the numerator and denominator are both
+ * considered part of {@link UnicodeData#FIELD_NUMERIC_VALUE}.
+ * </p>
+ * <p>
+ * Comparison takes advantage of structure shared between databases: pages and characters that are the same instance in both databases are skipped without
+ * examining their properties.
+ * </p>
+ * @author Garret Wilson
+ * @see UnicodeDatabase#loadResources(String, ClassLoader, String, String, UnicodeDatabase)
+ */
+public class UnicodeDataDiff {
+
+	/**
+	 * Determines which fields differ between two characters. The code value is not compared.
+	 * @param character1 The first character.
+	 * @param character2 The second character.
+	 * @return A bit mask in which bit <var>n</var> is set if the field with index <var>n</var> differs.
+	 */
+	static int getDifferentFields(final UnicodeCharacter character1, final UnicodeCharacter character2) {
+		int fields = 0;
+		if(!Objects.equals(character1.getCharacterName(), character2.getCharacterName())) {
+			fields |= 1 << FIELD_CHARACTER_NAME;
+		}
+		if(!Objects.equals(character1.getGeneralCategory(), character2.getGeneralCategory())) {
+			fields |= 1 << FIELD_GENERAL_CATEGORY;
+		}
+		if(character1.getCanonicalCombiningClass() != character2.getCanonicalCombiningClass()) {
+			fields |= 1 << FIELD_CANONICAL_COMBINING_CLASS;
+		}
+		if(!Objects.equals(character1.getBidirectionalCategory(), character2.getBidirectionalCategory())) {
+			fields |= 1 << FIELD_BIDIRECTIONAL_CATEGORY;
+		}
+		if(!Objects.equals(character1.getCharacterDecompositionTag(), character2.getCharacterDecompositionTag())
+				|| !Objects.equals(character1.getCharacterDecompositionMappings(), character2.getCharacterDecompositionMappings())) {
+			fields |= 1 << FIELD_CHARACTER_DECOMPOSITION_MAPPINGS;
+		}
+		if(character1.getDecimalDigitValue() != character2.getDecimalDigitValue()) {
+			fields |= 1 << FIELD_DECIMAL_DIGIT_VALUE;
+		}
+		if(character1.getDigitValue() != character2.getDigitValue()) {
+			fields |= 1 << FIELD_DIGIT_VALUE;
+		}
+		if(character1.getNumericValueNumerator() != character2.getNumericValueNumerator()
+				|| character1.getNumericValueDenominator() != character2.getNumericValueDenominator()) {
+			fields |= 1 << FIELD_NUMERIC_VALUE;
+		}
+		if(character1.isMirrored() != character2.isMirrored()) {
+			fields |= 1 << FIELD_MIRRORED;
+		}
+		if(!Objects.equals(character1.getUnicode10Name(), character2.getUnicode10Name())) {
+			fields |= 1 << FIELD_UNICODE10_NAME;
+		}
+		if(!Objects.equals(character1.getISO10646Comment(), character2.getISO10646Comment())) {
+			fields |= 1 << FIELD_10646_COMMENT_FIELD;
+		}
+		if(character1.getUppercaseMapping() != character2.getUppercaseMapping()) {
+			fields |= 1 << FIELD_UPPERCASE_MAPPING;
+		}
+		if(character1.getLowercaseMapping() != character2.getLowercaseMapping()) {
+			fields |= 1 << FIELD_LOWERCASE_MAPPING;
+		}
+		if(character1.getTitlecaseMapping() != character2.getTitlecaseMapping()) {
+			fields |= 1 << FIELD_TITLECASE_MAPPING;
+		}
+		return fields;
+	}
+
+	/**
+	 * Compares the characters of two Unicode databases.
+	 * @param oldDatabase The original database, such as that of an earlier Unicode version.
+	 * @param newDatabase The database to compare with the original database.
+	 * @return The differences between the characters of the two databases.
+	 */
+	public static UnicodeDataDiff compare(final UnicodeDatabase oldDatabase, final UnicodeDatabase newDatabase) {
+		final IntStream.Builder addedCodePoints = IntStream.builder();
+		final IntStream.Builder removedCodePoints = IntStream.builder();
+		final IntStream.Builder[] changedCodePoints = new IntStream.Builder[MAX_FIELD + 1];
+		for(int field = 0; field <= MAX_FIELD; ++field) {
+			changedCodePoints[field] = IntStream.builder();
+		}
+		for(int pageIndex = 0; pageIndex < PAGE_COUNT; ++pageIndex) {
+			final UnicodeCharacter[] oldPage = oldDatabase.getPage(pageIndex);
+			final UnicodeCharacter[] newPage = newDatabase.getPage(pageIndex);
+			if(oldPage == newPage) { //shared or empty pages have no differences
+				continue;
+			}
+			final int pageStart = pageIndex << PAGE_SHIFT;
+			for(int i = 0; i < PAGE_SIZE; ++i) {
+				final UnicodeCharacter oldCharacter = oldPage != null ? oldPage[i] : null;
+				final UnicodeCharacter newCharacter = newPage != null ? newPage[i] : null;
+				if(oldCharacter == newCharacter) { //shared or missing characters have no differences
+					continue;
+				}
+				if(oldCharacter == null) {
+					addedCodePoints.add(pageStart + i);
+				} else if(newCharacter == null) {
+					removedCodePoints.add(pageStart + i);
+				} else {
+					int differentFields = getDifferentFields(oldCharacter, newCharacter);
+					while(differentFields != 0) {
+						final int field = Integer.numberOfTrailingZeros(differentFields);
+						changedCodePoints[field].add(pageStart + i);
+						differentFields &= differentFields - 1; //clear the lowest bit
+					}
+				}
+			}
+		}
+		final int[][] changedCodePointArrays = new int[MAX_FIELD + 1][];
+		for(int field = 0; field <= MAX_FIELD; ++field) {
+			changedCodePointArrays[field] = changedCodePoints[field].build().toArray();
+		}
+		return new UnicodeDataDiff(oldDatabase.getVersion(), newDatabase.getVersion(), addedCodePoints.build().toArray(), removedCodePoints.build().toArray(),
+				changedCodePointArrays);
+	}
+
+	/** The version of the original database. */
+	private final String oldVersion;
+
+	/** @return The version of the original database. */
+	public String getOldVersion() {
+		return oldVersion;
+	}
+
+	/** The version of the database compared with the original database. */
+	private final String newVersion;
+
+	/** @return The version of the database compared with the original database. */
+	public String getNewVersion() {
+		return newVersion;
+	}
+
+	/** The code points present only in the new database, in increasing order. */
+	private final int[] addedCodePoints;
+
+	/** @return The code points present only in the new database, in increasing order. */
+	public int[] getAddedCodePoints() {
+		return addedCodePoints.clone();
+	}
+
+	/** The code points present only in the original database, in increasing order. */
+	private final int[] removedCodePoints;
+
+	/** @return The code points present only in the original database, in increasing order. */
+	public int[] getRemovedCodePoints() {
+		return removedCodePoints.clone();
+	}
+
+	/** The code points present in both databases whose values changed, in increasing order, indexed by field. */
+	private final int[][] changedCodePoints;
+
+	/**
+	 * Returns the code points present in both databases for which the value of a field changed.
+	 * @param field The index of the field, such as {@link UnicodeData#FIELD_GENERAL_CATEGORY}.
+	 * @return The code points with a changed value for the field, in increasing order.
+	 * @throws IllegalArgumentException if the field is not a valid field index.
+	 */
+	public int[] getChangedCodePoints(final int field) {
+		if(field < 0 || field > MAX_FIELD) {
+			throw new IllegalArgumentException("Invalid field: " + field);
+		}
+		return changedCodePoints[field].clone();
+	}
+
+	/** @return The code points present in both databases for which any field changed, in increasing order. */
+	public int[] getChangedCodePoints() {
+		return Arrays.stream(changedCodePoints).flatMapToInt(Arrays::stream).sorted().distinct().toArray();
+	}
+
+	/** @return <code>true</code> if there are no differences between the characters of the two databases. */
+	public boolean isEmpty() {
+		if(addedCodePoints.length > 0 || removedCodePoints.length > 0) {
+			return false;
+		}
+		for(final int[] fieldCodePoints : changedCodePoints) {
+			if(fieldCodePoints.length > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Constructor.
+	 * @param oldVersion The version of the original database.
+	 * @param newVersion The version of the database compared with the original database.
+	 * @param addedCodePoints The code points present only in the new database, in increasing order.
+	 * @param removedCodePoints The code points present only in the original database, in increasing order.
+	 * @param changedCodePoints The code points present in both databases whose values changed, in increasing order, indexed by field.
+	 */
+	private UnicodeDataDiff(final String oldVersion, final String newVersion, final int[] addedCodePoints, final int[] removedCodePoints,
+			final int[][] changedCodePoints) {
+		this.oldVersion = oldVersion;
+		this.newVersion = newVersion;
+		this.addedCodePoints = addedCodePoints;
+		this.removedCodePoints = removedCodePoints;
+		this.changedCodePoints = changedCodePoints;
+	}
+
+	/** @return A summary of the differences in the form "0.0.0..0.0.0: +added -removed ~field:count ...". */
+	public String toString() {
+		final StringBuilder stringBuilder = new StringBuilder();
+		stringBuilder.append(getOldVersion()).append("..").append(getNewVersion()).append(": +").append(addedCodePoints.length).append(" -")
+				.append(removedCodePoints.length);
+		for(int field = 0; field <= MAX_FIELD; ++field) {
+			if(changedCodePoints[field].length > 0) {
+				stringBuilder.append(" ~").append(field).append(':').append(changedCodePoints[field].length);
+			}
+		}
+		return stringBuilder.toString();
+	}
+
+}
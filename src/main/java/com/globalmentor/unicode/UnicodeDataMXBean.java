@@ -0,0 +1,98 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+/**
+ * The management interface for the memory held by {@link UnicodeData}, {@link UnicodeBlocks}, and the loaded {@link UnicodeDatabase} instances, registered
+ * using {@link UnicodeMemory#registerMBean()}.
+ * <p>
+ * Every attribute is computed when read, and byte counts are estimates. The bundled and current databases are strongly reachable, and are neither released by
+ * {@link #trim()} nor affected by pinning. The tables derived from the databases, used by such classes as {@link DiacriticFolder} and
+ * {@link UnicodeSkeleton}, are counted by {@link #getDerivedTableCount()} but are not included in any byte count.
+ * </p>
+ * @author Garret Wilson
+ * @see UnicodeMemory
+ */
+public interface UnicodeDataMXBean {
+
+	/** @return The number of characters currently in the character cache. */
+	public int getCachedCharacterCount();
+
+	/** @return The number of character cache entries the characters of which have been reclaimed by the garbage collector. */
+	public int getClearedCharacterCount();
+
+	/** @return The estimated number of bytes retained by the character cache. */
+	public long getCharacterCacheEstimatedBytes();
+
+	/** @return The number of times a reclaimed character was loaded again. */
+	public long getCharacterCacheRebuildCount();
+
+	/** @return The number of code points known to be unassigned. */
+	public int getUnassignedCodePointCount();
+
+	/** @return The estimated number of bytes retained by the set of unassigned code points. */
+	public long getUnassignedSetEstimatedBytes();
+
+	/** @return The number of times the set of unassigned code points was recreated after being reclaimed. */
+	public long getUnassignedSetRebuildCount();
+
+	/** @return The number of Unicode blocks loaded, or <code>0</code> if the blocks are not resident. */
+	public int getBlockCount();
+
+	/** @return The number of blocks having at least one character in the character cache. */
+	public int getResidentBlockCount();
+
+	/** @return The estimated number of bytes retained by the Unicode blocks. */
+	public long getBlocksEstimatedBytes();
+
+	/** @return The number of times the Unicode blocks were loaded again after being reclaimed. */
+	public long getBlocksRebuildCount();
+
+	/** @return The estimated number of bytes retained by the unparsed Unicode data text. */
+	public long getDataTextEstimatedBytes();
+
+	/** @return The number of times the unparsed Unicode data text was read again after being reclaimed. */
+	public long getDataTextRebuildCount();
+
+	/** @return The number of character records in the bundled and current databases, counting records shared between them once. */
+	public int getDatabaseCharacterCount();
+
+	/** @return The estimated number of bytes retained by the character records and pages of the bundled and current databases. */
+	public long getDatabasesEstimatedBytes();
+
+	/** @return The number of tables derived from the bundled and current databases, which are not included in any byte count. */
+	public int getDerivedTableCount();
+
+	/** @return The estimated number of bytes retained by all structures, including the databases but not the tables derived from them. */
+	public long getEstimatedBytes();
+
+	/** @return The number of times the structures have been explicitly trimmed. */
+	public long getTrimCount();
+
+	/** @return Whether the structures are pinned in memory. */
+	public boolean isPinned();
+
+	/** Releases all softly referenced structures so that they may be reclaimed; the databases and their derived tables are not released. */
+	public void trim();
+
+	/** Pins the resident structures, and those loaded in the future, so that they are not reclaimed. */
+	public void pin();
+
+	/** Releases pinned structures, allowing them to be reclaimed again. */
+	public void unpin();
+
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+import static com.globalmentor.unicode.UnicodeData.*;
+
+/**
+ * A spliterator over the lines of Unicode data held in memory, parsing each line only when it is consumed. The data is split only at line boundaries, so that
+ * the resulting stream may be processed in parallel.
+ * <p>
+ * Elements are reported as {@link Spliterator#ORDERED}, in the order of the lines of the data. The bundled Unicode data lists characters in increasing code
+ * point order, so a spliterator over it is created as sorted and also reports {@link Spliterator#SORTED} and {@link Spliterator#DISTINCT}, in natural order.
+ * Data read from an arbitrary source is not verified to be in order or to be free of duplicates, so a spliterator over it is not reported as sorted.
+ * </p>
+ * @author Garret Wilson
+ */
+abstract class UnicodeDataSpliterator {
+
+	/** The minimum number of characters worth splitting off for another thread. */
+	private static final int MIN_SPLIT_LENGTH = 1 << 12;
+
+	/** The approximate average length of a line of Unicode data, used for size estimates. */
+	private static final int ESTIMATED_LINE_LENGTH = 60;
+
+	/** The characteristics of all Unicode data spliterators. */
+	static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+	/** The characteristics of Unicode data spliterators over data known to be in increasing code point order. */
+	static final int SORTED_CHARACTERISTICS = CHARACTERISTICS | Spliterator.SORTED | Spliterator.DISTINCT;
+
+	/** The Unicode data. */
+	protected final char[] data;
+
+	/** The index of the next line to process. */
+	protected int index;
+
+	/** The end of the range of data to process. */
+	protected final int end;
+
+	/** The start of the current line. */
+	protected int lineStart;
+
+	/** The end of the current line, not including any line terminator. */
+	protected int lineEnd;
+
+	/** Whether the data is known to list code points in increasing order, without duplicates. */
+	protected final boolean sorted;
+
+	/**
+	 * Data range constructor.
+	 * @param data The Unicode data.
+	 * @param start The start of the range of data, which must be the start of a line.
+	 * @param end The end of the range of data, which must be the end of the data or the start of a line.
+	 * @param sorted Whether the data is known to list code points in increasing order, without duplicates.
+	 */
+	protected UnicodeDataSpliterator(final char[] data, final int start, final int end, final boolean sorted) {
+		this.data = data;
+		this.index = start;
+		this.end = end;
+		this.sorted = sorted;
+	}
+
+	/**
+	 * Advances to the next non-empty line, updating the line start and line end.
+	 * @return <code>true</code> if there was another line, or <code>false</code> if the end of the range was reached.
+	 */
+	protected boolean nextLine() {
+		while(index < end) {
+			lineStart = index;
+			int lineEnd = lineStart;
+			while(lineEnd < end && data[lineEnd] != '\n') {
+				++lineEnd;
+			}
+			index = lineEnd < end ? lineEnd + 1 : end; //skip the line feed
+			if(lineEnd > lineStart && data[lineEnd - 1] == '\r') { //ignore any carriage return
+				--lineEnd;
+			}
+			if(lineEnd > lineStart) { //skip blank lines
+				this.lineEnd = lineEnd;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines the index at which the remaining range should be split, if it is worth splitting.
+	 * @return The start of a line near the middle of the remaining range, or <code>-1</code> if the range should not be split.
+	 */
+	protected int findSplitIndex() {
+		final int length = end - index;
+		if(length < MIN_SPLIT_LENGTH) {
+			return -1;
+		}
+		int splitIndex = index + (length >>> 1);
+		while(splitIndex < end && data[splitIndex - 1] != '\n') { //find the beginning of the next line
+			++splitIndex;
+		}
+		return splitIndex < end ? splitIndex : -1;
+	}
+
+	/** @return The estimated number of remaining elements. */
+	public long estimateSize() {
+		return (end - index) / ESTIMATED_LINE_LENGTH + 1;
+	}
+
+	/** @return The characteristics of the elements. */
+	public int characteristics() {
+		return sorted ? SORTED_CHARACTERISTICS : CHARACTERISTICS;
+	}
+
+	/**
+	 * Ensures that this spliterator is sorted, so that it has a comparator.
+	 * @throws IllegalStateException if this spliterator does not report {@link Spliterator#SORTED}.
+	 */
+	protected void checkSorted() {
+		if(!sorted) {
+			throw new IllegalStateException("Unicode data spliterator is not sorted.");
+		}
+	}
+
+	/**
+	 * Parses the code value of the current line.
+	 * @return The hexadecimal code value at the start of the current line.
+	 * @throws UncheckedIOException if the code value could not be parsed.
+	 */
+	protected int parseCodeValue() {
+		int codeValue = 0;
+		for(int i = lineStart; i < lineEnd; ++i) {
+			final char c = data[i];
+			if(c == FIELD_DELIMITER) {
+				if(i == lineStart) {
+					break;
+				}
+				return codeValue;
+			}
+			final int digit = Character.digit(c, 16);
+			if(digit < 0) {
+				break;
+			}
+			codeValue = (codeValue << 4) | digit;
+			if(codeValue > Character.MAX_CODE_POINT) { //check after shifting, so that no digits can overflow the value unnoticed
+				break;
+			}
+		}
+		throw new UncheckedIOException(new IOException("Invalid code value in line: " + new String(data, lineStart, lineEnd - lineStart)));
+	}
+
+	/**
+	 * Determines whether a field of the current line has the given value, without creating a string for the field.
+	 * @param fieldIndex The index of the field, such as {@link UnicodeData#FIELD_GENERAL_CATEGORY}.
+	 * @param value The value to compare.
+	 * @return <code>true</code> if the field exists and has exactly the given value.
+	 */
+	protected boolean isFieldEqual(final int fieldIndex, final String value) {
+		int fieldStart = lineStart;
+		for(int field = 0; field < fieldIndex; ++field) { //skip to the requested field
+			while(fieldStart < lineEnd && data[fieldStart] != FIELD_DELIMITER) {
+				++fieldStart;
+			}
+			if(fieldStart == lineEnd) {
+				return false;
+			}
+			++fieldStart; //skip the delimiter
+		}
+		final int length = value.length();
+		if(fieldStart + length > lineEnd || (fieldStart + length < lineEnd && data[fieldStart + length] != FIELD_DELIMITER)) {
+			return false;
+		}
+		for(int i = 0; i < length; ++i) {
+			if(data[fieldStart + i] != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads all the data from a reader into memory, without parsing it.
+	 * @param reader The reader containing Unicode data.
+	 * @return The characters read.
+	 * @throws IOException if there was an error reading the data.
+	 */
+	static char[] read(final Reader reader) throws IOException {
+		final CharArrayWriter writer = new CharArrayWriter(1 << 16);
+		final char[] buffer = new char[1 << 13];
+		int count;
+		while((count = reader.read(buffer)) != -1) {
+			writer.write(buffer, 0, count);
+		}
+		return writer.toCharArray();
+	}
+
+	/**
+	 * A spliterator of parsed Unicode characters.
+	 * @author Garret Wilson
+	 */
+	static final class OfCharacter extends UnicodeDataSpliterator implements Spliterator<UnicodeCharacter> {
+
+		/**
+		 * Data range constructor.
+		 * @param data The Unicode data.
+		 * @param start The start of the range of data, which must be the start of a line.
+		 * @param end The end of the range of data, which must be the end of the data or the start of a line.
+		 * @param sorted Whether the data is known to list code points in increasing order, without duplicates.
+		 */
+		OfCharacter(final char[] data, final int start, final int end, final boolean sorted) {
+			super(data, start, end, sorted);
+		}
+
+		@Override
+		public boolean tryAdvance(final Consumer<? super UnicodeCharacter> action) {
+			if(!nextLine()) {
+				return false;
+			}
+			try {
+				action.accept(parseLine(new String(data, lineStart, lineEnd - lineStart)));
+			} catch(final IOException ioException) {
+				throw new UncheckedIOException(ioException);
+			}
+			return true;
+		}
+
+		@Override
+		public Spliterator<UnicodeCharacter> trySplit() {
+			final int splitIndex = findSplitIndex();
+			if(splitIndex < 0) {
+				return null;
+			}
+			final Spliterator<UnicodeCharacter> prefix = new OfCharacter(data, index, splitIndex, sorted);
+			index = splitIndex;
+			return prefix;
+		}
+
+		@Override
+		public Comparator<? super UnicodeCharacter> getComparator() {
+			checkSorted();
+			return null; //natural order
+		}
+	}
+
+	/**
+	 * A spliterator of the code points listed in Unicode data, optionally restricted to those having a particular general category. Lines are examined in
+	 * place; no characters or strings are created.
+	 * @author Garret Wilson
+	 */
+	static final class OfCodePoint extends UnicodeDataSpliterator implements Spliterator.OfInt {
+
+		/** The general category to include, or <code>null</code> if all code points should be included. */
+		private final String generalCategory;
+
+		/**
+		 * Data range constructor.
+		 * @param data The Unicode data.
+		 * @param start The start of the range of data, which must be the start of a line.
+		 * @param end The end of the range of data, which must be the end of the data or the start of a line.
+		 * @param generalCategory The general category to include, or <code>null</code> if all code points should be included.
+		 * @param sorted Whether the data is known to list code points in increasing order, without duplicates.
+		 */
+		OfCodePoint(final char[] data, final int start, final int end, final String generalCategory, final boolean sorted) {
+			super(data, start, end, sorted);
+			this.generalCategory = generalCategory;
+		}
+
+		@Override
+		public boolean tryAdvance(final IntConsumer action) {
+			while(nextLine()) {
+				if(generalCategory == null || isFieldEqual(FIELD_GENERAL_CATEGORY, generalCategory)) {
+					action.accept(parseCodeValue());
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			final int splitIndex = findSplitIndex();
+			if(splitIndex < 0) {
+				return null;
+			}
+			final Spliterator.OfInt prefix = new OfCodePoint(data, index, splitIndex, generalCategory, sorted);
+			index = splitIndex;
+			return prefix;
+		}
+
+		@Override
+		public Comparator<? super Integer> getComparator() {
+			checkSorted();
+			return null; //natural order
+		}
+	}
+
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.WritableByteChannel;
+
+import static com.globalmentor.unicode.UnicodeData.*;
+import static java.util.Objects.*;
+
+/**
+ * Serializes Unicode characters in the format of the <code>UnicodeData.txt</code> file, writing directly to an {@link Appendable} or to a
+ * {@link WritableByteChannel}.
+ * <p>
+ * Each line is formatted into a reusable character buffer, and lines destined for a channel are encoded into a reusable byte buffer, so that writing any
+ * number of characters creates no intermediate strings. Code values and mappings are written as uppercase hexadecimal with at least four digits, as in the
+ * Unicode data file. Lines are terminated by a single line feed.
+ * </p>
+ * <p>
+ * Output to a channel is buffered; call {@link #flush()} when finished writing. This class is not thread safe.
+ * </p>
+ * @author Garret Wilson
+ * @see UnicodeData#toUnicodeDataLine(UnicodeCharacter)
+ */
+public class UnicodeDataWriter implements Flushable {
+
+	/** The uppercase hexadecimal digits. */
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/** The size of the buffer used for writing to a channel. */
+	private static final int CHANNEL_BUFFER_SIZE = 1 << 13;
+
+	/** The destination if writing characters, or <code>null</code> if writing to a channel. */
+	private final Appendable appendable;
+
+	/** The destination if writing bytes, or <code>null</code> if writing to an appendable. */
+	private final WritableByteChannel channel;
+
+	/** The buffer of bytes waiting to be written to the channel, or <code>null</code> if writing to an appendable. */
+	private final ByteBuffer byteBuffer;
+
+	/** The reusable buffer for formatting a line. */
+	private char[] lineBuffer = new char[256];
+
+	/** The reusable character buffer wrapping the line buffer, for appending to a general appendable. */
+	private CharBuffer lineCharBuffer = null;
+
+	/** The number of characters in the line buffer. */
+	private int lineLength = 0;
+
+	/**
+	 * Appendable constructor.
+	 * @param appendable The destination of the Unicode data, such as a {@link Writer} or a {@link StringBuilder}.
+	 */
+	public UnicodeDataWriter(final Appendable appendable) {
+		this.appendable = requireNonNull(appendable);
+		this.channel = null;
+		this.byteBuffer = null;
+	}
+
+	/**
+	 * Channel constructor. Unicode data is encoded in ASCII; any character outside the ISO 8859-1 range is written as <code>'?'</code>.
+	 * @param channel The destination of the Unicode data.
+	 */
+	public UnicodeDataWriter(final WritableByteChannel channel) {
+		this.appendable = null;
+		this.channel = requireNonNull(channel);
+		this.byteBuffer = ByteBuffer.allocate(CHANNEL_BUFFER_SIZE);
+	}
+
+	/**
+	 * Writes a line of Unicode data for each of the given characters.
+	 * @param unicodeCharacters The characters to write.
+	 * @return This writer.
+	 * @throws IOException if there was an error writing the data.
+	 */
+	public UnicodeDataWriter write(final Iterable<? extends UnicodeCharacter> unicodeCharacters) throws IOException {
+		for(final UnicodeCharacter unicodeCharacter : unicodeCharacters) {
+			write(unicodeCharacter);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a line of Unicode data representing the given character.
+	 * @param unicodeCharacter The character to write.
+	 * @return This writer.
+	 * @throws IOException if there was an error writing the data.
+	 */
+	public UnicodeDataWriter write(final UnicodeCharacter unicodeCharacter) throws IOException {
+		lineLength = 0;
+		formatLine(unicodeCharacter);
+		appendChar('\n');
+		if(appendable != null) {
+			if(appendable instanceof Writer) { //write directly from the buffer if we can
+				((Writer)appendable).write(lineBuffer, 0, lineLength);
+			} else if(appendable instanceof StringBuilder) {
+				((StringBuilder)appendable).append(lineBuffer, 0, lineLength);
+			} else {
+				if(lineCharBuffer == null || lineCharBuffer.array() != lineBuffer) { //wrap the line buffer if we haven't already, or if it has grown
+					lineCharBuffer = CharBuffer.wrap(lineBuffer);
+				}
+				appendable.append(lineCharBuffer, 0, lineLength);
+			}
+		} else {
+			if(byteBuffer.remaining() < lineLength) { //make room for the line
+				flushByteBuffer();
+			}
+			for(int i = 0; i < lineLength; ++i) {
+				if(!byteBuffer.hasRemaining()) { //only happens for lines longer than the buffer
+					flushByteBuffer();
+				}
+				final char c = lineBuffer[i];
+				byteBuffer.put(c <= 0xFF ? (byte)c : (byte)'?');
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Writes any buffered data to the channel and flushes the destination, if it supports flushing.
+	 * @throws IOException if there was an error writing the data.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if(byteBuffer != null) {
+			flushByteBuffer();
+		} else if(appendable instanceof Flushable) {
+			((Flushable)appendable).flush();
+		}
+	}
+
+	/**
+	 * Writes all the bytes in the byte buffer to the channel.
+	 * @throws IOException if there was an error writing the data.
+	 */
+	private void flushByteBuffer() throws IOException {
+		byteBuffer.flip();
+		while(byteBuffer.hasRemaining()) {
+			channel.write(byteBuffer);
+		}
+		byteBuffer.clear();
+	}
+
+	/**
+	 * Formats a Unicode character as a line of Unicode data in the line buffer, without a line terminator.
+	 * @param unicodeCharacter The character to format.
+	 */
+	void formatLine(final UnicodeCharacter unicodeCharacter) {
+		appendHex(unicodeCharacter.getCodeValue());
+		appendChar(FIELD_DELIMITER);
+		appendString(unicodeCharacter.getCharacterName());
+		appendChar(FIELD_DELIMITER);
+		appendString(unicodeCharacter.getGeneralCategory());
+		appendChar(FIELD_DELIMITER);
+		appendDecimal(unicodeCharacter.getCanonicalCombiningClass());
+		appendChar(FIELD_DELIMITER);
+		appendString(unicodeCharacter.getBidirectionalCategory());
+		appendChar(FIELD_DELIMITER);
+		final String decompositionTag = unicodeCharacter.getCharacterDecompositionTag();
+		if(decompositionTag.length() > 0) { //if there is a decomposition tag
+			appendString(decompositionTag);
+			appendChar(MAPPING_DELIMITER);
+		}
+		final String decompositionMappings = unicodeCharacter.getCharacterDecompositionMappings();
+		for(int i = 0; i < decompositionMappings.length(); i += Character.charCount(decompositionMappings.codePointAt(i))) { //write code points, not surrogates
+			if(i > 0) {
+				appendChar(MAPPING_DELIMITER);
+			}
+			appendHex(decompositionMappings.codePointAt(i));
+		}
+		appendChar(FIELD_DELIMITER);
+		if(unicodeCharacter.getDecimalDigitValue() != -1) {
+			appendDecimal(unicodeCharacter.getDecimalDigitValue());
+		}
+		appendChar(FIELD_DELIMITER);
+		if(unicodeCharacter.getDigitValue() != -1) {
+			appendDecimal(unicodeCharacter.getDigitValue());
+		}
+		appendChar(FIELD_DELIMITER);
+		if(unicodeCharacter.getNumericValueNumerator() != -1 || unicodeCharacter.isNumericValueFraction()) { //if there is a numeric value (a fraction may have a numerator of -1)
+			appendDecimal(unicodeCharacter.getNumericValueNumerator());
+			if(unicodeCharacter.isNumericValueFraction()) {
+				appendChar(FRACTION_DIVIDER);
+				appendDecimal(unicodeCharacter.getNumericValueDenominator());
+			}
+		}
+		appendChar(FIELD_DELIMITER);
+		appendString(unicodeCharacter.isMirrored() ? MIRRORED_YES : MIRRORED_NO);
+		appendChar(FIELD_DELIMITER);
+		appendString(unicodeCharacter.getUnicode10Name());
+		appendChar(FIELD_DELIMITER);
+		appendString(unicodeCharacter.getISO10646Comment());
+		appendChar(FIELD_DELIMITER);
+		if(unicodeCharacter.getUppercaseMapping() != 0) {
+			appendHex(unicodeCharacter.getUppercaseMapping());
+		}
+		appendChar(FIELD_DELIMITER);
+		if(unicodeCharacter.getLowercaseMapping() != 0) {
+			appendHex(unicodeCharacter.getLowercaseMapping());
+		}
+		appendChar(FIELD_DELIMITER);
+		if(unicodeCharacter.getTitlecaseMapping() != 0) {
+			appendHex(unicodeCharacter.getTitlecaseMapping());
+		}
+	}
+
+	/** @return A new string containing the contents of the line buffer. */
+	String getLine() {
+		return new String(lineBuffer, 0, lineLength);
+	}
+
+	/**
+	 * Ensures the line buffer can hold additional characters.
+	 * @param count The number of characters to be added.
+	 */
+	private void ensureCapacity(final int count) {
+		if(lineLength + count > lineBuffer.length) {
+			final char[] newLineBuffer = new char[Math.max(lineBuffer.length * 2, lineLength + count)];
+			System.arraycopy(lineBuffer, 0, newLineBuffer, 0, lineLength);
+			lineBuffer = newLineBuffer;
+		}
+	}
+
+	/**
+	 * Appends a character to the line buffer.
+	 * @param c The character to append.
+	 */
+	private void appendChar(final char c) {
+		ensureCapacity(1);
+		lineBuffer[lineLength++] = c;
+	}
+
+	/**
+	 * Appends a string to the line buffer.
+	 * @param string The string to append; <code>null</code> is treated as the empty string.
+	 */
+	private void appendString(final String string) {
+		if(string != null) {
+			final int length = string.length();
+			ensureCapacity(length);
+			string.getChars(0, length, lineBuffer, lineLength);
+			lineLength += length;
+		}
+	}
+
+	/**
+	 * Appends a value in uppercase hexadecimal with at least four digits.
+	 * @param value The non-negative value to append.
+	 */
+	private void appendHex(final int value) {
+		int digitCount = 4;
+		while(digitCount < 8 && (value >>> (digitCount * 4)) != 0) {
+			++digitCount;
+		}
+		ensureCapacity(digitCount);
+		for(int i = digitCount - 1; i >= 0; --i) {
+			lineBuffer[lineLength++] = HEX_DIGITS[(value >>> (i * 4)) & 0xF];
+		}
+	}
+
+	/**
+	 * Appends a value in decimal.
+	 * @param value The value to append.
+	 */
+	private void appendDecimal(final int value) {
+		if(value < 0) {
+			if(value == Integer.MIN_VALUE) { //this value cannot be negated
+				appendString(Integer.toString(value));
+				return;
+			}
+			appendChar('-');
+			appendDecimal(-value);
+			return;
+		}
+		int digitCount = 1;
+		for(int remaining = value / 10; remaining != 0; remaining /= 10) {
+			++digitCount;
+		}
+		ensureCapacity(digitCount);
+		int remaining = value;
+		for(int i = lineLength + digitCount - 1; i >= lineLength; --i) {
+			lineBuffer[i] = (char)('0' + remaining % 10);
+			remaining /= 10;
+		}
+		lineLength += digitCount;
+	}
+
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Collections.*;
+import static java.util.Objects.*;
+
+/**
+ * An immutable snapshot of a single version of the Unicode Character Database, consisting of the data in a <code>UnicodeData.txt</code> file and the blocks in
+ * a <code>Blocks.txt</code> file.
+ * <p>
+ * Unlike the static access provided by {@link UnicodeData} and {@link UnicodeBlocks}, which only ever sees the bundled data, any number of databases may exist
+ * side by side in one process. A database may be loaded from classpath resources or from a local directory. When a database is loaded relative to a base
+ * database (usually a previous version), every character record and every page of records that did not change is shared with the base database rather than
+ * duplicated. Character records are always immutable, so a record shared between databases cannot be changed through either of them.
+ * </p>
+ * <p>
+ * The database considered current for the process is held in an atomic reference, and may be replaced at runtime using {@link #setCurrent(UnicodeDatabase)}.
+ * Readers that have already retrieved a database continue to see a consistent snapshot; readers never block during a swap.
+ * </p>
+ * <p>
+ * Code points within a range designated in the data file by <code>&lt;..., First&gt;</code> and <code>&lt;..., Last&gt;</code> entries are not given individual
+ * records; as with {@link UnicodeData}, only the entries actually present in the file are returned.
+ * </p>
+ * @author Garret Wilson
+ * @see UnicodeData
+ * @see UnicodeBlocks
+ */
+public class UnicodeDatabase {
+
+	/** The version of the Unicode data bundled with this library. */
+	public static final String BUNDLED_VERSION = "4.0.0";
+
+	/** The number of bits of a code point used to index into a page. */
+	static final int PAGE_SHIFT = 8;
+
+	/** The number of code points in each page. */
+	static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+	/** The mask for retrieving the index of a code point within its page. */
+	static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	/** The number of pages needed to cover all Unicode code points. */
+	static final int PAGE_COUNT = (Character.MAX_CODE_POINT + 1) >> PAGE_SHIFT;
+
+	/** The bundled database, loaded lazily. */
+	private static final AtomicReference<UnicodeDatabase> bundledDatabaseReference = new AtomicReference<UnicodeDatabase>();
+
+	/** The database currently in use by the process, or <code>null</code> if the bundled database has not yet been installed. */
+	private static final AtomicReference<UnicodeDatabase> currentDatabaseReference = new AtomicReference<UnicodeDatabase>();
+
+	/**
+	 * Returns the database bundled with this library, loading it if needed.
+	 * @return The Unicode database for version {@value #BUNDLED_VERSION}.
+	 */
+	public static UnicodeDatabase getBundled() {
+		UnicodeDatabase bundledDatabase = bundledDatabaseReference.get();
+		if(bundledDatabase == null) { //if the bundled database has not been loaded (a concurrent load is harmless; only the first one will be kept)
+			try {
+				bundledDatabase = loadResources(BUNDLED_VERSION, UnicodeDatabase.class.getClassLoader(),
+						getBundledResourceName(UnicodeData.UNICODE_DATA_FILENAME), getBundledResourceName(UnicodeBlocks.BLOCKS_FILENAME), null);
+			} catch(final IOException ioException) { //we don't expect errors reading the data files, as they are local resources
+				throw new AssertionError(ioException);
+			}
+			if(!bundledDatabaseReference.compareAndSet(null, bundledDatabase)) { //if another thread beat us to it
+				bundledDatabase = bundledDatabaseReference.get(); //use the instance that was installed
+			}
+		}
+		return bundledDatabase;
+	}
+
+	/**
+	 * Returns the database currently in use by the process. If no database has been set, the bundled database is installed and returned.
+	 * <p>
+	 * Callers that perform several related lookups should retrieve the database once and use the returned instance, so that all lookups see the same version
+	 * even if the current database is replaced in the meantime.
+	 * </p>
+	 * @return The current Unicode database.
+	 * @see #getBundled()
+	 */
+	public static UnicodeDatabase getCurrent() {
+		final UnicodeDatabase currentDatabase = currentDatabaseReference.get();
+		if(currentDatabase != null) {
+			return currentDatabase;
+		}
+		currentDatabaseReference.compareAndSet(null, getBundled()); //install the bundled database unless someone else installed a database first
+		return currentDatabaseReference.get();
+	}
+
+	/**
+	 * Returns the databases held by this class for the process without loading or installing any database: the bundled database, if it has been loaded, and the
+	 * current database, if one has been installed and it is not the bundled database.
+	 * @return The bundled and current databases that are loaded, in that order.
+	 */
+	static List<UnicodeDatabase> getLoadedDatabases() {
+		final List<UnicodeDatabase> databases = new ArrayList<UnicodeDatabase>(2);
+		final UnicodeDatabase bundledDatabase = bundledDatabaseReference.get();
+		if(bundledDatabase != null) {
+			databases.add(bundledDatabase);
+		}
+		final UnicodeDatabase currentDatabase = currentDatabaseReference.get();
+		if(currentDatabase != null && currentDatabase != bundledDatabase) {
+			databases.add(currentDatabase);
+		}
+		return databases;
+	}
+
+	/**
+	 * Atomically replaces the database in use by the process. Readers are never blocked; those that retrieved the previous database continue to use it.
+	 * @param database The new current database.
+	 * @return The database previously in use, or <code>null</code> if none had yet been installed.
+	 * @throws NullPointerException if the given database is <code>null</code>.
+	 */
+	public static UnicodeDatabase setCurrent(final UnicodeDatabase database) {
+		return currentDatabaseReference.getAndSet(requireNonNull(database));
+	}
+
+	/**
+	 * Atomically replaces the database in use by the process only if it is still the expected database.
+	 * @param expectedDatabase The database expected to be current.
+	 * @param database The new current database.
+	 * @return <code>true</code> if the database was replaced, or <code>false</code> if the current database was not the expected one.
+	 * @throws NullPointerException if the new database is <code>null</code>.
+	 */
+	public static boolean compareAndSetCurrent(final UnicodeDatabase expectedDatabase, final UnicodeDatabase database) {
+		return currentDatabaseReference.compareAndSet(expectedDatabase, requireNonNull(database));
+	}
+
+	/**
+	 * Determines the full classpath resource name of a data file bundled in this package.
+	 * @param filename The simple name of the file.
+	 * @return The resource name, relative to the classpath root, of the file in this package.
+	 */
+	private static String getBundledResourceName(final String filename) {
+		return UnicodeDatabase.class.getPackage().getName().replace('.', '/') + '/' + filename;
+	}
+
+	/**
+	 * Loads a database from resources accessible via a class loader.
+	 * @param version The version of the Unicode data, such as <code>"4.0.0"</code>.
+	 * @param classLoader The class loader from which to retrieve the resources.
+	 * @param unicodeDataResourceName The name of the <code>UnicodeData.txt</code> resource, relative to the classpath root.
+	 * @param blocksResourceName The name of the <code>Blocks.txt</code> resource, relative to the classpath root.
+	 * @param baseDatabase The database with which unchanged records and pages should be shared, or <code>null</code> if no structure should be shared.
+	 * @return A new database containing the data from the given resources.
+	 * @throws FileNotFoundException if one of the resources could not be found.
+	 * @throws IOException if there was an error reading or parsing the data.
+	 */
+	public static UnicodeDatabase loadResources(final String version, final ClassLoader classLoader, final String unicodeDataResourceName,
+			final String blocksResourceName, final UnicodeDatabase baseDatabase) throws IOException {
+		try (final Reader unicodeDataReader = getResourceReader(classLoader, unicodeDataResourceName);
+				final Reader blocksReader = getResourceReader(classLoader, blocksResourceName)) {
+			return load(version, unicodeDataReader, blocksReader, baseDatabase);
+		}
+	}
+
+	/**
+	 * Opens a reader to a Unicode data resource.
+	 * @param classLoader The class loader from which to retrieve the resource.
+	 * @param resourceName The name of the resource, relative to the classpath root.
+	 * @return A reader to the given resource.
+	 * @throws FileNotFoundException if the resource could not be found.
+	 */
+	private static Reader getResourceReader(final ClassLoader classLoader, final String resourceName) throws FileNotFoundException {
+		final InputStream inputStream = classLoader.getResourceAsStream(resourceName);
+		if(inputStream == null) {
+			throw new FileNotFoundException("Unicode data resource not found: " + resourceName);
+		}
+		return new InputStreamReader(new BufferedInputStream(inputStream), ISO_8859_1);
+	}
+
+	/**
+	 * Loads a database from a local directory containing the files <code>UnicodeData.txt</code> and <code>Blocks.txt</code>, such as an unpacked copy of the
+	 * <code>UCD.zip</code> archive published by the Unicode Consortium.
+	 * @param version The version of the Unicode data, such as <code>"5.0.0"</code>.
+	 * @param directory The directory containing the Unicode data files.
+	 * @param baseDatabase The database with which unchanged records and pages should be shared, or <code>null</code> if no structure should be shared.
+	 * @return A new database containing the data from the given directory.
+	 * @throws IOException if there was an error reading or parsing the data.
+	 */
+	public static UnicodeDatabase loadDirectory(final String version, final Path directory, final UnicodeDatabase baseDatabase) throws IOException {
+		try (final Reader unicodeDataReader = Files.newBufferedReader(directory.resolve(UnicodeData.UNICODE_DATA_FILENAME), ISO_8859_1);
+				final Reader blocksReader = Files.newBufferedReader(directory.resolve(UnicodeBlocks.BLOCKS_FILENAME), ISO_8859_1)) {
+			return load(version, unicodeDataReader, blocksReader, baseDatabase);
+		}
+	}
+
+	/**
+	 * Loads a database from readers to Unicode data and Unicode blocks. The readers are not closed.
+	 * @param version The version of the Unicode data, such as <code>"4.0.0"</code>.
+	 * @param unicodeDataReader The reader which contains the data in the Unicode data format.
+	 * @param blocksReader The reader which contains the data in the Unicode blocks format.
+	 * @param baseDatabase The database with which unchanged records and pages should be shared, or <code>null</code> if no structure should be shared.
+	 * @return A new database containing the data from the given readers.
+	 * @throws IOException if there was an error reading or parsing the data.
+	 */
+	public static UnicodeDatabase load(final String version, final Reader unicodeDataReader, final Reader blocksReader, final UnicodeDatabase baseDatabase)
+			throws IOException {
+		final List<UnicodeCharacter> unicodeCharacters = UnicodeData.parse(unicodeDataReader);
+		final SortedSet<UnicodeBlock> unicodeBlocks = UnicodeBlocks.parse(blocksReader);
+		return new UnicodeDatabase(version, unicodeCharacters, unicodeBlocks, baseDatabase);
+	}
+
+	/** The version of the Unicode data. */
+	private final String version;
+
+	/** @return The version of the Unicode data, such as <code>"4.0.0"</code>. */
+	public String getVersion() {
+		return version;
+	}
+
+	/** The pages of characters, each page an array of {@link #PAGE_SIZE} characters or <code>null</code> if no characters are defined in the page. */
+	private final UnicodeCharacter[][] pages;
+
+	/** The sorted, unmodifiable list of all Unicode characters. */
+	private final List<UnicodeCharacter> unicodeCharacters;
+
+	/** @return An unmodifiable list of all characters in the Unicode data, sorted by code point, each of which is immutable. */
+	public List<UnicodeCharacter> getUnicodeCharacters() {
+		return unicodeCharacters;
+	}
+
+	/** The unmodifiable set of Unicode blocks. */
+	private final SortedSet<UnicodeBlock> unicodeBlocks;
+
+	/** @return An unmodifiable set of Unicode blocks, in sequential order. */
+	public SortedSet<UnicodeBlock> getUnicodeBlocks() {
+		return unicodeBlocks;
+	}
+
+	/** The Unicode blocks in sequential order, for binary searching. */
+	private final UnicodeBlock[] unicodeBlockArray;
+
+	/**
+	 * Returns the pages of characters, for memory accounting. The returned array must not be modified.
+	 * @return The pages of characters, each page an array of {@link #PAGE_SIZE} characters or <code>null</code> if no characters are defined in the page.
+	 */
+	UnicodeCharacter[][] getPages() {
+		return pages;
+	}
+
+	/** The tables derived from this database, keyed to the objects identifying them. */
+	private final ConcurrentMap<Object, Object> derivedTables = new ConcurrentHashMap<Object, Object>();
+
+	/** @return The number of tables that have been derived from this database. */
+	int getDerivedTableCount() {
+		return derivedTables.size();
+	}
+
+	/**
+	 * Returns a table derived from the data in this database, creating and caching it if needed. Derived tables live as long as the database itself, so that
+	 * replacing the current database releases the tables of the old one.
+	 * <p>
+	 * The factory may be called more than once if several threads request the same table concurrently, but only one table will be retained and returned. The
+	 * factory may itself request other derived tables.
+	 * </p>
+	 * @param <T> The type of table.
+	 * @param key The object identifying the table.
+	 * @param tableFactory The factory for creating the table from this database.
+	 * @return The table for the given key.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T getDerivedTable(final Object key, final Function<? super UnicodeDatabase, ? extends T> tableFactory) {
+		Object table = derivedTables.get(key);
+		if(table == null) { //we don't use computeIfAbsent(), as that would prevent factories from requesting other tables
+			final Object newTable = tableFactory.apply(this);
+			table = derivedTables.putIfAbsent(key, newTable);
+			if(table == null) {
+				table = newTable;
+			}
+		}
+		return (T)table;
+	}
+
+	/**
+	 * Constructs a database from parsed Unicode data.
+	 * @param version The version of the Unicode data.
+	 * @param unicodeCharacters The Unicode characters in the database.
+	 * @param unicodeBlocks The Unicode blocks in the database.
+	 * @param baseDatabase The database with which unchanged records and pages should be shared, or <code>null</code> if no structure should be shared.
+	 * @throws NullPointerException if the given version, characters, and/or blocks is <code>null</code>.
+	 */
+	protected UnicodeDatabase(final String version, final Collection<UnicodeCharacter> unicodeCharacters, final SortedSet<UnicodeBlock> unicodeBlocks,
+			final UnicodeDatabase baseDatabase) {
+		this.version = requireNonNull(version);
+		pages = new UnicodeCharacter[PAGE_COUNT][];
+		for(final UnicodeCharacter unicodeCharacter : unicodeCharacters) { //distribute the characters among the pages
+			final int codePoint = unicodeCharacter.getCodeValue();
+			final int pageIndex = codePoint >> PAGE_SHIFT;
+			UnicodeCharacter[] page = pages[pageIndex];
+			if(page == null) {
+				page = new UnicodeCharacter[PAGE_SIZE];
+				pages[pageIndex] = page;
+			}
+			page[codePoint & PAGE_MASK] = unicodeCharacter;
+		}
+		if(baseDatabase != null) { //share whatever we can with the base database
+			for(int pageIndex = 0; pageIndex < PAGE_COUNT; ++pageIndex) {
+				pages[pageIndex] = share(pages[pageIndex], baseDatabase.pages[pageIndex]);
+			}
+		}
+		final List<UnicodeCharacter> characterList = new ArrayList<UnicodeCharacter>(unicodeCharacters.size());
+		for(final UnicodeCharacter[] page : pages) { //gather the (possibly shared) characters back in code point order
+			if(page != null) {
+				for(final UnicodeCharacter unicodeCharacter : page) {
+					if(unicodeCharacter != null) {
+						characterList.add(unicodeCharacter);
+					}
+				}
+			}
+		}
+		this.unicodeCharacters = unmodifiableList(characterList);
+		if(baseDatabase != null && hasSameBlocks(unicodeBlocks, baseDatabase.unicodeBlocks)) { //if the blocks did not change, share them
+			this.unicodeBlocks = baseDatabase.unicodeBlocks;
+			this.unicodeBlockArray = baseDatabase.unicodeBlockArray;
+		} else {
+			this.unicodeBlocks = unmodifiableSortedSet(new TreeSet<UnicodeBlock>(unicodeBlocks));
+			this.unicodeBlockArray = this.unicodeBlocks.toArray(new UnicodeBlock[this.unicodeBlocks.size()]);
+		}
+	}
+
+	/**
+	 * Shares a page of characters with the corresponding page of a base database. Each character equivalent to that in the base page is replaced with the base
+	 * character. If all characters are equivalent, the base page itself is returned.
+	 * @param page The new page, which may be <code>null</code>.
+	 * @param basePage The corresponding page in the base database, which may be <code>null</code>.
+	 * @return The page to use, which will be the base page if the pages are equivalent.
+	 */
+	private static UnicodeCharacter[] share(final UnicodeCharacter[] page, final UnicodeCharacter[] basePage) {
+		if(page == null || basePage == null) {
+			return page == null && basePage == null ? null : page;
+		}
+		boolean isSamePage = true;
+		for(int i = 0; i < PAGE_SIZE; ++i) {
+			final UnicodeCharacter baseCharacter = basePage[i];
+			if(hasSameProperties(page[i], baseCharacter)) {
+				page[i] = baseCharacter; //use the existing record
+			} else {
+				isSamePage = false;
+			}
+		}
+		return isSamePage ? basePage : page;
+	}
+
+	/**
+	 * Determines whether two characters, either of which may be <code>null</code>, have identical code points and properties.
+	 * @param character1 The first character.
+	 * @param character2 The second character.
+	 * @return <code>true</code> if both characters are <code>null</code>, or if both have the same code point and the same values for all properties.
+	 */
+	static boolean hasSameProperties(final UnicodeCharacter character1, final UnicodeCharacter character2) {
+		if(character1 == character2) {
+			return true;
+		}
+		if(character1 == null || character2 == null) {
+			return false;
+		}
+		return character1.getCodeValue() == character2.getCodeValue() && UnicodeDataDiff.getDifferentFields(character1, character2) == 0;
+	}
+
+	/**
+	 * Determines whether two sets of blocks have the same ranges and the same names. Block equality only takes ranges into account.
+	 * @param blocks1 The first set of blocks.
+	 * @param blocks2 The second set of blocks.
+	 * @return <code>true</code> if the sets contain blocks with identical ranges and names in the same order.
+	 */
+	private static boolean hasSameBlocks(final SortedSet<UnicodeBlock> blocks1, final SortedSet<UnicodeBlock> blocks2) {
+		if(blocks1.size() != blocks2.size()) {
+			return false;
+		}
+		final Iterator<UnicodeBlock> blockIterator2 = blocks2.iterator();
+		for(final UnicodeBlock block1 : blocks1) {
+			final UnicodeBlock block2 = blockIterator2.next();
+			if(!block1.equals(block2) || !block1.getName().equals(block2.getName())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a page of characters.
+	 * @param pageIndex The index of the page, which is the code point shifted right by {@link #PAGE_SHIFT}.
+	 * @return The page of {@link #PAGE_SIZE} characters, which must not be modified, or <code>null</code> if no characters are defined in the page.
+	 */
+	UnicodeCharacter[] getPage(final int pageIndex) {
+		return pages[pageIndex];
+	}
+
+	/**
+	 * Returns character data for the given Unicode code point.
+	 * @param codePoint The code point for which to return a character.
+	 * @return A Unicode character object representing the given code point, or <code>null</code> if character data for that code point is not specified in the
+	 *         Unicode data of this database.
+	 */
+	public UnicodeCharacter getUnicodeCharacter(final int codePoint) {
+		if(codePoint < 0 || codePoint > Character.MAX_CODE_POINT) {
+			return null;
+		}
+		final UnicodeCharacter[] page = pages[codePoint >> PAGE_SHIFT];
+		return page != null ? page[codePoint & PAGE_MASK] : null;
+	}
+
+	/**
+	 * Returns the block in which the specified character falls.
+	 * @param codePoint The Unicode code point.
+	 * @return The Unicode block in which the specified code point falls, or <code>null</code> if the code point does not fall in any known block.
+	 */
+	public UnicodeBlock getUnicodeBlockByCodePoint(final int codePoint) {
+		int low = 0;
+		int high = unicodeBlockArray.length - 1;
+		while(low <= high) { //binary search the blocks, which are in sequential order and do not overlap
+			final int middle = (low + high) >>> 1;
+			final UnicodeBlock block = unicodeBlockArray[middle];
+			if(codePoint < block.getStartCode()) {
+				high = middle - 1;
+			} else if(codePoint > block.getEndCode()) {
+				low = middle + 1;
+			} else {
+				return block;
+			}
+		}
+		return null;
+	}
+
+	/** @return A string representation of this database in the form "Unicode 0.0.0". */
+	public String toString() {
+		return "Unicode " + getVersion();
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import jdk.jfr.*;
+
+/**
+ * The JDK Flight Recorder events reported by the Unicode library. This class is only loaded if JDK Flight Recorder is available.
+ * @author Garret Wilson
+ * @see UnicodeMonitoring
+ */
+final class UnicodeFlightEvents {
+
+	/** The category of all Unicode events. */
+	private static final String CATEGORY = "GlobalMentor Unicode";
+
+	/** This class cannot be publicly instantiated. */
+	private UnicodeFlightEvents() {
+	}
+
+	/**
+	 * Begins a block load event.
+	 * @return The event that was begun, or <code>null</code> if the event is not enabled.
+	 */
+	static Object beginBlockLoad() {
+		final BlockLoadEvent event = new BlockLoadEvent();
+		if(!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends and commits a block load event.
+	 * @param event The event that was begun.
+	 * @param block The block that was loaded.
+	 * @param linesScanned The number of data lines scanned.
+	 * @param charactersLoaded The number of characters loaded.
+	 */
+	static void endBlockLoad(final Object event, final UnicodeBlock block, final int linesScanned, final int charactersLoaded) {
+		final BlockLoadEvent blockLoadEvent = (BlockLoadEvent)event;
+		blockLoadEvent.end();
+		if(blockLoadEvent.shouldCommit()) {
+			blockLoadEvent.blockName = block.getName();
+			blockLoadEvent.startCode = block.getStartCode();
+			blockLoadEvent.endCode = block.getEndCode();
+			blockLoadEvent.linesScanned = linesScanned;
+			blockLoadEvent.charactersLoaded = charactersLoaded;
+			blockLoadEvent.commit();
+		}
+	}
+
+	/**
+	 * Commits a cache miss event.
+	 * @param codePoint The code point that was not found.
+	 * @param cleared Whether the character had been cached but was cleared by the garbage collector.
+	 */
+	static void commitCacheMiss(final int codePoint, final boolean cleared) {
+		final CacheMissEvent event = new CacheMissEvent();
+		if(event.shouldCommit()) {
+			event.codePoint = codePoint;
+			event.cleared = cleared;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Commits an unassigned set rebuild event.
+	 * @param cleared Whether a previous set had been cleared by the garbage collector.
+	 */
+	static void commitUnassignedSetRebuild(final boolean cleared) {
+		final UnassignedSetRebuildEvent event = new UnassignedSetRebuildEvent();
+		if(event.shouldCommit()) {
+			event.cleared = cleared;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Begins a blocks load event.
+	 * @return The event that was begun, or <code>null</code> if the event is not enabled.
+	 */
+	static Object beginBlocksLoad() {
+		final BlocksLoadEvent event = new BlocksLoadEvent();
+		if(!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends and commits a blocks load event.
+	 * @param event The event that was begun.
+	 * @param blockCount The number of blocks loaded.
+	 * @param cleared Whether previously loaded blocks had been cleared by the garbage collector.
+	 */
+	static void endBlocksLoad(final Object event, final int blockCount, final boolean cleared) {
+		final BlocksLoadEvent blocksLoadEvent = (BlocksLoadEvent)event;
+		blocksLoadEvent.end();
+		if(blocksLoadEvent.shouldCommit()) {
+			blocksLoadEvent.blockCount = blockCount;
+			blocksLoadEvent.cleared = cleared;
+			blocksLoadEvent.commit();
+		}
+	}
+
+	/**
+	 * The loading of the characters of a Unicode block from the Unicode data file.
+	 * @author Garret Wilson
+	 */
+	@Name("com.globalmentor.unicode.BlockLoad")
+	@Label("Unicode Block Load")
+	@Description("Characters of a Unicode block were loaded from the Unicode data file.")
+	@Category(CATEGORY)
+	static final class BlockLoadEvent extends Event {
+
+		@Label("Block Name")
+		String blockName;
+
+		@Label("Start Code")
+		int startCode;
+
+		@Label("End Code")
+		int endCode;
+
+		@Label("Lines Scanned")
+		int linesScanned;
+
+		@Label("Characters Loaded")
+		int charactersLoaded;
+	}
+
+	/**
+	 * A character lookup that was not satisfied by the character cache.
+	 * @author Garret Wilson
+	 */
+	@Name("com.globalmentor.unicode.CacheMiss")
+	@Label("Unicode Cache Miss")
+	@Description("A Unicode character was not found in the character cache.")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class CacheMissEvent extends Event {
+
+		@Label("Code Point")
+		int codePoint;
+
+		@Label("Cleared")
+		@Description("Whether the character had been cached but was cleared by the garbage collector.")
+		boolean cleared;
+	}
+
+	/**
+	 * The creation of the set of unassigned code points.
+	 * @author Garret Wilson
+	 */
+	@Name("com.globalmentor.unicode.UnassignedSetRebuild")
+	@Label("Unicode Unassigned Set Rebuild")
+	@Description("The set of unassigned code points was created, initially or after being cleared by the garbage collector.")
+	@Category(CATEGORY)
+	static final class UnassignedSetRebuildEvent extends Event {
+
+		@Label("Cleared")
+		@Description("Whether a previous set had been cleared by the garbage collector.")
+		boolean cleared;
+	}
+
+	/**
+	 * The loading of the Unicode blocks file.
+	 * @author Garret Wilson
+	 */
+	@Name("com.globalmentor.unicode.BlocksLoad")
+	@Label("Unicode Blocks Load")
+	@Description("The Unicode blocks file was loaded, initially or after the blocks were cleared by the garbage collector.")
+	@Category(CATEGORY)
+	static final class BlocksLoadEvent extends Event {
+
+		@Label("Block Count")
+		int blockCount;
+
+		@Label("Cleared")
+		@Description("Whether previously loaded blocks had been cleared by the garbage collector.")
+		boolean cleared;
+	}
+
+}
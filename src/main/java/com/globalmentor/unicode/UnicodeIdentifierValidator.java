@@ -0,0 +1,369 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import static com.globalmentor.unicode.UnicodeConstants.*;
+import static java.util.Objects.*;
+
+/**
+ * Validates identifiers, such as programming language identifiers and XML names, consisting of a start character followed by any number of continuing
+ * characters.
+ * <p>
+ * The rules of a validator, or its profile, are defined in terms of general categories and individual code points, and are compiled once, when the validator
+ * is built, into bitmaps of start and continuing code points. Text is validated in a single pass without creating any objects, and ASCII characters are
+ * checked against inline bit masks without consulting the bitmaps at all.
+ * </p>
+ * <p>
+ * A validator is immutable and may be shared among threads.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodeIdentifierValidator {
+
+	/**
+	 * A validator of identifiers using the bundled Unicode database, in which an identifier starts with a letter of any category or a letter number (categories
+	 * {@link UnicodeConstants#LETTER_UPPERCASE}, {@link UnicodeConstants#LETTER_LOWERCASE}, {@link UnicodeConstants#LETTER_TITLECASE},
+	 * {@link UnicodeConstants#LETTER_MODIFIER}, {@link UnicodeConstants#LETTER_OTHER}, and {@link UnicodeConstants#NUMBER_LETTER}), and continues with those or
+	 * with nonspacing marks, spacing combining marks, decimal digits, and connector punctuation (categories {@link UnicodeConstants#MARK_NONSPACING},
+	 * {@link UnicodeConstants#MARK_SPACING_COMBINING}, {@link UnicodeConstants#NUMBER_DECIMAL_DIGIT}, and {@link UnicodeConstants#PUNCTUATION_CONNECTOR}).
+	 */
+	public static final UnicodeIdentifierValidator IDENTIFIER = new Builder(UnicodeDatabase.getBundled())
+			.addStartGeneralCategories(LETTER_UPPERCASE, LETTER_LOWERCASE, LETTER_TITLECASE, LETTER_MODIFIER, LETTER_OTHER, NUMBER_LETTER)
+			.addContinueGeneralCategories(MARK_NONSPACING, MARK_SPACING_COMBINING, NUMBER_DECIMAL_DIGIT, PUNCTUATION_CONNECTOR).build();
+
+	/**
+	 * A validator of XML names using the bundled Unicode database, following the category-based rules of XML 1.0 Appendix B: a name starts with a letter of
+	 * categories {@link UnicodeConstants#LETTER_UPPERCASE}, {@link UnicodeConstants#LETTER_LOWERCASE}, {@link UnicodeConstants#LETTER_TITLECASE},
+	 * {@link UnicodeConstants#LETTER_OTHER}, or {@link UnicodeConstants#NUMBER_LETTER}, or with '_' or ':'; and continues with those or with characters of
+	 * categories {@link UnicodeConstants#LETTER_MODIFIER}, {@link UnicodeConstants#MARK_NONSPACING}, {@link UnicodeConstants#MARK_SPACING_COMBINING},
+	 * {@link UnicodeConstants#MARK_ENCLOSING}, and {@link UnicodeConstants#NUMBER_DECIMAL_DIGIT}, or with '-', '.', or the middle dot. The appendix's exclusion
+	 * of compatibility characters is not applied.
+	 */
+	public static final UnicodeIdentifierValidator XML_NAME = new Builder(UnicodeDatabase.getBundled())
+			.addStartGeneralCategories(LETTER_UPPERCASE, LETTER_LOWERCASE, LETTER_TITLECASE, LETTER_OTHER, NUMBER_LETTER).addStart('_', ':')
+			.addContinueGeneralCategories(LETTER_MODIFIER, MARK_NONSPACING, MARK_SPACING_COMBINING, MARK_ENCLOSING, NUMBER_DECIMAL_DIGIT)
+			.addContinue('-', '.', 0xB7).build();
+
+	/** A validator of XML names without colons, as used in XML namespaces, following the rules of {@link #XML_NAME} except that ':' is not allowed. */
+	public static final UnicodeIdentifierValidator XML_NCNAME = new Builder(UnicodeDatabase.getBundled()).addProfile(XML_NAME).exclude(':').build();
+
+	/** The code points allowed at the start of an identifier. */
+	private final UnicodeSet startSet;
+
+	/** @return The code points allowed at the start of an identifier. */
+	public UnicodeSet getStartSet() {
+		return startSet;
+	}
+
+	/** The code points allowed after the start of an identifier; always includes the start code points. */
+	private final UnicodeSet continueSet;
+
+	/** @return The code points allowed after the start of an identifier; always includes the start code points. */
+	public UnicodeSet getContinueSet() {
+		return continueSet;
+	}
+
+	/** The bitmap of start code points. */
+	private final CodePointBitTable startTable;
+
+	/** The bitmap of continuing code points. */
+	private final CodePointBitTable continueTable;
+
+	/** The bits of the ASCII start code points <code>0x00</code> through <code>0x3F</code>. */
+	private final long asciiStartBits0;
+
+	/** The bits of the ASCII start code points <code>0x40</code> through <code>0x7F</code>. */
+	private final long asciiStartBits1;
+
+	/** The bits of the ASCII continuing code points <code>0x00</code> through <code>0x3F</code>. */
+	private final long asciiContinueBits0;
+
+	/** The bits of the ASCII continuing code points <code>0x40</code> through <code>0x7F</code>. */
+	private final long asciiContinueBits1;
+
+	/**
+	 * Builder constructor.
+	 * @param builder The builder containing the validator rules.
+	 */
+	private UnicodeIdentifierValidator(final Builder builder) {
+		final UnicodeSet surrogateSet = UnicodeSet.range(Character.MIN_SURROGATE, Character.MAX_SURROGATE); //surrogate code points never appear alone in valid text
+		startSet = builder.startSet.difference(builder.excludedSet).difference(surrogateSet);
+		continueSet = builder.continueSet.union(startSet).difference(builder.excludedSet).difference(surrogateSet);
+		startTable = new CodePointBitTable(startSet);
+		continueTable = new CodePointBitTable(continueSet);
+		asciiStartBits0 = getAsciiBits(startTable, 0);
+		asciiStartBits1 = getAsciiBits(startTable, 0x40);
+		asciiContinueBits0 = getAsciiBits(continueTable, 0);
+		asciiContinueBits1 = getAsciiBits(continueTable, 0x40);
+	}
+
+	/**
+	 * Collects the bits of 64 ASCII code points in a bitmap.
+	 * @param table The bitmap of code points.
+	 * @param offset The first code point, either <code>0x00</code> or <code>0x40</code>.
+	 * @return The bits of the code points in the table, with bit <var>n</var> representing the code point at <var>offset</var>+<var>n</var>.
+	 */
+	private static long getAsciiBits(final CodePointBitTable table, final int offset) {
+		long bits = 0;
+		for(int i = 0; i < Long.SIZE; ++i) {
+			if(table.contains(offset + i)) {
+				bits |= 1L << i;
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Determines whether a code point may start an identifier.
+	 * @param codePoint The code point to check.
+	 * @return <code>true</code> if the code point is allowed at the start of an identifier.
+	 */
+	public boolean isStart(final int codePoint) {
+		return startTable.contains(codePoint);
+	}
+
+	/**
+	 * Determines whether a code point may appear after the start of an identifier.
+	 * @param codePoint The code point to check.
+	 * @return <code>true</code> if the code point is allowed after the start of an identifier.
+	 */
+	public boolean isContinue(final int codePoint) {
+		return continueTable.contains(codePoint);
+	}
+
+	/**
+	 * Determines whether text is a valid identifier.
+	 * @param text The text to check.
+	 * @return <code>true</code> if the text is a non-empty, valid identifier.
+	 */
+	public boolean isValid(final CharSequence text) {
+		return indexOfInvalid(text, 0, text.length()) < 0;
+	}
+
+	/**
+	 * Finds the first character preventing text from being a valid identifier.
+	 * @param text The text to check.
+	 * @return The index of the first offending character, the length of the text if the text is empty, or <code>-1</code> if the text is a valid identifier.
+	 */
+	public int indexOfInvalid(final CharSequence text) {
+		return indexOfInvalid(text, 0, text.length());
+	}
+
+	/**
+	 * Finds the first character preventing a span of text from being a valid identifier. An unpaired surrogate, including a high surrogate at the end of the
+	 * span, is always invalid.
+	 * @param text The text to check.
+	 * @param start The index of the start of the identifier.
+	 * @param end The index of the end of the identifier.
+	 * @return The index of the first offending character, the start if the span is empty, or <code>-1</code> if the span is a valid identifier.
+	 * @throws IndexOutOfBoundsException if the start or end are out of the bounds of the text, or the start is after the end.
+	 */
+	public int indexOfInvalid(final CharSequence text, final int start, final int end) {
+		if(start < 0 || end > text.length() || start > end) {
+			throw new IndexOutOfBoundsException("Span " + start + "-" + end + " is out of bounds for length " + text.length() + ".");
+		}
+		if(start == end) { //an identifier cannot be empty
+			return start;
+		}
+		int index = start;
+		final char first = text.charAt(index);
+		if(first < 0x80) {
+			if(((first < 0x40 ? asciiStartBits0 : asciiStartBits1) & (1L << first)) == 0) {
+				return index;
+			}
+			++index;
+		} else {
+			final int codePoint = codePointAt(text, index, end);
+			if(codePoint < 0 || !startTable.contains(codePoint)) {
+				return index;
+			}
+			index += Character.charCount(codePoint);
+		}
+		final long ascii0 = asciiContinueBits0;
+		final long ascii1 = asciiContinueBits1;
+		while(index < end) {
+			final char c = text.charAt(index);
+			if(c < 0x80) { //ASCII fast path
+				if(((c < 0x40 ? ascii0 : ascii1) & (1L << c)) == 0) {
+					return index;
+				}
+				++index;
+			} else {
+				final int codePoint = codePointAt(text, index, end);
+				if(codePoint < 0 || !continueTable.contains(codePoint)) {
+					return index;
+				}
+				index += Character.charCount(codePoint);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the code point at an index, which must not be ASCII.
+	 * @param text The text containing the code point.
+	 * @param index The index of the code point.
+	 * @param end The index of the end of the text being checked.
+	 * @return The code point at the index, or <code>-1</code> if the index contains an unpaired surrogate.
+	 */
+	private static int codePointAt(final CharSequence text, final int index, final int end) {
+		final char c = text.charAt(index);
+		if(!Character.isSurrogate(c)) {
+			return c;
+		}
+		if(Character.isHighSurrogate(c) && index + 1 < end) {
+			final char low = text.charAt(index + 1);
+			if(Character.isLowSurrogate(low)) {
+				return Character.toCodePoint(c, low);
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return "start: " + startSet + ", continue: " + continueSet;
+	}
+
+	/**
+	 * Builds identifier validators. Code points allowed at the start of an identifier are also allowed after the start.
+	 * @author Garret Wilson
+	 */
+	public static class Builder {
+
+		/** The Unicode database from which to determine character categories. */
+		private final UnicodeDatabase database;
+
+		/** The code points allowed at the start of an identifier. */
+		private UnicodeSet startSet = UnicodeSet.EMPTY;
+
+		/** The code points allowed after the start of an identifier, in addition to those allowed at the start. */
+		private UnicodeSet continueSet = UnicodeSet.EMPTY;
+
+		/** The code points not allowed anywhere in an identifier, even if added to the start or continuing code points. */
+		private UnicodeSet excludedSet = UnicodeSet.EMPTY;
+
+		/**
+		 * Creates a builder using the current Unicode database.
+		 * @see UnicodeDatabase#getCurrent()
+		 */
+		public Builder() {
+			this(UnicodeDatabase.getCurrent());
+		}
+
+		/**
+		 * Database constructor.
+		 * @param database The Unicode database from which to determine character categories.
+		 */
+		public Builder(final UnicodeDatabase database) {
+			this.database = requireNonNull(database);
+		}
+
+		/**
+		 * Adds the rules of an existing validator, so that a standard profile may be extended.
+		 * @param profile The validator the start and continuing code points of which to add.
+		 * @return This builder.
+		 */
+		public Builder addProfile(final UnicodeIdentifierValidator profile) {
+			addStart(profile.getStartSet());
+			return addContinue(profile.getContinueSet());
+		}
+
+		/**
+		 * Allows code points of the given general categories at the start of an identifier.
+		 * @param generalCategories The general categories to allow.
+		 * @return This builder.
+		 * @see UnicodeSet#forGeneralCategories(UnicodeDatabase, String...)
+		 */
+		public Builder addStartGeneralCategories(final String... generalCategories) {
+			return addStart(UnicodeSet.forGeneralCategories(database, generalCategories));
+		}
+
+		/**
+		 * Allows code points at the start of an identifier.
+		 * @param codePoints The code points to allow.
+		 * @return This builder.
+		 */
+		public Builder addStart(final int... codePoints) {
+			return addStart(UnicodeSet.of(codePoints));
+		}
+
+		/**
+		 * Allows the code points of a set at the start of an identifier.
+		 * @param unicodeSet The code points to allow.
+		 * @return This builder.
+		 */
+		public Builder addStart(final UnicodeSet unicodeSet) {
+			startSet = startSet.union(unicodeSet);
+			return this;
+		}
+
+		/**
+		 * Allows code points of the given general categories after the start of an identifier.
+		 * @param generalCategories The general categories to allow.
+		 * @return This builder.
+		 * @see UnicodeSet#forGeneralCategories(UnicodeDatabase, String...)
+		 */
+		public Builder addContinueGeneralCategories(final String... generalCategories) {
+			return addContinue(UnicodeSet.forGeneralCategories(database, generalCategories));
+		}
+
+		/**
+		 * Allows code points after the start of an identifier.
+		 * @param codePoints The code points to allow.
+		 * @return This builder.
+		 */
+		public Builder addContinue(final int... codePoints) {
+			return addContinue(UnicodeSet.of(codePoints));
+		}
+
+		/**
+		 * Allows the code points of a set after the start of an identifier.
+		 * @param unicodeSet The code points to allow.
+		 * @return This builder.
+		 */
+		public Builder addContinue(final UnicodeSet unicodeSet) {
+			continueSet = continueSet.union(unicodeSet);
+			return this;
+		}
+
+		/**
+		 * Disallows code points anywhere in an identifier, even if allowed by category.
+		 * @param codePoints The code points to disallow.
+		 * @return This builder.
+		 */
+		public Builder exclude(final int... codePoints) {
+			return exclude(UnicodeSet.of(codePoints));
+		}
+
+		/**
+		 * Disallows the code points of a set anywhere in an identifier, even if allowed by category.
+		 * @param unicodeSet The code points to disallow.
+		 * @return This builder.
+		 */
+		public Builder exclude(final UnicodeSet unicodeSet) {
+			excludedSet = excludedSet.union(unicodeSet);
+			return this;
+		}
+
+		/** @return A new validator with the current rules. */
+		public UnicodeIdentifierValidator build() {
+			return new UnicodeIdentifierValidator(this);
+		}
+	}
+
+}
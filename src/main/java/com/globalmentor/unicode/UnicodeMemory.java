@@ -0,0 +1,662 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import javax.management.*;
+
+/**
+ * Accounts for and controls the memory held by the softly referenced structures of {@link UnicodeData} and {@link UnicodeBlocks}, and accounts for the memory
+ * held by the loaded {@link UnicodeDatabase} instances.
+ * <p>
+ * For each {@link Structure} the current number of entries, the estimated number of bytes retained, and the number of times the structure was rebuilt after
+ * being reclaimed by the garbage collector may be retrieved as a {@link Usage} snapshot. Byte counts are estimates assuming a 64-bit JVM with compressed
+ * object pointers; they are intended for capacity planning, not exact measurement.
+ * </p>
+ * <p>
+ * The structures may be explicitly released using {@link #trim()}, or held in memory using {@link #pin()} so that the garbage collector cannot reclaim them;
+ * while pinned, structures loaded later are pinned as well. The same information and controls are available over JMX by registering a
+ * {@link UnicodeDataMXBean} using {@link #registerMBean()}.
+ * </p>
+ * <p>
+ * The character records of the bundled and current databases, accounted for as {@link Structure#DATABASES}, are strongly reachable; they are neither
+ * reclaimed by the garbage collector nor released by {@link #trim()}, and remain until the database is no longer current and no longer referenced. The same
+ * is true of the tables derived from each database, such as those of {@link DiacriticFolder}, {@link UnicodeSkeleton}, {@link UnicodeCaseFolder}, and
+ * {@link UnicodeNameIndex}. Derived tables are counted by {@link #getDerivedTableCount()}, but their bytes are not estimated, and they are not included in
+ * any {@link Usage}.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodeMemory {
+
+	/** The name under which the MBean is registered. */
+	public static final String MBEAN_NAME = "com.globalmentor.unicode:type=UnicodeData";
+
+	/** The estimated size of an object header. */
+	private static final int OBJECT_HEADER_BYTES = 12;
+
+	/** The estimated size of an object reference. */
+	private static final int REFERENCE_BYTES = 4;
+
+	/** The estimated size of a hash map entry, not including its key and value. */
+	private static final int HASH_ENTRY_BYTES = 32;
+
+	/** The estimated size of a tree map entry, not including its key and value. */
+	private static final int TREE_ENTRY_BYTES = 40;
+
+	/** The estimated size of an {@link Integer}. */
+	private static final int INTEGER_BYTES = 16;
+
+	/** The estimated size of a {@link java.lang.ref.SoftReference}, not including its referent. */
+	private static final int SOFT_REFERENCE_BYTES = 32;
+
+	/** The estimated size of a {@link UnicodeCharacter}, not including its strings; the property set is shared, and is not counted. */
+	private static final int UNICODE_CHARACTER_BYTES = 64;
+
+	/** The estimated size of a {@link UnicodeBlock}, not including its name. */
+	private static final int UNICODE_BLOCK_BYTES = 24;
+
+	/**
+	 * A structure for which memory is accounted.
+	 * @author Garret Wilson
+	 */
+	public enum Structure {
+		/** The cache of softly referenced characters in {@link UnicodeData}. */
+		CHARACTER_CACHE,
+		/** The set of code points known to be unassigned in {@link UnicodeData}. */
+		UNASSIGNED_SET,
+		/** The set of blocks in {@link UnicodeBlocks}. */
+		BLOCKS,
+		/** The unparsed Unicode data text retained by {@link UnicodeData} for streaming. */
+		DATA_TEXT,
+		/**
+		 * The character records and pages of the bundled and current {@link UnicodeDatabase}, which are not softly referenced and cannot be trimmed. Records
+		 * and pages shared between the databases are counted once. Tables derived from the databases are not included.
+		 */
+		DATABASES;
+	}
+
+	/**
+	 * An immutable snapshot of the memory used by a structure.
+	 * @author Garret Wilson
+	 */
+	public static final class Usage {
+
+		/** The structure. */
+		private final Structure structure;
+
+		/** @return The structure. */
+		public Structure getStructure() {
+			return structure;
+		}
+
+		/** Whether the structure is currently in memory. */
+		private final boolean resident;
+
+		/** @return Whether the structure is currently in memory. */
+		public boolean isResident() {
+			return resident;
+		}
+
+		/** The number of entries. */
+		private final int entryCount;
+
+		/** @return The number of entries: characters, code points, blocks, characters of text, or database character records, depending on the structure. */
+		public int getEntryCount() {
+			return entryCount;
+		}
+
+		/** The number of entries the values of which have been reclaimed. */
+		private final int clearedEntryCount;
+
+		/** @return The number of entries the values of which have been reclaimed by the garbage collector; only applicable to the character cache. */
+		public int getClearedEntryCount() {
+			return clearedEntryCount;
+		}
+
+		/** The estimated number of bytes retained. */
+		private final long estimatedBytes;
+
+		/** @return The estimated number of bytes retained by the structure. */
+		public long getEstimatedBytes() {
+			return estimatedBytes;
+		}
+
+		/** The number of times the structure was rebuilt. */
+		private final long rebuildCount;
+
+		/** @return The number of times the structure, or for the character cache an entry, was rebuilt after being reclaimed by the garbage collector. */
+		public long getRebuildCount() {
+			return rebuildCount;
+		}
+
+		/**
+		 * Constructor.
+		 * @param structure The structure.
+		 * @param resident Whether the structure is currently in memory.
+		 * @param entryCount The number of entries.
+		 * @param clearedEntryCount The number of entries the values of which have been reclaimed.
+		 * @param estimatedBytes The estimated number of bytes retained.
+		 * @param rebuildCount The number of times the structure was rebuilt.
+		 */
+		private Usage(final Structure structure, final boolean resident, final int entryCount, final int clearedEntryCount, final long estimatedBytes,
+				final long rebuildCount) {
+			this.structure = structure;
+			this.resident = resident;
+			this.entryCount = entryCount;
+			this.clearedEntryCount = clearedEntryCount;
+			this.estimatedBytes = estimatedBytes;
+			this.rebuildCount = rebuildCount;
+		}
+
+		/** @return A string representation of this usage, such as "CHARACTER_CACHE: 128 entries (0 cleared), ~12345 bytes, 0 rebuilds". */
+		public String toString() {
+			return structure + ": " + entryCount + " entries (" + clearedEntryCount + " cleared), ~" + estimatedBytes + " bytes, " + rebuildCount + " rebuilds";
+		}
+	}
+
+	/** The rebuild counts of the structures, indexed by structure ordinal. */
+	private static final AtomicLongArray rebuildCounts = new AtomicLongArray(Structure.values().length);
+
+	/** The number of times the structures have been trimmed. */
+	private static final AtomicLong trimCount = new AtomicLong();
+
+	/** Whether the structures are pinned. */
+	private static volatile boolean pinned = false;
+
+	/** The pinned characters, keyed to their code points; guarded by {@link UnicodeData#cacheLock}. */
+	private static final Map<Integer, UnicodeCharacter> pinnedCharacters = new HashMap<Integer, UnicodeCharacter>();
+
+	/** The pinned set of unassigned code points, or <code>null</code> if none is pinned; guarded by {@link UnicodeData#cacheLock}. */
+	private static Set<Integer> pinnedUnassignedCodeSet = null;
+
+	/** The pinned blocks, or <code>null</code> if none are pinned. */
+	private static volatile SortedSet<UnicodeBlock> pinnedBlocks = null;
+
+	/** The pinned Unicode data text, or <code>null</code> if none is pinned. */
+	private static volatile char[] pinnedUnicodeDataChars = null;
+
+	/** This class cannot be publicly instantiated. */
+	private UnicodeMemory() {
+	}
+
+	/**
+	 * Indicates that a structure was rebuilt after being reclaimed.
+	 * @param structure The structure that was rebuilt.
+	 */
+	static void rebuilt(final Structure structure) {
+		rebuildCounts.incrementAndGet(structure.ordinal());
+	}
+
+	/**
+	 * Indicates that characters were cached, pinning them if the structures are pinned. The caller must hold {@link UnicodeData#cacheLock}.
+	 * @param unicodeCharacters The characters cached.
+	 */
+	static void charactersCached(final Collection<UnicodeCharacter> unicodeCharacters) {
+		if(pinned) {
+			for(final UnicodeCharacter unicodeCharacter : unicodeCharacters) {
+				pinnedCharacters.put(Integer.valueOf(unicodeCharacter.getCodeValue()), unicodeCharacter);
+			}
+		}
+	}
+
+	/**
+	 * Indicates that the set of unassigned code points was created, pinning it if the structures are pinned. The caller must hold
+	 * {@link UnicodeData#cacheLock}.
+	 * @param unassignedCodeSet The new set of unassigned code points.
+	 */
+	static void unassignedCodeSetCreated(final Set<Integer> unassignedCodeSet) {
+		if(pinned) {
+			pinnedUnassignedCodeSet = unassignedCodeSet;
+		}
+	}
+
+	/**
+	 * Indicates that the blocks were loaded, pinning them if the structures are pinned.
+	 * @param blocks The blocks loaded.
+	 */
+	static void blocksLoaded(final SortedSet<UnicodeBlock> blocks) {
+		if(pinned) {
+			pinnedBlocks = blocks;
+		}
+	}
+
+	/**
+	 * Indicates that the Unicode data text was read, pinning it if the structures are pinned.
+	 * @param unicodeDataChars The Unicode data text.
+	 */
+	static void unicodeDataCharsLoaded(final char[] unicodeDataChars) {
+		if(pinned) {
+			pinnedUnicodeDataChars = unicodeDataChars;
+		}
+	}
+
+	/** @return Whether the structures are pinned in memory. */
+	public static boolean isPinned() {
+		return pinned;
+	}
+
+	/**
+	 * Pins the structures currently in memory so that they cannot be reclaimed by the garbage collector. Structures loaded while pinned are pinned as well.
+	 * This method has no effect if the structures are already pinned.
+	 */
+	public static void pin() {
+		UnicodeData.cacheLock.lock();
+		try {
+			pinned = true;
+			for(final Map.Entry<Integer, Reference<UnicodeCharacter>> entry : UnicodeData.unicodeCharacterReferenceMap.entrySet()) {
+				final UnicodeCharacter unicodeCharacter = entry.getValue().get();
+				if(unicodeCharacter != null) {
+					pinnedCharacters.put(entry.getKey(), unicodeCharacter);
+				}
+			}
+			pinnedUnassignedCodeSet = get(UnicodeData.unassignedCodeSetReference);
+		} finally {
+			UnicodeData.cacheLock.unlock();
+		}
+		pinnedBlocks = UnicodeBlocks.getCachedBlocks();
+		pinnedUnicodeDataChars = get(UnicodeData.unicodeDataCharsReference);
+	}
+
+	/** Releases the pinned structures, allowing them to be reclaimed by the garbage collector again. */
+	public static void unpin() {
+		UnicodeData.cacheLock.lock();
+		try {
+			pinned = false;
+			pinnedCharacters.clear();
+			pinnedUnassignedCodeSet = null;
+		} finally {
+			UnicodeData.cacheLock.unlock();
+		}
+		pinnedBlocks = null;
+		pinnedUnicodeDataChars = null;
+	}
+
+	/**
+	 * Releases all the softly referenced structures, unpinning them if needed, so that their memory may be reclaimed. The structures will be loaded again as
+	 * needed; such loads are not counted as rebuilds. The loaded databases, {@link Structure#DATABASES}, and the tables derived from them are not released.
+	 */
+	public static void trim() {
+		UnicodeData.cacheLock.lock();
+		try {
+			unpin();
+			UnicodeData.unicodeCharacterReferenceMap.clear();
+			UnicodeData.unassignedCodeSetReference = null;
+		} finally {
+			UnicodeData.cacheLock.unlock();
+		}
+		UnicodeBlocks.clearCache();
+		UnicodeData.unicodeDataCharsReference = null;
+		trimCount.incrementAndGet();
+	}
+
+	/** @return The number of times the structures have been trimmed. */
+	public static long getTrimCount() {
+		return trimCount.get();
+	}
+
+	/**
+	 * Returns a snapshot of the memory used by a structure.
+	 * @param structure The structure.
+	 * @return The current memory usage of the structure.
+	 */
+	public static Usage getUsage(final Structure structure) {
+		final long rebuildCount = rebuildCounts.get(structure.ordinal());
+		switch(structure) {
+			case CHARACTER_CACHE: {
+				int entryCount = 0;
+				int clearedEntryCount = 0;
+				long estimatedBytes = 0;
+				UnicodeData.cacheLock.lock();
+				try {
+					for(final Reference<UnicodeCharacter> reference : UnicodeData.unicodeCharacterReferenceMap.values()) {
+						estimatedBytes += HASH_ENTRY_BYTES + INTEGER_BYTES + SOFT_REFERENCE_BYTES;
+						final UnicodeCharacter unicodeCharacter = reference.get();
+						if(unicodeCharacter != null) {
+							++entryCount;
+							estimatedBytes += estimateBytes(unicodeCharacter);
+						} else {
+							++clearedEntryCount;
+						}
+					}
+					estimatedBytes += estimateHashTableBytes(UnicodeData.unicodeCharacterReferenceMap.size());
+				} finally {
+					UnicodeData.cacheLock.unlock();
+				}
+				return new Usage(structure, entryCount > 0, entryCount, clearedEntryCount, estimatedBytes, rebuildCount);
+			}
+			case UNASSIGNED_SET: {
+				int entryCount = 0;
+				boolean resident = false;
+				UnicodeData.cacheLock.lock();
+				try {
+					final Set<Integer> unassignedCodeSet = get(UnicodeData.unassignedCodeSetReference);
+					if(unassignedCodeSet != null) {
+						resident = true;
+						entryCount = unassignedCodeSet.size();
+					}
+				} finally {
+					UnicodeData.cacheLock.unlock();
+				}
+				final long estimatedBytes = resident ? (long)entryCount * (HASH_ENTRY_BYTES + INTEGER_BYTES) + estimateHashTableBytes(entryCount) : 0;
+				return new Usage(structure, resident, entryCount, 0, estimatedBytes, rebuildCount);
+			}
+			case BLOCKS: {
+				final SortedSet<UnicodeBlock> blocks = UnicodeBlocks.getCachedBlocks();
+				long estimatedBytes = 0;
+				if(blocks != null) {
+					for(final UnicodeBlock block : blocks) {
+						estimatedBytes += TREE_ENTRY_BYTES + UNICODE_BLOCK_BYTES + estimateBytes(block.getName());
+					}
+				}
+				return new Usage(structure, blocks != null, blocks != null ? blocks.size() : 0, 0, estimatedBytes, rebuildCount);
+			}
+			case DATA_TEXT: {
+				final char[] unicodeDataChars = get(UnicodeData.unicodeDataCharsReference);
+				final int length = unicodeDataChars != null ? unicodeDataChars.length : 0;
+				final long estimatedBytes = unicodeDataChars != null ? align(OBJECT_HEADER_BYTES + Integer.BYTES + (long)length * Character.BYTES) : 0;
+				return new Usage(structure, unicodeDataChars != null, length, 0, estimatedBytes, rebuildCount);
+			}
+			case DATABASES: {
+				final List<UnicodeDatabase> databases = UnicodeDatabase.getLoadedDatabases();
+				final Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()); //count shared pages and records once
+				int entryCount = 0;
+				long estimatedBytes = 0;
+				for(final UnicodeDatabase database : databases) {
+					final UnicodeCharacter[][] pages = database.getPages();
+					estimatedBytes += align(OBJECT_HEADER_BYTES + Integer.BYTES + (long)pages.length * REFERENCE_BYTES);
+					for(final UnicodeCharacter[] page : pages) {
+						if(page != null && counted.add(page)) {
+							estimatedBytes += align(OBJECT_HEADER_BYTES + Integer.BYTES + (long)page.length * REFERENCE_BYTES);
+							for(final UnicodeCharacter unicodeCharacter : page) {
+								if(unicodeCharacter != null && counted.add(unicodeCharacter)) {
+									++entryCount;
+									estimatedBytes += estimateBytes(unicodeCharacter);
+								}
+							}
+						}
+					}
+					estimatedBytes += align(OBJECT_HEADER_BYTES + Integer.BYTES + (long)database.getUnicodeCharacters().size() * REFERENCE_BYTES); //the list of characters
+				}
+				return new Usage(structure, !databases.isEmpty(), entryCount, 0, estimatedBytes, rebuildCount);
+			}
+			default:
+				throw new AssertionError("Unrecognized structure: " + structure);
+		}
+	}
+
+	/** @return An unmodifiable map of snapshots of the memory used by every structure, keyed to the structures. */
+	public static Map<Structure, Usage> getUsages() {
+		final Map<Structure, Usage> usages = new EnumMap<Structure, Usage>(Structure.class);
+		for(final Structure structure : Structure.values()) {
+			usages.put(structure, getUsage(structure));
+		}
+		return Collections.unmodifiableMap(usages);
+	}
+
+	/** @return The number of tables derived from the bundled and current databases, the memory of which is not accounted for. */
+	public static int getDerivedTableCount() {
+		int derivedTableCount = 0;
+		for(final UnicodeDatabase database : UnicodeDatabase.getLoadedDatabases()) {
+			derivedTableCount += database.getDerivedTableCount();
+		}
+		return derivedTableCount;
+	}
+
+	/** @return The estimated number of bytes retained by all structures, not including the tables derived from the databases. */
+	public static long getEstimatedBytes() {
+		long estimatedBytes = 0;
+		for(final Structure structure : Structure.values()) {
+			estimatedBytes += getUsage(structure).getEstimatedBytes();
+		}
+		return estimatedBytes;
+	}
+
+	/**
+	 * Returns the blocks having at least one character in the character cache. The blocks are loaded if needed.
+	 * @return An unmodifiable set of the blocks with cached characters, in sequential order.
+	 */
+	public static SortedSet<UnicodeBlock> getResidentBlocks() {
+		final int[] cachedCodePoints;
+		UnicodeData.cacheLock.lock();
+		try {
+			cachedCodePoints = UnicodeData.unicodeCharacterReferenceMap.entrySet().stream().filter(entry -> entry.getValue().get() != null)
+					.mapToInt(entry -> entry.getKey().intValue()).sorted().toArray();
+		} finally {
+			UnicodeData.cacheLock.unlock();
+		}
+		final SortedSet<UnicodeBlock> residentBlocks = new TreeSet<UnicodeBlock>();
+		int index = 0;
+		for(final UnicodeBlock block : UnicodeBlocks.getUnicodeBlocks()) { //merge the sorted blocks with the sorted code points
+			while(index < cachedCodePoints.length && cachedCodePoints[index] < block.getStartCode()) {
+				++index;
+			}
+			if(index < cachedCodePoints.length && cachedCodePoints[index] <= block.getEndCode()) {
+				residentBlocks.add(block);
+			}
+		}
+		return Collections.unmodifiableSortedSet(residentBlocks);
+	}
+
+	/**
+	 * Registers a {@link UnicodeDataMXBean} with the platform MBean server under the name {@value #MBEAN_NAME}.
+	 * @return The name under which the MBean was registered.
+	 * @throws InstanceAlreadyExistsException if the MBean is already registered.
+	 * @throws JMException if there was an error registering the MBean.
+	 */
+	public static ObjectName registerMBean() throws JMException {
+		final ObjectName objectName = new ObjectName(MBEAN_NAME);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new MXBean(), objectName);
+		return objectName;
+	}
+
+	/**
+	 * Unregisters the {@link UnicodeDataMXBean} from the platform MBean server, if it is registered.
+	 * @return <code>true</code> if the MBean was registered and has been unregistered.
+	 * @throws JMException if there was an error unregistering the MBean.
+	 */
+	public static boolean unregisterMBean() throws JMException {
+		final ObjectName objectName = new ObjectName(MBEAN_NAME);
+		final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		if(!mbeanServer.isRegistered(objectName)) {
+			return false;
+		}
+		mbeanServer.unregisterMBean(objectName);
+		return true;
+	}
+
+	/**
+	 * Retrieves the referent of a reference that may be <code>null</code>.
+	 * @param <T> The type of referent.
+	 * @param reference The reference, or <code>null</code>.
+	 * @return The referent, or <code>null</code> if there is no reference or it has been cleared.
+	 */
+	private static <T> T get(final Reference<T> reference) {
+		return reference != null ? reference.get() : null;
+	}
+
+	/**
+	 * Rounds a size up to the eight-byte alignment of objects.
+	 * @param bytes The unaligned size.
+	 * @return The aligned size.
+	 */
+	private static long align(final long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	/**
+	 * Estimates the size of the table of a hash map or hash set with the default load factor.
+	 * @param size The number of entries.
+	 * @return The estimated size of the table.
+	 */
+	private static long estimateHashTableBytes(final int size) {
+		if(size == 0) { //an empty table may not even be allocated
+			return 0;
+		}
+		final int capacity = Integer.highestOneBit(Math.max(size * 4 / 3, 1)) << 1;
+		return align(OBJECT_HEADER_BYTES + Integer.BYTES + (long)capacity * REFERENCE_BYTES);
+	}
+
+	/**
+	 * Estimates the size of a string, including its backing array.
+	 * @param string The string, or <code>null</code>.
+	 * @return The estimated size of the string, or <code>0</code> if the string is <code>null</code> or empty, as empty strings are usually shared.
+	 */
+	private static long estimateBytes(final String string) {
+		if(string == null || string.isEmpty()) {
+			return 0;
+		}
+		boolean latin1 = true;
+		for(int i = 0; i < string.length() && latin1; ++i) {
+			latin1 = string.charAt(i) <= 0xFF;
+		}
+		return 24 + align(OBJECT_HEADER_BYTES + Integer.BYTES + (long)string.length() * (latin1 ? 1 : 2));
+	}
+
+	/**
+	 * Estimates the size of a character, including its strings but not its shared property set.
+	 * @param unicodeCharacter The character.
+	 * @return The estimated size of the character.
+	 */
+	private static long estimateBytes(final UnicodeCharacter unicodeCharacter) {
+		return UNICODE_CHARACTER_BYTES + estimateBytes(unicodeCharacter.getCharacterName())
+				+ estimateBytes(unicodeCharacter.getCharacterDecompositionMappings()) + estimateBytes(unicodeCharacter.getUnicode10Name())
+				+ estimateBytes(unicodeCharacter.getISO10646Comment());
+	}
+
+	/**
+	 * The MXBean exposing the memory accounting and controls.
+	 * @author Garret Wilson
+	 */
+	private static final class MXBean implements UnicodeDataMXBean {
+
+		@Override
+		public int getCachedCharacterCount() {
+			return getUsage(Structure.CHARACTER_CACHE).getEntryCount();
+		}
+
+		@Override
+		public int getClearedCharacterCount() {
+			return getUsage(Structure.CHARACTER_CACHE).getClearedEntryCount();
+		}
+
+		@Override
+		public long getCharacterCacheEstimatedBytes() {
+			return getUsage(Structure.CHARACTER_CACHE).getEstimatedBytes();
+		}
+
+		@Override
+		public long getCharacterCacheRebuildCount() {
+			return rebuildCounts.get(Structure.CHARACTER_CACHE.ordinal());
+		}
+
+		@Override
+		public int getUnassignedCodePointCount() {
+			return getUsage(Structure.UNASSIGNED_SET).getEntryCount();
+		}
+
+		@Override
+		public long getUnassignedSetEstimatedBytes() {
+			return getUsage(Structure.UNASSIGNED_SET).getEstimatedBytes();
+		}
+
+		@Override
+		public long getUnassignedSetRebuildCount() {
+			return rebuildCounts.get(Structure.UNASSIGNED_SET.ordinal());
+		}
+
+		@Override
+		public int getBlockCount() {
+			return getUsage(Structure.BLOCKS).getEntryCount();
+		}
+
+		@Override
+		public int getResidentBlockCount() {
+			return getResidentBlocks().size();
+		}
+
+		@Override
+		public long getBlocksEstimatedBytes() {
+			return getUsage(Structure.BLOCKS).getEstimatedBytes();
+		}
+
+		@Override
+		public long getBlocksRebuildCount() {
+			return rebuildCounts.get(Structure.BLOCKS.ordinal());
+		}
+
+		@Override
+		public long getDataTextEstimatedBytes() {
+			return getUsage(Structure.DATA_TEXT).getEstimatedBytes();
+		}
+
+		@Override
+		public long getDataTextRebuildCount() {
+			return rebuildCounts.get(Structure.DATA_TEXT.ordinal());
+		}
+
+		@Override
+		public int getDatabaseCharacterCount() {
+			return getUsage(Structure.DATABASES).getEntryCount();
+		}
+
+		@Override
+		public long getDatabasesEstimatedBytes() {
+			return getUsage(Structure.DATABASES).getEstimatedBytes();
+		}
+
+		@Override
+		public int getDerivedTableCount() {
+			return UnicodeMemory.getDerivedTableCount();
+		}
+
+		@Override
+		public long getEstimatedBytes() {
+			return UnicodeMemory.getEstimatedBytes();
+		}
+
+		@Override
+		public long getTrimCount() {
+			return UnicodeMemory.getTrimCount();
+		}
+
+		@Override
+		public boolean isPinned() {
+			return UnicodeMemory.isPinned();
+		}
+
+		@Override
+		public void trim() {
+			UnicodeMemory.trim();
+		}
+
+		@Override
+		public void pin() {
+			UnicodeMemory.pin();
+		}
+
+		@Override
+		public void unpin() {
+			UnicodeMemory.unpin();
+		}
+	}
+
+}
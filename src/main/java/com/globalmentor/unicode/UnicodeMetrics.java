@@ -0,0 +1,78 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+/**
+ * A lightweight sink for counters and timers reported by the Unicode library, in the style of Micrometer. An implementation may forward the measurements to
+ * any metrics system; it must be thread safe and should return quickly, as it is called on lookup paths.
+ * <p>
+ * The names of the measurements reported are defined as constants in this interface.
+ * </p>
+ * @author Garret Wilson
+ * @see UnicodeMonitoring#setMetrics(UnicodeMetrics)
+ * @see SimpleUnicodeMetrics
+ */
+public interface UnicodeMetrics {
+
+	/** The timer of loading the characters of a Unicode block from the Unicode data file. */
+	public static final String BLOCK_LOAD_TIMER = "unicode.block.load";
+
+	/** The counter of Unicode data lines scanned while loading characters. */
+	public static final String LINES_SCANNED_COUNTER = "unicode.data.lines.scanned";
+
+	/** The counter of character lookups satisfied by the character cache. */
+	public static final String CACHE_HIT_COUNTER = "unicode.cache.hits";
+
+	/** The counter of character lookups not satisfied by the character cache. */
+	public static final String CACHE_MISS_COUNTER = "unicode.cache.misses";
+
+	/** The counter of character lookups that found a cached character reference cleared by the garbage collector; also counted as misses. */
+	public static final String CACHE_CLEARED_COUNTER = "unicode.cache.cleared";
+
+	/** The counter of creations of the set of unassigned code points, whether initially or after being cleared by the garbage collector. */
+	public static final String UNASSIGNED_SET_REBUILD_COUNTER = "unicode.unassigned.rebuilds";
+
+	/** The timer of loading the Unicode blocks file, whether initially or after the blocks were cleared by the garbage collector. */
+	public static final String BLOCKS_LOAD_TIMER = "unicode.blocks.load";
+
+	/** Metrics that discard all measurements. */
+	public static final UnicodeMetrics NONE = new UnicodeMetrics() {
+
+		@Override
+		public void incrementCounter(final String name, final long amount) {
+		}
+
+		@Override
+		public void recordTimer(final String name, final long durationNanos) {
+		}
+	};
+
+	/**
+	 * Increments a counter.
+	 * @param name The name of the counter.
+	 * @param amount The amount by which to increment the counter.
+	 */
+	public void incrementCounter(final String name, final long amount);
+
+	/**
+	 * Records a single timed event.
+	 * @param name The name of the timer.
+	 * @param durationNanos The duration of the event, in nanoseconds.
+	 */
+	public void recordTimer(final String name, final long durationNanos);
+
+}
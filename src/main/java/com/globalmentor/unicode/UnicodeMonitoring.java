@@ -0,0 +1,161 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import static com.globalmentor.unicode.UnicodeMetrics.*;
+import static java.util.Objects.*;
+
+/**
+ * Reports the loading and caching activity of {@link UnicodeData} and {@link UnicodeBlocks}, both to the installed {@link UnicodeMetrics} and as JDK Flight
+ * Recorder events.
+ * <p>
+ * The following Flight Recorder events are reported when Flight Recorder is available in the running JVM:
+ * </p>
+ * <ul>
+ * <li><code>com.globalmentor.unicode.BlockLoad</code>: the characters of a block were loaded, with the block, lines scanned, and duration.</li>
+ * <li><code>com.globalmentor.unicode.CacheMiss</code>: a character was not in the cache, noting whether its reference had been cleared.</li>
+ * <li><code>com.globalmentor.unicode.UnassignedSetRebuild</code>: the set of unassigned code points was created.</li>
+ * <li><code>com.globalmentor.unicode.BlocksLoad</code>: the Unicode blocks were loaded.</li>
+ * </ul>
+ * <p>
+ * By default no metrics are recorded; install metrics using {@link #setMetrics(UnicodeMetrics)}.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodeMonitoring {
+
+	/** Whether JDK Flight Recorder is available in this JVM. */
+	private static final boolean FLIGHT_RECORDER_AVAILABLE = isFlightRecorderClassAvailable();
+
+	/** @return <code>true</code> if the JDK Flight Recorder event class can be loaded. */
+	private static boolean isFlightRecorderClassAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch(final ClassNotFoundException | LinkageError error) {
+			return false;
+		}
+	}
+
+	/** The metrics to which measurements are reported. */
+	private static volatile UnicodeMetrics metrics = UnicodeMetrics.NONE;
+
+	/** @return The metrics to which measurements are reported; never <code>null</code>. */
+	public static UnicodeMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the metrics to which measurements are reported.
+	 * @param newMetrics The new metrics, or {@link UnicodeMetrics#NONE} to stop reporting metrics.
+	 * @throws NullPointerException if the given metrics is <code>null</code>.
+	 */
+	public static void setMetrics(final UnicodeMetrics newMetrics) {
+		metrics = requireNonNull(newMetrics);
+	}
+
+	/** This class cannot be publicly instantiated. */
+	private UnicodeMonitoring() {
+	}
+
+	/**
+	 * Indicates that a block is about to be loaded.
+	 * @return The Flight Recorder event begun, if any, to be passed to {@link #endBlockLoad(Object, long, UnicodeBlock, int, int)}.
+	 */
+	static Object beginBlockLoad() {
+		return FLIGHT_RECORDER_AVAILABLE ? UnicodeFlightEvents.beginBlockLoad() : null;
+	}
+
+	/**
+	 * Indicates that a block has been loaded.
+	 * @param event The Flight Recorder event returned by {@link #beginBlockLoad()}.
+	 * @param startNanos The value of {@link System#nanoTime()} when loading began.
+	 * @param block The block that was loaded.
+	 * @param linesScanned The number of data lines scanned.
+	 * @param charactersLoaded The number of characters loaded.
+	 */
+	static void endBlockLoad(final Object event, final long startNanos, final UnicodeBlock block, final int linesScanned, final int charactersLoaded) {
+		final UnicodeMetrics metrics = getMetrics();
+		metrics.recordTimer(BLOCK_LOAD_TIMER, System.nanoTime() - startNanos);
+		metrics.incrementCounter(LINES_SCANNED_COUNTER, linesScanned);
+		if(event != null) {
+			UnicodeFlightEvents.endBlockLoad(event, block, linesScanned, charactersLoaded);
+		}
+	}
+
+	/** Indicates that a character was found in the cache. */
+	static void cacheHit() {
+		getMetrics().incrementCounter(CACHE_HIT_COUNTER, 1);
+	}
+
+	/**
+	 * Indicates that a character was not found in the cache.
+	 * @param codePoint The code point that was not found.
+	 * @param cleared Whether the character had been cached but was cleared by the garbage collector.
+	 */
+	static void cacheMiss(final int codePoint, final boolean cleared) {
+		final UnicodeMetrics metrics = getMetrics();
+		metrics.incrementCounter(CACHE_MISS_COUNTER, 1);
+		if(cleared) {
+			metrics.incrementCounter(CACHE_CLEARED_COUNTER, 1);
+			UnicodeMemory.rebuilt(UnicodeMemory.Structure.CHARACTER_CACHE);
+		}
+		if(FLIGHT_RECORDER_AVAILABLE) {
+			UnicodeFlightEvents.commitCacheMiss(codePoint, cleared);
+		}
+	}
+
+	/**
+	 * Indicates that the set of unassigned code points was created.
+	 * @param cleared Whether a previous set had been cleared by the garbage collector.
+	 */
+	static void unassignedSetRebuilt(final boolean cleared) {
+		getMetrics().incrementCounter(UNASSIGNED_SET_REBUILD_COUNTER, 1);
+		if(cleared) {
+			UnicodeMemory.rebuilt(UnicodeMemory.Structure.UNASSIGNED_SET);
+		}
+		if(FLIGHT_RECORDER_AVAILABLE) {
+			UnicodeFlightEvents.commitUnassignedSetRebuild(cleared);
+		}
+	}
+
+	/**
+	 * Indicates that the Unicode blocks are about to be loaded.
+	 * @return The Flight Recorder event begun, if any, to be passed to {@link #endBlocksLoad(Object, long, int, boolean)}.
+	 */
+	static Object beginBlocksLoad() {
+		return FLIGHT_RECORDER_AVAILABLE ? UnicodeFlightEvents.beginBlocksLoad() : null;
+	}
+
+	/**
+	 * Indicates that the Unicode blocks have been loaded.
+	 * @param event The Flight Recorder event returned by {@link #beginBlocksLoad()}.
+	 * @param startNanos The value of {@link System#nanoTime()} when loading began.
+	 * @param blockCount The number of blocks loaded.
+	 * @param cleared Whether previously loaded blocks had been cleared by the garbage collector.
+	 */
+	static void endBlocksLoad(final Object event, final long startNanos, final int blockCount, final boolean cleared) {
+		getMetrics().recordTimer(BLOCKS_LOAD_TIMER, System.nanoTime() - startNanos);
+		if(cleared) {
+			UnicodeMemory.rebuilt(UnicodeMemory.Structure.BLOCKS);
+		}
+		if(event != null) {
+			UnicodeFlightEvents.endBlocksLoad(event, blockCount, cleared);
+		}
+	}
+
+}
@@ -0,0 +1,460 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An inverted index of the words in the names of Unicode characters, for finding characters by name as a user types, such as "ARROW DOUBLE".
+ * <p>
+ * The words of each character's name, Unicode 1.0 name, and ISO 10646 comment are indexed, ignoring case. Each word maps to a sorted list of the code points
+ * whose names contain it, compressed as variable-length deltas. A query is answered by intersecting the lists of its words, optionally treating the last word
+ * as a prefix, without examining any characters. Results may be ranked so that characters whose names, rather than only their other fields, contain the
+ * words come first, followed by characters with shorter names.
+ * </p>
+ * <p>
+ * The index is built lazily, once per database, in the background using {@link ForkJoinPool#commonPool()}, so that the build does not delay the loading of
+ * characters by {@link AsyncUnicodeData}; use {@link #getAsync(UnicodeDatabase)} to avoid blocking while it is built. An index is immutable and may be shared
+ * among threads.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodeNameIndex {
+
+	/** The posting flag indicating that a word appears in the character name. */
+	private static final int NAME_FLAG = 1;
+
+	/** The posting flag indicating that a word appears in the Unicode 1.0 name or ISO 10646 comment. */
+	private static final int OTHER_FLAG = 2;
+
+	/** The number of bits of each posting used for flags. */
+	private static final int FLAG_BITS = 2;
+
+	/** The derived table key for the index build of a database. */
+	private static final Object BUILD_KEY = new Object();
+
+	/** The indexed words, in sorted order. */
+	private final String[] words;
+
+	/** The offset of the postings of each word, with an extra element at the end marking the end of the last postings. */
+	private final int[] postingOffsets;
+
+	/** The number of postings of each word. */
+	private final int[] postingCounts;
+
+	/** The postings of all words, each a code point shifted left by {@link #FLAG_BITS} and combined with flags, delta-encoded as variable-length integers. */
+	private final byte[] postings;
+
+	/** The code points of all indexed characters, in order. */
+	private final int[] codePoints;
+
+	/** The number of words in the name of each indexed character, in the order of {@link #codePoints}. */
+	private final byte[] nameWordCounts;
+
+	/** The number of characters indexed; only the first elements of {@link #codePoints} and {@link #nameWordCounts} are used. */
+	private final int indexedCharacterCount;
+
+	/**
+	 * Database constructor.
+	 * @param database The Unicode database the character names of which to index.
+	 */
+	private UnicodeNameIndex(final UnicodeDatabase database) {
+		final SortedMap<String, PostingsBuilder> postingsBuilders = new TreeMap<String, PostingsBuilder>();
+		final List<UnicodeCharacter> unicodeCharacters = database.getUnicodeCharacters();
+		codePoints = new int[unicodeCharacters.size()];
+		nameWordCounts = new byte[unicodeCharacters.size()];
+		final Map<String, Integer> characterWordFlags = new HashMap<String, Integer>();
+		int characterCount = 0;
+		for(final UnicodeCharacter unicodeCharacter : unicodeCharacters) {
+			characterWordFlags.clear();
+			final String name = unicodeCharacter.getCharacterName();
+			final int nameWordCount = name != null && !name.startsWith("<") ? addWords(name, NAME_FLAG, characterWordFlags) : 0; //skip labels such as "<control>"
+			addWords(unicodeCharacter.getUnicode10Name(), OTHER_FLAG, characterWordFlags);
+			addWords(unicodeCharacter.getISO10646Comment(), OTHER_FLAG, characterWordFlags);
+			if(characterWordFlags.isEmpty()) {
+				continue;
+			}
+			final int codePoint = unicodeCharacter.getCodeValue();
+			codePoints[characterCount] = codePoint;
+			nameWordCounts[characterCount] = (byte)Math.min(nameWordCount, Byte.MAX_VALUE);
+			++characterCount;
+			characterWordFlags
+					.forEach((word, flags) -> postingsBuilders.computeIfAbsent(word, key -> new PostingsBuilder()).add((codePoint << FLAG_BITS) | flags));
+		}
+		words = postingsBuilders.keySet().toArray(new String[postingsBuilders.size()]);
+		postingOffsets = new int[words.length + 1];
+		postingCounts = new int[words.length];
+		final ByteArrayOutputStream postingsOutputStream = new ByteArrayOutputStream();
+		int wordIndex = 0;
+		for(final PostingsBuilder postingsBuilder : postingsBuilders.values()) {
+			postingOffsets[wordIndex] = postingsOutputStream.size();
+			postingCounts[wordIndex] = postingsBuilder.size;
+			int previous = 0;
+			for(int i = 0; i < postingsBuilder.size; ++i) {
+				final int posting = postingsBuilder.postings[i];
+				writeVarInt(postingsOutputStream, posting - previous);
+				previous = posting;
+			}
+			++wordIndex;
+		}
+		postingOffsets[words.length] = postingsOutputStream.size();
+		postings = postingsOutputStream.toByteArray();
+		indexedCharacterCount = characterCount;
+	}
+
+	/**
+	 * Adds the words of a name to a map of words, combining their flags.
+	 * @param name The name to split into words, or <code>null</code> if there is no name.
+	 * @param flag The flag to add to each word.
+	 * @param wordFlags The flags of each word, keyed to the word.
+	 * @return The number of words in the name.
+	 */
+	private static int addWords(final String name, final int flag, final Map<String, Integer> wordFlags) {
+		if(name == null) {
+			return 0;
+		}
+		final String normalizedName = name.toUpperCase(Locale.ROOT);
+		final int length = normalizedName.length();
+		int wordCount = 0;
+		int index = 0;
+		while(index < length) {
+			while(index < length && !Character.isLetterOrDigit(normalizedName.charAt(index))) {
+				++index;
+			}
+			final int start = index;
+			while(index < length && Character.isLetterOrDigit(normalizedName.charAt(index))) {
+				++index;
+			}
+			if(index > start) {
+				wordFlags.merge(normalizedName.substring(start, index), Integer.valueOf(flag),
+						(flags1, flags2) -> Integer.valueOf(flags1.intValue() | flags2.intValue()));
+				++wordCount;
+			}
+		}
+		return wordCount;
+	}
+
+	/**
+	 * Writes a non-negative integer as a variable-length sequence of seven-bit groups, least significant first.
+	 * @param outputStream The stream to which to write the integer.
+	 * @param value The value to write.
+	 */
+	private static void writeVarInt(final ByteArrayOutputStream outputStream, int value) {
+		while((value & ~0x7F) != 0) {
+			outputStream.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		outputStream.write(value);
+	}
+
+	/**
+	 * Returns the index of the current Unicode database, waiting for it to be built if necessary.
+	 * @return The character name index of the current database.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static UnicodeNameIndex getInstance() {
+		return forDatabase(UnicodeDatabase.getCurrent());
+	}
+
+	/**
+	 * Returns the index of a Unicode database, waiting for it to be built if necessary.
+	 * @param database The Unicode database.
+	 * @return The character name index of the database.
+	 */
+	public static UnicodeNameIndex forDatabase(final UnicodeDatabase database) {
+		try {
+			return getAsync(database).join();
+		} catch(final CompletionException completionException) {
+			final Throwable cause = completionException.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			throw completionException;
+		}
+	}
+
+	/**
+	 * Returns the index of the current Unicode database, starting to build it in the background if it has not been started.
+	 * @return A future completed with the character name index of the current database.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static CompletableFuture<UnicodeNameIndex> getAsync() {
+		return getAsync(UnicodeDatabase.getCurrent());
+	}
+
+	/**
+	 * Returns the index of a Unicode database, starting to build it in the background if it has not been started. The index is built only once per database,
+	 * unless the build fails, in which case the returned future completes exceptionally and the next call starts a new build.
+	 * @param database The Unicode database.
+	 * @return A future completed with the character name index of the database.
+	 */
+	public static CompletableFuture<UnicodeNameIndex> getAsync(final UnicodeDatabase database) {
+		final Build build = database.getDerivedTable(BUILD_KEY, db -> new Build());
+		final CompletableFuture<UnicodeNameIndex> newFuture = new CompletableFuture<UnicodeNameIndex>();
+		CompletableFuture<UnicodeNameIndex> future;
+		do {
+			future = build.future.get();
+			if(future != null && !future.isCompletedExceptionally()) { //if a build is under way or has succeeded, use it
+				return future.copy(); //don't allow callers to complete the shared build
+			}
+		} while(!build.future.compareAndSet(future, newFuture)); //replace any failed build
+		try {
+			ForkJoinPool.commonPool().execute(() -> {
+				try {
+					newFuture.complete(new UnicodeNameIndex(database));
+				} catch(final Throwable throwable) {
+					newFuture.completeExceptionally(throwable);
+				}
+			});
+		} catch(final RejectedExecutionException rejectedExecutionException) {
+			newFuture.completeExceptionally(rejectedExecutionException);
+		}
+		return newFuture.copy();
+	}
+
+	/** @return The number of distinct words indexed. */
+	public int getWordCount() {
+		return words.length;
+	}
+
+	/** @return The number of characters indexed. */
+	public int getCharacterCount() {
+		return indexedCharacterCount;
+	}
+
+	/**
+	 * Finds the index of a word.
+	 * @param word The word in uppercase.
+	 * @return The index of the word, or <code>-(insertion point) - 1</code> if the word is not indexed.
+	 */
+	private int findWord(final String word) {
+		return Arrays.binarySearch(words, word);
+	}
+
+	/**
+	 * Returns the indexed words beginning with a prefix, those appearing in the most characters first.
+	 * @param prefix The prefix, in any case.
+	 * @param maxCount The greatest number of words to return.
+	 * @return The words, in uppercase, beginning with the prefix.
+	 */
+	public List<String> complete(final String prefix, final int maxCount) {
+		final String normalizedPrefix = prefix.toUpperCase(Locale.ROOT);
+		final List<Integer> wordIndexes = new ArrayList<Integer>();
+		final int found = findWord(normalizedPrefix);
+		for(int wordIndex = found >= 0 ? found : -found - 1; wordIndex < words.length && words[wordIndex].startsWith(normalizedPrefix); ++wordIndex) {
+			wordIndexes.add(Integer.valueOf(wordIndex));
+		}
+		wordIndexes.sort((wordIndex1, wordIndex2) -> Integer.compare(postingCounts[wordIndex2.intValue()], postingCounts[wordIndex1.intValue()]));
+		final List<String> completions = new ArrayList<String>(Math.min(wordIndexes.size(), maxCount));
+		for(int i = 0; i < wordIndexes.size() && i < maxCount; ++i) {
+			completions.add(words[wordIndexes.get(i).intValue()]);
+		}
+		return completions;
+	}
+
+	/**
+	 * Decodes the postings of a word.
+	 * @param wordIndex The index of the word.
+	 * @return The postings of the word, each a code point shifted left by {@link #FLAG_BITS} and combined with flags, in order.
+	 */
+	private int[] decodePostings(final int wordIndex) {
+		final int[] decoded = new int[postingCounts[wordIndex]];
+		int offset = postingOffsets[wordIndex];
+		int value = 0;
+		for(int i = 0; i < decoded.length; ++i) {
+			int delta = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = postings[offset++];
+				delta |= (b & 0x7F) << shift;
+				shift += 7;
+			} while(b < 0);
+			value += delta;
+			decoded[i] = value;
+		}
+		return decoded;
+	}
+
+	/**
+	 * Determines the postings matching a query: for each code point matching all the words, the number of words found in the character name.
+	 * @param query The words to search for, in any case, separated by spaces or punctuation.
+	 * @param prefixLastWord <code>true</code> if the last word should match any word beginning with it.
+	 * @return The matching postings, each a code point shifted left by {@link #FLAG_BITS}, with the low bits unused, combined with the count of words matched
+	 *         in the name shifted further left; sorted by code point.
+	 */
+	private long[] match(final String query, final boolean prefixLastWord) {
+		final Map<String, Integer> queryWordFlags = new LinkedHashMap<String, Integer>();
+		addWords(query, 0, queryWordFlags);
+		final List<String> queryWords = new ArrayList<String>(queryWordFlags.keySet());
+		if(queryWords.isEmpty()) {
+			return new long[0];
+		}
+		final List<int[]> wordPostings = new ArrayList<int[]>(queryWords.size());
+		for(int i = 0; i < queryWords.size(); ++i) {
+			final String queryWord = queryWords.get(i);
+			final int found = findWord(queryWord);
+			if(prefixLastWord && i == queryWords.size() - 1) { //merge the postings of all words beginning with the last word
+				int[] merged = new int[0];
+				for(int wordIndex = found >= 0 ? found : -found - 1; wordIndex < words.length && words[wordIndex].startsWith(queryWord); ++wordIndex) {
+					merged = union(merged, decodePostings(wordIndex));
+				}
+				wordPostings.add(merged);
+			} else {
+				if(found < 0) {
+					return new long[0];
+				}
+				wordPostings.add(decodePostings(found));
+			}
+		}
+		wordPostings.sort(Comparator.comparingInt(wordPosting -> wordPosting.length)); //intersect starting with the rarest word
+		final int[] first = wordPostings.get(0);
+		final long[] matches = new long[first.length];
+		final int[] cursors = new int[wordPostings.size()];
+		int matchCount = 0;
+		candidates: for(final int candidate : first) {
+			final int codePoint = candidate >>> FLAG_BITS;
+			int nameMatchCount = (candidate & NAME_FLAG) != 0 ? 1 : 0;
+			for(int i = 1; i < wordPostings.size(); ++i) {
+				final int[] wordPosting = wordPostings.get(i);
+				int cursor = cursors[i];
+				while(cursor < wordPosting.length && (wordPosting[cursor] >>> FLAG_BITS) < codePoint) {
+					++cursor;
+				}
+				cursors[i] = cursor;
+				if(cursor == wordPosting.length || (wordPosting[cursor] >>> FLAG_BITS) != codePoint) {
+					continue candidates;
+				}
+				if((wordPosting[cursor] & NAME_FLAG) != 0) {
+					++nameMatchCount;
+				}
+			}
+			matches[matchCount++] = ((long)nameMatchCount << 32) | codePoint;
+		}
+		return Arrays.copyOf(matches, matchCount);
+	}
+
+	/**
+	 * Merges two sorted lists of postings, combining the flags of postings with the same code point.
+	 * @param postings1 The first postings.
+	 * @param postings2 The second postings.
+	 * @return The union of the postings.
+	 */
+	private static int[] union(final int[] postings1, final int[] postings2) {
+		final int[] merged = new int[postings1.length + postings2.length];
+		int i1 = 0;
+		int i2 = 0;
+		int length = 0;
+		while(i1 < postings1.length || i2 < postings2.length) {
+			final int codePoint1 = i1 < postings1.length ? postings1[i1] >>> FLAG_BITS : Integer.MAX_VALUE;
+			final int codePoint2 = i2 < postings2.length ? postings2[i2] >>> FLAG_BITS : Integer.MAX_VALUE;
+			if(codePoint1 == codePoint2) {
+				merged[length++] = postings1[i1++] | postings2[i2++];
+			} else if(codePoint1 < codePoint2) {
+				merged[length++] = postings1[i1++];
+			} else {
+				merged[length++] = postings2[i2++];
+			}
+		}
+		return length == merged.length ? merged : Arrays.copyOf(merged, length);
+	}
+
+	/**
+	 * Finds the characters the names of which contain all the words of a query.
+	 * @param query The words to search for, in any case, separated by spaces or punctuation.
+	 * @param prefixLastWord <code>true</code> if the last word should match any word beginning with it, as when the user is still typing.
+	 * @return The code points of the matching characters, in order.
+	 */
+	public int[] search(final String query, final boolean prefixLastWord) {
+		final long[] matches = match(query, prefixLastWord);
+		final int[] matchingCodePoints = new int[matches.length];
+		for(int i = 0; i < matches.length; ++i) {
+			matchingCodePoints[i] = (int)matches[i];
+		}
+		return matchingCodePoints;
+	}
+
+	/**
+	 * Finds the best matching characters the names of which contain all the words of a query. Characters are ranked first by the number of query words found
+	 * in the character name rather than only in other fields, then by the number of words in the name, fewest first, and then by code point.
+	 * @param query The words to search for, in any case, separated by spaces or punctuation.
+	 * @param prefixLastWord <code>true</code> if the last word should match any word beginning with it, as when the user is still typing.
+	 * @param maxCount The greatest number of characters to return.
+	 * @return The code points of the best matching characters, best first.
+	 */
+	public int[] search(final String query, final boolean prefixLastWord, final int maxCount) {
+		final long[] matches = match(query, prefixLastWord);
+		final long[] rankKeys = new long[matches.length];
+		for(int i = 0; i < matches.length; ++i) {
+			final int codePoint = (int)matches[i];
+			final int nameMatchCount = (int)(matches[i] >>> 32);
+			final int characterIndex = Arrays.binarySearch(codePoints, 0, indexedCharacterCount, codePoint);
+			final int nameWordCount = characterIndex >= 0 && nameWordCounts[characterIndex] > 0 ? nameWordCounts[characterIndex] : Byte.MAX_VALUE;
+			rankKeys[i] = ((long)(Byte.MAX_VALUE - nameMatchCount) << 40) | ((long)nameWordCount << 24) | codePoint; //ascending order is best first
+		}
+		Arrays.sort(rankKeys);
+		final int[] ranked = new int[Math.min(rankKeys.length, maxCount)];
+		for(int i = 0; i < ranked.length; ++i) {
+			ranked[i] = (int)(rankKeys[i] & 0xFFFFFF);
+		}
+		return ranked;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " (" + words.length + " words, " + indexedCharacterCount + " characters, " + postings.length
+				+ " bytes of postings)";
+	}
+
+	/**
+	 * Accumulates the postings of a word.
+	 * @author Garret Wilson
+	 */
+	private static final class PostingsBuilder {
+
+		/** The postings added so far, in increasing order, followed by unused capacity. */
+		private int[] postings = new int[4];
+
+		/** The number of postings added. */
+		private int size = 0;
+
+		/**
+		 * Adds a posting, which must be greater than those already added.
+		 * @param posting The posting to add.
+		 */
+		void add(final int posting) {
+			if(size == postings.length) {
+				postings = Arrays.copyOf(postings, size * 2);
+			}
+			postings[size++] = posting;
+		}
+	}
+
+	/**
+	 * The build of an index, which is replaced if it fails.
+	 * @author Garret Wilson
+	 */
+	private static final class Build {
+
+		/** The future of the current build, or <code>null</code> if no build has been started. */
+		final AtomicReference<CompletableFuture<UnicodeNameIndex>> future = new AtomicReference<CompletableFuture<UnicodeNameIndex>>();
+	}
+
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+import com.globalmentor.log.Log;
+
+import static java.nio.charset.StandardCharsets.*;
+
+/**
+ * Learns which Unicode blocks are needed together and loads correlated blocks in the background before they are requested.
+ * <p>
+ * Each time {@link UnicodeData} must load a block to satisfy a request, the demand is recorded in a heatmap of per-block demand counts and of co-access
+ * pairs: blocks demanded within {@value #CO_ACCESS_WINDOW_MILLIS} milliseconds after one another. When prefetching is enabled, a demand for a block
+ * schedules background loads, on the executor of {@link AsyncUnicodeData}, of up to {@value #MAX_PREFETCH_COUNT} blocks that have followed it in at least
+ * {@value #MIN_CO_ACCESS_PERCENT}% of its demands. Until a block has been demanded {@value #MIN_OBSERVATION_COUNT} times, blocks of the same script family
+ * are prefetched instead, determined by the first word of the block names; so a demand for "Arabic" prefetches "Arabic Presentation Forms-A" and "Arabic
+ * Presentation Forms-B". Counts are halved periodically so that the heatmap adapts as the workload changes. Prefetch loads are limited so that they never
+ * crowd out requested loads on the shared executor; see {@link AsyncUnicodeData#MAX_PENDING_PREFETCH_COUNT}.
+ * </p>
+ * <p>
+ * The heatmap may be saved to a local file and loaded on the next start using {@link #saveHeatmap(Path)} and {@link #loadHeatmap(Path)}, after which
+ * {@link #warm(int)} loads the most frequently demanded blocks first. {@link #enablePersistence(Path)} does all of this, saving the heatmap when the JVM
+ * exits to the file most recently given.
+ * </p>
+ * <p>
+ * Prefetching is disabled by default; demands are recorded regardless.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodePrefetcher {
+
+	/** The time after a demand within which a demand for another block is considered a co-access. */
+	public static final long CO_ACCESS_WINDOW_MILLIS = 2000;
+
+	/** The number of recent demands remembered for detecting co-access. */
+	private static final int RECENT_DEMAND_COUNT = 4;
+
+	/** The greatest number of blocks prefetched for a single demand. */
+	public static final int MAX_PREFETCH_COUNT = 3;
+
+	/** The minimum percentage of the demands for a block after which another block must have been demanded for it to be prefetched. */
+	public static final int MIN_CO_ACCESS_PERCENT = 25;
+
+	/** The number of demands for a block after which learned co-access is used rather than script families. */
+	public static final int MIN_OBSERVATION_COUNT = 3;
+
+	/** The number of blocks loaded in the background by default when a persisted heatmap is loaded. */
+	public static final int DEFAULT_WARM_BLOCK_COUNT = 8;
+
+	/** The number of demands after which all counts are halved. */
+	private static final int DECAY_INTERVAL = 1024;
+
+	/** The lock guarding the heatmap. */
+	private static final Lock heatmapLock = new ReentrantLock();
+
+	/** The number of demands for each block, keyed to the start code of the block, as block instances may differ if the blocks are reloaded. */
+	private static final Map<Integer, Long> demandCounts = new HashMap<Integer, Long>();
+
+	/**
+	 * The number of times each block was demanded after another, keyed to the start code of the earlier block in the high 32 bits and the start code of the
+	 * later block in the low 32 bits.
+	 */
+	private static final Map<Long, Long> coAccessCounts = new HashMap<Long, Long>();
+
+	/** The start codes of the most recently demanded blocks, in a circular buffer. */
+	private static final int[] recentBlockStarts = new int[RECENT_DEMAND_COUNT];
+
+	/** The times in nanoseconds of the most recent demands, in a circular buffer. */
+	private static final long[] recentDemandNanos = new long[RECENT_DEMAND_COUNT];
+
+	/** The total number of demands recorded, used for indexing the circular buffers. */
+	private static long demandTotal = 0;
+
+	/** Whether correlated blocks are prefetched. */
+	private static volatile boolean enabled = false;
+
+	/** The number of background block loads scheduled by prefetching. */
+	private static final AtomicLong prefetchCount = new AtomicLong();
+
+	/** The file to which the heatmap is saved when the JVM exits, or <code>null</code> if persistence has not been enabled. */
+	private static final AtomicReference<Path> persistenceFileReference = new AtomicReference<Path>();
+
+	/** This class cannot be publicly instantiated. */
+	private UnicodePrefetcher() {
+	}
+
+	/** @return Whether correlated blocks are prefetched in the background. */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets whether correlated blocks are prefetched in the background.
+	 * @param newEnabled <code>true</code> if blocks should be prefetched.
+	 */
+	public static void setEnabled(final boolean newEnabled) {
+		enabled = newEnabled;
+	}
+
+	/** @return The number of background block loads scheduled by prefetching since the class was loaded. */
+	public static long getPrefetchCount() {
+		return prefetchCount.get();
+	}
+
+	/**
+	 * Returns the number of times a block has been demanded, after decay.
+	 * @param unicodeBlock The block.
+	 * @return The recorded number of demands for the block.
+	 */
+	public static long getDemandCount(final UnicodeBlock unicodeBlock) {
+		heatmapLock.lock();
+		try {
+			return demandCounts.getOrDefault(Integer.valueOf(unicodeBlock.getStartCode()), 0L).longValue();
+		} finally {
+			heatmapLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of times a block has been demanded shortly after another, after decay.
+	 * @param firstBlock The block demanded first.
+	 * @param secondBlock The block demanded afterwards.
+	 * @return The recorded number of co-accesses of the blocks in that order.
+	 */
+	public static long getCoAccessCount(final UnicodeBlock firstBlock, final UnicodeBlock secondBlock) {
+		heatmapLock.lock();
+		try {
+			return coAccessCounts.getOrDefault(Long.valueOf(toPairKey(firstBlock.getStartCode(), secondBlock.getStartCode())), 0L).longValue();
+		} finally {
+			heatmapLock.unlock();
+		}
+	}
+
+	/** Discards all recorded demands. */
+	public static void clear() {
+		heatmapLock.lock();
+		try {
+			demandCounts.clear();
+			coAccessCounts.clear();
+			demandTotal = 0;
+		} finally {
+			heatmapLock.unlock();
+		}
+	}
+
+	/**
+	 * Creates a key for a co-access pair.
+	 * @param firstStartCode The start code of the block demanded first.
+	 * @param secondStartCode The start code of the block demanded afterwards.
+	 * @return The key of the pair.
+	 */
+	private static long toPairKey(final int firstStartCode, final int secondStartCode) {
+		return ((long)firstStartCode << 32) | (secondStartCode & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Records that a block must be loaded to satisfy a request, and prefetches correlated blocks if enabled. Called by {@link UnicodeData} and
+	 * {@link AsyncUnicodeData} once for each load of a block on a cache miss, however many requests the load satisfies.
+	 * @param unicodeBlock The block being loaded.
+	 */
+	static void blockDemanded(final UnicodeBlock unicodeBlock) {
+		final int startCode = unicodeBlock.getStartCode();
+		final long nowNanos = System.nanoTime();
+		List<Integer> prefetchStartCodes;
+		heatmapLock.lock();
+		try {
+			final long windowNanos = TimeUnit.MILLISECONDS.toNanos(CO_ACCESS_WINDOW_MILLIS);
+			final int recentCount = (int)Math.min(demandTotal, RECENT_DEMAND_COUNT);
+			recent: for(int i = 0; i < recentCount; ++i) { //record co-access with each block recently demanded
+				final int recentStartCode = recentBlockStarts[i];
+				if(recentStartCode == startCode || nowNanos - recentDemandNanos[i] > windowNanos) {
+					continue;
+				}
+				for(int j = 0; j < i; ++j) { //count each recent block only once
+					if(recentBlockStarts[j] == recentStartCode && nowNanos - recentDemandNanos[j] <= windowNanos) {
+						continue recent;
+					}
+				}
+				coAccessCounts.merge(Long.valueOf(toPairKey(recentStartCode, startCode)), 1L, Long::sum);
+			}
+			final int recentIndex = (int)(demandTotal % RECENT_DEMAND_COUNT);
+			recentBlockStarts[recentIndex] = startCode;
+			recentDemandNanos[recentIndex] = nowNanos;
+			demandCounts.merge(Integer.valueOf(startCode), 1L, Long::sum);
+			if(++demandTotal % DECAY_INTERVAL == 0) {
+				decay();
+			}
+			prefetchStartCodes = enabled ? getCorrelatedStartCodes(startCode) : Collections.<Integer>emptyList();
+		} finally {
+			heatmapLock.unlock();
+		}
+		if(prefetchStartCodes == null) { //if we haven't learned enough about the block, fall back to its script family, which may require loading the blocks
+			prefetchStartCodes = getFamilyStartCodes(startCode);
+		}
+		for(final Integer prefetchStartCode : prefetchStartCodes) {
+			prefetch(prefetchStartCode.intValue());
+		}
+	}
+
+	/** Halves all counts, discarding those that reach zero. Must be called with the heatmap lock held. */
+	private static void decay() {
+		demandCounts.replaceAll((startCode, count) -> Long.valueOf(count.longValue() >> 1));
+		demandCounts.values().removeIf(count -> count.longValue() == 0);
+		coAccessCounts.replaceAll((pairKey, count) -> Long.valueOf(count.longValue() >> 1));
+		coAccessCounts.values().removeIf(count -> count.longValue() == 0);
+	}
+
+	/**
+	 * Determines the blocks to prefetch after a block is demanded. Must be called with the heatmap lock held.
+	 * @param startCode The start code of the demanded block.
+	 * @return The start codes of the blocks to prefetch, most strongly correlated first; or <code>null</code> if too few demands for the block have been
+	 *         recorded to know, in which case the blocks of its script family should be prefetched.
+	 */
+	private static List<Integer> getCorrelatedStartCodes(final int startCode) {
+		final long demandCount = demandCounts.getOrDefault(Integer.valueOf(startCode), 0L).longValue();
+		if(demandCount < MIN_OBSERVATION_COUNT) {
+			return null;
+		}
+		final List<Map.Entry<Long, Long>> candidates = new ArrayList<Map.Entry<Long, Long>>();
+		for(final Map.Entry<Long, Long> coAccessEntry : coAccessCounts.entrySet()) {
+			if((int)(coAccessEntry.getKey().longValue() >>> 32) == startCode
+					&& coAccessEntry.getValue().longValue() * 100 >= demandCount * MIN_CO_ACCESS_PERCENT) {
+				candidates.add(coAccessEntry);
+			}
+		}
+		candidates.sort(Map.Entry.<Long, Long>comparingByValue().reversed());
+		final List<Integer> startCodes = new ArrayList<Integer>(Math.min(candidates.size(), MAX_PREFETCH_COUNT));
+		for(int i = 0; i < candidates.size() && i < MAX_PREFETCH_COUNT; ++i) {
+			startCodes.add(Integer.valueOf((int)candidates.get(i).getKey().longValue()));
+		}
+		return startCodes;
+	}
+
+	/**
+	 * Determines the other blocks in the same script family as a block, as indicated by the first word of their names. Must not be called with the heatmap lock
+	 * held, as the blocks may need to be loaded.
+	 * @param startCode The start code of the block.
+	 * @return The start codes of up to {@link #MAX_PREFETCH_COUNT} other blocks in the same family, in code point order.
+	 */
+	private static List<Integer> getFamilyStartCodes(final int startCode) {
+		final UnicodeBlock unicodeBlock = UnicodeBlocks.getUnicodeBlockByCodePoint(startCode);
+		if(unicodeBlock == null) {
+			return Collections.emptyList();
+		}
+		final String family = getFamily(unicodeBlock);
+		final List<Integer> startCodes = new ArrayList<Integer>();
+		for(final UnicodeBlock familyBlock : UnicodeBlocks.getUnicodeBlocks()) {
+			if(familyBlock.getStartCode() != startCode && getFamily(familyBlock).equals(family)) {
+				startCodes.add(Integer.valueOf(familyBlock.getStartCode()));
+				if(startCodes.size() == MAX_PREFETCH_COUNT) {
+					break;
+				}
+			}
+		}
+		return startCodes;
+	}
+
+	/**
+	 * Determines the script family of a block.
+	 * @param unicodeBlock The block.
+	 * @return The first word of the block name in lowercase, such as "arabic" for "Arabic Presentation Forms-A".
+	 */
+	private static String getFamily(final UnicodeBlock unicodeBlock) {
+		final String name = unicodeBlock.getName();
+		int end = 0;
+		while(end < name.length() && Character.isLetterOrDigit(name.charAt(end))) {
+			++end;
+		}
+		return name.substring(0, end).toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Schedules a block to be loaded in the background, unless it appears to be loaded already.
+	 * @param startCode The start code of the block to load.
+	 */
+	private static void prefetch(final int startCode) {
+		final UnicodeBlock unicodeBlock = UnicodeBlocks.getUnicodeBlockByCodePoint(startCode);
+		if(unicodeBlock == null || unicodeBlock.getStartCode() != startCode) { //the blocks may have changed since the demand was recorded
+			return;
+		}
+		final Integer startCodeInteger = Integer.valueOf(startCode);
+		if(UnicodeData.getUnicodeCharacter(startCodeInteger) != null || UnicodeData.isUnassigned(startCodeInteger)) { //use the first code point as a sign that the block is loaded
+			return;
+		}
+		if(AsyncUnicodeData.prefetchBlock(unicodeBlock)) {
+			prefetchCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Loads the most frequently demanded blocks in the background, such as after loading a heatmap saved by a previous run.
+	 * @param blockCount The greatest number of blocks to load.
+	 */
+	public static void warm(final int blockCount) {
+		final List<Map.Entry<Integer, Long>> hottest;
+		heatmapLock.lock();
+		try {
+			hottest = new ArrayList<Map.Entry<Integer, Long>>(demandCounts.entrySet());
+		} finally {
+			heatmapLock.unlock();
+		}
+		hottest.sort(Map.Entry.<Integer, Long>comparingByValue().reversed());
+		for(int i = 0; i < hottest.size() && i < blockCount; ++i) {
+			prefetch(hottest.get(i).getKey().intValue());
+		}
+	}
+
+	/**
+	 * Saves the heatmap to a file. Each line contains either <code>block</code> followed by the hexadecimal start code of a block and its demand count, or
+	 * <code>pair</code> followed by the start codes of two blocks and their co-access count.
+	 * @param file The file to which to save the heatmap.
+	 * @throws IOException if there is an error writing the file.
+	 */
+	public static void saveHeatmap(final Path file) throws IOException {
+		final Map<Integer, Long> demandCountsSnapshot;
+		final Map<Long, Long> coAccessCountsSnapshot;
+		heatmapLock.lock();
+		try {
+			demandCountsSnapshot = new TreeMap<Integer, Long>(demandCounts);
+			coAccessCountsSnapshot = new TreeMap<Long, Long>(coAccessCounts);
+		} finally {
+			heatmapLock.unlock();
+		}
+		final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (final Writer writer = Files.newBufferedWriter(tempFile, UTF_8)) {
+			writer.write("# Unicode block demand heatmap\n");
+			for(final Map.Entry<Integer, Long> demandCountEntry : demandCountsSnapshot.entrySet()) {
+				writer.write(String.format(Locale.ROOT, "block %04X %d%n", demandCountEntry.getKey(), demandCountEntry.getValue()));
+			}
+			for(final Map.Entry<Long, Long> coAccessCountEntry : coAccessCountsSnapshot.entrySet()) {
+				final long pairKey = coAccessCountEntry.getKey().longValue();
+				writer.write(String.format(Locale.ROOT, "pair %04X %04X %d%n", (int)(pairKey >>> 32), (int)pairKey, coAccessCountEntry.getValue()));
+			}
+		}
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING); //don't leave a partial heatmap if writing fails
+	}
+
+	/**
+	 * Loads a heatmap from a file saved by {@link #saveHeatmap(Path)}, adding its counts to those already recorded.
+	 * @param file The file from which to load the heatmap.
+	 * @throws IOException if there is an error reading the file or the file is not in the correct format.
+	 */
+	public static void loadHeatmap(final Path file) throws IOException {
+		final Map<Integer, Long> loadedDemandCounts = new HashMap<Integer, Long>();
+		final Map<Long, Long> loadedCoAccessCounts = new HashMap<Long, Long>();
+		try (final LineNumberReader reader = new LineNumberReader(Files.newBufferedReader(file, UTF_8))) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				line = line.trim();
+				if(line.isEmpty() || line.charAt(0) == '#') {
+					continue;
+				}
+				final String[] fields = line.split("\\s+");
+				try {
+					if(fields[0].equals("block") && fields.length == 3) {
+						loadedDemandCounts.merge(Integer.valueOf(fields[1], 16), Long.valueOf(fields[2]), Long::sum);
+					} else if(fields[0].equals("pair") && fields.length == 4) {
+						final long pairKey = toPairKey(Integer.parseInt(fields[1], 16), Integer.parseInt(fields[2], 16));
+						loadedCoAccessCounts.merge(Long.valueOf(pairKey), Long.valueOf(fields[3]), Long::sum);
+					} else {
+						throw new IOException("Invalid heatmap entry on line " + reader.getLineNumber() + ": " + line);
+					}
+				} catch(final NumberFormatException numberFormatException) {
+					throw new IOException("Invalid number on heatmap line " + reader.getLineNumber() + ": " + line, numberFormatException);
+				}
+			}
+		}
+		heatmapLock.lock();
+		try {
+			loadedDemandCounts.forEach((startCode, count) -> demandCounts.merge(startCode, count, Long::sum));
+			loadedCoAccessCounts.forEach((pairKey, count) -> coAccessCounts.merge(pairKey, count, Long::sum));
+		} finally {
+			heatmapLock.unlock();
+		}
+	}
+
+	/**
+	 * Enables prefetching with a heatmap persisted in a local file. If the file exists, its heatmap is loaded and the blocks demanded most in previous runs are
+	 * loaded in the background. The heatmap is saved to the file when the JVM exits; if this method is called more than once, the heatmap is saved only to the
+	 * file given last.
+	 * @param file The file in which to persist the heatmap.
+	 * @param warmBlockCount The greatest number of blocks to load in the background from the persisted heatmap.
+	 * @throws IOException if the file exists but cannot be read.
+	 */
+	public static void enablePersistence(final Path file, final int warmBlockCount) throws IOException {
+		if(Files.exists(file)) {
+			loadHeatmap(file);
+		}
+		setEnabled(true);
+		warm(warmBlockCount);
+		if(persistenceFileReference.getAndSet(file) == null) { //register the shutdown hook only once
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					saveHeatmap(persistenceFileReference.get());
+				} catch(final IOException ioException) {
+					Log.warn(ioException);
+				}
+			}, "unicode-prefetch-heatmap-saver"));
+		}
+	}
+
+	/**
+	 * Enables prefetching with a heatmap persisted in a local file, loading up to {@value #DEFAULT_WARM_BLOCK_COUNT} blocks from the persisted heatmap.
+	 * @param file The file in which to persist the heatmap.
+	 * @throws IOException if the file exists but cannot be read.
+	 * @see #enablePersistence(Path, int)
+	 */
+	public static void enablePersistence(final Path file) throws IOException {
+		enablePersistence(file, DEFAULT_WARM_BLOCK_COUNT);
+	}
+
+}
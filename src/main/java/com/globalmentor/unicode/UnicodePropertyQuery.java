@@ -0,0 +1,205 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.*;
+
+import static java.util.Objects.*;
+
+/**
+ * A query for the code points having particular character property values, such as "all currency symbols in the Arrows block":
+ * <pre>
+ * UnicodePropertyQuery.generalCategory(SYMBOL_CURRENCY).and(UnicodePropertyQuery.block("Arrows")).evaluate()
+ * </pre>
+ * <p>
+ * Each property value is answered from a set of code points built once per database, such as by {@link UnicodeSet#forGeneralCategories(UnicodeDatabase,
+ * String...)}, and the sets are combined by intersection and union in time proportional to the number of ranges they contain. No characters are examined
+ * when a query is evaluated.
+ * </p>
+ * <p>
+ * A query is immutable and may be shared among threads and evaluated against any number of databases.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodePropertyQuery {
+
+	/** The function for finding the code points matching the query in a database. */
+	private final Function<UnicodeDatabase, UnicodeSet> evaluator;
+
+	/** The description of the query. */
+	private final String description;
+
+	/**
+	 * Evaluator constructor.
+	 * @param evaluator The function for finding the code points matching the query in a database.
+	 * @param description The description of the query.
+	 */
+	private UnicodePropertyQuery(final Function<UnicodeDatabase, UnicodeSet> evaluator, final String description) {
+		this.evaluator = evaluator;
+		this.description = description;
+	}
+
+	/**
+	 * Returns a description of values for a query.
+	 * @param property The name of the property.
+	 * @param values The property values.
+	 * @return A description of the property values.
+	 */
+	private static String describe(final String property, final Stream<?> values) {
+		return values.map(String::valueOf).collect(Collectors.joining("|", property + "=", ""));
+	}
+
+	/**
+	 * Creates a query for code points having any of the given general categories.
+	 * @param generalCategories The general categories, such as {@link UnicodeConstants#SYMBOL_CURRENCY}. A single-letter major category such as "L" includes
+	 *          all categories beginning with that letter.
+	 * @return A query for the given general categories.
+	 * @see UnicodeSet#forGeneralCategories(UnicodeDatabase, String...)
+	 */
+	public static UnicodePropertyQuery generalCategory(final String... generalCategories) {
+		final String[] values = generalCategories.clone();
+		return new UnicodePropertyQuery(database -> UnicodeSet.forGeneralCategories(database, values), describe("gc", Arrays.stream(values)));
+	}
+
+	/**
+	 * Creates a query for code points having any of the given bidirectional categories.
+	 * @param bidirectionalCategories The bidirectional categories, such as {@link UnicodeConstants#ARABIC_NUMBER}.
+	 * @return A query for the given bidirectional categories.
+	 * @see UnicodeSet#forBidirectionalCategories(UnicodeDatabase, String...)
+	 */
+	public static UnicodePropertyQuery bidirectionalCategory(final String... bidirectionalCategories) {
+		final String[] values = bidirectionalCategories.clone();
+		return new UnicodePropertyQuery(database -> UnicodeSet.forBidirectionalCategories(database, values), describe("bc", Arrays.stream(values)));
+	}
+
+	/**
+	 * Creates a query for code points having any of the given canonical combining classes.
+	 * @param canonicalCombiningClasses The canonical combining classes, such as <code>230</code> for marks placed above.
+	 * @return A query for the given canonical combining classes.
+	 * @see UnicodeSet#forCanonicalCombiningClasses(UnicodeDatabase, int...)
+	 */
+	public static UnicodePropertyQuery canonicalCombiningClass(final int... canonicalCombiningClasses) {
+		final int[] values = canonicalCombiningClasses.clone();
+		return new UnicodePropertyQuery(database -> UnicodeSet.forCanonicalCombiningClasses(database, values), describe("ccc", Arrays.stream(values).boxed()));
+	}
+
+	/**
+	 * Creates a query for code points having compatibility decompositions with any of the given formatting tags.
+	 * @param characterDecompositionTags The character decomposition tags, such as {@link UnicodeConstants#FONT}.
+	 * @return A query for the given character decomposition tags.
+	 * @see UnicodeSet#forCharacterDecompositionTags(UnicodeDatabase, String...)
+	 */
+	public static UnicodePropertyQuery characterDecompositionTag(final String... characterDecompositionTags) {
+		final String[] values = characterDecompositionTags.clone();
+		return new UnicodePropertyQuery(database -> UnicodeSet.forCharacterDecompositionTags(database, values), describe("dt", Arrays.stream(values)));
+	}
+
+	/**
+	 * Creates a query for mirrored code points.
+	 * @return A query for code points that are mirrored in bidirectional text.
+	 * @see UnicodeSet#forMirrored(UnicodeDatabase)
+	 */
+	public static UnicodePropertyQuery mirrored() {
+		return new UnicodePropertyQuery(UnicodeSet::forMirrored, "mirrored");
+	}
+
+	/**
+	 * Creates a query for the code points in any of the given blocks. Block names are matched loosely, ignoring case, spaces, hyphens, and underscores.
+	 * @param blockNames The names of the blocks, such as "Arrows".
+	 * @return A query for the code points in the given blocks.
+	 * @throws IllegalArgumentException when evaluated, if one of the blocks is not present in the database.
+	 * @see UnicodeBlockRegistry#getBlockByName(CharSequence)
+	 */
+	public static UnicodePropertyQuery block(final String... blockNames) {
+		final String[] values = blockNames.clone();
+		return new UnicodePropertyQuery(database -> {
+			final UnicodeBlockRegistry blockRegistry = UnicodeBlockRegistry.forDatabase(database);
+			final UnicodeSet.Builder builder = new UnicodeSet.Builder();
+			for(final String blockName : values) {
+				final UnicodeBlock block = blockRegistry.getBlockByName(blockName);
+				if(block == null) {
+					throw new IllegalArgumentException("Unknown Unicode block: " + blockName);
+				}
+				builder.add(block.getStartCode(), block.getEndCode());
+			}
+			return builder.build();
+		}, describe("blk", Arrays.stream(values)));
+	}
+
+	/**
+	 * Creates a query for the code points of a set.
+	 * @param unicodeSet The code points to match.
+	 * @return A query matching the code points of the set in any database.
+	 */
+	public static UnicodePropertyQuery of(final UnicodeSet unicodeSet) {
+		requireNonNull(unicodeSet);
+		return new UnicodePropertyQuery(database -> unicodeSet, unicodeSet.toString());
+	}
+
+	/**
+	 * Creates a query for code points matching both this query and another.
+	 * @param query The other query.
+	 * @return A query for the intersection of the code points matching the two queries.
+	 */
+	public UnicodePropertyQuery and(final UnicodePropertyQuery query) {
+		return new UnicodePropertyQuery(database -> evaluate(database).intersection(query.evaluate(database)), "(" + this + " & " + query + ")");
+	}
+
+	/**
+	 * Creates a query for code points matching either this query or another.
+	 * @param query The other query.
+	 * @return A query for the union of the code points matching the two queries.
+	 */
+	public UnicodePropertyQuery or(final UnicodePropertyQuery query) {
+		return new UnicodePropertyQuery(database -> evaluate(database).union(query.evaluate(database)), "(" + this + " | " + query + ")");
+	}
+
+	/**
+	 * Creates a query for code points matching this query but not another.
+	 * @param query The other query.
+	 * @return A query for the code points matching this query, excluding those matching the other query.
+	 */
+	public UnicodePropertyQuery andNot(final UnicodePropertyQuery query) {
+		return new UnicodePropertyQuery(database -> evaluate(database).difference(query.evaluate(database)), "(" + this + " - " + query + ")");
+	}
+
+	/**
+	 * Finds the code points matching this query in the current Unicode database.
+	 * @return The set of matching code points.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public UnicodeSet evaluate() {
+		return evaluate(UnicodeDatabase.getCurrent());
+	}
+
+	/**
+	 * Finds the code points matching this query in a Unicode database.
+	 * @param database The Unicode database.
+	 * @return The set of matching code points.
+	 */
+	public UnicodeSet evaluate(final UnicodeDatabase database) {
+		return evaluator.apply(requireNonNull(database));
+	}
+
+	@Override
+	public String toString() {
+		return description;
+	}
+
+}
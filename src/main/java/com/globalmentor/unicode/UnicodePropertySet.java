@@ -0,0 +1,211 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.*;
+
+import static com.globalmentor.unicode.UnicodeConstants.*;
+
+/**
+ * An immutable, interned combination of the properties that many Unicode characters share: general category, canonical combining class, bidirectional
+ * category, character decomposition tag, and mirrored status.
+ * <p>
+ * Each unique combination interned is stored once in a process-wide table and identified by a small index, so that the immutable characters created by a
+ * {@link UnicodeCharacter.Builder} share their property sets. The Unicode 4.0 data contains only a few hundred unique combinations among its thousands of
+ * characters. Because interned property sets are unique, they may be compared by identity or by index. Property sets that are not interned, because they
+ * were created after the table was full, must be compared using {@link #equals(Object)}.
+ * </p>
+ * <p>
+ * The table never shrinks, so at most {@value #MAX_COUNT} combinations are interned; after that, {@link #intern(String, int, String, String, boolean)} returns
+ * property sets that are not interned.
+ * </p>
+ * @author Garret Wilson
+ * @see UnicodeCharacter#getPropertySet()
+ */
+public final class UnicodePropertySet {
+
+	/** The maximum number of unique property sets that will be interned. */
+	public static final int MAX_COUNT = 1 << 16;
+
+	/** The interned property sets, keyed to themselves. Access is synchronized on the map. */
+	private static final Map<UnicodePropertySet, UnicodePropertySet> internMap = new HashMap<UnicodePropertySet, UnicodePropertySet>();
+
+	/** The interned property sets by index; replaced rather than modified, so that reads need no locking. */
+	private static volatile UnicodePropertySet[] propertySets = new UnicodePropertySet[0];
+
+	/** The property set of a character with no properties assigned. */
+	public static final UnicodePropertySet DEFAULT = intern(null, -1, LEFT_TO_RIGHT, "", false);
+
+	/**
+	 * Returns the unique property set with the given property values, creating it if needed. If the maximum number of property sets, {@value #MAX_COUNT}, has
+	 * already been interned, a new property set is returned that is not interned.
+	 * @param generalCategory The general category, or <code>null</code> if not assigned.
+	 * @param canonicalCombiningClass The canonical combining class, or <code>-1</code> if not assigned.
+	 * @param bidirectionalCategory The bidirectional category.
+	 * @param characterDecompositionTag The character decomposition tag, or the empty string if there is none.
+	 * @param mirrored Whether the character is mirrored in bidirectional text.
+	 * @return The interned property set with the given values, or a new property set that is not interned if the interning table is full.
+	 */
+	public static UnicodePropertySet intern(final String generalCategory, final int canonicalCombiningClass, final String bidirectionalCategory,
+			final String characterDecompositionTag, final boolean mirrored) {
+		final UnicodePropertySet propertySet = new UnicodePropertySet(-1, generalCategory, canonicalCombiningClass, bidirectionalCategory,
+				characterDecompositionTag, mirrored);
+		synchronized(internMap) {
+			UnicodePropertySet internedPropertySet = internMap.get(propertySet);
+			if(internedPropertySet == null) { //if this is a new combination, add it to the table
+				final UnicodePropertySet[] oldPropertySets = propertySets;
+				final int index = oldPropertySets.length;
+				if(index >= MAX_COUNT) { //if the table is full, don't intern the property set
+					return propertySet;
+				}
+				internedPropertySet = new UnicodePropertySet(index, generalCategory, canonicalCombiningClass, bidirectionalCategory, characterDecompositionTag,
+						mirrored);
+				final UnicodePropertySet[] newPropertySets = Arrays.copyOf(oldPropertySets, index + 1);
+				newPropertySets[index] = internedPropertySet;
+				propertySets = newPropertySets; //publish the new table
+				internMap.put(internedPropertySet, internedPropertySet);
+			}
+			return internedPropertySet;
+		}
+	}
+
+	/**
+	 * Returns the interned property set with the given index.
+	 * @param index The index of the property set.
+	 * @return The property set with the given index.
+	 * @throws IndexOutOfBoundsException if no property set has the given index.
+	 */
+	public static UnicodePropertySet get(final int index) {
+		return propertySets[index];
+	}
+
+	/** @return The number of unique property sets interned so far. */
+	public static int getCount() {
+		return propertySets.length;
+	}
+
+	/** The index of this property set in the table, or <code>-1</code> if this property set is not interned. */
+	private final int index;
+
+	/** @return The index of this property set in the table of interned property sets, or <code>-1</code> if this property set is not interned. */
+	public int getIndex() {
+		return index;
+	}
+
+	/** @return <code>true</code> if this property set is interned, and is therefore the only property set with its values. */
+	public boolean isInterned() {
+		return index >= 0;
+	}
+
+	/**
+	 * Returns the interned property set with the same values as this property set.
+	 * @return This property set if it is interned; otherwise the interned property set with the same values, or this property set if the interning table is
+	 *         full.
+	 */
+	public UnicodePropertySet intern() {
+		return isInterned() ? this : intern(generalCategory, canonicalCombiningClass, bidirectionalCategory, characterDecompositionTag, mirrored);
+	}
+
+	/** The general category. */
+	private final String generalCategory;
+
+	/** @return The general category, or <code>null</code> if not assigned. */
+	public String getGeneralCategory() {
+		return generalCategory;
+	}
+
+	/** The canonical combining class. */
+	private final int canonicalCombiningClass;
+
+	/** @return The canonical combining class, or <code>-1</code> if not assigned. */
+	public int getCanonicalCombiningClass() {
+		return canonicalCombiningClass;
+	}
+
+	/** The bidirectional category. */
+	private final String bidirectionalCategory;
+
+	/** @return The bidirectional category. */
+	public String getBidirectionalCategory() {
+		return bidirectionalCategory;
+	}
+
+	/** The character decomposition tag. */
+	private final String characterDecompositionTag;
+
+	/** @return The character decomposition tag, or the empty string if there is none. */
+	public String getCharacterDecompositionTag() {
+		return characterDecompositionTag;
+	}
+
+	/** Whether the character is mirrored. */
+	private final boolean mirrored;
+
+	/** @return <code>true</code> if the character is mirrored in bidirectional text. */
+	public boolean isMirrored() {
+		return mirrored;
+	}
+
+	/**
+	 * Constructor.
+	 * @param index The index of the property set in the table, or <code>-1</code> if the property set is not interned.
+	 * @param generalCategory The general category, or <code>null</code> if not assigned.
+	 * @param canonicalCombiningClass The canonical combining class, or <code>-1</code> if not assigned.
+	 * @param bidirectionalCategory The bidirectional category.
+	 * @param characterDecompositionTag The character decomposition tag, or the empty string if there is none.
+	 * @param mirrored Whether the character is mirrored in bidirectional text.
+	 */
+	private UnicodePropertySet(final int index, final String generalCategory, final int canonicalCombiningClass, final String bidirectionalCategory,
+			final String characterDecompositionTag, final boolean mirrored) {
+		this.index = index;
+		this.generalCategory = generalCategory;
+		this.canonicalCombiningClass = canonicalCombiningClass;
+		this.bidirectionalCategory = bidirectionalCategory;
+		this.characterDecompositionTag = characterDecompositionTag;
+		this.mirrored = mirrored;
+	}
+
+	/** @return A hash code for the property values. */
+	public int hashCode() {
+		return Objects.hash(generalCategory, canonicalCombiningClass, bidirectionalCategory, characterDecompositionTag, mirrored);
+	}
+
+	/**
+	 * Determines whether an object is a property set with the same property values.
+	 * @param object The object to compare.
+	 * @return <code>true</code> if the object is a property set with the same values.
+	 */
+	public boolean equals(final Object object) {
+		if(this == object) {
+			return true;
+		}
+		if(!(object instanceof UnicodePropertySet)) {
+			return false;
+		}
+		final UnicodePropertySet propertySet = (UnicodePropertySet)object;
+		return canonicalCombiningClass == propertySet.canonicalCombiningClass && mirrored == propertySet.mirrored
+				&& Objects.equals(generalCategory, propertySet.generalCategory) && Objects.equals(bidirectionalCategory, propertySet.bidirectionalCategory)
+				&& Objects.equals(characterDecompositionTag, propertySet.characterDecompositionTag);
+	}
+
+	/** @return A string representation of the property set in the form "[category;class;bidi;tag;mirrored]". */
+	public String toString() {
+		return "[" + generalCategory + ';' + canonicalCombiningClass + ';' + bidirectionalCategory + ';' + characterDecompositionTag + ';'
+				+ (mirrored ? UnicodeData.MIRRORED_YES : UnicodeData.MIRRORED_NO) + ']';
+	}
+
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.nio.CharBuffer;
+import java.nio.charset.CoderResult;
+
+import static com.globalmentor.unicode.UnicodeConstants.*;
+import static java.util.Objects.*;
+
+/**
+ * Removes or replaces unwanted code points, such as control, format, unassigned, and private-use characters, from text.
+ * <p>
+ * The code points to remove are determined once, when the sanitizer is built, and compiled into a bitmap, so that no {@link UnicodeCharacter} is looked up
+ * while sanitizing. Runs of clean text are copied in bulk. Unpaired surrogates are handled according to a {@link MalformedSurrogatePolicy}.
+ * </p>
+ * <p>
+ * A sanitizer is immutable and may be shared among threads. It may be used directly on character sequences and character buffers, or to filter streams
+ * using {@link UnicodeSanitizingReader} and {@link UnicodeSanitizingWriter}.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodeSanitizer {
+
+	/** The replacement character, used for malformed surrogates under the {@link MalformedSurrogatePolicy#REPLACE} policy. */
+	public static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+	/**
+	 * How unpaired surrogate code units are handled.
+	 * @author Garret Wilson
+	 */
+	public enum MalformedSurrogatePolicy {
+		/** Unpaired surrogates are replaced with {@link UnicodeSanitizer#REPLACEMENT_CHARACTER}. */
+		REPLACE,
+		/** Unpaired surrogates are removed. */
+		REMOVE,
+		/** Unpaired surrogates are passed through unchanged. */
+		PRESERVE,
+		/** Unpaired surrogates are reported as malformed input. */
+		REPORT
+	}
+
+	/**
+	 * A sanitizer using the bundled Unicode database that removes control characters other than tab, line feed, and carriage return; format characters;
+	 * unassigned code points; and private-use code points. Unpaired surrogates are replaced.
+	 */
+	public static final UnicodeSanitizer DEFAULT = new Builder(UnicodeDatabase.getBundled()).removeControls().removeFormat().removeUnassigned()
+			.removePrivateUse().keep('\t', '\n', '\r').build();
+
+	/** The code points to remove. */
+	private final UnicodeSet removedSet;
+
+	/** @return The set of code points removed or replaced by this sanitizer. */
+	public UnicodeSet getRemovedSet() {
+		return removedSet;
+	}
+
+	/** The bitmap of code points to remove. */
+	private final CodePointBitTable removedTable;
+
+	/** The bits of the ASCII code points to remove. */
+	private final long asciiRemovedBits0;
+
+	/** The bits of the ASCII code points <code>0x40</code> through <code>0x7F</code> to remove. */
+	private final long asciiRemovedBits1;
+
+	/** The replacement for each removed code point; an empty string if removed code points are stripped. */
+	private final String replacement;
+
+	/** @return The replacement for each removed code point; an empty string if removed code points are stripped. */
+	public String getReplacement() {
+		return replacement;
+	}
+
+	/** The policy for unpaired surrogates. */
+	private final MalformedSurrogatePolicy malformedSurrogatePolicy;
+
+	/** @return The policy for unpaired surrogates. */
+	public MalformedSurrogatePolicy getMalformedSurrogatePolicy() {
+		return malformedSurrogatePolicy;
+	}
+
+	/** @return The greatest number of characters written for a single input code point. */
+	int getMaxReplacementLength() {
+		return Math.max(replacement.length(), 2);
+	}
+
+	/**
+	 * Builder constructor.
+	 * @param builder The builder containing the sanitizer settings.
+	 */
+	private UnicodeSanitizer(final Builder builder) {
+		removedSet = builder.removedSet.difference(builder.keptSet).difference(UnicodeSet.forGeneralCategories(builder.database, OTHER_SURROGATE));
+		removedTable = new CodePointBitTable(removedSet);
+		long bits0 = 0;
+		long bits1 = 0;
+		for(int c = 0; c < 0x80; ++c) {
+			if(removedTable.contains(c)) {
+				if(c < 0x40) {
+					bits0 |= 1L << c;
+				} else {
+					bits1 |= 1L << c;
+				}
+			}
+		}
+		asciiRemovedBits0 = bits0;
+		asciiRemovedBits1 = bits1;
+		replacement = builder.replacement;
+		malformedSurrogatePolicy = builder.malformedSurrogatePolicy;
+	}
+
+	/**
+	 * Determines whether a code point is removed or replaced by this sanitizer. Surrogate code points are governed by the malformed surrogate policy instead.
+	 * @param codePoint The code point to check.
+	 * @return <code>true</code> if the code point is removed or replaced.
+	 */
+	public boolean isRemoved(final int codePoint) {
+		return removedTable.contains(codePoint);
+	}
+
+	/**
+	 * Finds the next position in text requiring attention: a code point to remove, an unpaired surrogate, or a high surrogate at the end of the text that
+	 * might begin a pair.
+	 * @param text The text to scan.
+	 * @param start The index at which to start scanning.
+	 * @param end The index at which to stop scanning.
+	 * @return The index of the first character requiring attention, or the end if the entire span is clean.
+	 */
+	int scan(final CharSequence text, final int start, final int end) {
+		final long ascii0 = asciiRemovedBits0;
+		final long ascii1 = asciiRemovedBits1;
+		int index = start;
+		while(index < end) {
+			final char c = text.charAt(index);
+			if(c < 0x80) { //ASCII fast path
+				if(((c < 0x40 ? ascii0 : ascii1) & (1L << c)) != 0) {
+					return index;
+				}
+				++index;
+			} else if(Character.isSurrogate(c)) {
+				if(!Character.isHighSurrogate(c) || index + 1 >= end) { //unpaired low surrogate, or high surrogate that may be continued
+					return index;
+				}
+				final char low = text.charAt(index + 1);
+				if(!Character.isLowSurrogate(low) || removedTable.contains(Character.toCodePoint(c, low))) {
+					return index;
+				}
+				index += 2;
+			} else {
+				if(removedTable.contains(c)) {
+					return index;
+				}
+				++index;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Determines whether text contains anything this sanitizer would change.
+	 * @param text The text to check.
+	 * @return <code>true</code> if sanitizing would leave the text unchanged.
+	 */
+	public boolean isClean(final CharSequence text) {
+		final int length = text.length();
+		int index = 0;
+		while((index = scan(text, index, length)) < length) {
+			final char c = text.charAt(index);
+			if(Character.isSurrogate(c) && malformedSurrogatePolicy == MalformedSurrogatePolicy.PRESERVE
+					&& !(Character.isHighSurrogate(c) && index + 1 < length && Character.isLowSurrogate(text.charAt(index + 1)))) {
+				++index; //preserved unpaired surrogate
+			} else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sanitizes text. If the text is clean, no new string is created for string input.
+	 * @param text The text to sanitize.
+	 * @return The sanitized text.
+	 * @throws IllegalArgumentException if the text contains an unpaired surrogate and the policy is {@link MalformedSurrogatePolicy#REPORT}.
+	 */
+	public String sanitize(final CharSequence text) {
+		final int length = text.length();
+		int index = scan(text, 0, length);
+		if(index == length) {
+			return text.toString();
+		}
+		final StringBuilder stringBuilder = new StringBuilder(length);
+		stringBuilder.append(text, 0, index);
+		while(index < length) {
+			final char c = text.charAt(index);
+			if(Character.isHighSurrogate(c) && index + 1 < length && Character.isLowSurrogate(text.charAt(index + 1))) { //removed supplementary code point
+				stringBuilder.append(replacement);
+				index += 2;
+			} else if(Character.isSurrogate(c)) {
+				switch(malformedSurrogatePolicy) {
+					case REPLACE:
+						stringBuilder.append(REPLACEMENT_CHARACTER);
+						break;
+					case REMOVE:
+						break;
+					case PRESERVE:
+						stringBuilder.append(c);
+						break;
+					case REPORT:
+						throw new IllegalArgumentException("Unpaired surrogate at index " + index + ".");
+					default:
+						throw new AssertionError(malformedSurrogatePolicy);
+				}
+				++index;
+			} else {
+				stringBuilder.append(replacement);
+				++index;
+			}
+			final int cleanEnd = scan(text, index, length);
+			stringBuilder.append(text, index, cleanEnd); //copy the clean span in bulk
+			index = cleanEnd;
+		}
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * Sanitizes characters from one buffer into another, in the manner of
+	 * {@link java.nio.charset.CharsetDecoder#decode(java.nio.ByteBuffer, CharBuffer, boolean)}. Clean spans are copied in bulk when the input buffer is backed
+	 * by an array. If the input ends with a high surrogate and more input may follow, the high surrogate is left in the input buffer.
+	 * @param in The input buffer, the position of which will be advanced past the characters consumed.
+	 * @param out The output buffer, the position of which will be advanced past the characters produced.
+	 * @param endOfInput <code>true</code> if the input buffer contains the last of the input.
+	 * @return {@link CoderResult#UNDERFLOW} if the input was consumed as far as possible, {@link CoderResult#OVERFLOW} if the output buffer is full, or a
+	 *         malformed result if an unpaired surrogate was found and the policy is {@link MalformedSurrogatePolicy#REPORT}; in that case the input position is
+	 *         left at the unpaired surrogate.
+	 */
+	public CoderResult sanitize(final CharBuffer in, final CharBuffer out, final boolean endOfInput) {
+		final int position = in.position();
+		final int limit = in.limit();
+		int index = position;
+		try {
+			while(index < limit) {
+				final int cleanEnd = scan(in, index - position, limit - position) + position; //CharBuffer.charAt() is relative to the position
+				final int cleanLength = cleanEnd - index;
+				if(cleanLength > 0) {
+					if(out.remaining() < cleanLength) { //copy what we can
+						final int partialLength = out.remaining();
+						put(in, index, out, partialLength);
+						index += partialLength;
+						return CoderResult.OVERFLOW;
+					}
+					put(in, index, out, cleanLength);
+					index = cleanEnd;
+					continue;
+				}
+				final char c = in.get(index);
+				if(Character.isHighSurrogate(c) && index + 1 >= limit && !endOfInput) { //wait for the rest of the pair
+					return CoderResult.UNDERFLOW;
+				}
+				if(Character.isHighSurrogate(c) && index + 1 < limit && Character.isLowSurrogate(in.get(index + 1))) { //removed supplementary code point
+					if(out.remaining() < replacement.length()) {
+						return CoderResult.OVERFLOW;
+					}
+					out.put(replacement);
+					index += 2;
+				} else if(Character.isSurrogate(c)) {
+					switch(malformedSurrogatePolicy) {
+						case REPLACE:
+							if(!out.hasRemaining()) {
+								return CoderResult.OVERFLOW;
+							}
+							out.put(REPLACEMENT_CHARACTER);
+							break;
+						case REMOVE:
+							break;
+						case PRESERVE:
+							if(!out.hasRemaining()) {
+								return CoderResult.OVERFLOW;
+							}
+							out.put(c);
+							break;
+						case REPORT:
+							return CoderResult.malformedForLength(1);
+						default:
+							throw new AssertionError(malformedSurrogatePolicy);
+					}
+					++index;
+				} else {
+					if(out.remaining() < replacement.length()) {
+						return CoderResult.OVERFLOW;
+					}
+					out.put(replacement);
+					++index;
+				}
+			}
+			return CoderResult.UNDERFLOW;
+		} finally {
+			in.position(index);
+		}
+	}
+
+	/**
+	 * Copies characters from one buffer to another, using a bulk copy if possible.
+	 * @param in The input buffer; its position is not changed.
+	 * @param index The absolute index in the input buffer from which to copy.
+	 * @param out The output buffer.
+	 * @param length The number of characters to copy.
+	 */
+	private static void put(final CharBuffer in, final int index, final CharBuffer out, final int length) {
+		if(in.hasArray()) {
+			out.put(in.array(), in.arrayOffset() + index, length);
+		} else {
+			for(int i = 0; i < length; ++i) {
+				out.put(in.get(index + i));
+			}
+		}
+	}
+
+	/**
+	 * Builds sanitizers.
+	 * @author Garret Wilson
+	 */
+	public static class Builder {
+
+		/** The Unicode database from which to determine character categories. */
+		private final UnicodeDatabase database;
+
+		/** The code points to remove. */
+		private UnicodeSet removedSet = UnicodeSet.EMPTY;
+
+		/** The code points to keep, even if they are also in the removed set. */
+		private UnicodeSet keptSet = UnicodeSet.EMPTY;
+
+		/** The replacement for each removed code point; an empty string if removed code points are stripped. */
+		private String replacement = "";
+
+		/** The policy for unpaired surrogates. */
+		private MalformedSurrogatePolicy malformedSurrogatePolicy = MalformedSurrogatePolicy.REPLACE;
+
+		/**
+		 * Creates a builder using the current Unicode database.
+		 * @see UnicodeDatabase#getCurrent()
+		 */
+		public Builder() {
+			this(UnicodeDatabase.getCurrent());
+		}
+
+		/**
+		 * Database constructor.
+		 * @param database The Unicode database from which to determine character categories.
+		 */
+		public Builder(final UnicodeDatabase database) {
+			this.database = requireNonNull(database);
+		}
+
+		/**
+		 * Removes code points of the given general categories.
+		 * @param generalCategories The general categories to remove.
+		 * @return This builder.
+		 * @see UnicodeSet#forGeneralCategories(UnicodeDatabase, String...)
+		 */
+		public Builder removeGeneralCategories(final String... generalCategories) {
+			return remove(UnicodeSet.forGeneralCategories(database, generalCategories));
+		}
+
+		/**
+		 * Removes control characters, those of category {@link UnicodeConstants#OTHER_CONTROL}.
+		 * @return This builder.
+		 * @see UnicodeCharacter#isControl()
+		 */
+		public Builder removeControls() {
+			return removeGeneralCategories(OTHER_CONTROL);
+		}
+
+		/**
+		 * Removes format characters, those of category {@link UnicodeConstants#OTHER_FORMAT}.
+		 * @return This builder.
+		 */
+		public Builder removeFormat() {
+			return removeGeneralCategories(OTHER_FORMAT);
+		}
+
+		/**
+		 * Removes code points not assigned in the database.
+		 * @return This builder.
+		 */
+		public Builder removeUnassigned() {
+			return removeGeneralCategories(OTHER_NOT_ASSIGNED);
+		}
+
+		/**
+		 * Removes private-use code points, those of category {@link UnicodeConstants#OTHER_PRIVATE_USE}.
+		 * @return This builder.
+		 */
+		public Builder removePrivateUse() {
+			return removeGeneralCategories(OTHER_PRIVATE_USE);
+		}
+
+		/**
+		 * Removes the code points of a set.
+		 * @param unicodeSet The code points to remove.
+		 * @return This builder.
+		 */
+		public Builder remove(final UnicodeSet unicodeSet) {
+			removedSet = removedSet.union(unicodeSet);
+			return this;
+		}
+
+		/**
+		 * Keeps code points that would otherwise be removed, such as line terminators among control characters.
+		 * @param codePoints The code points to keep.
+		 * @return This builder.
+		 */
+		public Builder keep(final int... codePoints) {
+			return keep(UnicodeSet.of(codePoints));
+		}
+
+		/**
+		 * Keeps code points that would otherwise be removed.
+		 * @param unicodeSet The code points to keep.
+		 * @return This builder.
+		 */
+		public Builder keep(final UnicodeSet unicodeSet) {
+			keptSet = keptSet.union(unicodeSet);
+			return this;
+		}
+
+		/**
+		 * Sets the text with which each removed code point is replaced.
+		 * @param replacement The replacement text, or the empty string if removed code points should be stripped.
+		 * @return This builder.
+		 */
+		public Builder setReplacement(final String replacement) {
+			this.replacement = requireNonNull(replacement);
+			return this;
+		}
+
+		/**
+		 * Sets how unpaired surrogates are handled.
+		 * @param malformedSurrogatePolicy The policy for unpaired surrogates.
+		 * @return This builder.
+		 */
+		public Builder setMalformedSurrogatePolicy(final MalformedSurrogatePolicy malformedSurrogatePolicy) {
+			this.malformedSurrogatePolicy = requireNonNull(malformedSurrogatePolicy);
+			return this;
+		}
+
+		/** @return A new sanitizer with the current settings. */
+		public UnicodeSanitizer build() {
+			return new UnicodeSanitizer(this);
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+
+import static java.util.Objects.*;
+
+/**
+ * A reader that sanitizes the text read from an underlying reader, removing or replacing unwanted code points as determined by a {@link UnicodeSanitizer}.
+ * <p>
+ * If the sanitizer reports unpaired surrogates, reading one throws a {@link MalformedInputException}.
+ * </p>
+ * @author Garret Wilson
+ */
+public class UnicodeSanitizingReader extends FilterReader {
+
+	/** The default size of the input and output buffers. */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/** The sanitizer. */
+	private final UnicodeSanitizer sanitizer;
+
+	/** The unsanitized characters read from the underlying reader, ready for reading. */
+	private final CharBuffer inBuffer;
+
+	/** The sanitized characters, ready for reading. */
+	private final CharBuffer outBuffer;
+
+	/** Whether the underlying reader has reached the end of its input. */
+	private boolean endOfInput = false;
+
+	/**
+	 * Reader constructor using the default sanitizer.
+	 * @param in The reader from which text is read.
+	 * @see UnicodeSanitizer#DEFAULT
+	 */
+	public UnicodeSanitizingReader(final Reader in) {
+		this(in, UnicodeSanitizer.DEFAULT);
+	}
+
+	/**
+	 * Reader and sanitizer constructor.
+	 * @param in The reader from which text is read.
+	 * @param sanitizer The sanitizer to apply to the text.
+	 */
+	public UnicodeSanitizingReader(final Reader in, final UnicodeSanitizer sanitizer) {
+		this(in, sanitizer, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Reader, sanitizer, and buffer size constructor.
+	 * @param in The reader from which text is read.
+	 * @param sanitizer The sanitizer to apply to the text.
+	 * @param bufferSize The size of the input and output buffers.
+	 * @throws IllegalArgumentException if the buffer size is too small to hold a replacement.
+	 */
+	public UnicodeSanitizingReader(final Reader in, final UnicodeSanitizer sanitizer, final int bufferSize) {
+		super(in);
+		this.sanitizer = requireNonNull(sanitizer);
+		if(bufferSize < sanitizer.getMaxReplacementLength()) {
+			throw new IllegalArgumentException("Buffer size " + bufferSize + " is too small.");
+		}
+		inBuffer = CharBuffer.allocate(bufferSize);
+		inBuffer.flip(); //start out with nothing to read
+		outBuffer = CharBuffer.allocate(bufferSize);
+		outBuffer.flip();
+	}
+
+	/**
+	 * Ensures that sanitized characters are available in the output buffer.
+	 * @return <code>true</code> if characters are available, or <code>false</code> if the end of the input has been reached.
+	 * @throws IOException if there is an error reading from the underlying reader or an unpaired surrogate is reported.
+	 */
+	private boolean fill() throws IOException {
+		while(!outBuffer.hasRemaining()) {
+			outBuffer.clear();
+			final CoderResult result = sanitizer.sanitize(inBuffer, outBuffer, endOfInput);
+			outBuffer.flip();
+			if(outBuffer.hasRemaining()) { //return any characters before reporting an error, which will be found again
+				break;
+			}
+			if(result.isError()) {
+				result.throwException();
+			}
+			if(endOfInput) {
+				return false;
+			}
+			inBuffer.compact(); //keep any high surrogate waiting for its pair
+			final int count = in.read(inBuffer);
+			inBuffer.flip();
+			if(count < 0) {
+				endOfInput = true;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		synchronized(lock) {
+			return fill() ? outBuffer.get() : -1;
+		}
+	}
+
+	@Override
+	public int read(final char[] cbuf, final int off, final int len) throws IOException {
+		synchronized(lock) {
+			if(len == 0) {
+				return 0;
+			}
+			if(!fill()) {
+				return -1;
+			}
+			final int count = Math.min(len, outBuffer.remaining());
+			outBuffer.get(cbuf, off, count);
+			return count;
+		}
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		if(n < 0) {
+			throw new IllegalArgumentException("Skip value is negative.");
+		}
+		synchronized(lock) {
+			long remaining = n;
+			while(remaining > 0 && fill()) {
+				final int count = (int)Math.min(remaining, outBuffer.remaining());
+				outBuffer.position(outBuffer.position() + count);
+				remaining -= count;
+			}
+			return n - remaining;
+		}
+	}
+
+	@Override
+	public boolean ready() throws IOException {
+		synchronized(lock) {
+			return outBuffer.hasRemaining() || in.ready();
+		}
+	}
+
+	/** @return <code>false</code>, as marking is not supported. */
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public void mark(final int readAheadLimit) throws IOException {
+		throw new IOException("Mark not supported.");
+	}
+
+	@Override
+	public void reset() throws IOException {
+		throw new IOException("Reset not supported.");
+	}
+
+}
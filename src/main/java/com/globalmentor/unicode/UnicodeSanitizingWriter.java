@@ -0,0 +1,190 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+
+import static java.util.Objects.*;
+
+/**
+ * A writer that sanitizes the text written to it before passing it to an underlying writer, removing or replacing unwanted code points as determined by a
+ * {@link UnicodeSanitizer}.
+ * <p>
+ * A high surrogate written last is held until the next write, so that surrogate pairs may be split across writes. It is handled as unpaired when the writer
+ * is closed. If the sanitizer reports unpaired surrogates, writing one throws a {@link MalformedInputException}.
+ * </p>
+ * @author Garret Wilson
+ */
+public class UnicodeSanitizingWriter extends FilterWriter {
+
+	/** The default size of the input and output buffers. */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/** The sanitizer. */
+	private final UnicodeSanitizer sanitizer;
+
+	/** The unsanitized characters written, ready for sanitizing. */
+	private final CharBuffer inBuffer;
+
+	/** The sanitized characters, ready for writing to the underlying writer. */
+	private final CharBuffer outBuffer;
+
+	/** Whether this writer has been closed. */
+	private boolean closed = false;
+
+	/**
+	 * Writer constructor using the default sanitizer.
+	 * @param out The writer to which sanitized text is written.
+	 * @see UnicodeSanitizer#DEFAULT
+	 */
+	public UnicodeSanitizingWriter(final Writer out) {
+		this(out, UnicodeSanitizer.DEFAULT);
+	}
+
+	/**
+	 * Writer and sanitizer constructor.
+	 * @param out The writer to which sanitized text is written.
+	 * @param sanitizer The sanitizer to apply to the text.
+	 */
+	public UnicodeSanitizingWriter(final Writer out, final UnicodeSanitizer sanitizer) {
+		this(out, sanitizer, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Writer, sanitizer, and buffer size constructor.
+	 * @param out The writer to which sanitized text is written.
+	 * @param sanitizer The sanitizer to apply to the text.
+	 * @param bufferSize The size of the input and output buffers.
+	 * @throws IllegalArgumentException if the buffer size is too small to hold a replacement.
+	 */
+	public UnicodeSanitizingWriter(final Writer out, final UnicodeSanitizer sanitizer, final int bufferSize) {
+		super(out);
+		this.sanitizer = requireNonNull(sanitizer);
+		if(bufferSize < sanitizer.getMaxReplacementLength()) {
+			throw new IllegalArgumentException("Buffer size " + bufferSize + " is too small.");
+		}
+		inBuffer = CharBuffer.allocate(bufferSize);
+		outBuffer = CharBuffer.allocate(bufferSize);
+	}
+
+	/**
+	 * Ensures that this writer is open.
+	 * @throws IOException if this writer has been closed.
+	 */
+	private void ensureOpen() throws IOException {
+		if(closed) {
+			throw new IOException("Writer closed.");
+		}
+	}
+
+	/**
+	 * Sanitizes the characters in the input buffer and writes them to the underlying writer.
+	 * @param endOfInput Whether no more characters will be written.
+	 * @throws IOException if there is an error writing to the underlying writer or an unpaired surrogate is reported.
+	 */
+	private void drain(final boolean endOfInput) throws IOException {
+		inBuffer.flip();
+		try {
+			while(true) {
+				final CoderResult result = sanitizer.sanitize(inBuffer, outBuffer, endOfInput);
+				if(outBuffer.position() > 0) {
+					out.write(outBuffer.array(), outBuffer.arrayOffset(), outBuffer.position());
+					outBuffer.clear();
+				}
+				if(result.isError()) {
+					result.throwException();
+				}
+				if(result.isUnderflow()) {
+					break;
+				}
+			}
+		} finally {
+			inBuffer.compact(); //keep any high surrogate waiting for its pair
+		}
+	}
+
+	@Override
+	public void write(final int c) throws IOException {
+		synchronized(lock) {
+			ensureOpen();
+			if(!inBuffer.hasRemaining()) {
+				drain(false);
+			}
+			inBuffer.put((char)c);
+		}
+	}
+
+	@Override
+	public void write(final char[] cbuf, int off, int len) throws IOException {
+		synchronized(lock) {
+			ensureOpen();
+			while(len > 0) {
+				if(!inBuffer.hasRemaining()) {
+					drain(false);
+				}
+				final int count = Math.min(len, inBuffer.remaining());
+				inBuffer.put(cbuf, off, count);
+				off += count;
+				len -= count;
+			}
+		}
+	}
+
+	@Override
+	public void write(final String str, int off, int len) throws IOException {
+		synchronized(lock) {
+			ensureOpen();
+			while(len > 0) {
+				if(!inBuffer.hasRemaining()) {
+					drain(false);
+				}
+				final int count = Math.min(len, inBuffer.remaining());
+				inBuffer.put(str, off, off + count);
+				off += count;
+				len -= count;
+			}
+		}
+	}
+
+	/** {@inheritDoc} A trailing high surrogate is held back until it can be determined whether it is paired. */
+	@Override
+	public void flush() throws IOException {
+		synchronized(lock) {
+			ensureOpen();
+			drain(false);
+			out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized(lock) {
+			if(closed) {
+				return;
+			}
+			try {
+				drain(true);
+			} finally {
+				closed = true;
+				out.close();
+			}
+		}
+	}
+
+}
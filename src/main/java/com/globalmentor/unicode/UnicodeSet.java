@@ -0,0 +1,741 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static com.globalmentor.text.Unicode.*;
+import static com.globalmentor.unicode.UnicodeConstants.*;
+
+/**
+ * An immutable set of Unicode code points stored as an inversion list: a sorted array of code points at which membership alternately begins and ends.
+ * <p>
+ * Membership is determined using a binary search of the inversion list, with a bitmap for the first 256 code points. Union, intersection, difference, and
+ * complement are computed in time linear to the number of ranges in the sets involved, without regard to the number of code points they contain.
+ * </p>
+ * <p>
+ * Sets may be created from code points, ranges of code points, Unicode blocks, the values of enumerated character properties such as general and
+ * bidirectional categories, or by using a {@link Builder}. The sets of property values are built once per database, so that such sets may be retrieved and
+ * combined without examining any characters.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodeSet {
+
+	/** The code point one past the last Unicode code point, used as the end of a range extending to the end of the code space. */
+	static final int END_CODE_POINT = Character.MAX_CODE_POINT + 1;
+
+	/** The derived table key for the general category sets of a database. */
+	private static final Object GENERAL_CATEGORY_SETS_KEY = new Object();
+
+	/** The derived table key for the bidirectional category sets of a database. */
+	private static final Object BIDIRECTIONAL_CATEGORY_SETS_KEY = new Object();
+
+	/** The derived table key for the canonical combining class sets of a database. */
+	private static final Object CANONICAL_COMBINING_CLASS_SETS_KEY = new Object();
+
+	/** The derived table key for the character decomposition tag sets of a database. */
+	private static final Object CHARACTER_DECOMPOSITION_TAG_SETS_KEY = new Object();
+
+	/** The derived table key for the mirrored set of a database. */
+	private static final Object MIRRORED_SET_KEY = new Object();
+
+	/** The empty set. */
+	public static final UnicodeSet EMPTY = new UnicodeSet(new int[0]);
+
+	/** The set of all Unicode code points. */
+	public static final UnicodeSet ALL = new UnicodeSet(new int[] {0, END_CODE_POINT});
+
+	/** The inversion list; even indexes are inclusive range starts and odd indexes are exclusive range ends. */
+	private final int[] list;
+
+	/** The membership bits of code points <code>U+0000</code> through <code>U+00FF</code>. */
+	private final long[] latin1Bits = new long[4];
+
+	/**
+	 * Inversion list constructor.
+	 * @param list The inversion list, which must be sorted with no duplicates and have an even length. The array is retained.
+	 */
+	private UnicodeSet(final int[] list) {
+		this.list = list;
+		for(int i = 0; i < list.length && list[i] < 256; i += 2) { //cache the membership of the Latin-1 code points
+			final int end = Math.min(list[i + 1], 256);
+			for(int codePoint = list[i]; codePoint < end; ++codePoint) {
+				latin1Bits[codePoint >> 6] |= 1L << codePoint;
+			}
+		}
+	}
+
+	/**
+	 * Checks that a value is a valid Unicode code point.
+	 * @param codePoint The value to check.
+	 * @return The given code point.
+	 * @throws IllegalArgumentException if the given value is not a valid Unicode code point.
+	 */
+	static int checkCodePoint(final int codePoint) {
+		if(codePoint < 0 || codePoint > Character.MAX_CODE_POINT) {
+			throw new IllegalArgumentException("Invalid Unicode code point: " + Integer.toHexString(codePoint));
+		}
+		return codePoint;
+	}
+
+	/**
+	 * Returns a set of individual code points.
+	 * @param codePoints The code points to include, in any order.
+	 * @return A set containing the given code points.
+	 * @throws IllegalArgumentException if one of the values is not a valid Unicode code point.
+	 */
+	public static UnicodeSet of(final int... codePoints) {
+		final Builder builder = new Builder();
+		for(final int codePoint : codePoints) {
+			builder.add(codePoint);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Returns a set of a single range of code points.
+	 * @param first The first code point in the range.
+	 * @param last The last code point in the range, inclusive.
+	 * @return A set containing the given range of code points.
+	 * @throws IllegalArgumentException if one of the values is not a valid Unicode code point, or if the last code point comes before the first.
+	 */
+	public static UnicodeSet range(final int first, final int last) {
+		return new Builder().add(first, last).build();
+	}
+
+	/**
+	 * Returns a set of the code points within Unicode blocks.
+	 * @param blocks The Unicode blocks the ranges of which to include.
+	 * @return A set containing all the code points in the given blocks.
+	 */
+	public static UnicodeSet forBlocks(final UnicodeBlock... blocks) {
+		return forBlocks(Arrays.asList(blocks));
+	}
+
+	/**
+	 * Returns a set of the code points within Unicode blocks.
+	 * @param blocks The Unicode blocks the ranges of which to include.
+	 * @return A set containing all the code points in the given blocks.
+	 */
+	public static UnicodeSet forBlocks(final Iterable<UnicodeBlock> blocks) {
+		final Builder builder = new Builder();
+		for(final UnicodeBlock block : blocks) {
+			builder.add(block.getStartCode(), block.getEndCode());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Returns a set of the code points having any of the given general categories in the current Unicode database.
+	 * @param generalCategories The general categories, such as {@link UnicodeConstants#LETTER_UPPERCASE}. A single-letter major category such as "L" includes
+	 *          all categories beginning with that letter. The category {@link UnicodeConstants#OTHER_NOT_ASSIGNED} includes all code points not in the
+	 *          database.
+	 * @return A set containing the code points with the given categories.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static UnicodeSet forGeneralCategories(final String... generalCategories) {
+		return forGeneralCategories(UnicodeDatabase.getCurrent(), generalCategories);
+	}
+
+	/**
+	 * Returns a set of the code points having any of the given general categories in a Unicode database. The category sets of each database are computed once
+	 * and cached.
+	 * @param database The Unicode database from which to determine categories.
+	 * @param generalCategories The general categories, such as {@link UnicodeConstants#LETTER_UPPERCASE}. A single-letter major category such as "L" includes
+	 *          all categories beginning with that letter. The category {@link UnicodeConstants#OTHER_NOT_ASSIGNED} includes all code points not in the
+	 *          database.
+	 * @return A set containing the code points with the given categories.
+	 */
+	public static UnicodeSet forGeneralCategories(final UnicodeDatabase database, final String... generalCategories) {
+		final Map<String, UnicodeSet> generalCategorySets = getGeneralCategorySets(database);
+		UnicodeSet unicodeSet = EMPTY;
+		for(final String generalCategory : generalCategories) {
+			final UnicodeSet generalCategorySet = generalCategorySets.get(generalCategory);
+			if(generalCategorySet != null) {
+				unicodeSet = unicodeSet.union(generalCategorySet);
+			}
+		}
+		return unicodeSet;
+	}
+
+	/**
+	 * Returns the sets of code points of each general category, and of each single-letter major category, in a Unicode database.
+	 * @param database The Unicode database.
+	 * @return An unmodifiable map of code point sets keyed to general categories.
+	 */
+	static Map<String, UnicodeSet> getGeneralCategorySets(final UnicodeDatabase database) {
+		return database.getDerivedTable(GENERAL_CATEGORY_SETS_KEY, db -> {
+			final Map<String, UnicodeSet> generalCategorySets = createPropertySets(db, UnicodeCharacter::getGeneralCategory, true);
+			final Builder assignedBuilder = new Builder();
+			for(final Map.Entry<String, UnicodeSet> generalCategorySetEntry : generalCategorySets.entrySet()) {
+				if(generalCategorySetEntry.getKey().length() == 1) { //the major categories together cover all assigned code points
+					assignedBuilder.addAll(generalCategorySetEntry.getValue());
+				}
+			}
+			final UnicodeSet unassignedSet = assignedBuilder.build().complement();
+			generalCategorySets.put(OTHER_NOT_ASSIGNED, unassignedSet);
+			generalCategorySets.merge(OTHER_NOT_ASSIGNED.substring(0, 1), unassignedSet, UnicodeSet::union);
+			return Collections.unmodifiableMap(generalCategorySets);
+		});
+	}
+
+	/**
+	 * Returns a set of the code points having any of the given bidirectional categories in the current Unicode database.
+	 * @param bidirectionalCategories The bidirectional categories, such as {@link UnicodeConstants#RIGHT_TO_LEFT}.
+	 * @return A set containing the code points with the given bidirectional categories; code points not in the database are not included.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static UnicodeSet forBidirectionalCategories(final String... bidirectionalCategories) {
+		return forBidirectionalCategories(UnicodeDatabase.getCurrent(), bidirectionalCategories);
+	}
+
+	/**
+	 * Returns a set of the code points having any of the given bidirectional categories in a Unicode database. The bidirectional category sets of each database
+	 * are computed once and cached.
+	 * @param database The Unicode database from which to determine categories.
+	 * @param bidirectionalCategories The bidirectional categories, such as {@link UnicodeConstants#RIGHT_TO_LEFT}.
+	 * @return A set containing the code points with the given bidirectional categories; code points not in the database are not included.
+	 */
+	public static UnicodeSet forBidirectionalCategories(final UnicodeDatabase database, final String... bidirectionalCategories) {
+		final Map<String, UnicodeSet> bidirectionalCategorySets = getBidirectionalCategorySets(database);
+		UnicodeSet unicodeSet = EMPTY;
+		for(final String bidirectionalCategory : bidirectionalCategories) {
+			final UnicodeSet bidirectionalCategorySet = bidirectionalCategorySets.get(bidirectionalCategory);
+			if(bidirectionalCategorySet != null) {
+				unicodeSet = unicodeSet.union(bidirectionalCategorySet);
+			}
+		}
+		return unicodeSet;
+	}
+
+	/**
+	 * Returns the sets of code points of each bidirectional category in a Unicode database.
+	 * @param database The Unicode database.
+	 * @return An unmodifiable map of code point sets keyed to bidirectional categories.
+	 */
+	static Map<String, UnicodeSet> getBidirectionalCategorySets(final UnicodeDatabase database) {
+		return database.getDerivedTable(BIDIRECTIONAL_CATEGORY_SETS_KEY,
+				db -> Collections.unmodifiableMap(createPropertySets(db, UnicodeCharacter::getBidirectionalCategory, false)));
+	}
+
+	/**
+	 * Returns a set of the code points having any of the given canonical combining classes in the current Unicode database.
+	 * @param canonicalCombiningClasses The canonical combining classes, such as <code>230</code> for marks placed above.
+	 * @return A set containing the code points with the given canonical combining classes; code points not in the database are not included.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static UnicodeSet forCanonicalCombiningClasses(final int... canonicalCombiningClasses) {
+		return forCanonicalCombiningClasses(UnicodeDatabase.getCurrent(), canonicalCombiningClasses);
+	}
+
+	/**
+	 * Returns a set of the code points having any of the given canonical combining classes in a Unicode database. The canonical combining class sets of each
+	 * database are computed once and cached.
+	 * @param database The Unicode database from which to determine canonical combining classes.
+	 * @param canonicalCombiningClasses The canonical combining classes, such as <code>230</code> for marks placed above.
+	 * @return A set containing the code points with the given canonical combining classes; code points not in the database are not included.
+	 */
+	public static UnicodeSet forCanonicalCombiningClasses(final UnicodeDatabase database, final int... canonicalCombiningClasses) {
+		final Map<String, UnicodeSet> canonicalCombiningClassSets = database.getDerivedTable(CANONICAL_COMBINING_CLASS_SETS_KEY, db -> Collections
+				.unmodifiableMap(createPropertySets(db, unicodeCharacter -> Integer.toString(unicodeCharacter.getCanonicalCombiningClass()), false)));
+		UnicodeSet unicodeSet = EMPTY;
+		for(final int canonicalCombiningClass : canonicalCombiningClasses) {
+			final UnicodeSet canonicalCombiningClassSet = canonicalCombiningClassSets.get(Integer.toString(canonicalCombiningClass));
+			if(canonicalCombiningClassSet != null) {
+				unicodeSet = unicodeSet.union(canonicalCombiningClassSet);
+			}
+		}
+		return unicodeSet;
+	}
+
+	/**
+	 * Returns a set of the code points having compatibility decompositions with any of the given formatting tags in the current Unicode database.
+	 * @param characterDecompositionTags The character decomposition tags, such as {@link UnicodeConstants#FONT}.
+	 * @return A set containing the code points with decompositions having the given tags.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static UnicodeSet forCharacterDecompositionTags(final String... characterDecompositionTags) {
+		return forCharacterDecompositionTags(UnicodeDatabase.getCurrent(), characterDecompositionTags);
+	}
+
+	/**
+	 * Returns a set of the code points having compatibility decompositions with any of the given formatting tags in a Unicode database. The tag sets of each
+	 * database are computed once and cached.
+	 * @param database The Unicode database from which to determine decompositions.
+	 * @param characterDecompositionTags The character decomposition tags, such as {@link UnicodeConstants#FONT}.
+	 * @return A set containing the code points with decompositions having the given tags.
+	 */
+	public static UnicodeSet forCharacterDecompositionTags(final UnicodeDatabase database, final String... characterDecompositionTags) {
+		final Map<String, UnicodeSet> characterDecompositionTagSets = database.getDerivedTable(CHARACTER_DECOMPOSITION_TAG_SETS_KEY,
+				db -> Collections.unmodifiableMap(createPropertySets(db, UnicodeCharacter::getCharacterDecompositionTag, false)));
+		UnicodeSet unicodeSet = EMPTY;
+		for(final String characterDecompositionTag : characterDecompositionTags) {
+			final UnicodeSet characterDecompositionTagSet = characterDecompositionTagSets.get(characterDecompositionTag);
+			if(characterDecompositionTagSet != null) {
+				unicodeSet = unicodeSet.union(characterDecompositionTagSet);
+			}
+		}
+		return unicodeSet;
+	}
+
+	/**
+	 * Returns the set of mirrored code points in the current Unicode database.
+	 * @return A set containing the code points that are mirrored in bidirectional text.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static UnicodeSet forMirrored() {
+		return forMirrored(UnicodeDatabase.getCurrent());
+	}
+
+	/**
+	 * Returns the set of mirrored code points in a Unicode database. The set is computed once per database and cached.
+	 * @param database The Unicode database from which to determine mirroring.
+	 * @return A set containing the code points that are mirrored in bidirectional text.
+	 */
+	public static UnicodeSet forMirrored(final UnicodeDatabase database) {
+		return database.getDerivedTable(MIRRORED_SET_KEY, db -> {
+			final UnicodeSet mirroredSet = createPropertySets(db, unicodeCharacter -> unicodeCharacter.isMirrored() ? "Y" : null, false).get("Y");
+			return mirroredSet != null ? mirroredSet : EMPTY;
+		});
+	}
+
+	/**
+	 * Creates the sets of code points having each value of a property in a Unicode database. A range of code points designated by
+	 * <code>&lt;..., First&gt;</code> and <code>&lt;..., Last&gt;</code> entries receives the value of the first entry.
+	 * @param database The Unicode database.
+	 * @param property The function for retrieving the property value of a character, which may return <code>null</code> if the character has no value.
+	 * @param majorValues Whether sets should also be created for the first letter of each value, such as the major general categories.
+	 * @return A map of code point sets keyed to property values.
+	 */
+	private static Map<String, UnicodeSet> createPropertySets(final UnicodeDatabase database, final Function<UnicodeCharacter, String> property,
+			final boolean majorValues) {
+		final Map<String, Builder> builders = new HashMap<String, Builder>();
+		UnicodeCharacter rangeFirstCharacter = null; //the first character of a range, if we are in a range
+		for(final UnicodeCharacter unicodeCharacter : database.getUnicodeCharacters()) {
+			final int codePoint = unicodeCharacter.getCodeValue();
+			final UnicodeCharacter valueCharacter = rangeFirstCharacter != null ? rangeFirstCharacter : unicodeCharacter;
+			final int first = valueCharacter.getCodeValue();
+			rangeFirstCharacter = null;
+			final String name = unicodeCharacter.getCharacterName();
+			if(first == codePoint && name != null && name.endsWith(CodePointByteTable.RANGE_FIRST_NAME_SUFFIX)) { //if this character starts a range, wait for the end
+				rangeFirstCharacter = unicodeCharacter;
+				continue;
+			}
+			final String value = property.apply(valueCharacter);
+			if(value != null && value.length() > 0) {
+				builders.computeIfAbsent(value, key -> new Builder()).add(first, codePoint);
+				if(majorValues) {
+					builders.computeIfAbsent(value.substring(0, 1), key -> new Builder()).add(first, codePoint);
+				}
+			}
+		}
+		final Map<String, UnicodeSet> propertySets = new HashMap<String, UnicodeSet>(builders.size() * 2);
+		builders.forEach((value, builder) -> propertySets.put(value, builder.build()));
+		return propertySets;
+	}
+
+	/**
+	 * Finds the position of a code point in the inversion list.
+	 * @param codePoint The code point to locate.
+	 * @return The number of inversion list entries less than or equal to the code point; the code point is in the set if this value is odd.
+	 */
+	private int findIndex(final int codePoint) {
+		int low = 0;
+		int high = list.length;
+		while(low < high) { //find the first entry greater than the code point
+			final int middle = (low + high) >>> 1;
+			if(list[middle] <= codePoint) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Determines whether a code point is in this set.
+	 * @param codePoint The code point to check.
+	 * @return <code>true</code> if the code point is in this set.
+	 */
+	public boolean contains(final int codePoint) {
+		if(codePoint >= 0 && codePoint < 256) {
+			return (latin1Bits[codePoint >> 6] & (1L << codePoint)) != 0;
+		}
+		return (findIndex(codePoint) & 1) != 0;
+	}
+
+	/**
+	 * Determines whether every code point in a range is in this set.
+	 * @param first The first code point in the range.
+	 * @param last The last code point in the range, inclusive.
+	 * @return <code>true</code> if the entire range is contained in this set.
+	 */
+	public boolean containsAll(final int first, final int last) {
+		final int index = findIndex(first);
+		return (index & 1) != 0 && last < list[index];
+	}
+
+	/** @return <code>true</code> if this set contains no code points. */
+	public boolean isEmpty() {
+		return list.length == 0;
+	}
+
+	/** @return The number of code points in this set. */
+	public int size() {
+		int size = 0;
+		for(int i = 0; i < list.length; i += 2) {
+			size += list[i + 1] - list[i];
+		}
+		return size;
+	}
+
+	/** @return The number of contiguous ranges of code points in this set. */
+	public int getRangeCount() {
+		return list.length / 2;
+	}
+
+	/**
+	 * Returns the first code point of a range.
+	 * @param rangeIndex The index of the range.
+	 * @return The first code point in the range.
+	 * @throws IndexOutOfBoundsException if the range index is not less than the number of ranges.
+	 */
+	public int getRangeStart(final int rangeIndex) {
+		return list[rangeIndex * 2];
+	}
+
+	/**
+	 * Returns the last code point of a range.
+	 * @param rangeIndex The index of the range.
+	 * @return The last code point in the range, inclusive.
+	 * @throws IndexOutOfBoundsException if the range index is not less than the number of ranges.
+	 */
+	public int getRangeEnd(final int rangeIndex) {
+		return list[rangeIndex * 2 + 1] - 1;
+	}
+
+	/** @return A stream of the code points in this set, in ascending order. */
+	public IntStream codePoints() {
+		return IntStream.range(0, getRangeCount()).flatMap(rangeIndex -> IntStream.range(list[rangeIndex * 2], list[rangeIndex * 2 + 1]));
+	}
+
+	/** Truth table of {@link #combine(int[], int[], int)} for union. */
+	private static final int UNION = 0b1110;
+
+	/** Truth table of {@link #combine(int[], int[], int)} for intersection. */
+	private static final int INTERSECTION = 0b1000;
+
+	/** Truth table of {@link #combine(int[], int[], int)} for difference. */
+	private static final int DIFFERENCE = 0b0100;
+
+	/**
+	 * Combines two inversion lists in a single linear pass.
+	 * @param list1 The first inversion list.
+	 * @param list2 The second inversion list.
+	 * @param truthTable The truth table of the operation, in which the bit at index <code>(in1 &lt;&lt; 1) | in2</code> indicates membership in the result.
+	 * @return The resulting inversion list.
+	 */
+	private static int[] combine(final int[] list1, final int[] list2, final int truthTable) {
+		final int[] result = new int[list1.length + list2.length];
+		int length = 0;
+		int index1 = 0;
+		int index2 = 0;
+		boolean in = false; //whether the result currently includes code points
+		while(index1 < list1.length || index2 < list2.length) {
+			final int boundary1 = index1 < list1.length ? list1[index1] : Integer.MAX_VALUE;
+			final int boundary2 = index2 < list2.length ? list2[index2] : Integer.MAX_VALUE;
+			final int boundary = Math.min(boundary1, boundary2);
+			if(boundary1 == boundary) {
+				++index1;
+			}
+			if(boundary2 == boundary) {
+				++index2;
+			}
+			final boolean newIn = ((truthTable >> (((index1 & 1) << 1) | (index2 & 1))) & 1) != 0; //the index parity indicates membership after the boundary
+			if(newIn != in) {
+				result[length++] = boundary;
+				in = newIn;
+			}
+		}
+		return length == result.length ? result : Arrays.copyOf(result, length);
+	}
+
+	/**
+	 * Returns the union of this set and another.
+	 * @param unicodeSet The other set.
+	 * @return A set of the code points in either set.
+	 */
+	public UnicodeSet union(final UnicodeSet unicodeSet) {
+		if(unicodeSet.isEmpty()) {
+			return this;
+		}
+		if(isEmpty()) {
+			return unicodeSet;
+		}
+		return new UnicodeSet(combine(list, unicodeSet.list, UNION));
+	}
+
+	/**
+	 * Returns the intersection of this set and another.
+	 * @param unicodeSet The other set.
+	 * @return A set of the code points in both sets.
+	 */
+	public UnicodeSet intersection(final UnicodeSet unicodeSet) {
+		if(isEmpty() || unicodeSet.isEmpty()) {
+			return EMPTY;
+		}
+		return new UnicodeSet(combine(list, unicodeSet.list, INTERSECTION));
+	}
+
+	/**
+	 * Returns the difference of this set and another.
+	 * @param unicodeSet The other set.
+	 * @return A set of the code points in this set but not in the other set.
+	 */
+	public UnicodeSet difference(final UnicodeSet unicodeSet) {
+		if(isEmpty() || unicodeSet.isEmpty()) {
+			return this;
+		}
+		return new UnicodeSet(combine(list, unicodeSet.list, DIFFERENCE));
+	}
+
+	/** @return A set of all the Unicode code points not in this set. */
+	public UnicodeSet complement() {
+		final boolean startsAtZero = list.length > 0 && list[0] == 0;
+		final boolean endsAtEnd = list.length > 0 && list[list.length - 1] == END_CODE_POINT;
+		final int[] complementList = new int[list.length + (startsAtZero ? -1 : 1) + (endsAtEnd ? -1 : 1)];
+		int length = 0;
+		if(!startsAtZero) {
+			complementList[length++] = 0;
+		}
+		final int from = startsAtZero ? 1 : 0;
+		final int to = endsAtEnd ? list.length - 1 : list.length;
+		System.arraycopy(list, from, complementList, length, to - from);
+		length += to - from;
+		if(!endsAtEnd) {
+			complementList[length++] = END_CODE_POINT;
+		}
+		return new UnicodeSet(complementList);
+	}
+
+	/**
+	 * Returns the length of the leading run of code points in a character sequence that are in this set.
+	 * @param text The text to examine.
+	 * @return The number of chars at the beginning of the text forming code points in this set.
+	 */
+	public int span(final CharSequence text) {
+		return span(text, 0, text.length(), true);
+	}
+
+	/**
+	 * Finds the end of a run of code points that are all either in or not in this set. A code point is only looked up in the inversion list if it falls
+	 * outside the range of the previous code point, so long runs of similar characters are scanned with little more than a comparison per character.
+	 * @param text The text to examine.
+	 * @param start The index at which to start, inclusive.
+	 * @param end The index at which to stop, exclusive.
+	 * @param contained <code>true</code> to span code points in this set, or <code>false</code> to span code points not in this set.
+	 * @return The index of the first code point at or after the start that does not satisfy the condition, or the end if there is none.
+	 * @throws IndexOutOfBoundsException if the start or end is out of bounds.
+	 */
+	public int span(final CharSequence text, final int start, final int end, final boolean contained) {
+		if(start < 0 || end > text.length() || start > end) {
+			throw new IndexOutOfBoundsException("Invalid span [" + start + ", " + end + ") of text of length " + text.length() + ".");
+		}
+		int rangeLow = 0; //the current range in which code points are known to satisfy the condition
+		int rangeHigh = 0;
+		int index = start;
+		while(index < end) {
+			final char c = text.charAt(index);
+			int codePoint = c;
+			int charCount = 1;
+			if(Character.isHighSurrogate(c) && index + 1 < end) {
+				final char low = text.charAt(index + 1);
+				if(Character.isLowSurrogate(low)) {
+					codePoint = Character.toCodePoint(c, low);
+					charCount = 2;
+				}
+			}
+			if(codePoint < rangeLow || codePoint >= rangeHigh) { //if we need to look up the code point
+				final int listIndex = findIndex(codePoint);
+				if(((listIndex & 1) != 0) != contained) {
+					return index;
+				}
+				rangeLow = listIndex > 0 ? list[listIndex - 1] : 0;
+				rangeHigh = listIndex < list.length ? list[listIndex] : END_CODE_POINT;
+			}
+			index += charCount;
+		}
+		return end;
+	}
+
+	/**
+	 * Finds the start of a run of code points ending at a given index that are all either in or not in this set.
+	 * @param text The text to examine.
+	 * @param start The index at which to stop, inclusive.
+	 * @param end The index before which to start scanning backwards, exclusive.
+	 * @param contained <code>true</code> to span code points in this set, or <code>false</code> to span code points not in this set.
+	 * @return The index after the last code point before the end that does not satisfy the condition, or the start if there is none.
+	 * @throws IndexOutOfBoundsException if the start or end is out of bounds.
+	 */
+	public int spanBack(final CharSequence text, final int start, final int end, final boolean contained) {
+		if(start < 0 || end > text.length() || start > end) {
+			throw new IndexOutOfBoundsException("Invalid span [" + start + ", " + end + ") of text of length " + text.length() + ".");
+		}
+		int rangeLow = 0;
+		int rangeHigh = 0;
+		int index = end;
+		while(index > start) {
+			final char c = text.charAt(index - 1);
+			int codePoint = c;
+			int charCount = 1;
+			if(Character.isLowSurrogate(c) && index - 2 >= start) {
+				final char high = text.charAt(index - 2);
+				if(Character.isHighSurrogate(high)) {
+					codePoint = Character.toCodePoint(high, c);
+					charCount = 2;
+				}
+			}
+			if(codePoint < rangeLow || codePoint >= rangeHigh) {
+				final int listIndex = findIndex(codePoint);
+				if(((listIndex & 1) != 0) != contained) {
+					return index;
+				}
+				rangeLow = listIndex > 0 ? list[listIndex - 1] : 0;
+				rangeHigh = listIndex < list.length ? list[listIndex] : END_CODE_POINT;
+			}
+			index -= charCount;
+		}
+		return start;
+	}
+
+	/** @return A hash code for the code points in this set. */
+	public int hashCode() {
+		return Arrays.hashCode(list);
+	}
+
+	/**
+	 * Determines whether an object is a set containing the same code points.
+	 * @param object The object to compare.
+	 * @return <code>true</code> if the object is a Unicode set with the same code points.
+	 */
+	public boolean equals(final Object object) {
+		return this == object || (object instanceof UnicodeSet && Arrays.equals(list, ((UnicodeSet)object).list));
+	}
+
+	/** @return A string representation of this set listing its ranges, such as "[U+0041-U+005A U+0061]". */
+	public String toString() {
+		final StringBuilder stringBuilder = new StringBuilder().append('[');
+		for(int i = 0; i < list.length; i += 2) {
+			if(i > 0) {
+				stringBuilder.append(' ');
+			}
+			stringBuilder.append(getCodePointString(list[i]));
+			if(list[i + 1] - 1 != list[i]) {
+				stringBuilder.append('-').append(getCodePointString(list[i + 1] - 1));
+			}
+		}
+		return stringBuilder.append(']').toString();
+	}
+
+	/**
+	 * Accumulates code points and ranges in any order and builds a Unicode set.
+	 * @author Garret Wilson
+	 */
+	public static class Builder {
+
+		/** The ranges added, each encoded as the first code point in the high bits and the exclusive end in the low bits. */
+		private long[] ranges = new long[16];
+
+		/** The number of ranges added. */
+		private int rangeCount = 0;
+
+		/**
+		 * Adds a single code point.
+		 * @param codePoint The code point to add.
+		 * @return This builder.
+		 * @throws IllegalArgumentException if the value is not a valid Unicode code point.
+		 */
+		public Builder add(final int codePoint) {
+			return add(codePoint, codePoint);
+		}
+
+		/**
+		 * Adds a range of code points.
+		 * @param first The first code point in the range.
+		 * @param last The last code point in the range, inclusive.
+		 * @return This builder.
+		 * @throws IllegalArgumentException if one of the values is not a valid Unicode code point, or if the last code point comes before the first.
+		 */
+		public Builder add(final int first, final int last) {
+			checkCodePoint(first);
+			checkCodePoint(last);
+			if(last < first) {
+				throw new IllegalArgumentException("Range end " + Integer.toHexString(last) + " comes before start " + Integer.toHexString(first) + ".");
+			}
+			if(rangeCount > 0) { //if this range continues the last one, just extend it, as is common when adding in order
+				final long lastRange = ranges[rangeCount - 1];
+				final int lastFirst = (int)(lastRange >>> 32);
+				final int lastEnd = (int)lastRange;
+				if(first >= lastFirst && first <= lastEnd) {
+					ranges[rangeCount - 1] = ((long)lastFirst << 32) | Math.max(lastEnd, last + 1);
+					return this;
+				}
+			}
+			if(rangeCount == ranges.length) {
+				ranges = Arrays.copyOf(ranges, rangeCount * 2);
+			}
+			ranges[rangeCount++] = ((long)first << 32) | (last + 1);
+			return this;
+		}
+
+		/**
+		 * Adds all the code points of a set.
+		 * @param unicodeSet The set the code points of which to add.
+		 * @return This builder.
+		 */
+		public Builder addAll(final UnicodeSet unicodeSet) {
+			for(int rangeIndex = 0; rangeIndex < unicodeSet.getRangeCount(); ++rangeIndex) {
+				add(unicodeSet.getRangeStart(rangeIndex), unicodeSet.getRangeEnd(rangeIndex));
+			}
+			return this;
+		}
+
+		/** @return A new set containing the code points added so far. */
+		public UnicodeSet build() {
+			final long[] sortedRanges = Arrays.copyOf(ranges, rangeCount);
+			Arrays.sort(sortedRanges); //sorts by first code point, as code points are non-negative
+			final int[] list = new int[rangeCount * 2];
+			int length = 0;
+			for(final long range : sortedRanges) {
+				final int first = (int)(range >>> 32);
+				final int end = (int)range;
+				if(length > 0 && first <= list[length - 1]) { //merge overlapping and adjacent ranges
+					list[length - 1] = Math.max(list[length - 1], end);
+				} else {
+					list[length++] = first;
+					list[length++] = end;
+				}
+			}
+			return length == 0 ? EMPTY : new UnicodeSet(length == list.length ? list : Arrays.copyOf(list, length));
+		}
+	}
+
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.*;
+import java.util.stream.*;
+
+import static com.globalmentor.unicode.UnicodeConstants.*;
+
+/**
+ * Generates compatibility skeletons of text for detecting confusable strings, such as identifiers or user names that differ only in the width, font, or case
+ * of their characters or in the marks placed on them. Two strings are considered confusable if they have the same skeleton; thus "ａｄｍｉｎ" (fullwidth) and
+ * "𝐀dmin" (mathematical bold) are both confusable with "admin".
+ * <p>
+ * The skeleton of a code point is determined by the following, applied recursively until nothing further changes:
+ * </p>
+ * <ol>
+ * <li>Marks (categories {@link UnicodeConstants#MARK_NONSPACING}, {@link UnicodeConstants#MARK_SPACING_COMBINING}, and
+ * {@link UnicodeConstants#MARK_ENCLOSING}) are removed.</li>
+ * <li>Characters with canonical decompositions, or with compatibility decompositions tagged {@link UnicodeConstants#FONT}, {@link UnicodeConstants#WIDE},
+ * {@link UnicodeConstants#NARROW}, {@link UnicodeConstants#CIRCLE}, or {@link UnicodeConstants#COMPAT}, are replaced by their decompositions.</li>
+ * <li>Characters are case folded by their lowercase mappings; characters such as "ſ" having only uppercase mappings are folded to the lowercase mappings of
+ * their uppercase forms.</li>
+ * </ol>
+ * <p>
+ * This is a compatibility skeleton based solely on the character database; it does not include the visual confusable mappings of Unicode Technical Standard
+ * #39, so that for example Cyrillic "а" is not considered confusable with Latin "a".
+ * </p>
+ * <p>
+ * The skeleton target of every code point is computed once per database and kept in a table indexed directly by code point, so generating a skeleton performs
+ * a single lookup per code point with no recursion. Skeleton hashes and comparisons are computed directly from the table without creating the skeleton
+ * strings.
+ * </p>
+ * <p>
+ * A skeleton generator is immutable and may be shared among threads.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodeSkeleton {
+
+	/** The greatest depth of decompositions and mappings followed when computing skeleton targets, to guard against cycles in malformed data. */
+	private static final int MAX_SKELETON_DEPTH = 8;
+
+	/** The compatibility decomposition tags the decompositions of which are followed. */
+	private static final Set<String> DECOMPOSITION_TAGS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(FONT, WIDE, NARROW, CIRCLE, COMPAT)));
+
+	/** The derived table key for the skeleton generator of a database. */
+	private static final Object SKELETON_KEY = new Object();
+
+	/** The offset basis of the 64-bit FNV-1a hash. */
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	/** The prime of the 64-bit FNV-1a hash. */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** The table of skeleton targets. */
+	private final CodePointMappingTable table;
+
+	/**
+	 * Database constructor.
+	 * @param database The Unicode database from which to determine decompositions, categories, and case mappings.
+	 * @throws IllegalStateException if the database has too many skeleton targets to be represented.
+	 */
+	private UnicodeSkeleton(final UnicodeDatabase database) {
+		table = new CodePointMappingTable(database, (codePoint, stringBuilder) -> appendSkeleton(database, codePoint, stringBuilder, 0));
+	}
+
+	/**
+	 * Appends the skeleton target of a code point, following decompositions and case mappings recursively.
+	 * @param database The Unicode database.
+	 * @param codePoint The code point.
+	 * @param stringBuilder The string builder to which to append the skeleton target.
+	 * @param depth The current depth of recursion.
+	 * @return <code>true</code> if the code point is changed, or <code>false</code> if it is unchanged, in which case the code point itself has been appended.
+	 */
+	private static boolean appendSkeleton(final UnicodeDatabase database, final int codePoint, final StringBuilder stringBuilder, final int depth) {
+		final UnicodeCharacter unicodeCharacter = depth < MAX_SKELETON_DEPTH ? database.getUnicodeCharacter(codePoint) : null;
+		if(unicodeCharacter != null) {
+			final String generalCategory = unicodeCharacter.getGeneralCategory();
+			if(MARK_NONSPACING.equals(generalCategory) || MARK_SPACING_COMBINING.equals(generalCategory) || MARK_ENCLOSING.equals(generalCategory)) { //remove marks
+				return true;
+			}
+			final String decompositionMappings = unicodeCharacter.getCharacterDecompositionMappings();
+			if(decompositionMappings.length() > 0) {
+				final String decompositionTag = unicodeCharacter.getCharacterDecompositionTag();
+				if(decompositionTag.length() == 0 || DECOMPOSITION_TAGS.contains(decompositionTag)) { //canonical or selected compatibility decomposition
+					decompositionMappings.codePoints().forEach(mappedCodePoint -> appendSkeleton(database, mappedCodePoint, stringBuilder, depth + 1));
+					return true;
+				}
+			}
+			int caseFoldMapping = unicodeCharacter.getLowercaseMappingCodePoint();
+			if(caseFoldMapping == 0) { //if there is no lowercase mapping, try the lowercase of the uppercase mapping
+				final int uppercaseMapping = unicodeCharacter.getUppercaseMappingCodePoint();
+				if(uppercaseMapping != 0 && uppercaseMapping != codePoint) {
+					final UnicodeCharacter uppercaseCharacter = database.getUnicodeCharacter(uppercaseMapping);
+					if(uppercaseCharacter != null) {
+						caseFoldMapping = uppercaseCharacter.getLowercaseMappingCodePoint();
+					}
+				}
+			}
+			if(caseFoldMapping != 0 && caseFoldMapping != codePoint) {
+				appendSkeleton(database, caseFoldMapping, stringBuilder, depth + 1);
+				return true;
+			}
+		}
+		stringBuilder.appendCodePoint(codePoint);
+		return false;
+	}
+
+	/**
+	 * Returns the skeleton generator of the current Unicode database.
+	 * @return The skeleton generator of the current database.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static UnicodeSkeleton getInstance() {
+		return forDatabase(UnicodeDatabase.getCurrent());
+	}
+
+	/**
+	 * Returns the skeleton generator of a Unicode database. The skeleton table of each database is computed once and cached.
+	 * @param database The Unicode database.
+	 * @return The skeleton generator of the database.
+	 */
+	public static UnicodeSkeleton forDatabase(final UnicodeDatabase database) {
+		return database.getDerivedTable(SKELETON_KEY, UnicodeSkeleton::new);
+	}
+
+	/**
+	 * Determines whether a code point is changed in a skeleton.
+	 * @param codePoint The code point to check.
+	 * @return <code>true</code> if the code point is removed or replaced in a skeleton.
+	 */
+	public boolean changes(final int codePoint) {
+		return table.isMapped(codePoint);
+	}
+
+	/**
+	 * Returns the skeleton target of a code point.
+	 * @param codePoint The code point.
+	 * @return The characters that replace the code point in a skeleton, which may be empty; or <code>null</code> if the code point is unchanged.
+	 */
+	public String getSkeletonTarget(final int codePoint) {
+		return table.getTarget(codePoint);
+	}
+
+	/**
+	 * Determines whether text is changed in its skeleton.
+	 * @param text The text to check.
+	 * @return <code>true</code> if any code point in the text is removed or replaced in the skeleton.
+	 */
+	public boolean changes(final CharSequence text) {
+		final int length = text.length();
+		final int index = table.scan(text, 0, length);
+		return index < length && !(index == length - 1 && Character.isHighSurrogate(text.charAt(index))); //a high surrogate at the end is left unchanged
+	}
+
+	/**
+	 * Returns the table value of the code point at an index.
+	 * @param text The text containing the code point.
+	 * @param index The index of the code point.
+	 * @param end The end of the text.
+	 * @return The table value of the code point, which is <code>0</code> for unpaired surrogates.
+	 */
+	private int getValueAt(final CharSequence text, final int index, final int end) {
+		final char c = text.charAt(index);
+		if(Character.isHighSurrogate(c) && index + 1 < end) {
+			final char low = text.charAt(index + 1);
+			if(Character.isLowSurrogate(low)) {
+				return table.getValue(Character.toCodePoint(c, low));
+			}
+		}
+		return Character.isSurrogate(c) ? 0 : table.getValue(c);
+	}
+
+	/**
+	 * Returns the skeleton of text.
+	 * @param text The text.
+	 * @return The skeleton of the text; the same string instance if the skeleton is identical to the text.
+	 */
+	public String skeleton(final String text) {
+		if(!changes(text)) {
+			return text;
+		}
+		final StringBuilder stringBuilder = new StringBuilder(text.length());
+		appendSkeleton(text, stringBuilder);
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * Returns the skeleton of text, using a reusable string builder only if the skeleton differs from the text.
+	 * @param text The text.
+	 * @param stringBuilder The string builder to clear and fill with the skeleton if it differs from the text.
+	 * @return The text itself if its skeleton is identical, or the string builder containing the skeleton.
+	 */
+	public CharSequence skeleton(final CharSequence text, final StringBuilder stringBuilder) {
+		if(!changes(text)) {
+			return text;
+		}
+		stringBuilder.setLength(0);
+		appendSkeleton(text, stringBuilder);
+		return stringBuilder;
+	}
+
+	/**
+	 * Appends the skeleton of text to a string builder.
+	 * @param text The text.
+	 * @param stringBuilder The string builder to which to append the skeleton.
+	 * @return The string builder.
+	 */
+	public StringBuilder appendSkeleton(final CharSequence text, final StringBuilder stringBuilder) {
+		final char[] targets = table.targets;
+		final int length = text.length();
+		int index = 0;
+		while(index < length) {
+			final int unchangedEnd = table.scan(text, index, length);
+			stringBuilder.append(text, index, unchangedEnd); //copy the unchanged span in bulk
+			index = unchangedEnd;
+			if(index < length) {
+				final int value = getValueAt(text, index, length);
+				if(value != 0) {
+					stringBuilder.append(targets, value, targets[value - 1]);
+					index += Character.isHighSurrogate(text.charAt(index)) ? 2 : 1; //only supplementary code points are mapped from a high surrogate
+				} else { //a high surrogate at the end
+					stringBuilder.append(text.charAt(index++));
+				}
+			}
+		}
+		return stringBuilder;
+	}
+
+	/**
+	 * Computes a 64-bit hash of the skeleton of text without creating the skeleton. The hash is the FNV-1a hash of the UTF-16 code units of the skeleton, each
+	 * contributing its low and then its high byte, so that texts with the same skeleton have the same hash in every process and may be stored for comparison
+	 * later.
+	 * @param text The text.
+	 * @return The hash of the skeleton of the text.
+	 */
+	public long hash(final CharSequence text) {
+		final char[] targets = table.targets;
+		final int length = text.length();
+		long hash = FNV_OFFSET_BASIS;
+		int index = 0;
+		while(index < length) {
+			final int unchangedEnd = table.scan(text, index, length);
+			for(; index < unchangedEnd; ++index) {
+				hash = hash(hash, text.charAt(index));
+			}
+			if(index < length) {
+				final int value = getValueAt(text, index, length);
+				if(value != 0) {
+					final int targetEnd = value + targets[value - 1];
+					for(int targetIndex = value; targetIndex < targetEnd; ++targetIndex) {
+						hash = hash(hash, targets[targetIndex]);
+					}
+					index += Character.isHighSurrogate(text.charAt(index)) ? 2 : 1;
+				} else { //a high surrogate at the end
+					hash = hash(hash, text.charAt(index++));
+				}
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Adds a code unit to an FNV-1a hash.
+	 * @param hash The current hash.
+	 * @param c The code unit to add.
+	 * @return The updated hash.
+	 */
+	private static long hash(long hash, final char c) {
+		hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+		return (hash ^ (c >>> 8)) * FNV_PRIME;
+	}
+
+	/**
+	 * Determines whether two texts are confusable, that is, whether they have the same skeleton. The skeletons are compared as they are generated, without
+	 * being created, and the comparison stops at the first difference.
+	 * @param text1 The first text.
+	 * @param text2 The second text.
+	 * @return <code>true</code> if the texts have identical skeletons.
+	 */
+	public boolean isConfusable(final CharSequence text1, final CharSequence text2) {
+		final SkeletonCursor cursor1 = new SkeletonCursor(text1);
+		final SkeletonCursor cursor2 = new SkeletonCursor(text2);
+		int c;
+		do {
+			c = cursor1.next();
+			if(c != cursor2.next()) {
+				return false;
+			}
+		} while(c >= 0);
+		return true;
+	}
+
+	/**
+	 * Returns the skeletons of a list of texts, generating them in parallel.
+	 * @param texts The texts.
+	 * @return The skeletons of the texts, in the same order.
+	 * @see #skeleton(String)
+	 */
+	public List<String> skeletons(final List<? extends CharSequence> texts) {
+		return texts.parallelStream().map(text -> skeleton(text.toString())).collect(Collectors.toList());
+	}
+
+	/**
+	 * Computes the skeleton hashes of a list of texts in parallel. The list should support efficient random access.
+	 * @param texts The texts.
+	 * @return The skeleton hashes of the texts, in the same order.
+	 * @see #hash(CharSequence)
+	 */
+	public long[] hashes(final List<? extends CharSequence> texts) {
+		final long[] hashes = new long[texts.size()];
+		IntStream.range(0, hashes.length).parallel().forEach(i -> hashes[i] = hash(texts.get(i)));
+		return hashes;
+	}
+
+	/**
+	 * Groups texts that are confusable with each other, comparing their skeleton hashes in parallel and then confirming matches by comparing the skeletons
+	 * themselves.
+	 * @param texts The texts to group.
+	 * @return The groups of two or more confusable texts, each listing the indexes of its texts in ascending order; the groups are ordered by their first
+	 *         index.
+	 */
+	public List<int[]> findConfusableGroups(final List<? extends CharSequence> texts) {
+		final long[] hashes = hashes(texts);
+		final Map<Long, List<Integer>> hashIndexes = new HashMap<Long, List<Integer>>();
+		for(int i = 0; i < hashes.length; ++i) {
+			hashIndexes.computeIfAbsent(Long.valueOf(hashes[i]), hash -> new ArrayList<Integer>(1)).add(Integer.valueOf(i));
+		}
+		final List<int[]> groups = new ArrayList<int[]>();
+		final boolean[] grouped = new boolean[hashes.length];
+		for(int i = 0; i < hashes.length; ++i) {
+			if(grouped[i]) {
+				continue;
+			}
+			final List<Integer> candidates = hashIndexes.get(Long.valueOf(hashes[i]));
+			if(candidates.size() < 2) {
+				continue;
+			}
+			final IntStream.Builder groupBuilder = IntStream.builder();
+			int groupSize = 0;
+			for(final Integer candidate : candidates) { //hashes may collide, so verify each candidate
+				final int index = candidate.intValue();
+				if(!grouped[index] && (index == i || isConfusable(texts.get(i), texts.get(index)))) {
+					grouped[index] = true;
+					groupBuilder.add(index);
+					++groupSize;
+				}
+			}
+			if(groupSize > 1) {
+				groups.add(groupBuilder.build().toArray());
+			}
+		}
+		return groups;
+	}
+
+	/**
+	 * Iterates the code units of the skeleton of text without creating the skeleton.
+	 * @author Garret Wilson
+	 */
+	private final class SkeletonCursor {
+
+		/** The text. */
+		private final CharSequence text;
+
+		/** The index of the next code point of the text. */
+		private int index = 0;
+
+		/** The index of the next code unit of the current skeleton target, or <code>0</code> if there is no current target. */
+		private int targetIndex = 0;
+
+		/** The end of the current skeleton target. */
+		private int targetEnd = 0;
+
+		/**
+		 * Text constructor.
+		 * @param text The text the skeleton of which to iterate.
+		 */
+		public SkeletonCursor(final CharSequence text) {
+			this.text = text;
+		}
+
+		/** @return The next code unit of the skeleton, or <code>-1</code> if there are no more. */
+		public int next() {
+			final char[] targets = table.targets;
+			while(targetIndex == targetEnd) { //skip empty targets
+				final int length = text.length();
+				if(index >= length) {
+					return -1;
+				}
+				final int value = getValueAt(text, index, length);
+				if(value == 0) {
+					return text.charAt(index++);
+				}
+				index += Character.isHighSurrogate(text.charAt(index)) ? 2 : 1;
+				targetIndex = value;
+				targetEnd = value + targets[value - 1];
+			}
+			return targets[targetIndex++];
+		}
+	}
+
+}
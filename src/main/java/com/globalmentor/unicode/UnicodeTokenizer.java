@@ -0,0 +1,345 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.*;
+
+import static com.globalmentor.unicode.UnicodeConstants.*;
+import static java.util.Objects.*;
+
+/**
+ * Splits text into tokens separated by delimiter characters identified by general category, reporting each token as a span of indexes into the text rather
+ * than as a substring.
+ * <p>
+ * Categories are looked up in the dense general category table of the database, and ASCII characters are checked against inline bit masks, so no
+ * {@link UnicodeCharacter} is looked up and no string is compared while tokenizing. A surrogate pair is always treated as a single code point; an unpaired
+ * surrogate is treated as part of a token.
+ * </p>
+ * <p>
+ * Spans may be written in batches to a reusable <code>int</code> array using {@link #tokenize(CharSequence, int, int, int[])}, or streamed as packed
+ * <code>long</code> values using {@link #tokens(CharSequence, boolean)}, which may be processed in parallel. Large inputs are split only at delimiters, so that
+ * no token is divided among threads.
+ * </p>
+ * <p>
+ * A tokenizer is immutable and may be shared among threads.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodeTokenizer {
+
+	/**
+	 * The categories of delimiters of the default tokenizer: separators, punctuation, and control characters. Control characters are included because the
+	 * common whitespace characters tab, line feed, and carriage return are of category {@link UnicodeConstants#OTHER_CONTROL}.
+	 */
+	private static final String[] DEFAULT_DELIMITER_CATEGORIES = {SEPARATOR_SPACE, SEPARATOR_LINE, SEPARATOR_PARAGRAPH, PUNCTUATION_CONNECTOR, PUNCTUATION_DASH,
+			PUNCTUATION_OPEN, PUNCTUATION_CLOSE, PUNCTUATION_INITIAL_QUOTE, PUNCTUATION_FINAL, PUNCTUATION_OTHER, OTHER_CONTROL};
+
+	/** The minimum number of characters in a span of text before it is split for parallel tokenizing. */
+	static final int MIN_SPLIT_LENGTH = 1 << 12;
+
+	/** The derived table key for the default tokenizer of a database. */
+	private static final Object DEFAULT_TOKENIZER_KEY = new Object();
+
+	/** The table of general category indexes. */
+	private final CodePointByteTable generalCategoryTable;
+
+	/** The bit mask of the indexes of delimiter categories. */
+	private final int delimiterMask;
+
+	/** The bits of the ASCII delimiters <code>0x00</code> through <code>0x3F</code>. */
+	private final long asciiDelimiterBits0;
+
+	/** The bits of the ASCII delimiters <code>0x40</code> through <code>0x7F</code>. */
+	private final long asciiDelimiterBits1;
+
+	/**
+	 * Database and categories constructor.
+	 * @param database The Unicode database from which to determine character categories.
+	 * @param delimiterCategories The general categories of delimiter characters. A single-letter major category such as "P" includes all categories beginning
+	 *          with that letter.
+	 * @throws IllegalArgumentException if one of the general categories is not recognized.
+	 * @see GeneralCategories#maskOf(String...)
+	 */
+	public UnicodeTokenizer(final UnicodeDatabase database, final String... delimiterCategories) {
+		generalCategoryTable = GeneralCategories.getTable(requireNonNull(database));
+		delimiterMask = GeneralCategories.maskOf(delimiterCategories);
+		long bits0 = 0;
+		long bits1 = 0;
+		for(int c = 0; c < 0x80; ++c) {
+			if(isDelimiter(c)) {
+				if(c < 0x40) {
+					bits0 |= 1L << c;
+				} else {
+					bits1 |= 1L << c;
+				}
+			}
+		}
+		asciiDelimiterBits0 = bits0;
+		asciiDelimiterBits1 = bits1;
+	}
+
+	/**
+	 * Returns a tokenizer of the current Unicode database that treats separators, punctuation, and control characters as delimiters.
+	 * @return The default tokenizer of the current database.
+	 * @see UnicodeDatabase#getCurrent()
+	 */
+	public static UnicodeTokenizer getInstance() {
+		return forDatabase(UnicodeDatabase.getCurrent());
+	}
+
+	/**
+	 * Returns a tokenizer of a Unicode database that treats separators, punctuation, and control characters as delimiters. The tokenizer is created once per
+	 * database and cached.
+	 * @param database The Unicode database.
+	 * @return The default tokenizer of the database.
+	 */
+	public static UnicodeTokenizer forDatabase(final UnicodeDatabase database) {
+		return database.getDerivedTable(DEFAULT_TOKENIZER_KEY, db -> new UnicodeTokenizer(db, DEFAULT_DELIMITER_CATEGORIES));
+	}
+
+	/**
+	 * Determines whether a code point is a delimiter.
+	 * @param codePoint The code point to check.
+	 * @return <code>true</code> if the general category of the code point is one of the delimiter categories.
+	 */
+	public boolean isDelimiter(final int codePoint) {
+		return (delimiterMask & (1 << generalCategoryTable.get(codePoint))) != 0;
+	}
+
+	/**
+	 * Finds the start of the next token.
+	 * @param text The text to tokenize.
+	 * @param index The index at which to start searching.
+	 * @param end The index at which to stop searching.
+	 * @return The index of the first non-delimiter character at or after the given index, or the end if there are no more tokens.
+	 */
+	public int getTokenStart(final CharSequence text, final int index, final int end) {
+		return skip(text, index, end, true);
+	}
+
+	/**
+	 * Finds the end of a token.
+	 * @param text The text to tokenize.
+	 * @param index The index within the token at which to start searching.
+	 * @param end The index at which to stop searching.
+	 * @return The index of the first delimiter at or after the given index, or the end if the token continues to the end.
+	 */
+	public int getTokenEnd(final CharSequence text, final int index, final int end) {
+		return skip(text, index, end, false);
+	}
+
+	/**
+	 * Skips delimiter or non-delimiter characters.
+	 * @param text The text to scan.
+	 * @param start The index at which to start scanning.
+	 * @param end The index at which to stop scanning.
+	 * @param delimiter <code>true</code> if delimiters should be skipped, or <code>false</code> if non-delimiters should be skipped.
+	 * @return The index of the first character not skipped, or the end if all characters were skipped.
+	 */
+	private int skip(final CharSequence text, final int start, final int end, final boolean delimiter) {
+		final long ascii0 = asciiDelimiterBits0;
+		final long ascii1 = asciiDelimiterBits1;
+		int index = start;
+		while(index < end) {
+			final char c = text.charAt(index);
+			if(c < 0x80) { //ASCII fast path
+				if((((c < 0x40 ? ascii0 : ascii1) & (1L << c)) != 0) != delimiter) {
+					return index;
+				}
+				++index;
+			} else if(Character.isHighSurrogate(c) && index + 1 < end && Character.isLowSurrogate(text.charAt(index + 1))) {
+				if(isDelimiter(Character.toCodePoint(c, text.charAt(index + 1))) != delimiter) {
+					return index;
+				}
+				index += 2;
+			} else {
+				if(isDelimiter(c) != delimiter) { //an unpaired surrogate has the category of a surrogate, which is never a delimiter by default
+					return index;
+				}
+				++index;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Writes the spans of tokens to a buffer. The start index of each token is written, followed by its end index, so that the spans of <var>n</var> tokens
+	 * occupy the first 2<var>n</var> elements of the buffer. If the buffer fills before the end of the text, tokenizing may be resumed from the end of the last
+	 * token written.
+	 * @param text The text to tokenize.
+	 * @param start The index at which to start tokenizing.
+	 * @param end The index at which to stop tokenizing.
+	 * @param spans The buffer to receive the token spans.
+	 * @return The number of tokens written, which is <code>0</code> only if there are no more tokens or the buffer has fewer than two elements.
+	 * @throws IndexOutOfBoundsException if the start or end are out of the bounds of the text, or the start is after the end.
+	 */
+	public int tokenize(final CharSequence text, final int start, final int end, final int[] spans) {
+		if(start < 0 || end > text.length() || start > end) {
+			throw new IndexOutOfBoundsException("Span " + start + "-" + end + " is out of bounds for length " + text.length() + ".");
+		}
+		int count = 0;
+		int index = start;
+		for(int spanIndex = 0; spanIndex + 1 < spans.length; spanIndex += 2) {
+			final int tokenStart = getTokenStart(text, index, end);
+			if(tokenStart == end) {
+				break;
+			}
+			index = getTokenEnd(text, tokenStart, end);
+			spans[spanIndex] = tokenStart;
+			spans[spanIndex + 1] = index;
+			++count;
+		}
+		return count;
+	}
+
+	/**
+	 * Finds a point at which a span of text can be divided so that no token or surrogate pair is split, for tokenizing the parts independently.
+	 * @param text The text to split.
+	 * @param start The start of the span.
+	 * @param end The end of the span.
+	 * @param index The index near which to split, between the start and the end.
+	 * @return The index of the first delimiter at or after the given index, or the end if there is no such delimiter.
+	 */
+	public int getSplitPoint(final CharSequence text, final int start, final int end, final int index) {
+		int splitIndex = index;
+		if(splitIndex > start && splitIndex < end && Character.isLowSurrogate(text.charAt(splitIndex))
+				&& Character.isHighSurrogate(text.charAt(splitIndex - 1))) {
+			++splitIndex; //don't split a surrogate pair
+		}
+		return getTokenEnd(text, splitIndex, end);
+	}
+
+	/**
+	 * Packs the span of a token into a single value.
+	 * @param start The start of the token.
+	 * @param end The end of the token.
+	 * @return A value containing the start in the high 32 bits and the end in the low 32 bits.
+	 */
+	public static long toSpan(final int start, final int end) {
+		return ((long)start << 32) | (end & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the start of a packed token span.
+	 * @param span The packed span.
+	 * @return The start of the token.
+	 * @see #toSpan(int, int)
+	 */
+	public static int getSpanStart(final long span) {
+		return (int)(span >>> 32);
+	}
+
+	/**
+	 * Returns the end of a packed token span.
+	 * @param span The packed span.
+	 * @return The end of the token.
+	 * @see #toSpan(int, int)
+	 */
+	public static int getSpanEnd(final long span) {
+		return (int)span;
+	}
+
+	/**
+	 * Returns a stream of the spans of the tokens of text, each packed into a single value. The text must not be modified while the stream is being used.
+	 * @param text The text to tokenize.
+	 * @param parallel <code>true</code> if the stream should be parallel.
+	 * @return A stream of packed token spans, in order of appearance.
+	 * @see #getSpanStart(long)
+	 * @see #getSpanEnd(long)
+	 */
+	public LongStream tokens(final CharSequence text, final boolean parallel) {
+		return StreamSupport.longStream(new TokenSpliterator(text, 0, text.length()), parallel);
+	}
+
+	/**
+	 * A spliterator over the token spans of a span of text. A span is split only at a delimiter found near its middle.
+	 * @author Garret Wilson
+	 */
+	private final class TokenSpliterator implements Spliterator.OfLong {
+
+		/** The text being tokenized. */
+		private final CharSequence text;
+
+		/** The index at which to look for the next token. */
+		private int index;
+
+		/** The index at which to stop tokenizing. */
+		private final int end;
+
+		/**
+		 * Constructor.
+		 * @param text The text to tokenize.
+		 * @param start The index at which to start tokenizing.
+		 * @param end The index at which to stop tokenizing.
+		 */
+		TokenSpliterator(final CharSequence text, final int start, final int end) {
+			this.text = text;
+			this.index = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(final LongConsumer action) {
+			final int tokenStart = getTokenStart(text, index, end);
+			if(tokenStart == end) {
+				index = end;
+				return false;
+			}
+			index = getTokenEnd(text, tokenStart, end);
+			action.accept(toSpan(tokenStart, index));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(final LongConsumer action) {
+			int tokenStart;
+			while((tokenStart = getTokenStart(text, index, end)) < end) {
+				index = getTokenEnd(text, tokenStart, end);
+				action.accept(toSpan(tokenStart, index));
+			}
+			index = end;
+		}
+
+		@Override
+		public Spliterator.OfLong trySplit() {
+			if(end - index < MIN_SPLIT_LENGTH) {
+				return null;
+			}
+			final int splitIndex = getSplitPoint(text, index, end, (index + end) >>> 1);
+			if(splitIndex >= end) { //if there is no delimiter in the second half, the rest is a single token
+				return null;
+			}
+			final TokenSpliterator prefix = new TokenSpliterator(text, index, splitIndex);
+			index = splitIndex;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return (end - index) / 8; //assume tokens of a few characters, separated by single delimiters
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | IMMUTABLE;
+		}
+
+	}
+
+}
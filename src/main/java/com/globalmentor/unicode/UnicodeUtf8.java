@@ -0,0 +1,474 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Classification of Unicode text encoded in UTF-8, directly from bytes in a <code>byte[]</code> or {@link ByteBuffer} without decoding to UTF-16.
+ * <p>
+ * Sequences are decoded inline and nothing is allocated. Runs of ASCII bytes are skipped eight bytes at a time where possible. Byte offsets are absolute
+ * indexes into the array or buffer; the position and limit of a buffer are neither used nor changed. Buffers backed by accessible arrays are processed as
+ * arrays.
+ * </p>
+ * <p>
+ * Decoding follows the well-formed UTF-8 byte sequences of the Unicode Standard. Overlong forms, encoded surrogates, and values above
+ * <code>U+10FFFF</code> are malformed. The length reported for a malformed sequence is that of its maximal subpart, so that replacing each malformed
+ * sequence with <code>U+FFFD</code> follows the recommended practice.
+ * </p>
+ * <p>
+ * The result of decoding a single code point is packed into a <code>long</code>, to be unpacked using {@link #getCodePoint(long)},
+ * {@link #getLength(long)}, and {@link #isMalformed(long)}.
+ * </p>
+ * @author Garret Wilson
+ */
+public final class UnicodeUtf8 {
+
+	/** This class cannot be publicly instantiated. */
+	private UnicodeUtf8() {
+	}
+
+	/**
+	 * Receives the code points of UTF-8 text.
+	 * @author Garret Wilson
+	 * @see UnicodeUtf8#forEachCodePoint(byte[], int, int, Handler)
+	 */
+	public interface Handler {
+
+		/**
+		 * Receives a well-formed code point.
+		 * @param codePoint The code point.
+		 * @param offset The offset of the first byte of the code point.
+		 * @param length The number of bytes encoding the code point.
+		 * @return <code>true</code> if processing should continue.
+		 */
+		public boolean codePoint(int codePoint, int offset, int length);
+
+		/**
+		 * Receives a malformed sequence.
+		 * @param offset The offset of the first byte of the malformed sequence.
+		 * @param length The length of the maximal subpart of the malformed sequence.
+		 * @return <code>true</code> if processing should continue.
+		 */
+		public boolean malformed(int offset, int length);
+	}
+
+	/**
+	 * Determines whether a decoding result indicates a malformed sequence.
+	 * @param result The result of decoding.
+	 * @return <code>true</code> if the bytes decoded were malformed.
+	 */
+	public static boolean isMalformed(final long result) {
+		return result < 0;
+	}
+
+	/**
+	 * Returns the code point of a decoding result.
+	 * @param result The result of decoding.
+	 * @return The code point decoded, or <code>-1</code> if the sequence was malformed.
+	 */
+	public static int getCodePoint(final long result) {
+		return result < 0 ? -1 : (int)result;
+	}
+
+	/**
+	 * Returns the number of bytes consumed by a decoding result.
+	 * @param result The result of decoding.
+	 * @return The number of bytes of the code point decoded, or of the maximal subpart of the malformed sequence.
+	 */
+	public static int getLength(final long result) {
+		return result < 0 ? (int)-result : (int)(result >>> 32);
+	}
+
+	/**
+	 * Packs a successfully decoded code point.
+	 * @param codePoint The code point.
+	 * @param length The number of bytes encoding the code point.
+	 * @return The packed result.
+	 */
+	private static long result(final int codePoint, final int length) {
+		return ((long)length << 32) | codePoint;
+	}
+
+	/**
+	 * Decodes the code point beginning at an offset.
+	 * @param bytes The UTF-8 bytes.
+	 * @param offset The offset of the first byte of the code point.
+	 * @param limit The offset one past the last byte that may be read.
+	 * @return The packed result of decoding.
+	 * @throws IndexOutOfBoundsException if the offset is not less than the limit.
+	 */
+	public static long decode(final byte[] bytes, final int offset, final int limit) {
+		final int b0 = bytes[offset] & 0xFF;
+		if(b0 < 0x80) {
+			return result(b0, 1);
+		}
+		if(b0 < 0xC2 || b0 > 0xF4) { //continuation byte, overlong two-byte lead, or lead beyond U+10FFFF
+			return -1;
+		}
+		if(offset + 1 >= limit) {
+			return -1;
+		}
+		final int b1 = bytes[offset + 1] & 0xFF;
+		if(b0 < 0xE0) {
+			return (b1 & 0xC0) == 0x80 ? result(((b0 & 0x1F) << 6) | (b1 & 0x3F), 2) : -1;
+		}
+		if(b1 < (b0 == 0xE0 ? 0xA0 : b0 == 0xF0 ? 0x90 : 0x80) || b1 > (b0 == 0xED ? 0x9F : b0 == 0xF4 ? 0x8F : 0xBF)) { //overlong, surrogate, or out of range
+			return -1;
+		}
+		if(offset + 2 >= limit || (bytes[offset + 2] & 0xC0) != 0x80) {
+			return -2;
+		}
+		final int b2 = bytes[offset + 2] & 0x3F;
+		if(b0 < 0xF0) {
+			return result(((b0 & 0x0F) << 12) | ((b1 & 0x3F) << 6) | b2, 3);
+		}
+		if(offset + 3 >= limit || (bytes[offset + 3] & 0xC0) != 0x80) {
+			return -3;
+		}
+		return result(((b0 & 0x07) << 18) | ((b1 & 0x3F) << 12) | (b2 << 6) | (bytes[offset + 3] & 0x3F), 4);
+	}
+
+	/**
+	 * Decodes the code point beginning at an offset.
+	 * @param buffer The buffer of UTF-8 bytes.
+	 * @param offset The absolute offset of the first byte of the code point.
+	 * @param limit The absolute offset one past the last byte that may be read.
+	 * @return The packed result of decoding.
+	 * @throws IndexOutOfBoundsException if the offset is not less than the limit.
+	 */
+	public static long decode(final ByteBuffer buffer, final int offset, final int limit) {
+		if(buffer.hasArray()) {
+			final int arrayOffset = buffer.arrayOffset();
+			return decode(buffer.array(), arrayOffset + offset, arrayOffset + limit);
+		}
+		final int b0 = buffer.get(offset) & 0xFF;
+		if(b0 < 0x80) {
+			return result(b0, 1);
+		}
+		if(b0 < 0xC2 || b0 > 0xF4) {
+			return -1;
+		}
+		if(offset + 1 >= limit) {
+			return -1;
+		}
+		final int b1 = buffer.get(offset + 1) & 0xFF;
+		if(b0 < 0xE0) {
+			return (b1 & 0xC0) == 0x80 ? result(((b0 & 0x1F) << 6) | (b1 & 0x3F), 2) : -1;
+		}
+		if(b1 < (b0 == 0xE0 ? 0xA0 : b0 == 0xF0 ? 0x90 : 0x80) || b1 > (b0 == 0xED ? 0x9F : b0 == 0xF4 ? 0x8F : 0xBF)) {
+			return -1;
+		}
+		if(offset + 2 >= limit || (buffer.get(offset + 2) & 0xC0) != 0x80) {
+			return -2;
+		}
+		final int b2 = buffer.get(offset + 2) & 0x3F;
+		if(b0 < 0xF0) {
+			return result(((b0 & 0x0F) << 12) | ((b1 & 0x3F) << 6) | b2, 3);
+		}
+		if(offset + 3 >= limit || (buffer.get(offset + 3) & 0xC0) != 0x80) {
+			return -3;
+		}
+		return result(((b0 & 0x07) << 18) | ((b1 & 0x3F) << 12) | (b2 << 6) | (buffer.get(offset + 3) & 0x3F), 4);
+	}
+
+	/**
+	 * Finds the end of a run of ASCII bytes, examining eight bytes at a time where possible.
+	 * @param bytes The UTF-8 bytes.
+	 * @param offset The offset at which to start.
+	 * @param limit The offset one past the last byte to examine.
+	 * @return The offset of the first non-ASCII byte, or the limit if all bytes are ASCII.
+	 */
+	public static int spanAscii(final byte[] bytes, final int offset, final int limit) {
+		int index = offset;
+		while(index + 8 <= limit && (bytes[index] | bytes[index + 1] | bytes[index + 2] | bytes[index + 3] | bytes[index + 4] | bytes[index + 5]
+				| bytes[index + 6] | bytes[index + 7]) >= 0) { //the high bit of any non-ASCII byte makes the combination negative
+			index += 8;
+		}
+		while(index < limit && bytes[index] >= 0) {
+			++index;
+		}
+		return index;
+	}
+
+	/**
+	 * Finds the end of a run of ASCII bytes.
+	 * @param buffer The buffer of UTF-8 bytes.
+	 * @param offset The absolute offset at which to start.
+	 * @param limit The absolute offset one past the last byte to examine.
+	 * @return The absolute offset of the first non-ASCII byte, or the limit if all bytes are ASCII.
+	 */
+	public static int spanAscii(final ByteBuffer buffer, final int offset, final int limit) {
+		if(buffer.hasArray()) {
+			final int arrayOffset = buffer.arrayOffset();
+			return spanAscii(buffer.array(), arrayOffset + offset, arrayOffset + limit) - arrayOffset;
+		}
+		int index = offset;
+		while(index + 8 <= limit && (buffer.getLong(index) & 0x8080808080808080L) == 0) {
+			index += 8;
+		}
+		while(index < limit && buffer.get(index) >= 0) {
+			++index;
+		}
+		return index;
+	}
+
+	/**
+	 * Finds the first malformed sequence in UTF-8 bytes.
+	 * @param bytes The UTF-8 bytes.
+	 * @param offset The offset at which to start.
+	 * @param limit The offset one past the last byte to examine.
+	 * @return The offset of the first malformed sequence, or <code>-1</code> if the bytes are well-formed UTF-8.
+	 */
+	public static int findMalformed(final byte[] bytes, final int offset, final int limit) {
+		int index = offset;
+		while((index = spanAscii(bytes, index, limit)) < limit) {
+			final long result = decode(bytes, index, limit);
+			if(isMalformed(result)) {
+				return index;
+			}
+			index += getLength(result);
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the first malformed sequence in UTF-8 bytes.
+	 * @param buffer The buffer of UTF-8 bytes.
+	 * @param offset The absolute offset at which to start.
+	 * @param limit The absolute offset one past the last byte to examine.
+	 * @return The absolute offset of the first malformed sequence, or <code>-1</code> if the bytes are well-formed UTF-8.
+	 */
+	public static int findMalformed(final ByteBuffer buffer, final int offset, final int limit) {
+		if(buffer.hasArray()) {
+			final int arrayOffset = buffer.arrayOffset();
+			final int index = findMalformed(buffer.array(), arrayOffset + offset, arrayOffset + limit);
+			return index >= 0 ? index - arrayOffset : -1;
+		}
+		int index = offset;
+		while((index = spanAscii(buffer, index, limit)) < limit) {
+			final long result = decode(buffer, index, limit);
+			if(isMalformed(result)) {
+				return index;
+			}
+			index += getLength(result);
+		}
+		return -1;
+	}
+
+	/**
+	 * Counts the code points in UTF-8 bytes, counting each malformed sequence as a single code point as if it were replaced by <code>U+FFFD</code>.
+	 * @param bytes The UTF-8 bytes.
+	 * @param offset The offset at which to start.
+	 * @param limit The offset one past the last byte to count.
+	 * @return The number of code points.
+	 */
+	public static int countCodePoints(final byte[] bytes, final int offset, final int limit) {
+		int count = 0;
+		int index = offset;
+		while(index < limit) {
+			final int asciiEnd = spanAscii(bytes, index, limit);
+			count += asciiEnd - index;
+			index = asciiEnd;
+			if(index < limit) {
+				index += getLength(decode(bytes, index, limit));
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the end of a run of code points that are all either in or not in a character class. A malformed sequence ends the run.
+	 * @param bytes The UTF-8 bytes.
+	 * @param offset The offset at which to start.
+	 * @param limit The offset one past the last byte to examine.
+	 * @param characterClass The character class.
+	 * @param matching <code>true</code> to span code points in the class, or <code>false</code> to span code points not in the class.
+	 * @return The offset of the first code point or malformed sequence that does not satisfy the condition, or the limit if there is none.
+	 */
+	public static int span(final byte[] bytes, final int offset, final int limit, final UnicodeCharacterClass characterClass, final boolean matching) {
+		int index = offset;
+		while(index < limit) {
+			final long result = decode(bytes, index, limit);
+			if(isMalformed(result) || characterClass.matches(getCodePoint(result)) != matching) {
+				return index;
+			}
+			index += getLength(result);
+		}
+		return limit;
+	}
+
+	/**
+	 * Finds the end of a run of code points that are all either in or not in a character class. A malformed sequence ends the run.
+	 * @param buffer The buffer of UTF-8 bytes.
+	 * @param offset The absolute offset at which to start.
+	 * @param limit The absolute offset one past the last byte to examine.
+	 * @param characterClass The character class.
+	 * @param matching <code>true</code> to span code points in the class, or <code>false</code> to span code points not in the class.
+	 * @return The absolute offset of the first code point or malformed sequence that does not satisfy the condition, or the limit if there is none.
+	 */
+	public static int span(final ByteBuffer buffer, final int offset, final int limit, final UnicodeCharacterClass characterClass, final boolean matching) {
+		if(buffer.hasArray()) {
+			final int arrayOffset = buffer.arrayOffset();
+			return span(buffer.array(), arrayOffset + offset, arrayOffset + limit, characterClass, matching) - arrayOffset;
+		}
+		int index = offset;
+		while(index < limit) {
+			final long result = decode(buffer, index, limit);
+			if(isMalformed(result) || characterClass.matches(getCodePoint(result)) != matching) {
+				return index;
+			}
+			index += getLength(result);
+		}
+		return limit;
+	}
+
+	/**
+	 * Reports each code point and malformed sequence of UTF-8 bytes to a handler.
+	 * @param bytes The UTF-8 bytes.
+	 * @param offset The offset at which to start.
+	 * @param limit The offset one past the last byte to process.
+	 * @param handler The handler to receive code points and malformed sequences.
+	 * @return The offset after the last code point or sequence processed, which is the limit unless the handler stopped processing.
+	 */
+	public static int forEachCodePoint(final byte[] bytes, final int offset, final int limit, final Handler handler) {
+		int index = offset;
+		while(index < limit) {
+			final long result = decode(bytes, index, limit);
+			final int length = getLength(result);
+			final boolean proceed = isMalformed(result) ? handler.malformed(index, length) : handler.codePoint(getCodePoint(result), index, length);
+			index += length;
+			if(!proceed) {
+				break;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Reports each code point and malformed sequence of UTF-8 bytes to a handler.
+	 * @param buffer The buffer of UTF-8 bytes.
+	 * @param offset The absolute offset at which to start.
+	 * @param limit The absolute offset one past the last byte to process.
+	 * @param handler The handler to receive code points and malformed sequences, with absolute offsets.
+	 * @return The absolute offset after the last code point or sequence processed, which is the limit unless the handler stopped processing.
+	 */
+	public static int forEachCodePoint(final ByteBuffer buffer, final int offset, final int limit, final Handler handler) {
+		int index = offset;
+		while(index < limit) {
+			final long result = decode(buffer, index, limit);
+			final int length = getLength(result);
+			final boolean proceed = isMalformed(result) ? handler.malformed(index, length) : handler.codePoint(getCodePoint(result), index, length);
+			index += length;
+			if(!proceed) {
+				break;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Finds the first code point in UTF-8 bytes with one of a set of general categories.
+	 * @param database The Unicode database providing general categories.
+	 * @param bytes The UTF-8 bytes.
+	 * @param offset The offset at which to start.
+	 * @param limit The offset one past the last byte to examine.
+	 * @param generalCategoryMask The bit mask of general categories, as returned by {@link GeneralCategories#maskOf(String...)}.
+	 * @return The offset of the first code point with one of the categories, or <code>-1</code> if there is none; malformed sequences are skipped.
+	 */
+	public static int indexOfGeneralCategory(final UnicodeDatabase database, final byte[] bytes, final int offset, final int limit,
+			final int generalCategoryMask) {
+		final CodePointByteTable table = GeneralCategories.getTable(database);
+		int index = offset;
+		while(index < limit) {
+			final long result = decode(bytes, index, limit);
+			if(!isMalformed(result) && (generalCategoryMask & (1 << table.get(getCodePoint(result)))) != 0) {
+				return index;
+			}
+			index += getLength(result);
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the general category of the code point at an offset in UTF-8 bytes.
+	 * @param database The Unicode database providing general categories.
+	 * @param bytes The UTF-8 bytes.
+	 * @param offset The offset of the first byte of the code point.
+	 * @param limit The offset one past the last byte that may be read.
+	 * @return The general category of the code point, which is {@link UnicodeConstants#OTHER_NOT_ASSIGNED} if the code point is not assigned.
+	 * @throws IllegalArgumentException if the bytes at the offset are malformed.
+	 */
+	public static String getGeneralCategory(final UnicodeDatabase database, final byte[] bytes, final int offset, final int limit) {
+		return GeneralCategories.getGeneralCategory(database, checkedCodePoint(decode(bytes, offset, limit), offset));
+	}
+
+	/**
+	 * Returns the general category of the code point at an offset in UTF-8 bytes.
+	 * @param database The Unicode database providing general categories.
+	 * @param buffer The buffer of UTF-8 bytes.
+	 * @param offset The absolute offset of the first byte of the code point.
+	 * @param limit The absolute offset one past the last byte that may be read.
+	 * @return The general category of the code point, which is {@link UnicodeConstants#OTHER_NOT_ASSIGNED} if the code point is not assigned.
+	 * @throws IllegalArgumentException if the bytes at the offset are malformed.
+	 */
+	public static String getGeneralCategory(final UnicodeDatabase database, final ByteBuffer buffer, final int offset, final int limit) {
+		return GeneralCategories.getGeneralCategory(database, checkedCodePoint(decode(buffer, offset, limit), offset));
+	}
+
+	/**
+	 * Returns the block of the code point at an offset in UTF-8 bytes.
+	 * @param database The Unicode database providing blocks.
+	 * @param bytes The UTF-8 bytes.
+	 * @param offset The offset of the first byte of the code point.
+	 * @param limit The offset one past the last byte that may be read.
+	 * @return The block containing the code point, or <code>null</code> if the code point is not in a known block.
+	 * @throws IllegalArgumentException if the bytes at the offset are malformed.
+	 */
+	public static UnicodeBlock getUnicodeBlock(final UnicodeDatabase database, final byte[] bytes, final int offset, final int limit) {
+		return database.getUnicodeBlockByCodePoint(checkedCodePoint(decode(bytes, offset, limit), offset));
+	}
+
+	/**
+	 * Returns the block of the code point at an offset in UTF-8 bytes.
+	 * @param database The Unicode database providing blocks.
+	 * @param buffer The buffer of UTF-8 bytes.
+	 * @param offset The absolute offset of the first byte of the code point.
+	 * @param limit The absolute offset one past the last byte that may be read.
+	 * @return The block containing the code point, or <code>null</code> if the code point is not in a known block.
+	 * @throws IllegalArgumentException if the bytes at the offset are malformed.
+	 */
+	public static UnicodeBlock getUnicodeBlock(final UnicodeDatabase database, final ByteBuffer buffer, final int offset, final int limit) {
+		return database.getUnicodeBlockByCodePoint(checkedCodePoint(decode(buffer, offset, limit), offset));
+	}
+
+	/**
+	 * Returns the code point of a decoding result, ensuring that the sequence was well-formed.
+	 * @param result The result of decoding.
+	 * @param offset The offset of the sequence decoded, for reporting.
+	 * @return The code point decoded.
+	 * @throws IllegalArgumentException if the sequence was malformed.
+	 */
+	private static int checkedCodePoint(final long result, final int offset) {
+		if(isMalformed(result)) {
+			throw new IllegalArgumentException("Malformed UTF-8 sequence of length " + getLength(result) + " at offset " + offset + ".");
+		}
+		return getCodePoint(result);
+	}
+
+}
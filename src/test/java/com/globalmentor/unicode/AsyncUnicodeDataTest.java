@@ -0,0 +1,65 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link AsyncUnicodeData}.
+ * @author Garret Wilson
+ */
+public class AsyncUnicodeDataTest {
+
+	/**
+	 * Tests looking up a batch of many more code points than the queue of the default executor holds, spread over many blocks and including code points in no
+	 * block, comparing the results with those of {@link UnicodeData}.
+	 */
+	@Test
+	public void testGetUnicodeCharactersLargeBatch() throws Exception {
+		final int[] codePoints = IntStream.concat(IntStream.iterate(0, codePoint -> codePoint <= 0x2FFFF, codePoint -> codePoint + 37),
+				IntStream.of(0xE0080, 0xEFFFF, 0x10FFFF)).toArray();
+		assertThat(codePoints.length > AsyncUnicodeData.DEFAULT_QUEUE_CAPACITY, is(true));
+		final SortedMap<Integer, UnicodeCharacter> unicodeCharacters = AsyncUnicodeData.getUnicodeCharacters(codePoints).get(60, TimeUnit.SECONDS);
+		final SortedMap<Integer, UnicodeCharacter> expectedUnicodeCharacters = new TreeMap<Integer, UnicodeCharacter>();
+		for(final int codePoint : codePoints) {
+			final UnicodeCharacter unicodeCharacter = UnicodeData.getUnicodeCharacter(codePoint);
+			if(unicodeCharacter != null) {
+				expectedUnicodeCharacters.put(Integer.valueOf(codePoint), unicodeCharacter);
+			}
+		}
+		assertThat(unicodeCharacters.isEmpty(), is(false));
+		assertThat(unicodeCharacters.keySet(), is(expectedUnicodeCharacters.keySet()));
+		for(final Map.Entry<Integer, UnicodeCharacter> entry : unicodeCharacters.entrySet()) {
+			assertThat(entry.getValue().getCodeValue(), is(entry.getKey().intValue()));
+			assertThat(entry.getValue().getCharacterName(), is(expectedUnicodeCharacters.get(entry.getKey()).getCharacterName()));
+		}
+	}
+
+	/** Tests that a code point in no block completes with no character. */
+	@Test
+	public void testGetUnicodeCharacterBlockless() throws Exception {
+		assertThat(AsyncUnicodeData.getUnicodeCharacter(0xEFFFF).get(60, TimeUnit.SECONDS), is(nullValue()));
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.text.Normalizer;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link CanonicalEquivalence}, checked against {@link Normalizer}.
+ * <p>
+ * The Unicode data of the JDK may be newer than that of the database, but canonical decompositions of assigned characters are stable between versions, so
+ * only characters listed in the database are compared.
+ * </p>
+ * @author Garret Wilson
+ */
+public class CanonicalEquivalenceTest {
+
+	/** Characters for building random combining sequences: bases, precomposed letters, Hangul syllables and jamo, and marks of differing combining classes. */
+	private static final String SEQUENCE_CHARACTERS = "aeAo\u00E9\u00C5\u212B\u1E69\u1EC7\uAC00\uD4DB\u1100\u1161\u11A8"
+			+ "\u0301\u0300\u0302\u0307\u0323\u0328\u031B\u0345\u05B0";
+
+	/** Tests that the decomposition of every character listed in the database is that of Normalization Form D. */
+	@Test
+	public void testDecomposeCharactersMatchesNormalizer() {
+		final UnicodeDatabase database = UnicodeDatabase.getCurrent();
+		final CanonicalEquivalence canonicalEquivalence = CanonicalEquivalence.forDatabase(database);
+		for(int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; ++codePoint) {
+			if(Character.getType(codePoint) == Character.SURROGATE || database.getUnicodeCharacter(codePoint) == null) {
+				continue;
+			}
+			final String text = new StringBuilder().appendCodePoint(codePoint).toString();
+			assertThat(String.format("U+%04X", codePoint), canonicalEquivalence.decompose(text), is(Normalizer.normalize(text, Normalizer.Form.NFD)));
+		}
+	}
+
+	/** Tests decomposition, equivalence, and hashing of random combining sequences against Normalization Form D. */
+	@Test
+	public void testRandomSequencesMatchNormalizer() {
+		final CanonicalEquivalence canonicalEquivalence = CanonicalEquivalence.getInstance();
+		final Random random = new Random(0);
+		for(int i = 0; i < 10_000; ++i) {
+			final String text1 = randomSequence(random);
+			final String text2 = random.nextBoolean() ? randomSequence(random) : Normalizer.normalize(text1, Normalizer.Form.NFC);
+			final String nfd1 = Normalizer.normalize(text1, Normalizer.Form.NFD);
+			final String nfd2 = Normalizer.normalize(text2, Normalizer.Form.NFD);
+			assertThat(text1, canonicalEquivalence.decompose(text1), is(nfd1));
+			assertThat(text1 + " / " + text2, canonicalEquivalence.isEquivalent(text1, text2), is(nfd1.equals(nfd2)));
+			assertThat(text1 + " / " + text2, Integer.signum(canonicalEquivalence.compare(text1, text2)), is(Integer.signum(nfd1.compareTo(nfd2))));
+			if(nfd1.equals(nfd2)) {
+				assertThat(text1 + " / " + text2, canonicalEquivalence.hash(text1), is(canonicalEquivalence.hash(text2)));
+				assertThat(text1 + " / " + text2, canonicalEquivalence.key(text1), is(canonicalEquivalence.key(text2)));
+			}
+		}
+	}
+
+	/** Tests that combining marks of different combining classes are equivalent in either order, but marks of the same class are not. */
+	@Test
+	public void testMarkOrder() {
+		final CanonicalEquivalence canonicalEquivalence = CanonicalEquivalence.getInstance();
+		assertThat(canonicalEquivalence.isEquivalent("a\u0323\u0302", "a\u0302\u0323"), is(true));
+		assertThat(canonicalEquivalence.isEquivalent("\u1EAD", "a\u0302\u0323"), is(true));
+		assertThat(canonicalEquivalence.isEquivalent("a\u0301\u0300", "a\u0300\u0301"), is(false));
+	}
+
+	/**
+	 * Creates a random sequence of characters from {@link #SEQUENCE_CHARACTERS}.
+	 * @param random The source of randomness.
+	 * @return A random sequence of up to six characters.
+	 */
+	private static String randomSequence(final Random random) {
+		final int length = random.nextInt(7);
+		final StringBuilder stringBuilder = new StringBuilder(length);
+		for(int i = 0; i < length; ++i) {
+			stringBuilder.append(SEQUENCE_CHARACTERS.charAt(random.nextInt(SEQUENCE_CHARACTERS.length())));
+		}
+		return stringBuilder.toString();
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link DiacriticFolder}.
+ * @author Garret Wilson
+ */
+public class DiacriticFolderTest {
+
+	/** Tests that diacritics are removed, with and without lowercasing. */
+	@Test
+	public void testFoldRemovesDiacritics() {
+		assertThat(DiacriticFolder.getInstance(false).fold("Crème Brûlée"), is("Creme Brulee"));
+		assertThat(DiacriticFolder.getInstance(true).fold("ÉCOLE"), is("ecole"));
+	}
+
+	/** Tests that text without diacritics is not lowercased unless requested. */
+	@Test
+	public void testFoldWithoutLowercasingPreservesCase() {
+		assertThat(DiacriticFolder.getInstance(false).fold("ABC"), is("ABC"));
+	}
+
+	/** Tests that lowercasing a supplementary character keeps the plane of the character, using the Deseret case pair U+10400/U+10428. */
+	@Test
+	public void testFoldLowercasesSupplementaryCharacterWithinPlane() {
+		assertThat(DiacriticFolder.getInstance(true).fold("𐐀"), is("𐐨"));
+		assertThat(DiacriticFolder.getInstance(true).fold("𐐀"), is(not("ш"))); //not the BMP character sharing the low 16 bits
+		assertThat(DiacriticFolder.getInstance(false).fold("𐐀"), is("𐐀"));
+	}
+
+}
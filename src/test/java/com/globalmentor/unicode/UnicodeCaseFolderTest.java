@@ -0,0 +1,55 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link UnicodeCaseFolder} and {@link CaseInsensitiveMatcher}.
+ * @author Garret Wilson
+ */
+public class UnicodeCaseFolderTest {
+
+	/** Tests that the case mappings of a supplementary character keep the plane of the character, using the Deseret case pair U+10400/U+10428. */
+	@Test
+	public void testMappingCodePointsOfSupplementaryCharacter() {
+		final UnicodeDatabase database = UnicodeDatabase.getCurrent();
+		assertThat(database.getUnicodeCharacter(0x10400).getLowercaseMappingCodePoint(), is(0x10428));
+		assertThat(database.getUnicodeCharacter(0x10428).getUppercaseMappingCodePoint(), is(0x10400));
+		assertThat(database.getUnicodeCharacter(0x10428).getLowercaseMappingCodePoint(), is(0));
+	}
+
+	/** Tests that a supplementary case pair folds to the same code point, and not to a BMP character. */
+	@Test
+	public void testFoldSupplementaryCasePair() {
+		final UnicodeCaseFolder caseFolder = UnicodeCaseFolder.getInstance();
+		assertThat(caseFolder.fold(0x10400), is(0x10428));
+		assertThat(caseFolder.fold(0x10428), is(0x10428));
+		assertThat(caseFolder.fold((int)'A'), is((int)'a'));
+	}
+
+	/** Tests that case-insensitive matching finds the other case of a supplementary character. */
+	@Test
+	public void testMatcherFindsSupplementaryCasePair() {
+		assertThat(CaseInsensitiveMatcher.compile("𐐀").indexIn("x𐐨"), is(1));
+		assertThat(CaseInsensitiveMatcher.compile("𐐀").indexIn("xш"), is(-1));
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link UnicodeNameIndex}.
+ * @author Garret Wilson
+ */
+public class UnicodeNameIndexTest {
+
+	/** Tests that the index of a database is built once and shared by all requests. */
+	@Test
+	public void testGetAsyncSharesIndex() {
+		final UnicodeDatabase database = UnicodeDatabase.getCurrent();
+		final UnicodeNameIndex index = UnicodeNameIndex.getAsync(database).join();
+		assertThat(UnicodeNameIndex.getAsync(database).join(), is(sameInstance(index)));
+		assertThat(UnicodeNameIndex.forDatabase(database), is(sameInstance(index)));
+	}
+
+	/** Tests finding a character by the words of its name. */
+	@Test
+	public void testSearch() {
+		final int[] codePoints = UnicodeNameIndex.getInstance().search("latin capital letter a", false);
+		assertThat(Arrays.stream(codePoints).anyMatch(codePoint -> codePoint == 'A'), is(true));
+	}
+
+}
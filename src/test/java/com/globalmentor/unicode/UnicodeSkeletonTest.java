@@ -0,0 +1,56 @@
+/*
+ * Copyright © 1996-2008 GlobalMentor, Inc. <http://www.globalmentor.com/>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globalmentor.unicode;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link UnicodeSkeleton}.
+ * @author Garret Wilson
+ */
+public class UnicodeSkeletonTest {
+
+	/** Tests that texts differing only in case and diacritics are confusable. */
+	@Test
+	public void testIsConfusableIgnoresCaseAndMarks() {
+		final UnicodeSkeleton skeleton = UnicodeSkeleton.getInstance();
+		assertThat(skeleton.isConfusable("Café", "cafe"), is(true));
+		assertThat(skeleton.isConfusable("cafe", "cafes"), is(false));
+	}
+
+	/** Tests that the skeleton of a supplementary character keeps the plane of the character, using the Deseret case pair U+10400/U+10428. */
+	@Test
+	public void testSkeletonOfSupplementaryCasePair() {
+		final UnicodeSkeleton skeleton = UnicodeSkeleton.getInstance();
+		assertThat(skeleton.skeleton("𐐀"), is("𐐨"));
+		assertThat(skeleton.skeleton("𐐨"), is("𐐨"));
+		assertThat(skeleton.hash("𐐀"), is(skeleton.hash("𐐨")));
+	}
+
+	/** Tests that a supplementary case pair is confusable with itself, and not with the BMP characters sharing the low 16 bits of its code points. */
+	@Test
+	public void testIsConfusableSupplementaryCasePair() {
+		final UnicodeSkeleton skeleton = UnicodeSkeleton.getInstance();
+		assertThat(skeleton.isConfusable("𐐀", "𐐨"), is(true));
+		assertThat(skeleton.isConfusable("𐐨", "е"), is(false)); //U+0435, not U+10428
+		assertThat(skeleton.isConfusable("𐐀", "ш"), is(false)); //U+0448, not U+10428
+	}
+
+}